@@ -1,25 +1,178 @@
 package com.marketdata;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.marketdata.application.service.CacheWarmUpService;
+import com.marketdata.domain.model.TimeframeMapper;
+import com.marketdata.domain.model.WarmUpTarget;
+import com.marketdata.domain.port.in.WarmUpCacheUseCase;
+import com.marketdata.domain.port.out.CandleInvalidator;
+import com.marketdata.domain.port.out.DataVersions;
+import com.marketdata.domain.port.out.EventRepository;
+import com.marketdata.domain.port.out.SymbolDictionary;
+import com.marketdata.domain.port.out.SymbolOwnership;
+import com.marketdata.infrastructure.cache.CaffeineCandleInvalidator;
+import com.marketdata.infrastructure.cache.CandleCacheExpiry;
+import com.marketdata.infrastructure.cache.CandleCacheKeyGenerator;
+import com.marketdata.infrastructure.cache.CandleCacheSnapshotter;
+import com.marketdata.infrastructure.cache.InMemoryDataVersions;
+import com.marketdata.infrastructure.cache.RedisSharedCacheTier;
+import com.marketdata.infrastructure.cache.SharedCacheTier;
+import com.marketdata.infrastructure.cache.SharedCandleInvalidator;
+import com.marketdata.infrastructure.cache.TwoLevelCandleCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.concurrent.TimeUnit;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
 
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
+    /**
+     * Time a candle range stays in the {@code candles} cache after it is computed.
+     */
+    static final Duration CANDLE_TTL = Duration.ofMinutes(5);
+
+    /**
+     * With a {@link SharedCacheTier}, {@code candles} becomes a near-cache in front of it.
+     */
     @Bean
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("candles");
+    public CacheManager cacheManager(ObjectProvider<SharedCacheTier> sharedCacheTier,
+                                     SymbolDictionary symbolDictionary,
+                                     MeterRegistry meterRegistry) {
+        var shared = sharedCacheTier.getIfAvailable();
+        CaffeineCacheManager cacheManager = shared == null ? new CaffeineCacheManager() : new CaffeineCacheManager() {
+            @Override
+            protected org.springframework.cache.Cache adaptCaffeineCache(String name, Cache<Object, Object> cache) {
+                return new TwoLevelCandleCache(name, cache, CANDLE_TTL, shared, symbolDictionary, meterRegistry);
+            }
+        };
         cacheManager.setCaffeine(Caffeine.newBuilder()
-            .expireAfterWrite(5, TimeUnit.MINUTES)
+            .expireAfter(new CandleCacheExpiry(CANDLE_TTL))
             .maximumSize(1000)
             .recordStats());
+        cacheManager.setCacheNames(List.of("candles"));
         return cacheManager;
     }
+
+    /**
+     * Redis shared by every instance, so each candle range is computed once per deployment
+     * rather than once per instance.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "marketdata.cache.shared.enabled")
+    public SharedCacheTier sharedCacheTier(
+            @Value("${marketdata.cache.shared.uri:redis://localhost:6379}") String uri,
+            @Value("${marketdata.cache.shared.channel:marketdata:candles:invalidations}") String channel,
+            @Value("${marketdata.cache.shared.timeout:500ms}") Duration timeout,
+            @Value("${marketdata.cache.shared.reconnect-interval:5s}") Duration reconnectInterval) {
+        return new RedisSharedCacheTier(uri, channel, timeout, reconnectInterval);
+    }
+
+    /**
+     * Keys {@code candles} entries and, through {@link CandleCacheKeyGenerator#SEALED_RANGE},
+     * keeps ranges out of the cache until they have sealed.
+     */
+    @Bean
+    public CandleCacheKeyGenerator candleCacheKeyGenerator(SymbolDictionary symbolDictionary,
+                                                           DataVersions dataVersions) {
+        return new CandleCacheKeyGenerator(symbolDictionary, dataVersions);
+    }
+
+    /**
+     * Versions for HTTP validators. Ranges older than {@code seal-after} (reorder window plus
+     * margin) are treated as settled and only change through late corrections.
+     */
+    @Bean
+    public DataVersions dataVersions(SymbolDictionary symbolDictionary,
+                                     @Value("${marketdata.http.seal-after:10s}") Duration sealAfter) {
+        return new InMemoryDataVersions(symbolDictionary, sealAfter.toNanos());
+    }
+
+    /**
+     * Restores the {@code candles} cache from the last snapshot while the context starts,
+     * before any request is served, and snapshots it every {@code interval} and on shutdown.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "marketdata.cache.snapshot.enabled", matchIfMissing = true)
+    public CandleCacheSnapshotter candleCacheSnapshotter(
+            CacheManager cacheManager,
+            EventRepository eventRepository,
+            SymbolDictionary symbolDictionary,
+            @Value("${marketdata.cache.snapshot.dir:data/snapshot}") Path directory,
+            @Value("${marketdata.cache.snapshot.interval:30s}") Duration interval,
+            @Value("${marketdata.cache.snapshot.sequence-margin:1000}") long sequenceMargin,
+            MeterRegistry meterRegistry) {
+        var cache = (CaffeineCache) cacheManager.getCache("candles");
+        var snapshotter = new CandleCacheSnapshotter(cache.getNativeCache(), eventRepository, symbolDictionary,
+            directory, interval.toMillis(), sequenceMargin, meterRegistry);
+        snapshotter.restore();
+        snapshotter.start();
+        return snapshotter;
+    }
+
+    /**
+     * Warms the {@code candles} cache for {@code targets}, each {@code symbol:interval:lookback}
+     * (e.g. {@code BTC-USD:1m:1d}). Starts after the snapshot restore, so restored ranges are
+     * cache hits rather than queries. In cluster mode each node warms only the symbols it owns.
+     */
+    @Bean
+    public WarmUpCacheUseCase warmUpCacheUseCase(
+            EventRepository eventRepository,
+            SymbolOwnership symbolOwnership,
+            ObjectProvider<CandleCacheSnapshotter> candleCacheSnapshotter,
+            @Value("${marketdata.cache.warmup.targets:}") List<String> targets,
+            @Value("${marketdata.cache.warmup.parallelism:4}") int parallelism,
+            @Value("${marketdata.cache.warmup.timeout:2m}") Duration timeout,
+            @Value("${marketdata.cache.block-buckets:240}") long blockBuckets,
+            DataVersions dataVersions) {
+        candleCacheSnapshotter.getIfAvailable();
+        var service = new CacheWarmUpService(eventRepository, dataVersions, blockBuckets,
+            targets.stream()
+                .filter(target -> !target.isBlank())
+                .map(CacheConfig::warmUpTarget)
+                .filter(target -> symbolOwnership.isLocal(target.symbol()))
+                .toList(),
+            parallelism, timeout.toMillis());
+        service.start();
+        return service;
+    }
+
+    private static WarmUpTarget warmUpTarget(String spec) {
+        var parts = spec.trim().split(":");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Warm-up target must be symbol:interval:lookback: " + spec);
+        }
+        return new WarmUpTarget(parts[0], TimeframeMapper.parse(parts[1]),
+            DurationStyle.detectAndParse(parts[2]).toSeconds());
+    }
+
+    /**
+     * With a shared tier, late events are flushed to it in the background every
+     * {@code invalidation-interval}; the subscription starts once the bean is initialized.
+     */
+    @Bean
+    public CandleInvalidator candleInvalidator(CacheManager cacheManager,
+                                               ObjectProvider<SharedCacheTier> sharedCacheTier,
+                                               SymbolDictionary symbolDictionary,
+                                               @Value("${marketdata.cache.shared.invalidation-interval:100ms}")
+                                               Duration invalidationInterval) {
+        var cache = (CaffeineCache) cacheManager.getCache("candles");
+        var near = new CaffeineCandleInvalidator(cache.getNativeCache());
+        var shared = sharedCacheTier.getIfAvailable();
+        return shared == null ? near
+            : new SharedCandleInvalidator(near, shared, symbolDictionary, invalidationInterval.toMillis());
+    }
 }
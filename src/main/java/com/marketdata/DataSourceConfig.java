@@ -0,0 +1,48 @@
+package com.marketdata;
+
+import com.marketdata.infrastructure.repository.ReadRouter;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class DataSourceConfig {
+
+    /**
+     * Read pools next to the auto-configured write pool, so long aggregations cannot hold
+     * the connections ingestion needs. Replicas use the primary's credentials and driver.
+     */
+    @Bean(destroyMethod = "close")
+    public ReadRouter readRouter(DataSourceProperties primary,
+                                 @Value("${marketdata.datasource.read.pool-size:10}") int poolSize,
+                                 @Value("${marketdata.datasource.replicas:}") List<String> replicaUrls,
+                                 @Value("${marketdata.datasource.replica-max-lag:10s}") Duration replicaMaxLag,
+                                 @Value("${marketdata.query.fetch-size:1000}") int fetchSize) {
+        var replicas = new ArrayList<DataSource>();
+        for (String url : replicaUrls) {
+            if (!url.isBlank()) {
+                replicas.add(readPool(primary, url.strip(), "replica-" + replicas.size(), poolSize));
+            }
+        }
+        return new ReadRouter(readPool(primary, primary.determineUrl(), "primary", poolSize), replicas,
+            fetchSize, replicaMaxLag.toNanos());
+    }
+
+    private static DataSource readPool(DataSourceProperties primary, String url, String name, int poolSize) {
+        HikariDataSource pool = primary.initializeDataSourceBuilder()
+            .type(HikariDataSource.class)
+            .url(url)
+            .build();
+        pool.setPoolName("read-" + name);
+        pool.setMaximumPoolSize(poolSize);
+        pool.setReadOnly(true);
+        return pool;
+    }
+}
@@ -1,36 +1,140 @@
 package com.marketdata;
 
+import com.marketdata.application.service.AdmissionControlledHistoryService;
+import com.marketdata.application.service.HealthCheckService;
 import com.marketdata.application.service.HistoryQueryService;
 import com.marketdata.application.service.MarketDataIngestionService;
+import com.marketdata.domain.port.in.CheckHealthUseCase;
 import com.marketdata.domain.port.in.IngestMarketDataUseCase;
 import com.marketdata.domain.port.in.QueryHistoryUseCase;
+import com.marketdata.domain.port.in.WarmUpCacheUseCase;
+import com.marketdata.domain.port.out.CandleInvalidator;
+import com.marketdata.domain.port.out.DataVersions;
 import com.marketdata.domain.port.out.EventRepository;
 import com.marketdata.domain.port.out.MarketDataSource;
+import com.marketdata.domain.port.out.SymbolDictionary;
+import com.marketdata.domain.port.out.SymbolOwnership;
+import com.marketdata.domain.port.out.WriteAheadLog;
 import com.marketdata.domain.service.CandleAggregator;
+import com.marketdata.domain.service.CandleKernel;
+import com.marketdata.infrastructure.cluster.ConsistentHashRing;
 import com.marketdata.infrastructure.source.RandomMarketDataSource;
+import com.marketdata.infrastructure.source.ShardedMarketDataSource;
+import com.marketdata.infrastructure.wal.MappedWriteAheadLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 @Configuration
 public class MarketDataAggregatorConfig {
 
     private static final Logger logger = LoggerFactory.getLogger(MarketDataAggregatorConfig.class);
 
+    /**
+     * Aggregator whose mid-price and high/low loops run on the configured kernel;
+     * {@code auto} vectorizes when the JVM was started with the Vector API module.
+     */
+    @Bean
+    public CandleAggregator candleAggregator(@Value("${marketdata.aggregation.kernel:auto}") String kernel) {
+        var aggregator = new CandleAggregator(CandleKernel.resolve(kernel));
+        logger.info("Candle aggregation kernel: {}", aggregator.kernel());
+        return aggregator;
+    }
+
+    /**
+     * Pool for aggregating large history ranges in parallel slices.
+     * Kept separate from the common pool so long queries do not starve other parallel work.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool historyQueryPool(
+            @Value("${marketdata.query.parallelism:0}") int parallelism,
+            MeterRegistry meterRegistry) {
+        var pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        new ExecutorServiceMetrics(pool, "history-query", Tags.empty()).bindTo(meterRegistry);
+        return pool;
+    }
+
+    /**
+     * History queries behind admission control: per-query cost limits, and a separate
+     * concurrency limit for queries spanning more than {@code expensive-range}.
+     */
+    @Bean
+    public QueryHistoryUseCase queryHistoryUseCase(
+            EventRepository eventRepository,
+            CandleAggregator candleAggregator,
+            ForkJoinPool historyQueryPool,
+            DataVersions dataVersions,
+            @Value("${marketdata.query.slice-buckets:20000}") long sliceBuckets,
+            @Value("${marketdata.query.max-buckets:100000}") long maxBuckets,
+            @Value("${marketdata.query.max-range:366d}") Duration maxRange,
+            @Value("${marketdata.query.expensive-range:1d}") Duration expensiveRange,
+            @Value("${marketdata.query.expensive-concurrency:2}") int expensiveConcurrency,
+            @Value("${marketdata.query.admission-timeout:200ms}") Duration admissionTimeout,
+            @Value("${marketdata.cache.block-buckets:240}") long cacheBlockBuckets,
+            MeterRegistry meterRegistry) {
+        var service = new HistoryQueryService(eventRepository, candleAggregator, historyQueryPool, sliceBuckets,
+            dataVersions, meterRegistry, cacheBlockBuckets, maxRange.toSeconds());
+        return new AdmissionControlledHistoryService(service, maxBuckets, maxRange.toSeconds(),
+            expensiveRange.toSeconds(), expensiveConcurrency, admissionTimeout.toMillis(), meterRegistry);
+    }
+
+    /**
+     * Write-ahead log for accepted events not yet in the repository. Opened (recovered) once
+     * configured, and closed (and synced) after the ingestion service has stopped and checkpointed.
+     */
     @Bean
-    public CandleAggregator candleAggregator() {
-        return new CandleAggregator();
+    public WriteAheadLog writeAheadLog(
+            @Value("${marketdata.wal.enabled:true}") boolean enabled,
+            @Value("${marketdata.wal.dir:data/wal}") Path directory,
+            @Value("${marketdata.wal.segment-size:64MB}") DataSize segmentSize,
+            @Value("${marketdata.wal.sync-interval:10ms}") Duration syncInterval,
+            @Value("${marketdata.wal.await-sync:true}") boolean awaitSync,
+            MeterRegistry meterRegistry) {
+        if (!enabled) {
+            return WriteAheadLog.disabled();
+        }
+        return new MappedWriteAheadLog(directory, Math.toIntExact(segmentSize.toBytes()), syncInterval.toMillis(),
+            awaitSync, meterRegistry).open();
     }
 
+    /**
+     * Symbol assignment across {@code marketdata.cluster.nodes}. A standalone node is a
+     * cluster of one and owns every symbol.
+     */
     @Bean
-    public QueryHistoryUseCase queryHistoryUseCase(EventRepository eventRepository, CandleAggregator candleAggregator) {
-        return new HistoryQueryService(eventRepository, candleAggregator);
+    public SymbolOwnership symbolOwnership(
+            @Value("${marketdata.cluster.enabled:false}") boolean enabled,
+            @Value("${marketdata.cluster.self:http://localhost:8080}") String self,
+            @Value("${marketdata.cluster.nodes:}") List<String> nodes,
+            @Value("${marketdata.cluster.virtual-nodes:128}") int virtualNodes) {
+        if (!enabled) {
+            return new ConsistentHashRing(self, List.of(self), 1);
+        }
+        var members = nodes.stream().map(String::trim).filter(node -> !node.isEmpty()).toList();
+        logger.info("Cluster mode: {} of {}", self, members);
+        return new ConsistentHashRing(self, members, virtualNodes);
     }
 
+    /**
+     * In cluster mode each node ingests only the symbols it owns.
+     */
     @Bean
-    public MarketDataSource marketDataSource() {
-        return new RandomMarketDataSource();
+    public MarketDataSource marketDataSource(
+            SymbolOwnership symbolOwnership,
+            @Value("${marketdata.cluster.enabled:false}") boolean clustered) {
+        var source = new RandomMarketDataSource();
+        return clustered ? new ShardedMarketDataSource(source, symbolOwnership) : source;
     }
 
     /**
@@ -38,11 +142,34 @@ public class MarketDataAggregatorConfig {
      * Events are continuously generated and stored in the database.
      */
     @Bean
-    public IngestMarketDataUseCase ingestMarketDataUseCase(MarketDataSource source, EventRepository eventRepository) {
-        var service = new MarketDataIngestionService(source, eventRepository);
+    public IngestMarketDataUseCase ingestMarketDataUseCase(
+            MarketDataSource source,
+            EventRepository eventRepository,
+            SymbolDictionary symbolDictionary,
+            CandleInvalidator candleInvalidator,
+            DataVersions dataVersions,
+            WriteAheadLog writeAheadLog,
+            @Value("${marketdata.ingestion.reorder-window:2s}") Duration reorderWindow,
+            @Value("${marketdata.ingestion.dedup.window:4096}") int dedupWindow,
+            MeterRegistry meterRegistry) {
+        var service = new MarketDataIngestionService(source, eventRepository, symbolDictionary, candleInvalidator,
+            dataVersions, writeAheadLog, reorderWindow.toNanos(), dedupWindow, meterRegistry);
         service.start();
         logger.info("✅ Market data ingestion started - events will be stored in database");
         return service;
     }
 
+    @Bean
+    public CheckHealthUseCase checkHealthUseCase(
+            IngestMarketDataUseCase ingestMarketDataUseCase,
+            WarmUpCacheUseCase warmUpCacheUseCase,
+            EventRepository eventRepository,
+            @Value("${marketdata.health.max-lag:30s}") Duration maxLag,
+            @Value("${marketdata.health.pending-capacity:100000}") int pendingCapacity,
+            @Value("${marketdata.health.max-write-latency:500ms}") Duration maxWriteLatency,
+            @Value("${marketdata.health.max-staleness:60s}") Duration maxStaleness) {
+        return new HealthCheckService(ingestMarketDataUseCase, warmUpCacheUseCase, eventRepository,
+            maxLag.toNanos(), pendingCapacity, maxWriteLatency.toNanos(), maxStaleness.toNanos());
+    }
+
 }
@@ -0,0 +1,67 @@
+package com.marketdata;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketdata.api.converter.TimedJsonMessageConverter;
+import com.marketdata.api.filter.ClusterRoutingFilter;
+import com.marketdata.api.filter.CompressedResponseFilter;
+import com.marketdata.domain.port.out.SymbolOwnership;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Configuration
+public class WebConfig {
+
+    /**
+     * Gzip and stored compressed bodies for the history endpoints. Other JSON responses
+     * are compressed by the servlet container ({@code server.compression.*}), which shares
+     * the size threshold.
+     */
+    @Bean
+    public FilterRegistrationBean<CompressedResponseFilter> compressedResponseFilter(
+            @Value("${marketdata.http.compression.level:6}") int level,
+            @Value("${server.compression.min-response-size:2KB}") DataSize minSize,
+            @Value("${marketdata.http.compression.cache-size:64MB}") DataSize cacheSize,
+            MeterRegistry meterRegistry) {
+        var registration = new FilterRegistrationBean<>(
+            new CompressedResponseFilter(level, (int) minSize.toBytes(), cacheSize.toBytes(), meterRegistry));
+        registration.addUrlPatterns("/history", "/history/sql");
+        return registration;
+    }
+
+    /**
+     * Forwards history requests for symbols owned by other cluster nodes. Runs before
+     * compression, so forwarded responses are relayed as the owner encoded them.
+     */
+    @Bean
+    public FilterRegistrationBean<ClusterRoutingFilter> clusterRoutingFilter(
+            SymbolOwnership symbolOwnership,
+            @Value("${marketdata.cluster.enabled:false}") boolean enabled,
+            @Value("${marketdata.cluster.self:http://localhost:8080}") String self,
+            @Value("${marketdata.cluster.forward-timeout:10s}") Duration timeout,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) {
+        var registration = new FilterRegistrationBean<>(
+            new ClusterRoutingFilter(symbolOwnership, self, timeout, objectMapper, meterRegistry));
+        registration.addUrlPatterns("/history", "/history/sql");
+        registration.setOrder(Ordered.LOWEST_PRECEDENCE - 1);
+        registration.setEnabled(enabled);
+        return registration;
+    }
+
+    /**
+     * Replaces Boot's default JSON converter with one that times serialization.
+     */
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(
+            ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        return new TimedJsonMessageConverter(objectMapper, meterRegistry);
+    }
+}
@@ -1,24 +1,50 @@
 package com.marketdata.api.controller;
 
+import com.marketdata.domain.model.HealthReport;
+import com.marketdata.domain.port.in.CheckHealthUseCase;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
+/**
+ * Liveness and readiness probes. Failing probes respond with 503, so load balancers and
+ * orchestrators can act on the status code alone; the body lists measured values and
+ * the reasons for failure. {@code /health} is the readiness probe.
+ */
 @RestController
 @RequestMapping("/health")
 public class HealthController {
 
-    @GetMapping
-    public ResponseEntity<Map<String, Object>> health() {
-        Map<String, Object> health = new HashMap<>();
-        health.put("status", "UP");
-        health.put("service", "candle-service");
-        health.put("timestamp", System.currentTimeMillis() / 1000);
-        
-        return ResponseEntity.ok(health);
+    private final CheckHealthUseCase health;
+
+    public HealthController(CheckHealthUseCase health) {
+        this.health = health;
+    }
+
+    @GetMapping({"", "/ready"})
+    public ResponseEntity<Map<String, Object>> readiness() {
+        return respond(health.readiness());
+    }
+
+    @GetMapping("/live")
+    public ResponseEntity<Map<String, Object>> liveness() {
+        return respond(health.liveness());
+    }
+
+    private static ResponseEntity<Map<String, Object>> respond(HealthReport report) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", report.up() ? "UP" : "DOWN");
+        body.put("service", "candle-service");
+        body.put("timestamp", System.currentTimeMillis() / 1000);
+        body.put("checks", report.checks());
+        if (!report.up()) {
+            body.put("failures", report.failures());
+        }
+        return ResponseEntity.status(report.up() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(body);
     }
 }
@@ -1,17 +1,34 @@
 package com.marketdata.api.controller;
 
 import com.marketdata.api.dto.HistoryResponseDto;
+import com.marketdata.domain.model.CandleStatistic;
+import com.marketdata.domain.model.DataVersion;
+import com.marketdata.domain.model.Timeframe;
 import com.marketdata.domain.port.in.QueryHistoryUseCase;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.StringJoiner;
 
 import static com.marketdata.domain.model.TimeframeMapper.parse;
 
@@ -21,10 +38,30 @@ import static com.marketdata.domain.model.TimeframeMapper.parse;
 public class HistoryController {
     private static final Logger logger = LoggerFactory.getLogger(HistoryController.class);
 
+    private static final Duration DEFAULT_SEALED_MAX_AGE = Duration.ofMinutes(5);
+
+    /**
+     * Request attribute holding the {@link DataVersion} a response was validated against,
+     * for filters that keep responses (see {@code CompressedResponseFilter}).
+     */
+    public static final String DATA_VERSION_ATTRIBUTE = HistoryController.class.getName() + ".dataVersion";
+
     private final QueryHistoryUseCase queryHistory;
+    private final Duration sealedMaxAge;
 
     public HistoryController(QueryHistoryUseCase queryHistory) {
+        this(queryHistory, DEFAULT_SEALED_MAX_AGE);
+    }
+
+    /**
+     * @param sealedMaxAge how long clients and shared caches may reuse a response for a
+     *                     sealed range without revalidating
+     */
+    @Autowired
+    public HistoryController(QueryHistoryUseCase queryHistory,
+                             @Value("${marketdata.http.sealed-max-age:5m}") Duration sealedMaxAge) {
         this.queryHistory = queryHistory;
+        this.sealedMaxAge = sealedMaxAge;
     }
 
     @GetMapping
@@ -32,7 +69,13 @@ public class HistoryController {
             @RequestParam @NotBlank(message = "Symbol is required") String symbol,
             @RequestParam @NotBlank(message = "Interval is required") String interval,
             @RequestParam @Min(value = 0, message = "From timestamp must be >= 0") long from,
-            @RequestParam @Min(value = 0, message = "To timestamp must be >= 0") long to
+            @RequestParam @Min(value = 0, message = "To timestamp must be >= 0") long to,
+            @RequestParam(required = false) String timezone,
+            @RequestParam(defaultValue = "0") int sessionOffset,
+            @RequestParam(required = false) @Min(value = 1, message = "maxPoints must be >= 1") Integer maxPoints,
+            @RequestParam(required = false) @Min(value = 1, message = "countback must be >= 1") Integer countback,
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
     ) {
         if (to < from) {
             throw new IllegalArgumentException("'to' timestamp must be >= 'from' timestamp");
@@ -40,12 +83,32 @@ public class HistoryController {
         
         logger.info("History request: symbol={}, interval={}, from={}, to={}", symbol, interval, from, to);
         
-        var timeframe = parse(interval);
-        var candles = queryHistory.getHistory(symbol, timeframe, from, to);
+        var timeframe = parse(interval, timezone, sessionOffset);
+        var statistics = CandleStatistic.parse(fields);
+        var version = queryHistory.dataVersion(symbol, to);
+        var etag = etag("java", symbol, interval, timezone, sessionOffset, from, to, maxPoints, countback, statistics,
+            version.version(), version.sealed());
+        publish(version);
+        var cacheControl = cacheControl(version);
+        if (matches(ifNoneMatch, etag)) {
+            logger.info("Not modified: {} (Java aggregation)", symbol);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
+        if (countback != null) {
+            var page = lastCandles(symbol, timeframe, to, countback, maxPoints, statistics);
+            return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(page);
+        }
+        if (!statistics.isEmpty()) {
+            var response = detailedHistory(symbol, timeframe, from, to, maxPoints, statistics);
+            return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(response);
+        }
+        var candles = maxPoints == null
+            ? queryHistory.getHistory(symbol, timeframe, from, to)
+            : queryHistory.getHistory(symbol, timeframe, from, to, maxPoints);
         var response = HistoryResponseDto.from(candles);
         
         logger.info("Returning {} candles for {} (Java aggregation)", candles.size(), symbol);
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(response);
     }
     
     @GetMapping("/sql")
@@ -53,7 +116,13 @@ public class HistoryController {
             @RequestParam @NotBlank(message = "Symbol is required") String symbol,
             @RequestParam @NotBlank(message = "Interval is required") String interval,
             @RequestParam @Min(value = 0, message = "From timestamp must be >= 0") long from,
-            @RequestParam @Min(value = 0, message = "To timestamp must be >= 0") long to
+            @RequestParam @Min(value = 0, message = "To timestamp must be >= 0") long to,
+            @RequestParam(required = false) String timezone,
+            @RequestParam(defaultValue = "0") int sessionOffset,
+            @RequestParam(required = false) @Min(value = 1, message = "maxPoints must be >= 1") Integer maxPoints,
+            @RequestParam(required = false) @Min(value = 1, message = "countback must be >= 1") Integer countback,
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
     ) {
         if (to < from) {
             throw new IllegalArgumentException("'to' timestamp must be >= 'from' timestamp");
@@ -61,11 +130,116 @@ public class HistoryController {
         
         logger.info("History SQL request: symbol={}, interval={}, from={}, to={}", symbol, interval, from, to);
         
-        var timeframe = parse(interval);
-        var candles = queryHistory.getHistoryWithSql(symbol, timeframe, from, to);
+        var timeframe = parse(interval, timezone, sessionOffset);
+        var statistics = CandleStatistic.parse(fields);
+        var version = queryHistory.dataVersion(symbol, to);
+        var etag = etag("sql", symbol, interval, timezone, sessionOffset, from, to, maxPoints, countback, statistics,
+            version.version(), version.sealed());
+        publish(version);
+        var cacheControl = cacheControl(version);
+        if (matches(ifNoneMatch, etag)) {
+            logger.info("Not modified: {} (SQL aggregation)", symbol);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
+        if (countback != null) {
+            var page = lastCandles(symbol, timeframe, to, countback, maxPoints, statistics);
+            return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(page);
+        }
+        if (!statistics.isEmpty()) {
+            var response = detailedHistory(symbol, timeframe, from, to, maxPoints, statistics);
+            return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(response);
+        }
+        var candles = maxPoints == null
+            ? queryHistory.getHistoryWithSql(symbol, timeframe, from, to)
+            : queryHistory.getHistoryWithSql(symbol, timeframe, from, to, maxPoints);
         var response = HistoryResponseDto.from(candles);
         
         logger.info("Returning {} candles for {} (SQL aggregation)", candles.size(), symbol);
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(response);
+    }
+
+    /**
+     * UDF-style countback: the last {@code countback} candles ending at {@code to}, taking
+     * priority over {@code from}. Both endpoints share the backward scan, which reads only
+     * as many events as the page needs. {@code maxPoints}, if smaller, caps the page.
+     */
+    private HistoryResponseDto lastCandles(String symbol, Timeframe timeframe, long to,
+                                           int countback, Integer maxPoints, Set<CandleStatistic> statistics) {
+        if (!statistics.isEmpty()) {
+            throw new IllegalArgumentException("'fields' cannot be combined with 'countback'");
+        }
+        int count = maxPoints == null ? countback : Math.min(countback, maxPoints);
+        var page = queryHistory.getLastCandles(symbol, timeframe, to, count);
+        logger.info("Returning {} candles for {} (countback, nextTo={})", page.candles().size(), symbol, page.nextTo());
+        return HistoryResponseDto.from(page);
+    }
+
+    /**
+     * Mid-price candles plus the requested statistics, all from one scan of the events.
+     * Both endpoints share the Java path, since the SQL strategies only compute mid-price
+     * OHLC; the scan still streams rows from a database cursor.
+     */
+    private HistoryResponseDto detailedHistory(String symbol, Timeframe timeframe, long from, long to,
+                                               Integer maxPoints, Set<CandleStatistic> statistics) {
+        var candles = maxPoints == null
+            ? queryHistory.getDetailedHistory(symbol, timeframe, from, to)
+            : queryHistory.getDetailedHistory(symbol, timeframe, from, to, maxPoints);
+        logger.info("Returning {} candles with {} for {}", candles.size(), statistics, symbol);
+        return HistoryResponseDto.from(candles, statistics);
+    }
+
+    /**
+     * Strong validator over everything that shapes the response: the request parameters
+     * and the version of the data they read. Equal ETags mean byte-identical bodies, since
+     * cached aggregations only exist for ranges that had sealed when they were computed and
+     * a late correction both evicts them and bumps the sealed version.
+     */
+    static String etag(Object... parts) {
+        var key = new StringJoiner("|");
+        for (Object part : parts) {
+            key.add(String.valueOf(part));
+        }
+        return "\"" + DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    private static void publish(DataVersion version) {
+        var attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(DATA_VERSION_ATTRIBUTE, version, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    /**
+     * Sealed ranges change only through late corrections, so caches may keep them for a
+     * short while without revalidating; not {@code immutable}, since a correction must still
+     * reach clients once the max age runs out. Everything else must be revalidated, which is
+     * cheap thanks to the ETag.
+     */
+    private CacheControl cacheControl(DataVersion version) {
+        return version.sealed()
+            ? CacheControl.maxAge(sealedMaxAge).cachePublic()
+            : CacheControl.noCache();
+    }
+
+    /**
+     * Weak comparison as required for If-None-Match (RFC 9110 section 13.1.2).
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            var tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
@@ -0,0 +1,38 @@
+package com.marketdata.api.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Jackson converter that times response serialization as
+ * {@code marketdata.http.serialization}, tagged by response type. Request handling time
+ * is already covered by {@code http.server.requests}; this separates the JSON cost from it.
+ */
+public class TimedJsonMessageConverter extends MappingJackson2HttpMessageConverter {
+    private final MeterRegistry meterRegistry;
+
+    public TimedJsonMessageConverter(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        super(objectMapper);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        var sample = Timer.start(meterRegistry);
+        try {
+            super.writeInternal(object, type, outputMessage);
+        } finally {
+            sample.stop(Timer.builder("marketdata.http.serialization")
+                .tag("type", object.getClass().getSimpleName())
+                .register(meterRegistry));
+        }
+    }
+}
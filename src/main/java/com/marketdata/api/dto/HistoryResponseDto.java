@@ -1,11 +1,15 @@
 package com.marketdata.api.dto;
 
 import com.marketdata.domain.model.Candle;
+import com.marketdata.domain.model.CandlePage;
+import com.marketdata.domain.model.CandleStatistic;
+import com.marketdata.domain.model.DetailedCandle;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Trading View Lightweight Charts format response.
@@ -34,9 +38,53 @@ public class HistoryResponseDto {
     @JsonProperty("v")
     private List<Long> volume;
 
+    // Optional statistics, only present when requested through the fields parameter
+
+    @JsonProperty("bo")
+    private List<Double> bidOpen;
+
+    @JsonProperty("bh")
+    private List<Double> bidHigh;
+
+    @JsonProperty("bl")
+    private List<Double> bidLow;
+
+    @JsonProperty("bc")
+    private List<Double> bidClose;
+
+    @JsonProperty("ao")
+    private List<Double> askOpen;
+
+    @JsonProperty("ah")
+    private List<Double> askHigh;
+
+    @JsonProperty("al")
+    private List<Double> askLow;
+
+    @JsonProperty("ac")
+    private List<Double> askClose;
+
+    @JsonProperty("smin")
+    private List<Double> spreadMin;
+
+    @JsonProperty("smax")
+    private List<Double> spreadMax;
+
+    @JsonProperty("savg")
+    private List<Double> spreadAvg;
+
+    @JsonProperty("mean")
+    private List<Double> mean;
+
     @JsonProperty("errmsg")
     private String errorMessage;
 
+    /**
+     * Continuation cursor for countback paging: the {@code to} of the preceding page.
+     */
+    @JsonProperty("nextTo")
+    private Long nextTo;
+
     public HistoryResponseDto() {
         this.status = "ok";
         this.timestamps = new ArrayList<>();
@@ -60,6 +108,41 @@ public class HistoryResponseDto {
         return dto;
     }
 
+    /**
+     * Mid-price candles plus the arrays of the requested {@code statistics}; the arrays of
+     * other statistics are left out of the response.
+     */
+    public static HistoryResponseDto from(List<DetailedCandle> candles, Set<CandleStatistic> statistics) {
+        var dto = from(candles.stream().map(DetailedCandle::mid).toList());
+        if (statistics.contains(CandleStatistic.BID)) {
+            dto.bidOpen = candles.stream().map(candle -> candle.bid().open()).toList();
+            dto.bidHigh = candles.stream().map(candle -> candle.bid().high()).toList();
+            dto.bidLow = candles.stream().map(candle -> candle.bid().low()).toList();
+            dto.bidClose = candles.stream().map(candle -> candle.bid().close()).toList();
+        }
+        if (statistics.contains(CandleStatistic.ASK)) {
+            dto.askOpen = candles.stream().map(candle -> candle.ask().open()).toList();
+            dto.askHigh = candles.stream().map(candle -> candle.ask().high()).toList();
+            dto.askLow = candles.stream().map(candle -> candle.ask().low()).toList();
+            dto.askClose = candles.stream().map(candle -> candle.ask().close()).toList();
+        }
+        if (statistics.contains(CandleStatistic.SPREAD)) {
+            dto.spreadMin = candles.stream().map(DetailedCandle::spreadMin).toList();
+            dto.spreadMax = candles.stream().map(DetailedCandle::spreadMax).toList();
+            dto.spreadAvg = candles.stream().map(DetailedCandle::spreadAvg).toList();
+        }
+        if (statistics.contains(CandleStatistic.MEAN)) {
+            dto.mean = candles.stream().map(DetailedCandle::mean).toList();
+        }
+        return dto;
+    }
+
+    public static HistoryResponseDto from(CandlePage page) {
+        var dto = from(page.candles());
+        dto.nextTo = page.nextTo();
+        return dto;
+    }
+
     public static HistoryResponseDto error(String message) {
         var dto = new HistoryResponseDto();
         dto.status = "error";
@@ -88,6 +171,45 @@ public class HistoryResponseDto {
     public List<Long> getVolume() { return volume; }
     public void setVolume(List<Long> volume) { this.volume = volume; }
 
+    public List<Double> getBidOpen() { return bidOpen; }
+    public void setBidOpen(List<Double> bidOpen) { this.bidOpen = bidOpen; }
+
+    public List<Double> getBidHigh() { return bidHigh; }
+    public void setBidHigh(List<Double> bidHigh) { this.bidHigh = bidHigh; }
+
+    public List<Double> getBidLow() { return bidLow; }
+    public void setBidLow(List<Double> bidLow) { this.bidLow = bidLow; }
+
+    public List<Double> getBidClose() { return bidClose; }
+    public void setBidClose(List<Double> bidClose) { this.bidClose = bidClose; }
+
+    public List<Double> getAskOpen() { return askOpen; }
+    public void setAskOpen(List<Double> askOpen) { this.askOpen = askOpen; }
+
+    public List<Double> getAskHigh() { return askHigh; }
+    public void setAskHigh(List<Double> askHigh) { this.askHigh = askHigh; }
+
+    public List<Double> getAskLow() { return askLow; }
+    public void setAskLow(List<Double> askLow) { this.askLow = askLow; }
+
+    public List<Double> getAskClose() { return askClose; }
+    public void setAskClose(List<Double> askClose) { this.askClose = askClose; }
+
+    public List<Double> getSpreadMin() { return spreadMin; }
+    public void setSpreadMin(List<Double> spreadMin) { this.spreadMin = spreadMin; }
+
+    public List<Double> getSpreadMax() { return spreadMax; }
+    public void setSpreadMax(List<Double> spreadMax) { this.spreadMax = spreadMax; }
+
+    public List<Double> getSpreadAvg() { return spreadAvg; }
+    public void setSpreadAvg(List<Double> spreadAvg) { this.spreadAvg = spreadAvg; }
+
+    public List<Double> getMean() { return mean; }
+    public void setMean(List<Double> mean) { this.mean = mean; }
+
     public String getErrorMessage() { return errorMessage; }
     public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+
+    public Long getNextTo() { return nextTo; }
+    public void setNextTo(Long nextTo) { this.nextTo = nextTo; }
 }
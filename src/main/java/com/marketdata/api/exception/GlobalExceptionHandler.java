@@ -1,8 +1,10 @@
 package com.marketdata.api.exception;
 
 import com.marketdata.api.dto.HistoryResponseDto;
+import com.marketdata.domain.port.in.QueryRejectedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MissingServletRequestParameterException;
@@ -51,6 +53,24 @@ public class GlobalExceptionHandler {
                 .body(HistoryResponseDto.error("Invalid type for parameter: " + ex.getName()));
     }
 
+    /**
+     * Handle queries refused by admission control: 400 if the query is too large to ever
+     * run, 503 with Retry-After if the server is busy with other large queries
+     */
+    @ExceptionHandler(QueryRejectedException.class)
+    public ResponseEntity<HistoryResponseDto> handleQueryRejected(QueryRejectedException ex) {
+        logger.warn("Query rejected: {}", ex.getMessage());
+        if (ex.isRetryable()) {
+            return ResponseEntity
+                    .status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(HistoryResponseDto.error(ex.getMessage()));
+        }
+        return ResponseEntity
+                .badRequest()
+                .body(HistoryResponseDto.error(ex.getMessage()));
+    }
+
     /**
      * Handle all other unexpected exceptions
      */
@@ -0,0 +1,126 @@
+package com.marketdata.api.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketdata.api.dto.HistoryResponseDto;
+import com.marketdata.domain.port.out.SymbolOwnership;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Forwards history requests for symbols owned by another cluster node to that node and
+ * relays its response.
+ * <p>
+ * Conditional and content-negotiation headers are passed through both ways, so ETags,
+ * 304s and gzip bodies produced by the owner reach the client unchanged. Forwarded
+ * requests are marked with {@value #FORWARDED_BY}; a marked request is always served
+ * locally, so nodes with briefly different member lists cannot forward in a loop. If the
+ * owner cannot be reached the client gets 502.
+ * <p>
+ * Forwarding time is recorded as {@code marketdata.cluster.forward} tagged by outcome.
+ */
+public class ClusterRoutingFilter extends OncePerRequestFilter {
+    private static final Logger logger = LoggerFactory.getLogger(ClusterRoutingFilter.class);
+
+    public static final String FORWARDED_BY = "X-Marketdata-Forwarded-By";
+
+    private static final List<String> REQUEST_HEADERS = List.of(
+        HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING, HttpHeaders.IF_NONE_MATCH);
+    private static final List<String> RESPONSE_HEADERS = List.of(
+        HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_ENCODING, HttpHeaders.ETAG, HttpHeaders.CACHE_CONTROL,
+        HttpHeaders.VARY, HttpHeaders.RETRY_AFTER);
+
+    private final SymbolOwnership ownership;
+    private final String self;
+    private final HttpClient client;
+    private final Duration timeout;
+    private final ObjectMapper objectMapper;
+    private final Timer forwarded;
+    private final Timer failed;
+
+    /**
+     * @param self base URL of this node, sent to owners in {@value #FORWARDED_BY}
+     * @param timeout how long to wait for the owner's response
+     */
+    public ClusterRoutingFilter(SymbolOwnership ownership, String self, Duration timeout,
+                                ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.ownership = ownership;
+        this.self = self;
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+        this.timeout = timeout;
+        this.objectMapper = objectMapper;
+        this.forwarded = timer(meterRegistry, "forwarded");
+        this.failed = timer(meterRegistry, "failed");
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("marketdata.cluster.forward")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        var symbol = request.getParameter("symbol");
+        if (symbol == null || symbol.isBlank() || request.getHeader(FORWARDED_BY) != null
+                || ownership.isLocal(symbol)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        forward(request, response, ownership.ownerOf(symbol));
+    }
+
+    private void forward(HttpServletRequest request, HttpServletResponse response, String owner) throws IOException {
+        var query = request.getQueryString();
+        var uri = URI.create(owner + request.getRequestURI() + (query == null ? "" : "?" + query));
+        var builder = HttpRequest.newBuilder(uri).timeout(timeout).GET().header(FORWARDED_BY, self);
+        for (String header : REQUEST_HEADERS) {
+            var value = request.getHeader(header);
+            if (value != null) {
+                builder.header(header, value);
+            }
+        }
+
+        long started = System.nanoTime();
+        HttpResponse<byte[]> relayed;
+        try {
+            relayed = client.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            failed.record(Duration.ofNanos(System.nanoTime() - started));
+            logger.warn("Failed to forward {} to {}: {}", uri, owner, e.toString());
+            response.setStatus(HttpServletResponse.SC_BAD_GATEWAY);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(),
+                HistoryResponseDto.error("Owner of symbol " + request.getParameter("symbol") + " is unavailable"));
+            return;
+        }
+        forwarded.record(Duration.ofNanos(System.nanoTime() - started));
+
+        response.setStatus(relayed.statusCode());
+        for (String header : RESPONSE_HEADERS) {
+            relayed.headers().allValues(header).forEach(value -> response.addHeader(header, value));
+        }
+        response.setContentLength(relayed.body().length);
+        response.getOutputStream().write(relayed.body());
+    }
+}
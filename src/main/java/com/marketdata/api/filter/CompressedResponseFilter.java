@@ -0,0 +1,226 @@
+package com.marketdata.api.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.marketdata.api.controller.HistoryController;
+import com.marketdata.domain.model.DataVersion;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Enumeration;
+
+/**
+ * Gzips history responses and keeps the compressed bodies, keyed by request URL.
+ * <p>
+ * A gzip response carries the controller's ETag with a {@code -gz} suffix, so the two
+ * codings never share a strong validator (RFC 9110 section 8.8.3.3). A client's own
+ * {@code If-None-Match} is passed to the controller with the suffix removed, and a 304
+ * for a gzip tag is answered with the gzip tag again.
+ * <p>
+ * A stored body remembers the {@link DataVersion} the controller validated it against
+ * (published as {@link HistoryController#DATA_VERSION_ATTRIBUTE}); responses without one
+ * are never stored. On a repeat request without a condition of its own, the stored ETag is
+ * sent to the controller as {@code If-None-Match}. If the controller answers 304 for the
+ * same data version, the stored body is returned without querying, serializing or
+ * compressing again; otherwise the entry is dropped and the request served afresh.
+ * <p>
+ * Compression time is recorded as {@code marketdata.http.compression}; the stored bodies
+ * are exposed as the {@code compressed-responses} cache.
+ */
+public class CompressedResponseFilter extends OncePerRequestFilter {
+    private static final String GZIP = "gzip";
+    private static final String GZIP_SUFFIX = "-gz";
+
+    private final GzipEncoder encoder;
+    private final int minSize;
+    private final Cache<String, CompressedBody> bodies;
+    private final Timer compressionTimer;
+
+    /**
+     * @param level deflate level, 1 (fastest) to 9 (smallest)
+     * @param minSize smallest body worth compressing, in bytes
+     * @param maxCachedBytes total size of stored compressed bodies (0 disables storage)
+     */
+    public CompressedResponseFilter(int level, int minSize, long maxCachedBytes, MeterRegistry meterRegistry) {
+        this.encoder = new GzipEncoder(level);
+        this.minSize = minSize;
+        this.bodies = Caffeine.newBuilder()
+            .maximumWeight(maxCachedBytes)
+            .weigher((String url, CompressedBody body) -> url.length() + body.gzip().length)
+            .recordStats()
+            .build();
+        this.compressionTimer = meterRegistry.timer("marketdata.http.compression");
+        CaffeineCacheMetrics.monitor(meterRegistry, bodies, "compressed-responses");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!"GET".equals(request.getMethod()) || !acceptsGzip(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        var condition = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (condition != null) {
+            revalidate(request, response, chain, condition);
+            return;
+        }
+
+        var url = url(request);
+        var stored = bodies.getIfPresent(url);
+        var wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(stored == null ? request : new ConditionalRequest(request, stored.etag()), wrapper);
+
+        if (stored != null && wrapper.getStatus() == HttpServletResponse.SC_NOT_MODIFIED) {
+            if (stored.version().equals(request.getAttribute(HistoryController.DATA_VERSION_ATTRIBUTE))) {
+                wrapper.setStatus(HttpServletResponse.SC_OK);
+                writeGzip(response, stored.etag(), stored.gzip());
+                return;
+            }
+            // Same validator, different data: the body must be computed again
+            bodies.invalidate(url);
+            wrapper.setStatus(HttpServletResponse.SC_OK);
+            chain.doFilter(request, wrapper);
+        }
+        var etag = wrapper.getHeader(HttpHeaders.ETAG);
+        var version = request.getAttribute(HistoryController.DATA_VERSION_ATTRIBUTE);
+        if (wrapper.getStatus() != HttpServletResponse.SC_OK || etag == null || wrapper.getContentSize() < minSize) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+        var gzip = compressionTimer.record(() -> encoder.encode(wrapper.getContentAsByteArray()));
+        if (version instanceof DataVersion dataVersion) {
+            bodies.put(url, new CompressedBody(etag, dataVersion, gzip));
+        }
+        writeGzip(response, etag, gzip);
+    }
+
+    /**
+     * Serves a request carrying the client's own {@code If-None-Match}, matching gzip tags
+     * against the controller's tag for the same data.
+     */
+    private void revalidate(HttpServletRequest request, HttpServletResponse response, FilterChain chain,
+                            String condition) throws ServletException, IOException {
+        var wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(new ConditionalRequest(request, withoutGzipSuffix(condition)), wrapper);
+        var etag = wrapper.getHeader(HttpHeaders.ETAG);
+        if (wrapper.getStatus() == HttpServletResponse.SC_NOT_MODIFIED) {
+            if (etag != null && condition.contains(gzipETag(etag))) {
+                response.setHeader(HttpHeaders.ETAG, gzipETag(etag));
+            }
+            wrapper.copyBodyToResponse();
+            return;
+        }
+        if (wrapper.getStatus() != HttpServletResponse.SC_OK || etag == null || wrapper.getContentSize() < minSize) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+        writeGzip(response, etag, compressionTimer.record(() -> encoder.encode(wrapper.getContentAsByteArray())));
+    }
+
+    /**
+     * The tag for the gzip coding of the representation the controller tagged
+     * {@code etag}: the same tag with {@code -gz} inside the quotes.
+     */
+    static String gzipETag(String etag) {
+        return etag.endsWith("\"") ? etag.substring(0, etag.length() - 1) + GZIP_SUFFIX + "\"" : etag + GZIP_SUFFIX;
+    }
+
+    private static String withoutGzipSuffix(String condition) {
+        return condition.replace(GZIP_SUFFIX + "\"", "\"");
+    }
+
+    private static void writeGzip(HttpServletResponse response, String etag, byte[] gzip) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader(HttpHeaders.ETAG, gzipETag(etag));
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+        response.setContentLength(gzip.length);
+        response.getOutputStream().write(gzip);
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        var accepted = request.getHeaders(HttpHeaders.ACCEPT_ENCODING);
+        while (accepted.hasMoreElements()) {
+            for (String coding : accepted.nextElement().split(",")) {
+                var parts = coding.trim().split(";");
+                if (parts[0].trim().equalsIgnoreCase(GZIP) && !isZeroQuality(parts)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A malformed {@code q} value is ignored, as if the coding carried no weight at all.
+     */
+    private static boolean isZeroQuality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            var param = parts[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2)) == 0;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Releases the encoder's native deflaters when the filter is taken out of service.
+     */
+    @Override
+    public void destroy() {
+        encoder.close();
+    }
+
+    private static String url(HttpServletRequest request) {
+        var query = request.getQueryString();
+        return query == null ? request.getRequestURI() : request.getRequestURI() + "?" + query;
+    }
+
+    /**
+     * @param etag the controller's tag for the uncompressed body
+     */
+    private record CompressedBody(String etag, DataVersion version, byte[] gzip) {
+    }
+
+    /**
+     * Replaces {@code If-None-Match} with the condition the controller should evaluate.
+     */
+    private static final class ConditionalRequest extends HttpServletRequestWrapper {
+        private final String etag;
+
+        ConditionalRequest(HttpServletRequest request, String etag) {
+            super(request);
+            this.etag = etag;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return HttpHeaders.IF_NONE_MATCH.equalsIgnoreCase(name) ? etag : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return HttpHeaders.IF_NONE_MATCH.equalsIgnoreCase(name)
+                ? Collections.enumeration(Collections.singletonList(etag))
+                : super.getHeaders(name);
+        }
+    }
+}
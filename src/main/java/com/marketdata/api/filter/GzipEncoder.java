@@ -0,0 +1,103 @@
+package com.marketdata.api.filter;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzip encoder that reuses {@link Deflater}s and output buffers from a small pool.
+ * {@code GZIPOutputStream} allocates a new native deflater and buffer for every response.
+ * Deflaters hold native memory, so those that do not fit back in the pool, and the pooled
+ * ones on {@link #close()}, are released with {@link Deflater#end()}.
+ */
+final class GzipEncoder implements AutoCloseable {
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int TRAILER_SIZE = 8;
+
+    private final int level;
+    private final BlockingQueue<PooledDeflater> pool;
+    private volatile boolean closed;
+
+    /**
+     * @param level deflate level, 1 (fastest) to 9 (smallest)
+     */
+    GzipEncoder(int level) {
+        this(level, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param poolSize deflaters kept for reuse; concurrent encodes beyond it use a fresh one
+     */
+    GzipEncoder(int level, int poolSize) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level must be between 1 and 9: " + level);
+        }
+        this.level = level;
+        this.pool = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+    }
+
+    byte[] encode(byte[] input) {
+        var pooled = pool.poll();
+        if (pooled == null) {
+            pooled = new PooledDeflater(new Deflater(level, true), new byte[8192]);
+        }
+        try {
+            return encode(input, pooled.deflater(), pooled.buffer());
+        } finally {
+            pooled.deflater().reset();
+            if (closed || !pool.offer(pooled)) {
+                pooled.deflater().end();
+            } else if (closed) {
+                // Raced with close(): drain again so nothing stays pooled
+                close();
+            }
+        }
+    }
+
+    private static byte[] encode(byte[] input, Deflater deflater, byte[] buffer) {
+        // Candle JSON typically shrinks to a fifth or less
+        var out = new ByteArrayOutputStream(HEADER.length + input.length / 4 + TRAILER_SIZE);
+        out.writeBytes(HEADER);
+        deflater.setInput(input);
+        deflater.finish();
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        var crc = new CRC32();
+        crc.update(input);
+        writeIntLittleEndian(out, (int) crc.getValue());
+        writeIntLittleEndian(out, input.length);
+        return out.toByteArray();
+    }
+
+    /**
+     * @return deflaters currently held for reuse
+     */
+    int pooled() {
+        return pool.size();
+    }
+
+    /**
+     * Releases the pooled deflaters. Encoding afterwards still works but no longer reuses them.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        PooledDeflater pooled;
+        while ((pooled = pool.poll()) != null) {
+            pooled.deflater().end();
+        }
+    }
+
+    private static void writeIntLittleEndian(ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+
+    private record PooledDeflater(Deflater deflater, byte[] buffer) {
+    }
+}
@@ -0,0 +1,147 @@
+package com.marketdata.application.service;
+
+import com.marketdata.domain.model.Candle;
+import com.marketdata.domain.model.CandlePage;
+import com.marketdata.domain.model.DataVersion;
+import com.marketdata.domain.model.DetailedCandle;
+import com.marketdata.domain.model.QueryCost;
+import com.marketdata.domain.model.Timeframe;
+import com.marketdata.domain.port.in.QueryHistoryUseCase;
+import com.marketdata.domain.port.in.QueryRejectedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Admission control in front of {@link QueryHistoryUseCase}.
+ * <p>
+ * Each query is costed before it runs. Queries over the per-query limits are rejected
+ * outright. Queries spanning more than {@code expensiveRangeSeconds} need one of a few
+ * permits, so large pulls queue among themselves and cannot take every connection and
+ * request thread from normal chart traffic; cheap queries never wait for a permit.
+ * Rejections are counted as {@code marketdata.query.rejected} by reason, and permits in
+ * use are exposed as {@code marketdata.query.expensive.active}.
+ */
+public class AdmissionControlledHistoryService implements QueryHistoryUseCase {
+
+    private final QueryHistoryUseCase delegate;
+    private final long maxBuckets;
+    private final long maxRangeSeconds;
+    private final long expensiveRangeSeconds;
+    private final Semaphore expensivePermits;
+    private final long admissionTimeoutMillis;
+    private final Counter rejectedTooLarge;
+    private final Counter rejectedBusy;
+
+    /**
+     * @param maxBuckets most candles a single query may produce
+     * @param maxRangeSeconds longest span a single query may read
+     * @param expensiveRangeSeconds spans longer than this need an expensive-query permit
+     * @param expensiveConcurrency expensive queries allowed to run at once
+     * @param admissionTimeoutMillis how long an expensive query waits for a permit before
+     *                               being rejected
+     */
+    public AdmissionControlledHistoryService(QueryHistoryUseCase delegate, long maxBuckets, long maxRangeSeconds,
+                                             long expensiveRangeSeconds, int expensiveConcurrency,
+                                             long admissionTimeoutMillis, MeterRegistry meterRegistry) {
+        if (expensiveConcurrency <= 0) {
+            throw new IllegalArgumentException("Expensive query concurrency must be positive: " + expensiveConcurrency);
+        }
+        this.delegate = delegate;
+        this.maxBuckets = maxBuckets;
+        this.maxRangeSeconds = maxRangeSeconds;
+        this.expensiveRangeSeconds = expensiveRangeSeconds;
+        this.expensivePermits = new Semaphore(expensiveConcurrency);
+        this.admissionTimeoutMillis = admissionTimeoutMillis;
+        this.rejectedTooLarge = meterRegistry.counter("marketdata.query.rejected", "reason", "too-large");
+        this.rejectedBusy = meterRegistry.counter("marketdata.query.rejected", "reason", "busy");
+        Gauge.builder("marketdata.query.expensive.active",
+                expensivePermits, permits -> expensiveConcurrency - permits.availablePermits())
+            .register(meterRegistry);
+    }
+
+    public List<Candle> getHistory(String symbol, Timeframe timeframe, long fromEpochSec, long toEpochSec) {
+        return admit(QueryCost.ofRange(timeframe, fromEpochSec, toEpochSec),
+            () -> delegate.getHistory(symbol, timeframe, fromEpochSec, toEpochSec));
+    }
+
+    public List<Candle> getHistoryWithSql(String symbol, Timeframe timeframe, long fromEpochSec, long toEpochSec) {
+        return admit(QueryCost.ofRange(timeframe, fromEpochSec, toEpochSec),
+            () -> delegate.getHistoryWithSql(symbol, timeframe, fromEpochSec, toEpochSec));
+    }
+
+    /**
+     * Costed at the coarsened timeframe the delegate will actually query.
+     */
+    public List<Candle> getHistory(String symbol, Timeframe timeframe, long fromEpochSec, long toEpochSec, int maxPoints) {
+        return admit(QueryCost.ofRange(timeframe.coarsen(fromEpochSec, toEpochSec, maxPoints), fromEpochSec, toEpochSec),
+            () -> delegate.getHistory(symbol, timeframe, fromEpochSec, toEpochSec, maxPoints));
+    }
+
+    public List<Candle> getHistoryWithSql(String symbol, Timeframe timeframe, long fromEpochSec, long toEpochSec, int maxPoints) {
+        return admit(QueryCost.ofRange(timeframe.coarsen(fromEpochSec, toEpochSec, maxPoints), fromEpochSec, toEpochSec),
+            () -> delegate.getHistoryWithSql(symbol, timeframe, fromEpochSec, toEpochSec, maxPoints));
+    }
+
+    public List<DetailedCandle> getDetailedHistory(String symbol, Timeframe timeframe, long fromEpochSec,
+                                                   long toEpochSec) {
+        return admit(QueryCost.ofRange(timeframe, fromEpochSec, toEpochSec),
+            () -> delegate.getDetailedHistory(symbol, timeframe, fromEpochSec, toEpochSec));
+    }
+
+    public List<DetailedCandle> getDetailedHistory(String symbol, Timeframe timeframe, long fromEpochSec,
+                                                   long toEpochSec, int maxPoints) {
+        return admit(QueryCost.ofRange(timeframe.coarsen(fromEpochSec, toEpochSec, maxPoints), fromEpochSec, toEpochSec),
+            () -> delegate.getDetailedHistory(symbol, timeframe, fromEpochSec, toEpochSec, maxPoints));
+    }
+
+    public CandlePage getLastCandles(String symbol, Timeframe timeframe, long toEpochSec, int count) {
+        return admit(QueryCost.ofCountback(timeframe, count, maxRangeSeconds),
+            () -> delegate.getLastCandles(symbol, timeframe, toEpochSec, count));
+    }
+
+    public DataVersion dataVersion(String symbol, long toEpochSec) {
+        return delegate.dataVersion(symbol, toEpochSec);
+    }
+
+    private <T> T admit(QueryCost cost, Supplier<T> query) {
+        if (cost.buckets() > maxBuckets) {
+            rejectedTooLarge.increment();
+            throw new QueryRejectedException(String.format(
+                "Query too large: %d candles requested, limit is %d. Use a shorter range, a coarser interval or maxPoints",
+                cost.buckets(), maxBuckets), false);
+        }
+        if (cost.rangeSeconds() > maxRangeSeconds) {
+            rejectedTooLarge.increment();
+            throw new QueryRejectedException(String.format(
+                "Query too large: range of %d seconds, limit is %d. Split the request into shorter ranges",
+                cost.rangeSeconds(), maxRangeSeconds), false);
+        }
+        if (cost.rangeSeconds() <= expensiveRangeSeconds) {
+            return query.get();
+        }
+        if (!tryAcquire()) {
+            rejectedBusy.increment();
+            throw new QueryRejectedException("Too many large queries in progress, retry later", true);
+        }
+        try {
+            return query.get();
+        } finally {
+            expensivePermits.release();
+        }
+    }
+
+    private boolean tryAcquire() {
+        try {
+            return expensivePermits.tryAcquire(admissionTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
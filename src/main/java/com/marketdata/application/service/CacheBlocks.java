@@ -0,0 +1,89 @@
+package com.marketdata.application.service;
+
+import com.marketdata.domain.model.Timeframe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongPredicate;
+
+/**
+ * Fixed grid of cache blocks: runs of {@code blockBuckets} buckets aligned to the
+ * timeframe's own bucket grid, so every query sees the same block boundaries.
+ * <p>
+ * A range is aggregated as the whole sealed blocks it covers plus whatever lies outside
+ * them. Queries with different bounds then share the cache entries of their blocks, and
+ * warm-up can fill those entries without knowing which bounds clients will send. Calendar
+ * timeframes have buckets of varying length and are never split.
+ */
+final class CacheBlocks {
+    private final long blockBuckets;
+
+    /**
+     * @param blockBuckets buckets per block, or 0 to never split ranges
+     */
+    CacheBlocks(long blockBuckets) {
+        if (blockBuckets < 0) {
+            throw new IllegalArgumentException("Cache block size must not be negative: " + blockBuckets);
+        }
+        this.blockBuckets = blockBuckets;
+    }
+
+    /**
+     * Splits an inclusive range at block boundaries. Each whole block ending within the
+     * range is a piece of its own for as long as {@code sealed} accepts the block's end;
+     * the parts before the first block and after the last are single pieces.
+     *
+     * @param sealed whether a range ending at the given epoch second no longer changes
+     * @return pieces in time order, covering exactly {@code [from, to]}
+     */
+    List<Piece> split(Timeframe timeframe, long from, long to, LongPredicate sealed) {
+        long length = length(timeframe);
+        var pieces = new ArrayList<Piece>();
+        if (length == 0) {
+            pieces.add(new Piece(from, to, false));
+            return pieces;
+        }
+        long start = from;
+        long block = blockStart(timeframe, from, length);
+        if (block < from) {
+            block += length;
+        }
+        while (block <= to - length + 1 && sealed.test(block + length - 1)) {
+            if (start < block) {
+                pieces.add(new Piece(start, block - 1, false));
+            }
+            pieces.add(new Piece(block, block + length - 1, true));
+            start = block + length;
+            block = start;
+        }
+        if (start <= to) {
+            pieces.add(new Piece(start, to, false));
+        }
+        return pieces;
+    }
+
+    /**
+     * @return start of the block containing {@code epochSec}, or {@code epochSec} itself if
+     * ranges of this timeframe are not split
+     */
+    long blockStart(Timeframe timeframe, long epochSec) {
+        long length = length(timeframe);
+        return length == 0 ? epochSec : blockStart(timeframe, epochSec, length);
+    }
+
+    private static long blockStart(Timeframe timeframe, long epochSec, long length) {
+        return Math.floorDiv(epochSec - timeframe.offsetSeconds(), length) * length + timeframe.offsetSeconds();
+    }
+
+    private long length(Timeframe timeframe) {
+        if (blockBuckets == 0 || timeframe.isCalendar() || timeframe.durationSeconds() > Long.MAX_VALUE / blockBuckets) {
+            return 0;
+        }
+        return timeframe.durationSeconds() * blockBuckets;
+    }
+
+    /**
+     * @param block whether the piece is a whole block, cached under the same key by every query
+     */
+    record Piece(long from, long to, boolean block) { }
+}
@@ -0,0 +1,125 @@
+package com.marketdata.application.service;
+
+import com.marketdata.domain.model.EpochNanos;
+import com.marketdata.domain.model.WarmUpTarget;
+import com.marketdata.domain.port.in.WarmUpCacheUseCase;
+import com.marketdata.domain.port.out.DataVersions;
+import com.marketdata.domain.port.out.EventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Precomputes candles for configured hot targets through the repository's cached SQL
+ * aggregation, several targets at a time.
+ * <p>
+ * Each target's lookback is warmed as the sealed {@link CacheBlocks cache blocks} it
+ * covers, the same entries {@link HistoryQueryService#getHistoryWithSql} looks up for any
+ * range over them; the unsealed tail is left to the first query. Timeframes that are not
+ * split into blocks are aggregated over the lookback up to the last complete bucket, which
+ * only warms the database pages. The {@code /history} Java path aggregates raw events and
+ * is not cached, so it gains nothing beyond those pages. A failed target is
+ * logged and skipped; warm-up reports done when every target has finished or after
+ * {@code timeoutMillis}, whichever comes first, so a slow database cannot keep the
+ * instance out of rotation forever.
+ */
+public class CacheWarmUpService implements WarmUpCacheUseCase {
+    private static final Logger logger = LoggerFactory.getLogger(CacheWarmUpService.class);
+
+    private final EventRepository eventRepository;
+    private final DataVersions dataVersions;
+    private final CacheBlocks cacheBlocks;
+    private final List<WarmUpTarget> targets;
+    private final int parallelism;
+    private final long timeoutMillis;
+    private final LongSupplier clock;
+    private volatile boolean warm;
+
+    /**
+     * @param dataVersions decides which blocks are sealed, as for history queries
+     * @param cacheBlockBuckets buckets per cache block, as configured for history queries
+     * @param parallelism targets aggregated concurrently
+     * @param timeoutMillis how long to wait for all targets before reporting warm anyway
+     */
+    public CacheWarmUpService(EventRepository eventRepository, DataVersions dataVersions, long cacheBlockBuckets,
+                              List<WarmUpTarget> targets, int parallelism, long timeoutMillis) {
+        this(eventRepository, dataVersions, cacheBlockBuckets, targets, parallelism, timeoutMillis, EpochNanos::now);
+    }
+
+    CacheWarmUpService(EventRepository eventRepository, DataVersions dataVersions, long cacheBlockBuckets,
+                       List<WarmUpTarget> targets, int parallelism, long timeoutMillis, LongSupplier clock) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Warm-up parallelism must be positive: " + parallelism);
+        }
+        this.eventRepository = eventRepository;
+        this.dataVersions = dataVersions;
+        this.cacheBlocks = new CacheBlocks(cacheBlockBuckets);
+        this.targets = List.copyOf(targets);
+        this.parallelism = parallelism;
+        this.timeoutMillis = timeoutMillis;
+        this.clock = clock;
+    }
+
+    public void start() {
+        if (targets.isEmpty()) {
+            warm = true;
+            return;
+        }
+        long started = System.nanoTime();
+        long now = EpochNanos.toEpochSecond(clock.getAsLong());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, targets.size()), runnable -> {
+            var thread = new Thread(runnable, "cache-warmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        var tasks = targets.stream()
+            .map(target -> CompletableFuture.runAsync(() -> warmUp(target, now), executor))
+            .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(tasks)
+            .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+            .whenComplete((ignored, failure) -> {
+                warm = true;
+                executor.shutdown();
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                if (failure != null) {
+                    logger.warn("Cache warm-up incomplete after {} ms; serving anyway", elapsed);
+                } else {
+                    logger.info("Warmed candle cache for {} targets in {} ms", targets.size(), elapsed);
+                }
+            });
+    }
+
+    public boolean isWarm() {
+        return warm;
+    }
+
+    private void warmUp(WarmUpTarget target, long now) {
+        var timeframe = target.timeframe();
+        try {
+            var blocks = cacheBlocks.split(timeframe, cacheBlocks.blockStart(timeframe, now - target.lookbackSeconds()),
+                    now, end -> dataVersions.versionOf(target.symbol(), end).sealed())
+                .stream()
+                .filter(CacheBlocks.Piece::block)
+                .toList();
+            if (blocks.isEmpty()) {
+                long from = timeframe.bucketStart(now - target.lookbackSeconds());
+                long to = timeframe.bucketStart(now) - 1;
+                if (to >= from) {
+                    eventRepository.aggregateCandles(target.symbol(), timeframe, from, to);
+                }
+            }
+            for (var block : blocks) {
+                eventRepository.aggregateCandles(target.symbol(), timeframe, block.from(), block.to());
+            }
+            logger.debug("Warmed {} {} cache blocks for {}", blocks.size(), timeframe, target.symbol());
+        } catch (RuntimeException e) {
+            logger.warn("Failed to warm {} {} candles", timeframe, target.symbol(), e);
+        }
+    }
+}
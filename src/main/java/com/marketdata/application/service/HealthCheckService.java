@@ -0,0 +1,143 @@
+package com.marketdata.application.service;
+
+import com.marketdata.domain.model.EpochNanos;
+import com.marketdata.domain.model.HealthReport;
+import com.marketdata.domain.port.in.CheckHealthUseCase;
+import com.marketdata.domain.port.in.IngestMarketDataUseCase;
+import com.marketdata.domain.port.in.WarmUpCacheUseCase;
+import com.marketdata.domain.port.out.EventRepository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Liveness and readiness from the ingestion pipeline, the repository and the cache.
+ * <p>
+ * Liveness only fails once ingestion has stopped, since a restart is the only remedy for
+ * that. Readiness fails while the cache is warming up, when the repository cannot be
+ * reached, and when a limit is exceeded: the lag of any symbol (how far, in event time,
+ * its stored events trail the ones it has accepted), the events waiting to be stored, or
+ * the average write time. It also fails when no event has been accepted for longer than
+ * the staleness limit, counted from the newest accepted event (or from when ingestion
+ * started), since a feed that has gone silent leaves nothing to lag. A limit of 0 disables
+ * its check. Symbols whose feed is quiet do not lag, so the lag limit only needs to exceed
+ * the reorder window.
+ */
+public class HealthCheckService implements CheckHealthUseCase {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final IngestMarketDataUseCase ingestion;
+    private final WarmUpCacheUseCase warmUp;
+    private final EventRepository eventRepository;
+    private final long maxLagNanos;
+    private final int pendingCapacity;
+    private final long maxWriteLatencyNanos;
+    private final long maxStalenessNanos;
+    private final LongSupplier clock;
+
+    /**
+     * @param maxLagNanos largest lag of any symbol, in event time, for the instance to be ready
+     * @param pendingCapacity largest number of events waiting to be stored
+     * @param maxWriteLatencyNanos largest average repository write time
+     * @param maxStalenessNanos longest time since the newest accepted event
+     */
+    public HealthCheckService(IngestMarketDataUseCase ingestion, WarmUpCacheUseCase warmUp,
+                              EventRepository eventRepository, long maxLagNanos, int pendingCapacity,
+                              long maxWriteLatencyNanos, long maxStalenessNanos) {
+        this(ingestion, warmUp, eventRepository, maxLagNanos, pendingCapacity, maxWriteLatencyNanos,
+            maxStalenessNanos, EpochNanos::now);
+    }
+
+    HealthCheckService(IngestMarketDataUseCase ingestion, WarmUpCacheUseCase warmUp,
+                       EventRepository eventRepository, long maxLagNanos, int pendingCapacity,
+                       long maxWriteLatencyNanos, long maxStalenessNanos, LongSupplier clock) {
+        this.ingestion = ingestion;
+        this.warmUp = warmUp;
+        this.eventRepository = eventRepository;
+        this.maxLagNanos = maxLagNanos;
+        this.pendingCapacity = pendingCapacity;
+        this.maxWriteLatencyNanos = maxWriteLatencyNanos;
+        this.maxStalenessNanos = maxStalenessNanos;
+        this.clock = clock;
+    }
+
+    public HealthReport liveness() {
+        boolean running = ingestion.status().running();
+        return new HealthReport(running, Map.of("ingestion", Map.of("running", running)),
+            running ? List.of() : List.of("ingestion is not running"));
+    }
+
+    public HealthReport readiness() {
+        var failures = new ArrayList<String>();
+        var checks = new LinkedHashMap<String, Object>();
+        checks.put("cache", checkCache(failures));
+        checks.put("ingestion", checkIngestion(failures));
+        checks.put("store", checkStore(failures));
+        return new HealthReport(failures.isEmpty(), checks, failures);
+    }
+
+    private Map<String, Object> checkCache(List<String> failures) {
+        boolean warm = warmUp.isWarm();
+        if (!warm) {
+            failures.add("cache is warming up");
+        }
+        return Map.of("warm", warm);
+    }
+
+    private Map<String, Object> checkIngestion(List<String> failures) {
+        var status = ingestion.status();
+        var lagMillis = new TreeMap<String, Long>();
+        status.lagNanos().forEach((symbol, lag) -> {
+            lagMillis.put(symbol, lag / 1_000_000);
+            if (maxLagNanos > 0 && lag > maxLagNanos) {
+                failures.add("ingestion lag for " + symbol + " is " + lag / 1_000_000 + " ms");
+            }
+        });
+        if (!status.running()) {
+            failures.add("ingestion is not running");
+        }
+        if (pendingCapacity > 0 && status.pending() > pendingCapacity) {
+            failures.add("pending events " + status.pending() + " exceed capacity " + pendingCapacity);
+        }
+        if (maxWriteLatencyNanos > 0 && status.writeLatencyNanos() > maxWriteLatencyNanos) {
+            failures.add("write latency is " + millis(status.writeLatencyNanos()) + " ms");
+        }
+        long staleness = status.newestAcceptedNanos() == 0 ? 0
+            : Math.max(0, clock.getAsLong() - status.newestAcceptedNanos());
+        if (maxStalenessNanos > 0 && staleness > maxStalenessNanos) {
+            failures.add("no events accepted for " + staleness / 1_000_000 + " ms");
+        }
+
+        var checks = new LinkedHashMap<String, Object>();
+        checks.put("running", status.running());
+        checks.put("lagMs", lagMillis);
+        checks.put("pending", status.pending());
+        checks.put("capacity", pendingCapacity);
+        checks.put("writeLatencyMs", millis(status.writeLatencyNanos()));
+        checks.put("stalenessMs", staleness / 1_000_000);
+        return checks;
+    }
+
+    /**
+     * Reads the latest sequence number, an index-only lookup, to prove the repository answers.
+     */
+    private Map<String, Object> checkStore(List<String> failures) {
+        long started = System.nanoTime();
+        try {
+            eventRepository.lastSequence();
+            return Map.of("reachable", true, "latencyMs", millis(System.nanoTime() - started));
+        } catch (RuntimeException e) {
+            failures.add("store is unreachable: " + e.getMessage());
+            return Map.of("reachable", false);
+        }
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / NANOS_PER_MILLI * 100) / 100.0;
+    }
+}
@@ -1,12 +1,32 @@
 package com.marketdata.application.service;
 
 import com.marketdata.domain.model.Candle;
+import com.marketdata.domain.model.CandlePage;
+import com.marketdata.domain.model.DataVersion;
+import com.marketdata.domain.model.DetailedCandle;
+import com.marketdata.domain.model.EventColumns;
+import com.marketdata.domain.model.QueryCost;
 import com.marketdata.domain.model.Timeframe;
+import com.marketdata.domain.model.TimeframeMapper;
 import com.marketdata.domain.port.in.QueryHistoryUseCase;
+import com.marketdata.domain.port.out.DataVersions;
 import com.marketdata.domain.port.out.EventRepository;
 import com.marketdata.domain.service.CandleAggregator;
+import com.marketdata.domain.service.CandleKernel;
+import com.marketdata.jfr.HistoryQueryEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 
+import java.io.Serial;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 /**
  * Application service for querying historical candle data.
@@ -15,15 +35,78 @@ import java.util.List;
 public class HistoryQueryService implements QueryHistoryUseCase {
     private final EventRepository eventRepository;
     private final CandleAggregator candleAggregator;
+    private final ForkJoinPool pool;
+    private final long sliceBuckets;
+    private final DataVersions dataVersions;
+    private final MeterRegistry meterRegistry;
+    private final CacheBlocks cacheBlocks;
+    private final long maxScanSeconds;
 
     public HistoryQueryService(EventRepository eventRepository, CandleAggregator candleAggregator) {
+        this(eventRepository, candleAggregator, null, Long.MAX_VALUE);
+    }
+
+    public HistoryQueryService(EventRepository eventRepository, CandleAggregator candleAggregator,
+                               ForkJoinPool pool, long sliceBuckets) {
+        this(eventRepository, candleAggregator, pool, sliceBuckets, null);
+    }
+
+    public HistoryQueryService(EventRepository eventRepository, CandleAggregator candleAggregator,
+                               ForkJoinPool pool, long sliceBuckets, DataVersions dataVersions) {
+        this(eventRepository, candleAggregator, pool, sliceBuckets, dataVersions, Metrics.globalRegistry);
+    }
+
+    public HistoryQueryService(EventRepository eventRepository, CandleAggregator candleAggregator,
+                               ForkJoinPool pool, long sliceBuckets, DataVersions dataVersions,
+                               MeterRegistry meterRegistry) {
+        this(eventRepository, candleAggregator, pool, sliceBuckets, dataVersions, meterRegistry, 0);
+    }
+
+    public HistoryQueryService(EventRepository eventRepository, CandleAggregator candleAggregator,
+                               ForkJoinPool pool, long sliceBuckets, DataVersions dataVersions,
+                               MeterRegistry meterRegistry, long cacheBlockBuckets) {
+        this(eventRepository, candleAggregator, pool, sliceBuckets, dataVersions, meterRegistry, cacheBlockBuckets,
+            Long.MAX_VALUE);
+    }
+
+    /**
+     * @param pool pool for aggregating large ranges in parallel, or {@code null} to stay single-threaded
+     * @param sliceBuckets largest range, in buckets, fetched and aggregated as one slice;
+     *                     smaller ranges never leave the calling thread
+     * @param dataVersions write tracking for response validators, or {@code null} if not tracked
+     * @param meterRegistry registry for per-query aggregation time, event and candle counts
+     * @param cacheBlockBuckets buckets per {@link CacheBlocks cache block} of SQL aggregation,
+     *                          or 0 to cache each queried range as a whole
+     * @param maxScanSeconds longest span a countback reads (see {@link QueryCost#countbackScanSeconds})
+     */
+    public HistoryQueryService(EventRepository eventRepository, CandleAggregator candleAggregator,
+                               ForkJoinPool pool, long sliceBuckets, DataVersions dataVersions,
+                               MeterRegistry meterRegistry, long cacheBlockBuckets, long maxScanSeconds) {
+        if (sliceBuckets <= 0) {
+            throw new IllegalArgumentException("Slice size must be positive: " + sliceBuckets);
+        }
         this.eventRepository = eventRepository;
         this.candleAggregator = candleAggregator;
+        this.pool = pool;
+        this.sliceBuckets = sliceBuckets;
+        this.dataVersions = dataVersions;
+        this.meterRegistry = meterRegistry;
+        this.cacheBlocks = new CacheBlocks(dataVersions == null ? 0 : cacheBlockBuckets);
+        this.maxScanSeconds = maxScanSeconds;
     }
 
     /**
      * Retrieves historical candle data for a symbol within a time range.
      * Uses Java-based aggregation (works with any repository).
+     * <p>
+     * Ranges longer than one slice are split at bucket boundaries, so no candle spans two
+     * slices, and the slices are fetched and aggregated on the fork-join pool; the
+     * results are concatenated in time order. Fetches block on JDBC, so they run as
+     * {@link ForkJoinPool#managedBlock managed blocks} and the pool adds a spare worker
+     * rather than sitting idle while a slice waits for the database. Events are streamed into the aggregator
+     * as blocks of primitive columns, filled straight from the cursor and aggregated on the
+     * {@link CandleKernel}, so memory per slice is proportional
+     * to the number of candles and no object is created per event.
      *
      * @param symbol Trading symbol (e.g., "BTC-USD")
      * @param timeframe Desired candle timeframe
@@ -32,13 +115,19 @@ public class HistoryQueryService implements QueryHistoryUseCase {
      * @return List of candles sorted by time
      */
     public List<Candle> getHistory(String symbol, Timeframe timeframe, long fromEpochSec, long toEpochSec) {
-        var events = eventRepository.query(symbol, fromEpochSec, toEpochSec);
-        return candleAggregator.aggregate(events, timeframe);
+        var sample = Timer.start(meterRegistry);
+        var query = start("java", symbol, timeframe, fromEpochSec, toEpochSec, false);
+        var candles = aggregate(symbol, timeframe, fromEpochSec, toEpochSec, candleAggregator::columnarAccumulator);
+        return record(sample, query, candles, Candle::getVolume);
     }
     
     /**
      * Retrieves historical candle data using SQL aggregation.
      * More efficient than Java aggregation for large datasets.
+     * <p>
+     * The repository caches aggregations by exact range. The range is therefore split on
+     * the {@link CacheBlocks} grid and its whole sealed blocks are aggregated one by one, so
+     * they hit the same cache entries (including warmed ones) whatever bounds the client sent.
      *
      * @param symbol Trading symbol (e.g., "BTC-USD")
      * @param timeframe Desired candle timeframe
@@ -47,6 +136,207 @@ public class HistoryQueryService implements QueryHistoryUseCase {
      * @return List of candles sorted by time
      */
     public List<Candle> getHistoryWithSql(String symbol, Timeframe timeframe, long fromEpochSec, long toEpochSec) {
-        return eventRepository.aggregateCandles(symbol, timeframe, fromEpochSec, toEpochSec);
+        var sample = Timer.start(meterRegistry);
+        var query = start("sql", symbol, timeframe, fromEpochSec, toEpochSec, true);
+        var pieces = cacheBlocks.split(timeframe, fromEpochSec, toEpochSec,
+            end -> dataVersions.versionOf(symbol, end).sealed());
+        var candles = new ArrayList<Candle>();
+        for (var piece : pieces) {
+            candles.addAll(eventRepository.aggregateCandles(symbol, timeframe, piece.from(), piece.to()));
+        }
+        return record(sample, query, candles, Candle::getVolume);
+    }
+
+    /**
+     * Same slicing and streaming as {@link #getHistory(String, Timeframe, long, long)}, with
+     * the extra statistics accumulated per event alongside the mid-price OHLCV.
+     */
+    public List<DetailedCandle> getDetailedHistory(String symbol, Timeframe timeframe, long fromEpochSec,
+                                                   long toEpochSec) {
+        var sample = Timer.start(meterRegistry);
+        var query = start("detailed", symbol, timeframe, fromEpochSec, toEpochSec, false);
+        var candles = aggregate(symbol, timeframe, fromEpochSec, toEpochSec, candleAggregator::detailedAccumulator);
+        return record(sample, query, candles, candle -> candle.mid().getVolume());
+    }
+
+    public List<DetailedCandle> getDetailedHistory(String symbol, Timeframe timeframe, long fromEpochSec,
+                                                   long toEpochSec, int maxPoints) {
+        var effective = timeframe.coarsen(fromEpochSec, toEpochSec, maxPoints);
+        return CandleAggregator.downsampleDetailed(
+            getDetailedHistory(symbol, effective, fromEpochSec, toEpochSec), maxPoints);
+    }
+
+    private <T> List<T> aggregate(String symbol, Timeframe timeframe, long fromEpochSec, long toEpochSec,
+                                  Function<Timeframe, CandleAggregator.Aggregation<T>> aggregation) {
+        var task = new SliceTask<>(symbol, timeframe, fromEpochSec, toEpochSec, aggregation);
+        return pool == null || !task.isSplittable() ? task.aggregateSlice() : pool.invoke(task);
+    }
+
+    /**
+     * Coarsens the timeframe before querying, so the work done is bounded by the budget,
+     * then merges candles if the coarser timeframe still yields too many.
+     */
+    public List<Candle> getHistory(String symbol, Timeframe timeframe, long fromEpochSec, long toEpochSec, int maxPoints) {
+        var effective = timeframe.coarsen(fromEpochSec, toEpochSec, maxPoints);
+        return CandleAggregator.downsample(getHistory(symbol, effective, fromEpochSec, toEpochSec), maxPoints);
+    }
+
+    public List<Candle> getHistoryWithSql(String symbol, Timeframe timeframe, long fromEpochSec, long toEpochSec, int maxPoints) {
+        var effective = timeframe.coarsen(fromEpochSec, toEpochSec, maxPoints);
+        return CandleAggregator.downsample(getHistoryWithSql(symbol, effective, fromEpochSec, toEpochSec), maxPoints);
+    }
+
+    /**
+     * Scans events newest first and stops as soon as {@code count} buckets are complete,
+     * so the cost depends on the page size rather than on how much history exists. The
+     * scan never reads further back than {@link QueryCost#countbackScanSeconds}, the span
+     * admission control costs it at; over sparse data the page may then hold fewer
+     * candles. Its cursor then points at the newest event before the scanned span, found
+     * with a single-row backward seek, or is {@code null} if there is none.
+     */
+    public CandlePage getLastCandles(String symbol, Timeframe timeframe, long toEpochSec, int count) {
+        var sample = Timer.start(meterRegistry);
+        long fromEpochSec = Math.max(0, toEpochSec - QueryCost.countbackScanSeconds(timeframe, count, maxScanSeconds) + 1);
+        var query = start("countback", symbol, timeframe, fromEpochSec, toEpochSec, false);
+        var accumulator = candleAggregator.backwardAccumulator(timeframe, count);
+        eventRepository.streamBackward(symbol, fromEpochSec, toEpochSec, accumulator);
+        var candles = record(sample, query, accumulator.candles(), Candle::getVolume);
+        if (accumulator.hasMore()) {
+            return new CandlePage(candles, candles.getFirst().getTime() - 1);
+        }
+        return new CandlePage(candles, fromEpochSec == 0 ? null : newestBefore(symbol, fromEpochSec));
+    }
+
+    /**
+     * @return epoch second of the newest event before {@code epochSec}, or {@code null}
+     */
+    private Long newestBefore(String symbol, long epochSec) {
+        var newest = new Long[1];
+        eventRepository.streamBackward(symbol, 0, epochSec - 1, event -> {
+            newest[0] = event.epochSecond();
+            return false;
+        });
+        return newest[0];
+    }
+
+    /**
+     * Answered from memory, so it is cheap enough to run before every query. Without
+     * version tracking every range reports the same version and is never sealed.
+     */
+    public DataVersion dataVersion(String symbol, long toEpochSec) {
+        return dataVersions == null ? new DataVersion(0, false) : dataVersions.versionOf(symbol, toEpochSec);
+    }
+
+    private static HistoryQueryEvent start(String path, String symbol, Timeframe timeframe, long fromEpochSec,
+                                           long toEpochSec, boolean cached) {
+        return HistoryQueryEvent.start(path, symbol, TimeframeMapper.labelOf(timeframe), fromEpochSec, toEpochSec,
+            cached);
+    }
+
+    /**
+     * Records aggregation time next to the events it consumed (the candles' tick counts)
+     * and the candles it produced, tagged by path ({@code java}, {@code sql},
+     * {@code detailed}, {@code countback}) and timeframe, and commits the query's JFR event.
+     */
+    private <T> List<T> record(Timer.Sample sample, HistoryQueryEvent query, List<T> candles,
+                               ToLongFunction<T> volume) {
+        var tags = Tags.of("path", query.path, "timeframe", query.timeframe);
+        sample.stop(meterRegistry.timer("marketdata.query.aggregation", tags));
+        long events = 0;
+        for (T candle : candles) {
+            events += volume.applyAsLong(candle);
+        }
+        meterRegistry.summary("marketdata.query.events", tags).record(events);
+        meterRegistry.summary("marketdata.query.candles", tags).record(candles.size());
+        query.finish(events, candles.size());
+        return candles;
+    }
+
+    /**
+     * Aggregates one inclusive range, halving it at a bucket boundary while it spans
+     * more than {@code sliceBuckets} buckets. Tasks are serializable only because
+     * {@link RecursiveTask} is; they are never serialized.
+     */
+    private final class SliceTask<T> extends RecursiveTask<List<T>> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final String symbol;
+        private final transient Timeframe timeframe;
+        private final long from;
+        private final long to;
+        private final transient Function<Timeframe, CandleAggregator.Aggregation<T>> aggregation;
+
+        SliceTask(String symbol, Timeframe timeframe, long from, long to,
+                  Function<Timeframe, CandleAggregator.Aggregation<T>> aggregation) {
+            this.symbol = symbol;
+            this.timeframe = timeframe;
+            this.from = from;
+            this.to = to;
+            this.aggregation = aggregation;
+        }
+
+        boolean isSplittable() {
+            return (to - from) / timeframe.durationSeconds() >= sliceBuckets;
+        }
+
+        List<T> aggregateSlice() {
+            var accumulator = aggregation.apply(timeframe);
+            if (!ForkJoinTask.inForkJoinPool()) {
+                fetch(accumulator);
+                return accumulator.candles();
+            }
+            var fetch = new ForkJoinPool.ManagedBlocker() {
+                boolean done;
+
+                @Override
+                public boolean block() {
+                    fetch(accumulator);
+                    done = true;
+                    return true;
+                }
+
+                @Override
+                public boolean isReleasable() {
+                    return done;
+                }
+            };
+            try {
+                ForkJoinPool.managedBlock(fetch);
+            } catch (InterruptedException e) {
+                // Not thrown: the fetch itself does not wait interruptibly
+                Thread.currentThread().interrupt();
+            }
+            return accumulator.candles();
+        }
+
+        /**
+         * Streams the slice as columns to aggregations that take them, as events otherwise.
+         */
+        private void fetch(CandleAggregator.Aggregation<T> accumulator) {
+            if (accumulator instanceof EventColumns.Sink columns) {
+                eventRepository.streamColumns(symbol, from, to, columns);
+            } else {
+                eventRepository.stream(symbol, from, to, accumulator);
+            }
+        }
+
+        @Override
+        protected List<T> compute() {
+            long split = timeframe.bucketStart(from + (to - from) / 2);
+            if (!isSplittable() || split <= from) {
+                return aggregateSlice();
+            }
+            var left = new SliceTask<>(symbol, timeframe, from, split - 1, aggregation);
+            var right = new SliceTask<>(symbol, timeframe, split, to, aggregation);
+            left.fork();
+            var rightCandles = right.compute();
+            var leftCandles = left.join();
+
+            var result = new ArrayList<T>(leftCandles.size() + rightCandles.size());
+            result.addAll(leftCandles);
+            result.addAll(rightCandles);
+            return result;
+        }
     }
 }
@@ -1,37 +1,418 @@
 package com.marketdata.application.service;
 
 import com.marketdata.domain.model.BidAskEvent;
+import com.marketdata.domain.model.EpochNanos;
+import com.marketdata.domain.model.IngestionStatus;
 import com.marketdata.domain.port.in.IngestMarketDataUseCase;
+import com.marketdata.domain.port.out.CandleInvalidator;
+import com.marketdata.domain.port.out.DataVersions;
 import com.marketdata.domain.port.out.EventRepository;
 import com.marketdata.domain.port.out.MarketDataSource;
+import com.marketdata.domain.port.out.SymbolDictionary;
+import com.marketdata.domain.port.out.WriteAheadLog;
+import com.marketdata.domain.service.ReorderBuffer;
+import com.marketdata.domain.service.TickDeduplicator;
+import com.marketdata.jfr.IngestionBatchEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ingests events from the market data source into the repository.
+ * <p>
+ * Each event's symbol is resolved to its dictionary ID once, as it arrives from the source;
+ * deduplication, reordering, the log, the repository and cache invalidation all work on
+ * the ID from there.
+ * <p>
+ * Ticks repeating a recent tick of the same symbol (feed replays) are dropped by a
+ * {@link TickDeduplicator}. The rest pass through a {@link ReorderBuffer} so they are stored in timestamp order per
+ * symbol. Events that arrive behind the reorder window are still stored, and any cached
+ * candles covering them are invalidated so the next query recomputes them. The late events
+ * stored by one batch are invalidated together as the batch ends, before their writes are
+ * recorded in {@link DataVersions}, so the cache is searched once per batch rather than
+ * once per event.
+ * <p>
+ * The source delivers events in batches. Every accepted event of a batch is appended to
+ * a {@link WriteAheadLog} and the batch waits once for the last of them to be durable
+ * before the source's handler returns, so one sync acknowledges the whole batch. The log is checkpointed once a second up to the oldest event not yet stored,
+ * and whatever follows the checkpoint is replayed through the same path on startup.
+ * Replay is at-least-once: events stored after the last checkpoint are stored again
+ * unless {@code marketdata.ingestion.dedup.db-guard} is enabled.
+ * <p>
+ * An event the repository fails to save is retried by the flusher once a second and, as
+ * it lands behind newer events, invalidates cached candles like a late event. It holds back the checkpoint meanwhile,
+ * so a failure that outlasts a shutdown is replayed on the next start. After
+ * {@link #MAX_SAVE_ATTEMPTS} attempts it is dropped and logged, so one bad event cannot
+ * stall the checkpoint for good.
+ * <p>
+ * Metrics: {@code marketdata.ingestion.events} by outcome (stored, late, duplicate, failed),
+ * {@code marketdata.ingestion.lag} from event time to storage, and
+ * {@code marketdata.ingestion.reorder.pending} for events held in the reorder buffer.
+ * Each release from the reorder buffer that stores events is also recorded as an
+ * {@link IngestionBatchEvent} in JFR.
+ */
 public class MarketDataIngestionService implements IngestMarketDataUseCase {
     private static final Logger logger = LoggerFactory.getLogger(MarketDataIngestionService.class);
 
+    /**
+     * Saves attempted per event, the first on release from the reorder buffer and the
+     * rest one flush apart, before the event is given up on.
+     */
+    static final int MAX_SAVE_ATTEMPTS = 10;
+
     private final MarketDataSource source;
     private final EventRepository eventRepository;
+    private final SymbolDictionary symbolDictionary;
+    private final CandleInvalidator candleInvalidator;
+    private final DataVersions dataVersions;
+    private final WriteAheadLog wal;
+    private final PendingEvents pendingEvents;
+    private final long reorderWindowNanos;
+    private final TickDeduplicator deduplicator;
+    private final ReorderBuffer reorderBuffer;
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor();
+    private final Counter storedEvents;
+    private final Counter lateEvents;
+    private final Counter duplicateEvents;
+    private final Counter failedEvents;
+    private final Queue<FailedSave> failedSaves = new ConcurrentLinkedQueue<>();
+    private final Timer lag;
+    private final AtomicLong writeLatencyNanos = new AtomicLong();
+    private final AtomicLong newestAcceptedNanos = new AtomicLong();
+    private final ThreadLocal<IngestionBatchEvent> batch = new ThreadLocal<>();
+    private final ThreadLocal<Map<Integer, List<Long>>> lateInBatch = new ThreadLocal<>();
+    private volatile SymbolProgress[] progress = new SymbolProgress[16];
+    private volatile boolean running;
 
-    public MarketDataIngestionService(MarketDataSource source, EventRepository eventRepository) {
+    public MarketDataIngestionService(MarketDataSource source, EventRepository eventRepository,
+                                      SymbolDictionary symbolDictionary, CandleInvalidator candleInvalidator,
+                                      DataVersions dataVersions, WriteAheadLog wal,
+                                      long reorderWindowNanos, int dedupWindow, MeterRegistry meterRegistry) {
         this.source = source;
         this.eventRepository = eventRepository;
+        this.symbolDictionary = symbolDictionary;
+        this.candleInvalidator = candleInvalidator;
+        this.dataVersions = dataVersions;
+        this.wal = wal;
+        this.pendingEvents = new PendingEvents(wal);
+        this.reorderWindowNanos = reorderWindowNanos;
+        this.deduplicator = new TickDeduplicator(dedupWindow);
+        this.reorderBuffer = new ReorderBuffer(reorderWindowNanos, this::store, this::correct);
+        this.storedEvents = eventCounter(meterRegistry, "stored");
+        this.lateEvents = eventCounter(meterRegistry, "late");
+        this.duplicateEvents = eventCounter(meterRegistry, "duplicate");
+        this.failedEvents = eventCounter(meterRegistry, "failed");
+        this.lag = Timer.builder("marketdata.ingestion.lag")
+            .description("Time from event timestamp until the event is stored")
+            .register(meterRegistry);
+        Gauge.builder("marketdata.ingestion.reorder.pending", reorderBuffer, ReorderBuffer::size)
+            .description("Events held in the reorder buffer")
+            .register(meterRegistry);
+    }
+
+    private static Counter eventCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("marketdata.ingestion.events")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
     }
 
     public void start() {
-        source.start(this::handle);
-        logger.info("Market data ingestion started");
+        wal.replay(this::recover);
+        newestAcceptedNanos.accumulateAndGet(EpochNanos.now(), Math::max);
+        source.startBatches(this::handleBatch);
+        // Drain buffered events for symbols whose feed has gone quiet. Started after replay,
+        // so replayed events are only ever ordered against each other's timestamps
+        flusher.scheduleAtFixedRate(this::flushIdle, 1, 1, TimeUnit.SECONDS);
+        running = true;
+        logger.info("Market data ingestion started (reorder window {}ms)", reorderWindowNanos / 1_000_000);
     }
 
     @PreDestroy
     public void stop() {
+        running = false;
         source.stop();
+        flusher.shutdownNow();
+        var shutdown = beginBatch("shutdown");
+        reorderBuffer.flush();
+        retryFailedSaves();
+        endBatch(shutdown);
+        wal.checkpoint(pendingEvents.checkpoint());
         logger.info("Market data ingestion stopped");
     }
 
-    private void handle(BidAskEvent event) {
-        eventRepository.save(event);
-        logger.trace("Stored event: {} at {}", event.symbol(), event.timestamp());
+    void handle(BidAskEvent event) {
+        handleBatch(List.of(event));
+    }
+
+    /**
+     * Appends a batch's accepted events to the log, waits once for them to be durable and
+     * only then passes them on, so nothing is stored or acknowledged ahead of the log.
+     */
+    void handleBatch(List<BidAskEvent> events) {
+        var symbolIds = new int[events.size()];
+        long position = 0;
+        boolean accepted = false;
+        for (int i = 0; i < events.size(); i++) {
+            var event = events.get(i);
+            int symbolId = symbolDictionary.idOf(event.symbol());
+            if (deduplicator.isDuplicate(symbolId, event)) {
+                duplicateEvents.increment();
+                logger.trace("Dropped duplicate tick: {} at {}", event.symbol(), event.timestampNanos());
+                symbolIds[i] = SymbolDictionary.NO_ID;
+                continue;
+            }
+            symbolIds[i] = symbolId;
+            position = pendingEvents.append(symbolId, event);
+            accepted = true;
+        }
+        if (!accepted) {
+            return;
+        }
+        wal.awaitDurable(position);
+        var live = beginBatch("live");
+        for (int i = 0; i < events.size(); i++) {
+            if (symbolIds[i] != SymbolDictionary.NO_ID) {
+                var event = events.get(i);
+                accepted(symbolIds[i], event);
+                reorderBuffer.offer(symbolIds[i], event);
+            }
+        }
+        endBatch(live);
+    }
+
+    /**
+     * Re-ingests an event replayed from the log, which already holds it at {@code position}.
+     */
+    void recover(BidAskEvent event, long position) {
+        int symbolId = symbolDictionary.idOf(event.symbol());
+        if (deduplicator.isDuplicate(symbolId, event)) {
+            return;
+        }
+        pendingEvents.track(event, position);
+        accepted(symbolId, event);
+        var replay = beginBatch("replay");
+        reorderBuffer.offer(symbolId, event);
+        endBatch(replay);
+    }
+
+    private void accepted(int symbolId, BidAskEvent event) {
+        progressFor(symbolId, event.timestampNanos()).accepted.accumulateAndGet(event.timestampNanos(), Math::max);
+        newestAcceptedNanos.accumulateAndGet(event.timestampNanos(), Math::max);
+    }
+
+    /**
+     * Drains symbols whose feed has gone quiet, judged by their own event time rather
+     * than the wall clock, so a feed lagging behind real time is not pushed into the late path.
+     */
+    void flushIdle() {
+        var idle = beginBatch("idle");
+        reorderBuffer.advanceIdle();
+        retryFailedSaves();
+        endBatch(idle);
+        wal.checkpoint(pendingEvents.checkpoint());
+    }
+
+    /**
+     * Starts a batch for the events the reorder buffer releases on this thread until
+     * {@link #endBatch}; a no-op unless the JFR event is enabled.
+     */
+    private IngestionBatchEvent beginBatch(String trigger) {
+        var event = new IngestionBatchEvent();
+        if (event.isEnabled()) {
+            event.trigger = trigger;
+            event.begin();
+            batch.set(event);
+        }
+        return event;
+    }
+
+    private void endBatch(IngestionBatchEvent event) {
+        invalidateLate();
+        if (batch.get() == event) {
+            batch.remove();
+            if (event.size > 0 && event.shouldCommit()) {
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Invalidates the candles covering the late events stored on this thread since the last
+     * call, then records their writes.
+     */
+    private void invalidateLate() {
+        var late = lateInBatch.get();
+        if (late == null) {
+            return;
+        }
+        lateInBatch.remove();
+        candleInvalidator.invalidateAll(late);
+        late.forEach((symbolId, timestamps) -> {
+            for (long timestampNanos : timestamps) {
+                dataVersions.recordWrite(symbolId, timestampNanos);
+            }
+        });
+    }
+
+    /**
+     * Lag is measured in event time, from the newest stored event of a symbol to the newest
+     * accepted one, so a symbol whose feed is quiet is not lagging; only symbols with events
+     * still to store are reported. Pending events include those waiting for a failed save to
+     * be retried. Write latency is an exponentially weighted average over recent saves.
+     */
+    public IngestionStatus status() {
+        var current = progress;
+        var lagNanos = new HashMap<String, Long>();
+        for (int symbolId = 0; symbolId < current.length; symbolId++) {
+            var symbol = current[symbolId];
+            if (symbol != null && symbol.lag() > 0) {
+                lagNanos.put(symbolDictionary.symbolOf(symbolId), symbol.lag());
+            }
+        }
+        return new IngestionStatus(running, lagNanos, reorderBuffer.size() + failedSaves.size(),
+            writeLatencyNanos.get(), newestAcceptedNanos.get());
+    }
+
+    private void store(BidAskEvent event, int symbolId) {
+        persist(event, symbolId, false, 1);
     }
+
+    private void correct(BidAskEvent event, int symbolId) {
+        persist(event, symbolId, true, 1);
+    }
+
+    /**
+     * Saves an event and records it, or queues it for another attempt if the save fails.
+     * A retried event lands behind newer ones, so it invalidates candles like a late event.
+     */
+    private void persist(BidAskEvent event, int symbolId, boolean late, int attempt) {
+        try {
+            save(event, symbolId);
+        } catch (RuntimeException e) {
+            saveFailed(new FailedSave(event, symbolId, late, attempt), e);
+            return;
+        }
+        pendingEvents.stored(event);
+        if (late || attempt > 1) {
+            var lateEvents = lateInBatch.get();
+            if (lateEvents == null) {
+                lateEvents = new HashMap<>();
+                lateInBatch.set(lateEvents);
+            }
+            lateEvents.computeIfAbsent(symbolId, id -> new ArrayList<>()).add(event.timestampNanos());
+        } else {
+            dataVersions.recordWrite(symbolId, event.timestampNanos());
+        }
+        recordStored(late ? lateEvents : storedEvents, event, late);
+        if (late) {
+            logger.debug("Stored late event: {} at {}", event.symbol(), event.timestampNanos());
+        } else {
+            logger.trace("Stored event: {} at {}", event.symbol(), event.timestampNanos());
+        }
+    }
+
+    private void saveFailed(FailedSave failed, RuntimeException e) {
+        var event = failed.event();
+        if (failed.attempt() < MAX_SAVE_ATTEMPTS) {
+            logger.warn("Failed to store event {} at {} (attempt {}), retrying", event.symbol(),
+                event.timestampNanos(), failed.attempt(), e);
+            failedSaves.add(failed);
+            return;
+        }
+        logger.error("Dropping event {} at {} (bid {}, ask {}) after {} failed attempts", event.symbol(),
+            event.timestampNanos(), event.bid(), event.ask(), failed.attempt(), e);
+        pendingEvents.stored(event);
+        failedEvents.increment();
+    }
+
+    /**
+     * Retries the saves that failed since the previous call, once each.
+     */
+    private void retryFailedSaves() {
+        for (int remaining = failedSaves.size(); remaining > 0; remaining--) {
+            var failed = failedSaves.poll();
+            if (failed == null) {
+                return;
+            }
+            persist(failed.event(), failed.symbolId(), failed.late(), failed.attempt() + 1);
+        }
+    }
+
+    private void save(BidAskEvent event, int symbolId) {
+        long started = System.nanoTime();
+        eventRepository.save(symbolId, event);
+        long elapsed = System.nanoTime() - started;
+        writeLatencyNanos.updateAndGet(average -> average == 0 ? elapsed : average + (elapsed - average) / 8);
+        progressFor(symbolId, event.timestampNanos()).stored.accumulateAndGet(event.timestampNanos(), Math::max);
+    }
+
+    private SymbolProgress progressFor(int symbolId, long firstTimestampNanos) {
+        var current = progress;
+        if (symbolId < current.length && current[symbolId] != null) {
+            return current[symbolId];
+        }
+        return createProgress(symbolId, firstTimestampNanos);
+    }
+
+    private synchronized SymbolProgress createProgress(int symbolId, long firstTimestampNanos) {
+        var current = progress;
+        if (symbolId >= current.length) {
+            current = Arrays.copyOf(current, Math.max(symbolId + 1, current.length * 2));
+        }
+        if (current[symbolId] == null) {
+            current[symbolId] = new SymbolProgress(firstTimestampNanos);
+        }
+        progress = current;
+        return current[symbolId];
+    }
+
+    private void recordStored(Counter counter, BidAskEvent event, boolean late) {
+        counter.increment();
+        long lagNanos = Math.max(0, EpochNanos.now() - event.timestampNanos());
+        lag.record(lagNanos, TimeUnit.NANOSECONDS);
+        var current = batch.get();
+        if (current != null) {
+            current.size++;
+            if (late) {
+                current.late++;
+            }
+            current.maxLag = Math.max(current.maxLag, lagNanos);
+        }
+    }
+
+    /**
+     * Newest event time accepted and stored for a symbol. Both start at the symbol's first
+     * event, so a symbol only lags once it has accepted events newer than any it has stored.
+     */
+    private static final class SymbolProgress {
+        final AtomicLong accepted;
+        final AtomicLong stored;
+
+        SymbolProgress(long firstTimestampNanos) {
+            this.accepted = new AtomicLong(firstTimestampNanos);
+            this.stored = new AtomicLong(firstTimestampNanos);
+        }
+
+        long lag() {
+            return Math.max(0, accepted.get() - stored.get());
+        }
+    }
+
+    private record FailedSave(BidAskEvent event, int symbolId, boolean late, int attempt) { }
 }
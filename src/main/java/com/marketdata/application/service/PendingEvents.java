@@ -0,0 +1,55 @@
+package com.marketdata.application.service;
+
+import com.marketdata.domain.model.BidAskEvent;
+import com.marketdata.domain.port.out.WriteAheadLog;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Events that are in the write-ahead log but not yet in the repository.
+ * <p>
+ * The reorder buffer stores events out of log order, so the checkpoint is the lowest log
+ * position still pending rather than the position of the last stored event. Events are
+ * tracked by identity: the reorder buffer hands back the same instances it was given, and
+ * equal ticks (replays the deduplicator missed) still have distinct log records.
+ */
+final class PendingEvents {
+    private final WriteAheadLog wal;
+    private final Map<BidAskEvent, Long> positions = new IdentityHashMap<>();
+    private final TreeSet<Long> pending = new TreeSet<>();
+
+    PendingEvents(WriteAheadLog wal) {
+        this.wal = wal;
+    }
+
+    /**
+     * Appends to the log and tracks the event in one step, so a concurrent
+     * {@link #checkpoint()} cannot pass a record that is not tracked yet.
+     */
+    synchronized long append(int symbolId, BidAskEvent event) {
+        long position = wal.append(symbolId, event);
+        track(event, position);
+        return position;
+    }
+
+    synchronized void track(BidAskEvent event, long position) {
+        positions.put(event, position);
+        pending.add(position);
+    }
+
+    synchronized void stored(BidAskEvent event) {
+        var position = positions.remove(event);
+        if (position != null) {
+            pending.remove(position);
+        }
+    }
+
+    /**
+     * Position before which every logged event has been stored.
+     */
+    synchronized long checkpoint() {
+        return pending.isEmpty() ? wal.position() : pending.first();
+    }
+}
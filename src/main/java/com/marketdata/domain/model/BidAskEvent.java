@@ -6,6 +6,18 @@ package com.marketdata.domain.model;
  * @param symbol Trading pair (e.g., "BTC-USD")
  * @param bid Bid price
  * @param ask Ask price
- * @param timestamp Unix timestamp in seconds
+ * @param timestampNanos Unix timestamp in nanoseconds (see {@link EpochNanos})
  */
-public record BidAskEvent(String symbol, double bid, double ask, long timestamp) { }
+public record BidAskEvent(String symbol, double bid, double ask, long timestampNanos) {
+
+    /**
+     * Creates an event at the start of the given epoch second.
+     */
+    public static BidAskEvent ofEpochSecond(String symbol, double bid, double ask, long epochSecond) {
+        return new BidAskEvent(symbol, bid, ask, EpochNanos.ofEpochSecond(epochSecond));
+    }
+
+    public long epochSecond() {
+        return EpochNanos.toEpochSecond(timestampNanos);
+    }
+}
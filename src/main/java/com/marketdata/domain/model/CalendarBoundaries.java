@@ -0,0 +1,126 @@
+package com.marketdata.domain.model;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed bucket boundaries for calendar timeframes (days/weeks in zones with DST,
+ * and months), from 1970 to 2100.
+ * <p>
+ * Date math runs once when the table is built; bucketing an event is then a binary search
+ * over a {@code long[]}. Times outside the table fall back to date math per call. Tables
+ * are shared between equal timeframes through a small bounded map; building one takes no
+ * shared lock, so concurrent queries for different calendars do not wait for each other.
+ */
+final class CalendarBoundaries {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(1970, 1, 1);
+    private static final LocalDate FIRST_MONDAY = LocalDate.of(1969, 12, 29);
+    private static final LocalDate END = LocalDate.of(2100, 1, 1);
+    private static final int MAX_TABLES = 32;
+    // Range of epoch nanosecond timestamps; no event can fall outside it
+    private static final long MIN_SECOND = Math.floorDiv(Long.MIN_VALUE, EpochNanos.NANOS_PER_SECOND);
+    private static final long MAX_SECOND = Long.MAX_VALUE / EpochNanos.NANOS_PER_SECOND;
+
+    private static final Map<Key, CalendarBoundaries> TABLES = new ConcurrentHashMap<>();
+
+    private final Key key;
+    private final LocalDate anchor;
+    private final long[] starts;
+
+    private CalendarBoundaries(Key key) {
+        this.key = key;
+        this.anchor = key.unit() == ChronoUnit.WEEKS ? FIRST_MONDAY : FIRST_DAY;
+        this.starts = build();
+    }
+
+    static CalendarBoundaries of(ChronoUnit unit, int amount, ZoneId zone, long sessionOffsetSeconds) {
+        var key = new Key(unit, amount, zone, sessionOffsetSeconds);
+        var table = TABLES.get(key);
+        if (table != null) {
+            return table;
+        }
+        // Built outside the map: two threads may build the same table, one copy is kept
+        var built = new CalendarBoundaries(key);
+        if (TABLES.size() >= MAX_TABLES) {
+            var any = TABLES.keySet().iterator();
+            if (any.hasNext()) {
+                TABLES.remove(any.next());
+            }
+        }
+        table = TABLES.putIfAbsent(key, built);
+        return table != null ? table : built;
+    }
+
+    /**
+     * @return start of the bucket containing the given time, in epoch seconds. Times beyond
+     *         the range of epoch nanoseconds (1677 to 2262) are clamped to it.
+     */
+    long bucketStart(long epochSecond) {
+        if (epochSecond >= starts[0] && epochSecond < starts[starts.length - 1]) {
+            int index = Arrays.binarySearch(starts, epochSecond);
+            return starts[index < 0 ? -index - 2 : index];
+        }
+        return startOf(indexOf(epochSecond));
+    }
+
+    /**
+     * @return start of the bucket following the one starting at {@code bucketStart}
+     */
+    long nextBucketStart(long bucketStart) {
+        if (bucketStart >= starts[0] && bucketStart < starts[starts.length - 1]) {
+            int index = Arrays.binarySearch(starts, bucketStart);
+            return starts[index < 0 ? -index - 1 : index + 1];
+        }
+        return startOf(indexOf(bucketStart) + 1);
+    }
+
+    Key key() {
+        return key;
+    }
+
+    private long[] build() {
+        var starts = new long[(int) (key.unit().between(anchor, END) / key.amount()) + 1];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = startOf(i);
+        }
+        return starts;
+    }
+
+    /**
+     * @return start of the {@code index}-th bucket after the anchor, in epoch seconds
+     */
+    private long startOf(long index) {
+        return anchor.plus(index * key.amount(), key.unit())
+            .atStartOfDay()
+            .plusSeconds(key.sessionOffsetSeconds())
+            .atZone(key.zone())
+            .toEpochSecond();
+    }
+
+    /**
+     * @return index of the bucket containing the given time, found by date math
+     */
+    private long indexOf(long epochSecond) {
+        long clamped = Math.max(MIN_SECOND, Math.min(MAX_SECOND, epochSecond));
+        var day = Instant.ofEpochSecond(clamped).atZone(key.zone()).toLocalDateTime()
+            .minusSeconds(key.sessionOffsetSeconds())
+            .toLocalDate();
+        long index = Math.floorDiv(key.unit().between(anchor, day), key.amount());
+        // The estimate can be one bucket off around DST changes and partial units
+        while (startOf(index) > clamped) {
+            index--;
+        }
+        while (startOf(index + 1) <= clamped) {
+            index++;
+        }
+        return index;
+    }
+
+    record Key(ChronoUnit unit, int amount, ZoneId zone, long sessionOffsetSeconds) { }
+}
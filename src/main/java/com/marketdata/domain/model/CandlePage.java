@@ -0,0 +1,13 @@
+package com.marketdata.domain.model;
+
+import java.util.List;
+
+/**
+ * A page of the most recent candles up to some time.
+ *
+ * @param candles candles sorted by time
+ * @param nextTo continuation cursor: pass as {@code to} to fetch the preceding page,
+ *               or {@code null} if there is no earlier data
+ */
+public record CandlePage(List<Candle> candles, Long nextTo) {
+}
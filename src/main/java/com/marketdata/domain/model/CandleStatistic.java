@@ -0,0 +1,46 @@
+package com.marketdata.domain.model;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Optional per-candle statistics a client can request next to mid-price OHLCV.
+ */
+public enum CandleStatistic {
+    /** OHLC of the bid price */
+    BID,
+    /** OHLC of the ask price */
+    ASK,
+    /** Minimum, maximum and average of ask minus bid */
+    SPREAD,
+    /** Average mid price, each tick weighted equally */
+    MEAN;
+
+    /**
+     * Parses a comma-separated list such as {@code bid,ask,spread}, ignoring case and blanks.
+     *
+     * @param fields the list, or {@code null} for none
+     * @return the requested statistics, empty if none
+     * @throws IllegalArgumentException if an entry is not a known statistic
+     */
+    public static Set<CandleStatistic> parse(String fields) {
+        var result = EnumSet.noneOf(CandleStatistic.class);
+        if (fields == null) {
+            return result;
+        }
+        for (String field : fields.split(",")) {
+            var name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            try {
+                result.add(valueOf(name.toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(
+                    "Unknown field '" + name + "'. Supported fields: bid, ask, spread, mean");
+            }
+        }
+        return result;
+    }
+}
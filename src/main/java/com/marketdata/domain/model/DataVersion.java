@@ -0,0 +1,11 @@
+package com.marketdata.domain.model;
+
+/**
+ * Version of the stored data a history response is computed from.
+ *
+ * @param version changes whenever data that could affect the response is written
+ * @param sealed whether the range lies entirely before the ingestion horizon, so it only
+ *               changes through late corrections
+ */
+public record DataVersion(long version, boolean sealed) {
+}
@@ -0,0 +1,35 @@
+package com.marketdata.domain.model;
+
+/**
+ * Mid-price candle with bid/ask OHLC and spread statistics from the same ticks.
+ *
+ * @param mid mid-price OHLCV; its volume is the tick count the averages are taken over
+ * @param bid OHLC of the bid price
+ * @param ask OHLC of the ask price
+ * @param spreadMin smallest ask minus bid
+ * @param spreadMax largest ask minus bid
+ * @param spreadAvg average ask minus bid over the ticks
+ * @param mean average mid price over the ticks
+ */
+public record DetailedCandle(Candle mid, Ohlc bid, Ohlc ask, double spreadMin, double spreadMax,
+                             double spreadAvg, double mean) {
+
+    /**
+     * @param later candle of the bucket that directly follows this one
+     * @return candle covering both buckets, with averages weighted by tick count
+     */
+    public DetailedCandle merge(DetailedCandle later) {
+        long volume = mid.getVolume() + later.mid.getVolume();
+        double weight = (double) mid.getVolume() / volume;
+        double laterWeight = (double) later.mid.getVolume() / volume;
+        return new DetailedCandle(
+            new Candle(mid.getTime(), mid.getOpen(), Math.max(mid.getHigh(), later.mid.getHigh()),
+                Math.min(mid.getLow(), later.mid.getLow()), later.mid.getClose(), volume),
+            bid.merge(later.bid),
+            ask.merge(later.ask),
+            Math.min(spreadMin, later.spreadMin),
+            Math.max(spreadMax, later.spreadMax),
+            spreadAvg * weight + later.spreadAvg * laterWeight,
+            mean * weight + later.mean * laterWeight);
+    }
+}
@@ -0,0 +1,48 @@
+package com.marketdata.domain.model;
+
+import java.time.Instant;
+
+/**
+ * Helpers for timestamps packed as a single {@code long} of nanoseconds since the Unix epoch.
+ * Covers dates up to the year 2262 and keeps ticks within the same second ordered.
+ * The API still speaks epoch seconds; these helpers convert at the boundaries.
+ */
+public final class EpochNanos {
+
+    public static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    /**
+     * Epoch seconds from which nanosecond values no longer fit in a {@code long}.
+     * Conversions saturate to {@link Long#MAX_VALUE} there, so open-ended query ranges stay valid.
+     */
+    private static final long MAX_EPOCH_SECOND = Long.MAX_VALUE / NANOS_PER_SECOND;
+
+    private EpochNanos() {
+    }
+
+    /**
+     * @return the first nanosecond of the given epoch second
+     */
+    public static long ofEpochSecond(long epochSecond) {
+        return epochSecond >= MAX_EPOCH_SECOND ? Long.MAX_VALUE : epochSecond * NANOS_PER_SECOND;
+    }
+
+    /**
+     * @return the last nanosecond of the given epoch second, for inclusive range ends
+     */
+    public static long endOfEpochSecond(long epochSecond) {
+        return epochSecond >= MAX_EPOCH_SECOND ? Long.MAX_VALUE : epochSecond * NANOS_PER_SECOND + (NANOS_PER_SECOND - 1);
+    }
+
+    public static long of(Instant instant) {
+        return instant.getEpochSecond() * NANOS_PER_SECOND + instant.getNano();
+    }
+
+    public static long now() {
+        return of(Instant.now());
+    }
+
+    public static long toEpochSecond(long epochNanos) {
+        return Math.floorDiv(epochNanos, NANOS_PER_SECOND);
+    }
+}
@@ -0,0 +1,57 @@
+package com.marketdata.domain.model;
+
+/**
+ * Events of one symbol buffered as parallel primitive columns and handed to a {@link Sink}
+ * a block at a time, so a database cursor can be aggregated without an object per event.
+ */
+public final class EventColumns {
+
+    /**
+     * Events per block handed to the sink.
+     */
+    public static final int BLOCK_SIZE = 1024;
+
+    private final long[] timestampsNanos = new long[BLOCK_SIZE];
+    private final double[] bids = new double[BLOCK_SIZE];
+    private final double[] asks = new double[BLOCK_SIZE];
+    private final Sink sink;
+    private int length;
+
+    public EventColumns(Sink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Receives blocks of events in timestamp order.
+     */
+    @FunctionalInterface
+    public interface Sink {
+        /**
+         * Entries {@code [0, length)} of each array hold the block; the arrays are reused
+         * for the next block once this returns.
+         */
+        void accept(long[] timestampsNanos, double[] bids, double[] asks, int length);
+    }
+
+    /**
+     * Appends an event, handing the block on once it is full.
+     */
+    public void add(long timestampNanos, double bid, double ask) {
+        timestampsNanos[length] = timestampNanos;
+        bids[length] = bid;
+        asks[length] = ask;
+        if (++length == BLOCK_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Hands on the events added since the last full block, if any.
+     */
+    public void flush() {
+        if (length > 0) {
+            sink.accept(timestampsNanos, bids, asks, length);
+            length = 0;
+        }
+    }
+}
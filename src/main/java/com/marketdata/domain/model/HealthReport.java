@@ -0,0 +1,13 @@
+package com.marketdata.domain.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a liveness or readiness check.
+ *
+ * @param up whether the check passed
+ * @param checks measured values by component, for operators and dashboards
+ * @param failures reasons the check failed; empty when {@code up}
+ */
+public record HealthReport(boolean up, Map<String, Object> checks, List<String> failures) { }
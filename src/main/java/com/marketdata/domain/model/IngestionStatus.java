@@ -0,0 +1,18 @@
+package com.marketdata.domain.model;
+
+import java.util.Map;
+
+/**
+ * Point-in-time view of the ingestion pipeline, used by health checks.
+ *
+ * @param running whether ingestion has been started and not stopped
+ * @param lagNanos per symbol with accepted events not yet stored, how far its newest stored
+ *                 event trails its newest accepted one in event time; other symbols are absent
+ * @param pending events accepted but not yet stored (held for reordering or waiting for a
+ *                save to be retried)
+ * @param writeLatencyNanos moving average of repository write time, 0 before the first write
+ * @param newestAcceptedNanos event time of the newest accepted event, or the time ingestion
+ *                            started if it was later; 0 before ingestion starts
+ */
+public record IngestionStatus(boolean running, Map<String, Long> lagNanos, int pending,
+                              long writeLatencyNanos, long newestAcceptedNanos) { }
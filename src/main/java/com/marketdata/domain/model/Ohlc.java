@@ -0,0 +1,15 @@
+package com.marketdata.domain.model;
+
+/**
+ * Open, high, low and close of one price series within a bucket.
+ */
+public record Ohlc(double open, double high, double low, double close) {
+
+    /**
+     * @param later OHLC of the bucket that directly follows this one
+     * @return OHLC covering both buckets
+     */
+    public Ohlc merge(Ohlc later) {
+        return new Ohlc(open, Math.max(high, later.high), Math.min(low, later.low), later.close);
+    }
+}
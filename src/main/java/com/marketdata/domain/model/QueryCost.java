@@ -0,0 +1,48 @@
+package com.marketdata.domain.model;
+
+/**
+ * Estimated cost of a history query, known before it runs.
+ *
+ * @param buckets candles the query produces
+ * @param rangeSeconds span of events it reads; the number of events scanned grows with it
+ */
+public record QueryCost(long buckets, long rangeSeconds) {
+
+    /**
+     * Cost of aggregating {@code [from, to]} at {@code timeframe}. Calendar timeframes are
+     * estimated from their nominal length.
+     */
+    public static QueryCost ofRange(Timeframe timeframe, long fromEpochSec, long toEpochSec) {
+        long rangeSeconds = toEpochSec - fromEpochSec + 1;
+        return new QueryCost(Math.ceilDiv(rangeSeconds, timeframe.durationSeconds()), rangeSeconds);
+    }
+
+    /**
+     * How many times the span of the requested candles a countback reads back, so pages
+     * over sparse data still fill up without the scan running to the start of history.
+     */
+    public static final int COUNTBACK_SCAN_FACTOR = 4;
+
+    /**
+     * Cost of the last {@code count} candles: the span {@link #countbackScanSeconds} reads.
+     */
+    public static QueryCost ofCountback(Timeframe timeframe, int count, long maxScanSeconds) {
+        return new QueryCost(count, countbackScanSeconds(timeframe, count, maxScanSeconds));
+    }
+
+    /**
+     * Span a countback of {@code count} candles reads: {@link #COUNTBACK_SCAN_FACTOR} times
+     * their nominal span, capped at {@code maxScanSeconds}. A page whose candles alone span
+     * more than the cap reports that span instead, so it is costed (and rejected) like a range.
+     */
+    public static long countbackScanSeconds(Timeframe timeframe, int count, long maxScanSeconds) {
+        long span = saturatedMultiply(count, timeframe.durationSeconds());
+        return Math.max(span, Math.min(saturatedMultiply(span, COUNTBACK_SCAN_FACTOR), maxScanSeconds));
+    }
+
+    private static long saturatedMultiply(long a, long b) {
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        return high == 0 && low >= 0 ? low : Long.MAX_VALUE;
+    }
+}
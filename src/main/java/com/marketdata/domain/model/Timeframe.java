@@ -1,24 +1,127 @@
 package com.marketdata.domain.model;
 
-public enum Timeframe {
-    M1(60),
-    M5(300),
-    M15(900),
-    M30(1800),
-    H1(3600),
-    H5(18000),
-    D1(86400),
-    W1(604800),
-    MN1(2592000);
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
 
+/**
+ * Candle timeframe.
+ * <p>
+ * Two kinds exist:
+ * <ul>
+ *   <li><b>Fixed</b>: buckets of a constant length aligned to the Unix epoch plus an offset
+ *       (seconds/minutes/hours, and days/weeks in zones without DST). Bucketing is one
+ *       integer division.</li>
+ *   <li><b>Calendar</b>: months, and days/weeks in zones with DST. Boundaries come from a
+ *       precomputed table ({@link CalendarBoundaries}), so bucketing is a binary search
+ *       rather than date math per event.</li>
+ * </ul>
+ * Weeks start on Monday. For calendar timeframes {@link #getSeconds()} is a nominal length
+ * (a month counts as 30 days) and must not be used for bucketing.
+ */
+public final class Timeframe {
+
+    private static final long DAY = 86_400;
+    private static final long WEEK = 7 * DAY;
+    private static final long MONTH = 30 * DAY;
+    // 1970-01-01 was a Thursday; weeks are aligned to Monday 1969-12-29
+    private static final long FIRST_MONDAY = -3 * DAY;
+    // Bucket sizes preferred when coarsening, so charts get familiar intervals
+    private static final long[] COARSE_STEPS = {
+        1, 5, 15, 30, 60, 300, 900, 1800, 3600, 7200, 4 * 3600, 6 * 3600, 12 * 3600, DAY
+    };
+    private static final long MAX_COARSE_SECONDS = 366 * DAY;
+
+    public static final Timeframe S1 = ofSeconds("1s", 1);
+    public static final Timeframe S5 = ofSeconds("5s", 5);
+    public static final Timeframe S15 = ofSeconds("15s", 15);
+    public static final Timeframe M1 = ofSeconds("1m", 60);
+    public static final Timeframe M5 = ofSeconds("5m", 300);
+    public static final Timeframe M15 = ofSeconds("15m", 900);
+    public static final Timeframe M30 = ofSeconds("30m", 1800);
+    public static final Timeframe H1 = ofSeconds("1h", 3600);
+    public static final Timeframe H5 = ofSeconds("5h", 18000);
+    public static final Timeframe D1 = ofSeconds("1d", DAY);
+    public static final Timeframe W1 = calendar("1w", ChronoUnit.WEEKS, 1, ZoneOffset.UTC, 0);
+    public static final Timeframe MN1 = calendar("1M", ChronoUnit.MONTHS, 1, ZoneOffset.UTC, 0);
+
+    private final String label;
     private final long seconds;
+    private final long nanos;
+    private final long offsetSeconds;
+    private final long offsetNanos;
+    private final CalendarBoundaries calendar;
 
-    Timeframe(long seconds) { this.seconds = seconds; }
+    private Timeframe(String label, long seconds, long offsetSeconds, CalendarBoundaries calendar) {
+        this.label = label;
+        this.seconds = seconds;
+        this.nanos = seconds * EpochNanos.NANOS_PER_SECOND;
+        this.offsetSeconds = offsetSeconds;
+        this.offsetNanos = offsetSeconds * EpochNanos.NANOS_PER_SECOND;
+        this.calendar = calendar;
+    }
 
+    /**
+     * Fixed timeframe aligned to the Unix epoch.
+     */
+    public static Timeframe ofSeconds(String label, long seconds) {
+        return fixed(label, seconds, 0);
+    }
+
+    /**
+     * Fixed timeframe whose buckets start {@code offsetSeconds} after epoch-aligned boundaries.
+     */
+    public static Timeframe fixed(String label, long seconds, long offsetSeconds) {
+        if (seconds <= 0) {
+            throw new IllegalArgumentException("Timeframe length must be positive");
+        }
+        return new Timeframe(label, seconds, Math.floorMod(offsetSeconds, seconds), null);
+    }
+
+    /**
+     * Calendar-aligned days, weeks or months in a time zone.
+     * Buckets start at local midnight (Monday for weeks, the 1st for months) plus
+     * {@code sessionOffsetSeconds}, which may be negative (e.g. an FX day starting 17:00
+     * the previous evening). Falls back to a fixed timeframe when the zone has a constant
+     * UTC offset and the unit has a constant length.
+     */
+    public static Timeframe calendar(String label, ChronoUnit unit, int amount, ZoneId zone, long sessionOffsetSeconds) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Timeframe amount must be positive");
+        }
+        long nominal = switch (unit) {
+            case DAYS -> amount * DAY;
+            case WEEKS -> amount * WEEK;
+            case MONTHS -> amount * MONTH;
+            default -> throw new IllegalArgumentException("Unsupported calendar unit: " + unit);
+        };
+        var rules = zone.getRules();
+        if (unit != ChronoUnit.MONTHS && rules.isFixedOffset()) {
+            long zoneOffset = rules.getOffset(Instant.EPOCH).getTotalSeconds();
+            long anchor = unit == ChronoUnit.WEEKS ? FIRST_MONDAY : 0;
+            return fixed(label, nominal, anchor - zoneOffset + sessionOffsetSeconds);
+        }
+        return new Timeframe(label, nominal, 0, CalendarBoundaries.of(unit, amount, zone.normalized(), sessionOffsetSeconds));
+    }
+
+    /**
+     * @return nominal length in seconds (exact for fixed timeframes)
+     */
     public long getSeconds() { return seconds; }
     
     public long durationSeconds() { return seconds; }
 
+    public long durationNanos() { return nanos; }
+
+    /**
+     * @return offset of fixed buckets from epoch-aligned boundaries, in [0, seconds)
+     */
+    public long offsetSeconds() { return offsetSeconds; }
+
+    public boolean isCalendar() { return calendar != null; }
+
     /**
      * Calculates the bucket start time in epoch seconds from epoch milliseconds.
      * Rounds down to the nearest timeframe boundary.
@@ -27,8 +130,7 @@ public enum Timeframe {
      * @return bucket start time in epoch seconds
      */
     public long bucketStartEpochSeconds(long epochMilli) {
-        long epochSec = epochMilli / 1000;
-        return (epochSec / seconds) * seconds;
+        return bucketStart(Math.floorDiv(epochMilli, 1000));
     }
     
     /**
@@ -43,6 +145,109 @@ public enum Timeframe {
      * @return bucket start time in epoch seconds, aligned to timeframe boundary
      */
     public long bucketStart(long epochSec) {
-        return (epochSec / seconds) * seconds;
+        if (calendar != null) {
+            return calendar.bucketStart(epochSec);
+        }
+        return Math.floorDiv(epochSec - offsetSeconds, seconds) * seconds + offsetSeconds;
+    }
+
+    /**
+     * Calculates the bucket start time for a nanosecond timestamp.
+     * A single integer division for fixed timeframes, so it is safe to call per event.
+     *
+     * @param epochNanos timestamp in epoch nanoseconds
+     * @return bucket start time in epoch seconds, aligned to timeframe boundary
+     */
+    public long bucketStartNanos(long epochNanos) {
+        if (calendar != null) {
+            return calendar.bucketStart(EpochNanos.toEpochSecond(epochNanos));
+        }
+        return Math.floorDiv(epochNanos - offsetNanos, nanos) * seconds + offsetSeconds;
+    }
+
+    /**
+     * @param bucketStart a bucket start returned by {@link #bucketStart(long)}
+     * @return start of the following bucket in epoch seconds
+     */
+    public long nextBucketStart(long bucketStart) {
+        return calendar != null ? calendar.nextBucketStart(bucketStart) : bucketStart + seconds;
+    }
+
+    /**
+     * Largest epoch-aligned fixed timeframe whose buckets nest inside this timeframe's
+     * buckets, so candles computed at that granularity can be rolled up exactly.
+     * Fixed timeframes return themselves. For calendar timeframes this assumes zone
+     * offsets are whole quarter-hours, which holds for all zones since 1972.
+     */
+    public Timeframe nestedFixedBase() {
+        if (calendar == null) {
+            return this;
+        }
+        long base = gcd(900, Math.abs(calendar.key().sessionOffsetSeconds()));
+        return ofSeconds(base + "s", base);
+    }
+
+    /**
+     * Picks a timeframe coarse enough that {@code [fromEpochSec, toEpochSec]} spans at most
+     * {@code maxPoints} buckets. Coarser buckets are whole multiples of this timeframe with
+     * the same alignment, preferring common sizes (5m, 1h, 4h, ...). Calendar timeframes,
+     * and ranges that would need buckets longer than a year, are returned unchanged; callers
+     * must still cap the result (see {@code CandleAggregator.downsample}).
+     *
+     * @param maxPoints maximum number of buckets, at least 1
+     * @return this timeframe, or a coarser fixed one
+     */
+    public Timeframe coarsen(long fromEpochSec, long toEpochSec, int maxPoints) {
+        if (maxPoints < 1) {
+            throw new IllegalArgumentException("maxPoints must be >= 1: " + maxPoints);
+        }
+        if (calendar != null || (bucketStart(toEpochSec) - bucketStart(fromEpochSec)) / seconds < maxPoints) {
+            return this;
+        }
+        // A range misaligned with the buckets touches one bucket more than span / size
+        long span = toEpochSec - fromEpochSec + 1;
+        long required = Math.ceilDiv(span, Math.max(1, maxPoints - 1));
+        if (required > MAX_COARSE_SECONDS) {
+            return this;
+        }
+        long coarse = Math.ceilDiv(required, seconds) * seconds;
+        for (long step : COARSE_STEPS) {
+            if (step >= required && step % seconds == 0) {
+                coarse = step;
+                break;
+            }
+        }
+        return new Timeframe(label(coarse), coarse, offsetSeconds, null);
+    }
+
+    private static String label(long seconds) {
+        if (seconds % DAY == 0) return seconds / DAY + "d";
+        if (seconds % 3600 == 0) return seconds / 3600 + "h";
+        if (seconds % 60 == 0) return seconds / 60 + "m";
+        return seconds + "s";
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Timeframe other)) return false;
+        if (calendar != null || other.calendar != null) {
+            return calendar != null && other.calendar != null && calendar.key().equals(other.calendar.key());
+        }
+        return seconds == other.seconds && offsetSeconds == other.offsetSeconds;
+    }
+
+    @Override
+    public int hashCode() {
+        return calendar != null ? calendar.key().hashCode() : Objects.hash(seconds, offsetSeconds);
+    }
+
+    @Override
+    public String toString() {
+        return label;
     }
 }
@@ -1,17 +1,33 @@
 package com.marketdata.domain.model;
 
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 /**
- * Maps trading interval formats to Timeframe enum values.
- * Supports: 1m, 5m, 15m, 30m, 1h, 5h, 1d, 1w, 1M
+ * Maps trading interval formats to Timeframes.
+ * Supports {@code <n>s, <n>m, <n>h, <n>d, <n>w, <n>M} (e.g. 1s, 3m, 4h, 12h, 1d, 1w, 1M),
+ * optionally in a time zone and with a session offset for days, weeks and months.
  */
 public class TimeframeMapper {
-    
+
+    private static final Pattern INTERVAL = Pattern.compile("([1-9]\\d{0,5})([smhdwM])");
+    private static final long MAX_SECONDS = 366L * 86_400;
+    private static final int MAX_MONTHS = 12;
+    private static final int MAX_SESSION_OFFSET_MINUTES = 24 * 60;
+    private static final String SUPPORTED =
+        ". Supported formats: <n>s, <n>m, <n>h, <n>d, <n>w, <n>M (e.g. 1s, 5m, 4h, 1d, 1w, 1M)";
+
     private static final Map<String, Timeframe> INTERVAL_MAP = new HashMap<>();
     
     static {
+        INTERVAL_MAP.put("1s", Timeframe.S1);
+        INTERVAL_MAP.put("5s", Timeframe.S5);
+        INTERVAL_MAP.put("15s", Timeframe.S15);
         INTERVAL_MAP.put("1m", Timeframe.M1);
         INTERVAL_MAP.put("5m", Timeframe.M5);
         INTERVAL_MAP.put("15m", Timeframe.M15);
@@ -24,26 +40,111 @@ public class TimeframeMapper {
     }
     
     /**
-     * Parse interval string to Timeframe enum.
-     * Supports: 1m, 5m, 15m, 30m, 1h, 5h, 1d, 1w, 1M
+     * Label of a predefined timeframe, or {@code "custom"} for any other, so that metric
+     * tags stay low-cardinality however many interval strings clients send.
+     */
+    public static String labelOf(Timeframe timeframe) {
+        return INTERVAL_MAP.containsValue(timeframe) ? timeframe.toString() : "custom";
+    }
+
+    /**
+     * Parse interval string to a UTC Timeframe.
      * 
      * @param interval the interval string
      * @return the corresponding Timeframe
      * @throws IllegalArgumentException if interval format is not recognized
      */
     public static Timeframe parse(String interval) {
+        return parse(interval, null, 0);
+    }
+
+    /**
+     * Parse interval string to a Timeframe.
+     * <p>
+     * Second/minute/hour buckets are aligned to UTC; the time zone only affects days, weeks
+     * and months. The session offset shifts every bucket boundary, e.g. {@code -420} minutes
+     * with {@code America/New_York} gives FX days starting at 17:00 New York time.
+     *
+     * @param interval the interval string
+     * @param timezone IANA zone id or offset; {@code null} or empty means UTC
+     * @param sessionOffsetMinutes shift of bucket boundaries, within ±1 day
+     * @return the corresponding Timeframe
+     * @throws IllegalArgumentException if any argument is not recognized
+     */
+    public static Timeframe parse(String interval, String timezone, int sessionOffsetMinutes) {
         if (interval == null || interval.isEmpty()) {
             throw new IllegalArgumentException("Interval cannot be null or empty");
         }
-        
-        var timeframe = INTERVAL_MAP.get(interval);
-        if (timeframe == null) {
-            throw new IllegalArgumentException(
-                "Invalid interval: " + interval + 
-                ". Supported formats: 1m, 5m, 15m, 30m, 1h, 5h, 1d, 1w, 1M"
-            );
+        if (Math.abs(sessionOffsetMinutes) >= MAX_SESSION_OFFSET_MINUTES) {
+            throw new IllegalArgumentException("Session offset must be within ±1 day: " + sessionOffsetMinutes);
+        }
+        var zone = parseZone(timezone);
+        if (zone.equals(ZoneOffset.UTC) && sessionOffsetMinutes == 0) {
+            var timeframe = INTERVAL_MAP.get(interval);
+            if (timeframe != null) {
+                return timeframe;
+            }
+        }
+
+        var matcher = INTERVAL.matcher(interval);
+        if (!matcher.matches()) {
+            throw invalid(interval);
+        }
+        int amount = Integer.parseInt(matcher.group(1));
+        long sessionOffset = sessionOffsetMinutes * 60L;
+        var label = label(interval, zone, sessionOffsetMinutes);
+
+        return switch (matcher.group(2).charAt(0)) {
+            case 's' -> Timeframe.fixed(label, checked(interval, amount), sessionOffset);
+            case 'm' -> Timeframe.fixed(label, checked(interval, amount * 60L), sessionOffset);
+            case 'h' -> Timeframe.fixed(label, checked(interval, amount * 3_600L), sessionOffset);
+            case 'd' -> calendar(label, interval, ChronoUnit.DAYS, amount, 86_400L, zone, sessionOffset);
+            case 'w' -> calendar(label, interval, ChronoUnit.WEEKS, amount, 604_800L, zone, sessionOffset);
+            default -> {
+                if (amount > MAX_MONTHS) {
+                    throw invalid(interval);
+                }
+                yield Timeframe.calendar(label, ChronoUnit.MONTHS, amount, zone, sessionOffset);
+            }
+        };
+    }
+
+    private static Timeframe calendar(String label, String interval, ChronoUnit unit, int amount,
+                                      long unitSeconds, ZoneId zone, long sessionOffset) {
+        checked(interval, amount * unitSeconds);
+        return Timeframe.calendar(label, unit, amount, zone, sessionOffset);
+    }
+
+    private static long checked(String interval, long seconds) {
+        if (seconds > MAX_SECONDS) {
+            throw invalid(interval);
+        }
+        return seconds;
+    }
+
+    private static ZoneId parseZone(String timezone) {
+        if (timezone == null || timezone.isEmpty()) {
+            return ZoneOffset.UTC;
+        }
+        try {
+            return ZoneId.of(timezone).normalized();
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Invalid timezone: " + timezone);
+        }
+    }
+
+    private static String label(String interval, ZoneId zone, int sessionOffsetMinutes) {
+        var label = new StringBuilder(interval);
+        if (!zone.equals(ZoneOffset.UTC)) {
+            label.append('@').append(zone.getId());
+        }
+        if (sessionOffsetMinutes != 0) {
+            label.append(sessionOffsetMinutes > 0 ? "+" : "").append(sessionOffsetMinutes).append("min");
         }
-        
-        return timeframe;
+        return label.toString();
+    }
+
+    private static IllegalArgumentException invalid(String interval) {
+        return new IllegalArgumentException("Invalid interval: " + interval + SUPPORTED);
     }
 }
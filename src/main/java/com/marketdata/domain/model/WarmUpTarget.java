@@ -0,0 +1,20 @@
+package com.marketdata.domain.model;
+
+/**
+ * A (symbol, timeframe, lookback) combination whose candles are precomputed on startup.
+ *
+ * @param symbol Trading symbol
+ * @param timeframe Candle timeframe
+ * @param lookbackSeconds How far back from now to compute candles, in seconds
+ */
+public record WarmUpTarget(String symbol, Timeframe timeframe, long lookbackSeconds) {
+
+    public WarmUpTarget {
+        if (symbol == null || symbol.isEmpty()) {
+            throw new IllegalArgumentException("Warm-up symbol cannot be empty");
+        }
+        if (lookbackSeconds <= 0) {
+            throw new IllegalArgumentException("Warm-up lookback must be positive: " + lookbackSeconds);
+        }
+    }
+}
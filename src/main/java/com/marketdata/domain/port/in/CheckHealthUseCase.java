@@ -0,0 +1,20 @@
+package com.marketdata.domain.port.in;
+
+import com.marketdata.domain.model.HealthReport;
+
+/**
+ * Use case for health probes.
+ * Primary/inbound port for load balancers and orchestrators.
+ */
+public interface CheckHealthUseCase {
+    /**
+     * @return whether the process is working at all; a failure means it should be restarted
+     */
+    HealthReport liveness();
+
+    /**
+     * @return whether the instance can serve fresh data; a failure means traffic should be
+     *         routed elsewhere until it recovers
+     */
+    HealthReport readiness();
+}
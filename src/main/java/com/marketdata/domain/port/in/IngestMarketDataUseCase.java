@@ -1,5 +1,7 @@
 package com.marketdata.domain.port.in;
 
+import com.marketdata.domain.model.IngestionStatus;
+
 /**
  * Use case for ingesting market data.
  * Primary/inbound port for starting and stopping data ingestion.
@@ -14,4 +16,9 @@ public interface IngestMarketDataUseCase {
      * Stops market data ingestion.
      */
     void stop();
+
+    /**
+     * @return current lag, backlog and write latency; cheap enough for every health probe
+     */
+    IngestionStatus status();
 }
@@ -1,6 +1,9 @@
 package com.marketdata.domain.port.in;
 
 import com.marketdata.domain.model.Candle;
+import com.marketdata.domain.model.CandlePage;
+import com.marketdata.domain.model.DataVersion;
+import com.marketdata.domain.model.DetailedCandle;
 import com.marketdata.domain.model.Timeframe;
 
 import java.util.List;
@@ -34,4 +37,59 @@ public interface QueryHistoryUseCase {
      * @return List of candles sorted by time
      */
     List<Candle> getHistoryWithSql(String symbol, Timeframe timeframe, long fromEpochSec, long toEpochSec);
+
+    /**
+     * Retrieves at most {@code maxPoints} candles, using a coarser timeframe than requested
+     * when the range would otherwise produce more.
+     *
+     * @param maxPoints maximum number of candles to return, at least 1
+     * @see #getHistory(String, Timeframe, long, long)
+     */
+    List<Candle> getHistory(String symbol, Timeframe timeframe, long fromEpochSec, long toEpochSec, int maxPoints);
+
+    /**
+     * SQL variant of {@link #getHistory(String, Timeframe, long, long, int)}.
+     */
+    List<Candle> getHistoryWithSql(String symbol, Timeframe timeframe, long fromEpochSec, long toEpochSec, int maxPoints);
+
+    /**
+     * Retrieves candles with the bid/ask OHLC, spread statistics and mean price of each
+     * bucket, computed in the same scan as the mid-price OHLCV. Uses Java aggregation.
+     *
+     * @param symbol Trading symbol (e.g., "BTC-USD")
+     * @param timeframe Desired candle timeframe
+     * @param fromEpochSec Start time in epoch seconds (inclusive)
+     * @param toEpochSec End time in epoch seconds (inclusive)
+     * @return List of candles sorted by time
+     */
+    List<DetailedCandle> getDetailedHistory(String symbol, Timeframe timeframe, long fromEpochSec, long toEpochSec);
+
+    /**
+     * {@link #getDetailedHistory(String, Timeframe, long, long)} capped at {@code maxPoints}
+     * candles, as in {@link #getHistory(String, Timeframe, long, long, int)}.
+     */
+    List<DetailedCandle> getDetailedHistory(String symbol, Timeframe timeframe, long fromEpochSec, long toEpochSec,
+                                            int maxPoints);
+
+    /**
+     * Retrieves the last {@code count} candles ending at {@code toEpochSec}, reading events
+     * backwards from {@code toEpochSec} only until enough buckets are filled.
+     *
+     * @param symbol Trading symbol (e.g., "BTC-USD")
+     * @param timeframe Desired candle timeframe
+     * @param toEpochSec End time in epoch seconds (inclusive)
+     * @param count number of candles wanted, at least 1
+     * @return the candles and a cursor for the preceding page
+     */
+    CandlePage getLastCandles(String symbol, Timeframe timeframe, long toEpochSec, int count);
+
+    /**
+     * Version of the data behind ranges ending at {@code toEpochSec}, for HTTP validators.
+     * Does not query the repository.
+     *
+     * @param symbol Trading symbol (e.g., "BTC-USD")
+     * @param toEpochSec End time in epoch seconds (inclusive)
+     * @return current data version
+     */
+    DataVersion dataVersion(String symbol, long toEpochSec);
 }
@@ -0,0 +1,27 @@
+package com.marketdata.domain.port.in;
+
+import java.io.Serial;
+
+/**
+ * Thrown when a history query is refused before it runs, either because it exceeds the
+ * per-query cost limits or because too many expensive queries are already running.
+ */
+public class QueryRejectedException extends RuntimeException {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final boolean retryable;
+
+    /**
+     * @param retryable whether the same query may succeed later (server busy) rather than
+     *                  being too large to ever be admitted
+     */
+    public QueryRejectedException(String message, boolean retryable) {
+        super(message);
+        this.retryable = retryable;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
@@ -0,0 +1,17 @@
+package com.marketdata.domain.port.in;
+
+/**
+ * Use case for precomputing frequently requested candles after startup.
+ * Primary/inbound port queried by health checks to hold traffic until the cache is warm.
+ */
+public interface WarmUpCacheUseCase {
+    /**
+     * Starts warming the cache in the background and returns immediately.
+     */
+    void start();
+
+    /**
+     * @return whether warm-up has finished, or given up after its timeout
+     */
+    boolean isWarm();
+}
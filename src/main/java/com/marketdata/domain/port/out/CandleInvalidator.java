@@ -0,0 +1,33 @@
+package com.marketdata.domain.port.out;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Output port for correcting previously computed candles.
+ * Called when an event arrives too late to be ingested in order, so any candle
+ * already computed over its timestamp is stale.
+ */
+public interface CandleInvalidator {
+    /**
+     * Discards computed candles that cover the given event.
+     *
+     * @param symbolId Symbol dictionary ID of the late event
+     * @param timestampNanos Timestamp of the late event in epoch nanoseconds
+     */
+    void invalidate(int symbolId, long timestampNanos);
+
+    /**
+     * Discards computed candles that cover any of a batch of late events. The default
+     * discards them one event at a time.
+     *
+     * @param timestampsNanos timestamps of the late events in epoch nanoseconds, by symbol ID
+     */
+    default void invalidateAll(Map<Integer, ? extends Collection<Long>> timestampsNanos) {
+        timestampsNanos.forEach((symbolId, timestamps) -> {
+            for (long timestampNanos : timestamps) {
+                invalidate(symbolId, timestampNanos);
+            }
+        });
+    }
+}
@@ -0,0 +1,24 @@
+package com.marketdata.domain.port.out;
+
+import com.marketdata.domain.model.DataVersion;
+
+/**
+ * Tracks per-symbol data versions so unchanged history responses can be validated
+ * without touching the repository.
+ */
+public interface DataVersions {
+    /**
+     * Records a stored event.
+     *
+     * @param symbolId symbol dictionary ID
+     * @param timestampNanos event time in epoch nanoseconds
+     */
+    void recordWrite(int symbolId, long timestampNanos);
+
+    /**
+     * @param symbol Trading symbol
+     * @param toEpochSec End of the queried range in epoch seconds (inclusive)
+     * @return version of the data visible in ranges ending at {@code toEpochSec}
+     */
+    DataVersion versionOf(String symbol, long toEpochSec);
+}
@@ -2,9 +2,13 @@ package com.marketdata.domain.port.out;
 
 import com.marketdata.domain.model.BidAskEvent;
 import com.marketdata.domain.model.Candle;
+import com.marketdata.domain.model.EventColumns;
 import com.marketdata.domain.model.Timeframe;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Repository for storing and querying raw bid/ask events.
@@ -17,6 +21,17 @@ public interface EventRepository {
      * @param event The bid/ask event to store
      */
     void save(BidAskEvent event);
+
+    /**
+     * Stores an event whose symbol the caller has already resolved in the
+     * {@link SymbolDictionary}, so implementations keyed by ID need not look it up again.
+     * The default implementation delegates to {@link #save(BidAskEvent)}.
+     *
+     * @param symbolId dictionary ID of {@code event.symbol()}
+     */
+    default void save(int symbolId, BidAskEvent event) {
+        save(event);
+    }
     
     /**
      * Queries events for a symbol within a time range.
@@ -27,6 +42,55 @@ public interface EventRepository {
      * @return List of events sorted by timestamp
      */
     List<BidAskEvent> query(String symbol, long from, long to);
+
+    /**
+     * Streams events for a symbol within a time range to {@code consumer} in timestamp order,
+     * without materialising the whole range.
+     * The default implementation delegates to {@link #query}.
+     *
+     * @param symbol Trading symbol
+     * @param from Start time (inclusive) in seconds
+     * @param to End time (inclusive) in seconds
+     * @param consumer receives events sorted by timestamp
+     */
+    default void stream(String symbol, long from, long to, Consumer<BidAskEvent> consumer) {
+        query(symbol, from, to).forEach(consumer);
+    }
+
+    /**
+     * Streams events for a symbol within a time range to {@code sink} in timestamp order,
+     * in blocks of {@link EventColumns#BLOCK_SIZE} columnar events.
+     * The default implementation copies the events of {@link #stream} into columns.
+     *
+     * @param symbol Trading symbol
+     * @param from Start time (inclusive) in seconds
+     * @param to End time (inclusive) in seconds
+     * @param sink receives blocks of events sorted by timestamp
+     */
+    default void streamColumns(String symbol, long from, long to, EventColumns.Sink sink) {
+        var columns = new EventColumns(sink);
+        stream(symbol, from, to, event -> columns.add(event.timestampNanos(), event.bid(), event.ask()));
+        columns.flush();
+    }
+
+    /**
+     * Streams events for a symbol within a time range newest first, until {@code consumer}
+     * returns {@code false}. Lets callers read only the tail of a range.
+     * The default implementation delegates to {@link #query}.
+     *
+     * @param symbol Trading symbol
+     * @param from Start time (inclusive) in seconds
+     * @param to End time (inclusive) in seconds
+     * @param consumer receives events in descending timestamp order; returns whether to continue
+     */
+    default void streamBackward(String symbol, long from, long to, Predicate<BidAskEvent> consumer) {
+        var events = query(symbol, from, to);
+        for (int i = events.size() - 1; i >= 0; i--) {
+            if (!consumer.test(events.get(i))) {
+                return;
+            }
+        }
+    }
     
     /**
      * Aggregates events into candles using SQL.
@@ -39,4 +103,23 @@ public interface EventRepository {
      * @return List of candles sorted by time
      */
     List<Candle> aggregateCandles(String symbol, Timeframe timeframe, long from, long to);
+
+    /**
+     * Sequence number of the most recently stored event. Sequence numbers increase with
+     * every save, so callers can later ask what was stored since (see {@link #earliestStoredSince}).
+     * They may be assigned before the save commits, so an event that becomes visible after
+     * this call can still carry a lower number; callers re-check a margin below it.
+     *
+     * @return the latest sequence number, or 0 if no event has been stored
+     */
+    long lastSequence();
+
+    /**
+     * Earliest event timestamp per symbol among events stored after {@code sequence}.
+     * Tells a consumer of data computed at {@code sequence} which ranges have changed since.
+     *
+     * @param sequence a value previously returned by {@link #lastSequence()}
+     * @return earliest timestamp in epoch nanoseconds by symbol; symbols without newer events are absent
+     */
+    Map<String, Long> earliestStoredSince(long sequence);
 }
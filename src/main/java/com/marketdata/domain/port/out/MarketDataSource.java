@@ -2,6 +2,7 @@ package com.marketdata.domain.port.out;
 
 import com.marketdata.domain.model.BidAskEvent;
 
+import java.util.List;
 import java.util.function.Consumer;
 
 /**
@@ -10,4 +11,12 @@ import java.util.function.Consumer;
 public interface MarketDataSource {
     void start(Consumer<BidAskEvent> handler);
     void stop();
+
+    /**
+     * Delivers events in batches, such as one poll of a feed; a batch counts as
+     * acknowledged once the handler returns. By default each event is its own batch.
+     */
+    default void startBatches(Consumer<List<BidAskEvent>> handler) {
+        start(event -> handler.accept(List.of(event)));
+    }
 }
@@ -0,0 +1,40 @@
+package com.marketdata.domain.port.out;
+
+/**
+ * Maps trading symbols to compact integer IDs.
+ * IDs are assigned once, never change and are dense (starting at 1), so they can be
+ * stored instead of the symbol string and used directly as array or map keys.
+ */
+public interface SymbolDictionary {
+
+    /**
+     * ID returned by {@link #find(String)} for symbols that have never been registered.
+     */
+    int NO_ID = 0;
+
+    /**
+     * Returns the ID for a symbol, registering it on first use.
+     *
+     * @param symbol Trading symbol (e.g., "BTC-USD")
+     * @return the symbol ID
+     */
+    int idOf(String symbol);
+
+    /**
+     * Looks up the ID of a symbol without registering it.
+     *
+     * @param symbol Trading symbol
+     * @return the symbol ID, or {@link #NO_ID} if the symbol is unknown
+     */
+    int find(String symbol);
+
+    /**
+     * Translates an ID back to its symbol.
+     * Always returns the same (canonical) String instance for a given ID.
+     *
+     * @param id Symbol ID
+     * @return the symbol
+     * @throws IllegalArgumentException if the ID is unknown
+     */
+    String symbolOf(int id);
+}
@@ -0,0 +1,28 @@
+package com.marketdata.domain.port.out;
+
+/**
+ * Assignment of symbols to the nodes of a cluster.
+ * Each symbol has exactly one owner, which ingests its events and answers its queries.
+ */
+public interface SymbolOwnership {
+
+    /**
+     * @param symbol Trading symbol
+     * @return base URL of the node that owns the symbol
+     */
+    String ownerOf(String symbol);
+
+    /**
+     * @param symbol Trading symbol
+     * @return whether this node owns the symbol
+     */
+    boolean isLocal(String symbol);
+
+    /**
+     * Changes whenever the assignment does, so callers may cache ownership per symbol until
+     * it moves on. An assignment that never changes keeps the default.
+     */
+    default long version() {
+        return 0;
+    }
+}
@@ -0,0 +1,72 @@
+package com.marketdata.domain.port.out;
+
+import com.marketdata.domain.model.BidAskEvent;
+
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Output port: durable log of accepted events that have not reached the repository yet.
+ * <p>
+ * Positions are monotonically increasing offsets into the log. Everything before the
+ * checkpoint is known to be in the repository; everything after it is replayed on startup.
+ */
+public interface WriteAheadLog {
+
+    /**
+     * Appends an event.
+     *
+     * @return position of the record, for {@link #awaitDurable(long)} and checkpointing
+     */
+    long append(BidAskEvent event);
+
+    /**
+     * Appends an event whose symbol the caller has already resolved, so the log can reuse
+     * per-symbol state instead of encoding {@code event.symbol()} again. Records are the
+     * same as with {@link #append(BidAskEvent)}. The default implementation delegates to it.
+     *
+     * @param symbolId dictionary ID of {@code event.symbol()}
+     */
+    default long append(int symbolId, BidAskEvent event) {
+        return append(event);
+    }
+
+    /**
+     * Blocks until the record at {@code position} is on disk, if the log is configured to
+     * acknowledge only durable events; otherwise returns immediately and the record is
+     * synced in the background.
+     */
+    void awaitDurable(long position);
+
+    /**
+     * Position just past the last appended record.
+     */
+    long position();
+
+    /**
+     * Records that every event before {@code position} is in the repository, so the log
+     * may discard it.
+     */
+    void checkpoint(long position);
+
+    /**
+     * Replays the events after the last checkpoint, oldest first, with their positions.
+     */
+    void replay(ObjLongConsumer<BidAskEvent> consumer);
+
+    /**
+     * A log that keeps nothing, for when durability is provided elsewhere.
+     */
+    static WriteAheadLog disabled() {
+        return Disabled.INSTANCE;
+    }
+
+    enum Disabled implements WriteAheadLog {
+        INSTANCE;
+
+        public long append(BidAskEvent event) { return 0; }
+        public void awaitDurable(long position) { }
+        public long position() { return 0; }
+        public void checkpoint(long position) { }
+        public void replay(ObjLongConsumer<BidAskEvent> consumer) { }
+    }
+}
@@ -2,20 +2,50 @@ package com.marketdata.domain.service;
 
 import com.marketdata.domain.model.BidAskEvent;
 import com.marketdata.domain.model.Candle;
+import com.marketdata.domain.model.DetailedCandle;
+import com.marketdata.domain.model.EpochNanos;
+import com.marketdata.domain.model.EventColumns;
+import com.marketdata.domain.model.Ohlc;
 import com.marketdata.domain.model.Timeframe;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Domain service for aggregating bid/ask events into OHLCV candles.
  * Contains pure business logic with no infrastructure dependencies.
  */
 public class CandleAggregator {
+
+    private final CandleKernel kernel;
+
+    /**
+     * Uses the vectorized kernel when the Vector API is available.
+     */
+    public CandleAggregator() {
+        this(CandleKernel.resolve("auto"));
+    }
+
+    public CandleAggregator(CandleKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    public CandleKernel kernel() {
+        return kernel;
+    }
     
     /**
      * Aggregates a list of bid/ask events into candles for the specified timeframe.
+     * <p>
+     * Events are processed in a single pass: each bucket's OHLCV is accumulated in
+     * primitives and emitted when the bucket changes, so the only allocations are the
+     * candles themselves. The bucket is only recomputed once an event crosses the current
+     * bucket's end, so calendar timeframes cost a comparison per event rather than a table
+     * lookup. Unsorted input is tolerated by sorting a copy first (stable, so events with
+     * equal timestamps keep their order).
      * 
      * @param events List of bid/ask events (should be sorted by timestamp)
      * @param timeframe Desired candle timeframe
@@ -25,71 +55,525 @@ public class CandleAggregator {
         if (events.isEmpty()) {
             return List.of();
         }
+        if (!isSorted(events)) {
+            events = events.stream()
+                .sorted(Comparator.comparingLong(BidAskEvent::timestampNanos))
+                .toList();
+        }
         
-        var buckets = bucketEvents(events, timeframe);
-        return buildCandles(buckets);
+        var accumulator = accumulator(timeframe);
+        for (var event : events) {
+            accumulator.accept(event);
+        }
+        return accumulator.candles();
+    }
+
+    /**
+     * Aggregates columnar events into candles for the specified timeframe, running mid
+     * prices and per-bucket high/low through the {@link CandleKernel} a block at a time.
+     * Event objects are better served by {@link #aggregate(List, Timeframe)}: copying them
+     * into columns first costs more than the kernel saves.
+     *
+     * @param timestampsNanos event times in epoch nanoseconds, sorted
+     * @param bids bid prices
+     * @param asks ask prices
+     * @param length number of events, at most the length of each array
+     * @param timeframe Desired candle timeframe
+     * @return List of candles, one per time bucket
+     */
+    public List<Candle> aggregate(long[] timestampsNanos, double[] bids, double[] asks, int length,
+                                  Timeframe timeframe) {
+        var accumulator = columnarAccumulator(timeframe);
+        accumulator.accept(timestampsNanos, bids, asks, length);
+        return accumulator.candles();
+    }
+
+    /**
+     * Creates an incremental aggregator for blocks of columnar events arriving in timestamp
+     * order, e.g. from {@link com.marketdata.domain.port.out.EventRepository#streamColumns}.
+     * Produces the same candles as {@link #accumulator(Timeframe)} on the {@link CandleKernel}.
+     *
+     * @param timeframe Desired candle timeframe
+     * @return accumulator to feed blocks into
+     */
+    public ColumnarAccumulator columnarAccumulator(Timeframe timeframe) {
+        return new ColumnarAccumulator(timeframe, kernel);
+    }
+
+    /**
+     * Creates an incremental aggregator for events arriving in timestamp order, e.g. from a
+     * database cursor. Memory is proportional to the number of candles, not events.
+     *
+     * @param timeframe Desired candle timeframe
+     * @return accumulator to feed events into
+     */
+    public Accumulator accumulator(Timeframe timeframe) {
+        return new Accumulator(timeframe);
+    }
+
+    /**
+     * Like {@link #accumulator(Timeframe)}, but also accumulates bid/ask OHLC, spread
+     * statistics and the mean price in the same pass.
+     *
+     * @param timeframe Desired candle timeframe
+     * @return accumulator to feed events into
+     */
+    public DetailedAccumulator detailedAccumulator(Timeframe timeframe) {
+        return new DetailedAccumulator(timeframe);
     }
     
     /**
-     * Groups events into time buckets based on the timeframe.
+     * Creates an aggregator for events arriving newest first that stops once
+     * {@code limit} candles are complete, so only the tail of a range is read.
+     *
+     * @param timeframe Desired candle timeframe
+     * @param limit number of candles wanted, at least 1
+     * @return accumulator to feed events into, in descending timestamp order
      */
-    private TreeMap<Long, List<BidAskEvent>> bucketEvents(List<BidAskEvent> events, Timeframe timeframe) {
-        var buckets = new TreeMap<Long, List<BidAskEvent>>();
-        
-        for (var event : events) {
-            var bucketTime = timeframe.bucketStart(event.timestamp());
-            buckets.computeIfAbsent(bucketTime, k -> new ArrayList<>()).add(event);
+    public BackwardAccumulator backwardAccumulator(Timeframe timeframe, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be >= 1: " + limit);
         }
-        
-        return buckets;
+        return new BackwardAccumulator(timeframe, limit);
     }
-    
+
     /**
-     * Builds candles from bucketed events.
+     * Merges time-ordered candles of a finer timeframe into {@code timeframe} buckets.
+     * Exact as long as every fine bucket lies within one target bucket
+     * (see {@link Timeframe#nestedFixedBase()}).
+     *
+     * @param candles candles sorted by time
+     * @param timeframe coarser target timeframe
+     * @return merged candles, one per non-empty target bucket
      */
-    private List<Candle> buildCandles(TreeMap<Long, List<BidAskEvent>> buckets) {
+    public static List<Candle> rollUp(List<Candle> candles, Timeframe timeframe) {
+        if (candles.isEmpty()) {
+            return List.of();
+        }
         var result = new ArrayList<Candle>();
-        
-        for (var entry : buckets.entrySet()) {
-            var bucketTime = entry.getKey();
-            var eventsInBucket = entry.getValue();
-            var candle = buildCandle(bucketTime, eventsInBucket);
-            result.add(candle);
+        Candle current = null;
+        long bucketEnd = Long.MIN_VALUE;
+        for (var candle : candles) {
+            if (current != null && candle.getTime() < bucketEnd) {
+                current = new Candle(current.getTime(), current.getOpen(),
+                    Math.max(current.getHigh(), candle.getHigh()), Math.min(current.getLow(), candle.getLow()),
+                    candle.getClose(), current.getVolume() + candle.getVolume());
+                continue;
+            }
+            if (current != null) {
+                result.add(current);
+            }
+            long bucketTime = timeframe.bucketStart(candle.getTime());
+            bucketEnd = timeframe.nextBucketStart(bucketTime);
+            current = new Candle(bucketTime, candle.getOpen(), candle.getHigh(), candle.getLow(), candle.getClose(), candle.getVolume());
         }
-        
+        result.add(current);
         return result;
     }
-    
+
     /**
-     * Builds a single candle from events in a time bucket.
-     * Computes OHLCV (Open, High, Low, Close, Volume) from bid/ask events.
+     * Caps a candle series at {@code maxPoints} by merging runs of consecutive candles,
+     * keeping each run's first open, last close, extreme high/low and total volume.
+     * Unlike point-picking downsamplers (e.g. LTTB) no price extreme is lost.
+     *
+     * @param candles candles sorted by time
+     * @param maxPoints maximum number of candles, at least 1
+     * @return {@code candles} itself if within the budget, otherwise merged candles
      */
-    private Candle buildCandle(long bucketTime, List<BidAskEvent> events) {
-        if (events.isEmpty()) {
-            throw new IllegalArgumentException("Cannot build candle from empty events");
+    public static List<Candle> downsample(List<Candle> candles, int maxPoints) {
+        if (maxPoints < 1) {
+            throw new IllegalArgumentException("maxPoints must be >= 1: " + maxPoints);
         }
-        
-        var firstEvent = events.getFirst();
-        var lastEvent = events.getLast();
-        
-        double open = midPrice(firstEvent);
-        double close = midPrice(lastEvent);
-        double high = Double.NEGATIVE_INFINITY;
-        double low = Double.POSITIVE_INFINITY;
-        
+        if (candles.size() <= maxPoints) {
+            return candles;
+        }
+        int group = Math.ceilDiv(candles.size(), maxPoints);
+        var result = new ArrayList<Candle>(maxPoints);
+        for (int start = 0; start < candles.size(); start += group) {
+            var first = candles.get(start);
+            int end = Math.min(start + group, candles.size());
+            double high = first.getHigh();
+            double low = first.getLow();
+            long volume = 0;
+            for (int i = start; i < end; i++) {
+                var candle = candles.get(i);
+                high = Math.max(high, candle.getHigh());
+                low = Math.min(low, candle.getLow());
+                volume += candle.getVolume();
+            }
+            result.add(new Candle(first.getTime(), first.getOpen(), high, low, candles.get(end - 1).getClose(), volume));
+        }
+        return result;
+    }
+
+    /**
+     * {@link #downsample(List, int)} for detailed candles; merged averages are weighted by
+     * tick count.
+     *
+     * @param candles candles sorted by time
+     * @param maxPoints maximum number of candles, at least 1
+     * @return {@code candles} itself if within the budget, otherwise merged candles
+     */
+    public static List<DetailedCandle> downsampleDetailed(List<DetailedCandle> candles, int maxPoints) {
+        if (maxPoints < 1) {
+            throw new IllegalArgumentException("maxPoints must be >= 1: " + maxPoints);
+        }
+        if (candles.size() <= maxPoints) {
+            return candles;
+        }
+        int group = Math.ceilDiv(candles.size(), maxPoints);
+        var result = new ArrayList<DetailedCandle>(maxPoints);
+        for (int start = 0; start < candles.size(); start += group) {
+            var merged = candles.get(start);
+            int end = Math.min(start + group, candles.size());
+            for (int i = start + 1; i < end; i++) {
+                merged = merged.merge(candles.get(i));
+            }
+            result.add(merged);
+        }
+        return result;
+    }
+
+    private static boolean isSorted(List<BidAskEvent> events) {
+        long previous = Long.MIN_VALUE;
         for (var event : events) {
-            double mid = midPrice(event);
-            if (mid > high) high = mid;
-            if (mid < low) low = mid;
+            if (event.timestampNanos() < previous) {
+                return false;
+            }
+            previous = event.timestampNanos();
         }
-        
-        return new Candle(bucketTime, open, high, low, close, events.size());
+        return true;
     }
     
     /**
      * Calculates mid-price from bid and ask.
      */
-    private double midPrice(BidAskEvent event) {
+    private static double midPrice(BidAskEvent event) {
         return (event.bid() + event.ask()) / 2.0;
     }
+
+    /**
+     * Incremental aggregation of events arriving in timestamp order.
+     *
+     * @param <T> candle type produced
+     */
+    public interface Aggregation<T> extends Consumer<BidAskEvent> {
+        /**
+         * Closes the current bucket. Call once, after the last event.
+         *
+         * @return accumulated candles sorted by time
+         */
+        List<T> candles();
+    }
+
+    /**
+     * Single-pass OHLCV accumulator. Each bucket is held in primitives and emitted when an
+     * event crosses the bucket's end, so the bucket is only recomputed once per candle.
+     * Events must arrive in timestamp order.
+     */
+    public static final class Accumulator implements Aggregation<Candle> {
+        private final Timeframe timeframe;
+        private final List<Candle> result = new ArrayList<>();
+        private long bucketTime;
+        private long bucketEnd = Long.MIN_VALUE;
+        private double open;
+        private double high;
+        private double low;
+        private double close;
+        private long volume;
+
+        private Accumulator(Timeframe timeframe) {
+            this.timeframe = timeframe;
+        }
+
+        @Override
+        public void accept(BidAskEvent event) {
+            double mid = midPrice(event);
+            if (event.timestampNanos() >= bucketEnd) {
+                if (volume > 0) {
+                    result.add(new Candle(bucketTime, open, high, low, close, volume));
+                }
+                bucketTime = timeframe.bucketStartNanos(event.timestampNanos());
+                bucketEnd = EpochNanos.ofEpochSecond(timeframe.nextBucketStart(bucketTime));
+                open = mid;
+                high = mid;
+                low = mid;
+                volume = 0;
+            }
+            if (mid > high) high = mid;
+            if (mid < low) low = mid;
+            close = mid;
+            volume++;
+        }
+
+        @Override
+        public List<Candle> candles() {
+            if (volume > 0) {
+                result.add(new Candle(bucketTime, open, high, low, close, volume));
+                volume = 0;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * OHLCV accumulation over columnar events, a block at a time on the {@link CandleKernel}:
+     * mid prices for the whole block, then high and low per run of events in the same bucket,
+     * with run ends found by galloping search over the sorted timestamps. Single events are
+     * also accepted and buffered into blocks, though at the cost of the copy.
+     */
+    public static final class ColumnarAccumulator implements Aggregation<Candle>, EventColumns.Sink {
+        private static final int BLOCK_SIZE = EventColumns.BLOCK_SIZE;
+
+        private final Timeframe timeframe;
+        private final CandleKernel kernel;
+        private final List<Candle> result = new ArrayList<>();
+        private final double[] mids = new double[BLOCK_SIZE];
+        private EventColumns buffered;
+        private long bucketTime;
+        private long bucketEnd = Long.MIN_VALUE;
+        private double open;
+        private double high;
+        private double low;
+        private double close;
+        private long volume;
+
+        private ColumnarAccumulator(Timeframe timeframe, CandleKernel kernel) {
+            this.timeframe = timeframe;
+            this.kernel = kernel;
+        }
+
+        @Override
+        public void accept(long[] timestampsNanos, double[] bids, double[] asks, int length) {
+            for (int start = 0; start < length; start += BLOCK_SIZE) {
+                acceptBlock(timestampsNanos, bids, asks, start, Math.min(start + BLOCK_SIZE, length));
+            }
+        }
+
+        @Override
+        public void accept(BidAskEvent event) {
+            if (buffered == null) {
+                buffered = new EventColumns(this);
+            }
+            buffered.add(event.timestampNanos(), event.bid(), event.ask());
+        }
+
+        /**
+         * Aggregates events {@code [from, to)} of the given columns, at most
+         * {@link #BLOCK_SIZE} of them.
+         */
+        private void acceptBlock(long[] times, double[] blockBids, double[] blockAsks, int from, int to) {
+            kernel.midPrices(blockBids, blockAsks, from, to, mids);
+            int i = from;
+            while (i < to) {
+                if (times[i] >= bucketEnd) {
+                    if (volume > 0) {
+                        result.add(new Candle(bucketTime, open, high, low, close, volume));
+                    }
+                    bucketTime = timeframe.bucketStartNanos(times[i]);
+                    bucketEnd = EpochNanos.ofEpochSecond(timeframe.nextBucketStart(bucketTime));
+                    open = mids[i - from];
+                    high = open;
+                    low = open;
+                    volume = 0;
+                }
+                int runEnd = runEnd(times, i, to, bucketEnd);
+                double runHigh = kernel.max(mids, i - from, runEnd - from);
+                double runLow = kernel.min(mids, i - from, runEnd - from);
+                if (runHigh > high) high = runHigh;
+                if (runLow < low) low = runLow;
+                close = mids[runEnd - 1 - from];
+                volume += runEnd - i;
+                i = runEnd;
+            }
+        }
+
+        /**
+         * First index in {@code (start, to]} whose timestamp is at least {@code end},
+         * given {@code times[start] < end}. Doubles the step until it overshoots, then
+         * bisects, so short runs cost a few comparisons and long ones a logarithmic number.
+         */
+        private static int runEnd(long[] times, int start, int to, long end) {
+            int low = start;
+            int step = 1;
+            while (low + step < to && times[low + step] < end) {
+                low += step;
+                step <<= 1;
+            }
+            int high = Math.min(low + step, to);
+            while (high - low > 1) {
+                int middle = (low + high) >>> 1;
+                if (times[middle] < end) {
+                    low = middle;
+                } else {
+                    high = middle;
+                }
+            }
+            return high;
+        }
+
+        @Override
+        public List<Candle> candles() {
+            if (buffered != null) {
+                buffered.flush();
+            }
+            if (volume > 0) {
+                result.add(new Candle(bucketTime, open, high, low, close, volume));
+                volume = 0;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * {@link Accumulator} that also tracks bid and ask OHLC, the spread's minimum, maximum
+     * and sum, and the sum of mid prices, all in primitives. Events must arrive in
+     * timestamp order.
+     */
+    public static final class DetailedAccumulator implements Aggregation<DetailedCandle> {
+        private final Timeframe timeframe;
+        private final List<DetailedCandle> result = new ArrayList<>();
+        private long bucketTime;
+        private long bucketEnd = Long.MIN_VALUE;
+        private double open;
+        private double high;
+        private double low;
+        private double close;
+        private double bidOpen;
+        private double bidHigh;
+        private double bidLow;
+        private double bidClose;
+        private double askOpen;
+        private double askHigh;
+        private double askLow;
+        private double askClose;
+        private double spreadMin;
+        private double spreadMax;
+        private double spreadSum;
+        private double midSum;
+        private long volume;
+
+        private DetailedAccumulator(Timeframe timeframe) {
+            this.timeframe = timeframe;
+        }
+
+        @Override
+        public void accept(BidAskEvent event) {
+            double bid = event.bid();
+            double ask = event.ask();
+            double mid = midPrice(event);
+            double spread = ask - bid;
+            if (event.timestampNanos() >= bucketEnd) {
+                emit();
+                bucketTime = timeframe.bucketStartNanos(event.timestampNanos());
+                bucketEnd = EpochNanos.ofEpochSecond(timeframe.nextBucketStart(bucketTime));
+                open = high = low = mid;
+                bidOpen = bidHigh = bidLow = bid;
+                askOpen = askHigh = askLow = ask;
+                spreadMin = spreadMax = spread;
+                spreadSum = 0;
+                midSum = 0;
+            }
+            if (mid > high) high = mid;
+            if (mid < low) low = mid;
+            if (bid > bidHigh) bidHigh = bid;
+            if (bid < bidLow) bidLow = bid;
+            if (ask > askHigh) askHigh = ask;
+            if (ask < askLow) askLow = ask;
+            if (spread < spreadMin) spreadMin = spread;
+            if (spread > spreadMax) spreadMax = spread;
+            close = mid;
+            bidClose = bid;
+            askClose = ask;
+            spreadSum += spread;
+            midSum += mid;
+            volume++;
+        }
+
+        private void emit() {
+            if (volume > 0) {
+                result.add(new DetailedCandle(
+                    new Candle(bucketTime, open, high, low, close, volume),
+                    new Ohlc(bidOpen, bidHigh, bidLow, bidClose),
+                    new Ohlc(askOpen, askHigh, askLow, askClose),
+                    spreadMin, spreadMax, spreadSum / volume, midSum / volume));
+                volume = 0;
+            }
+        }
+
+        @Override
+        public List<DetailedCandle> candles() {
+            emit();
+            return result;
+        }
+    }
+
+    /**
+     * OHLCV accumulator for events in descending timestamp order: the first event seen in a
+     * bucket is its close and the last one its open. Returns {@code false} from
+     * {@link #test} once {@code limit} candles are complete and an older bucket starts.
+     */
+    public static final class BackwardAccumulator implements Predicate<BidAskEvent> {
+        private final Timeframe timeframe;
+        private final int limit;
+        private final List<Candle> newestFirst = new ArrayList<>();
+        private long bucketTime;
+        private long bucketStart = Long.MAX_VALUE;
+        private double open;
+        private double high;
+        private double low;
+        private double close;
+        private long volume;
+        private boolean hasMore;
+
+        private BackwardAccumulator(Timeframe timeframe, int limit) {
+            this.timeframe = timeframe;
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean test(BidAskEvent event) {
+            double mid = midPrice(event);
+            if (event.timestampNanos() < bucketStart) {
+                if (volume > 0) {
+                    newestFirst.add(new Candle(bucketTime, open, high, low, close, volume));
+                    volume = 0;
+                    if (newestFirst.size() == limit) {
+                        hasMore = true;
+                        return false;
+                    }
+                }
+                bucketTime = timeframe.bucketStartNanos(event.timestampNanos());
+                bucketStart = EpochNanos.ofEpochSecond(bucketTime);
+                close = mid;
+                high = mid;
+                low = mid;
+            }
+            if (mid > high) high = mid;
+            if (mid < low) low = mid;
+            open = mid;
+            volume++;
+            return true;
+        }
+
+        /**
+         * Closes the current bucket. Call once, after the scan has ended.
+         *
+         * @return up to {@code limit} candles sorted by time
+         */
+        public List<Candle> candles() {
+            if (volume > 0) {
+                newestFirst.add(new Candle(bucketTime, open, high, low, close, volume));
+                volume = 0;
+            }
+            return newestFirst.reversed();
+        }
+
+        /**
+         * @return whether the scan stopped early because older events exist
+         */
+        public boolean hasMore() {
+            return hasMore;
+        }
+    }
 }
@@ -0,0 +1,60 @@
+package com.marketdata.domain.service;
+
+import java.util.Locale;
+
+/**
+ * Primitive loops of candle aggregation over columnar bid/ask arrays.
+ * <p>
+ * {@link #vectorized()} uses SIMD through the incubating Vector API, which is only
+ * present when the JVM is started with {@code --add-modules jdk.incubator.vector};
+ * {@link #scalar()} works everywhere. Both give bit-identical results for finite prices.
+ */
+public interface CandleKernel {
+
+    /**
+     * Writes {@code (bids[i] + asks[i]) / 2} to {@code mids[i - from]} for {@code from <= i < to}.
+     */
+    void midPrices(double[] bids, double[] asks, int from, int to, double[] mids);
+
+    /**
+     * @return the largest of {@code values[from..to)}, or negative infinity if the range is empty
+     */
+    double max(double[] values, int from, int to);
+
+    /**
+     * @return the smallest of {@code values[from..to)}, or positive infinity if the range is empty
+     */
+    double min(double[] values, int from, int to);
+
+    static CandleKernel scalar() {
+        return ScalarCandleKernel.INSTANCE;
+    }
+
+    /**
+     * @throws IllegalStateException if the {@code jdk.incubator.vector} module is not loaded
+     */
+    static CandleKernel vectorized() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            throw new IllegalStateException(
+                "jdk.incubator.vector is not available; start the JVM with --add-modules jdk.incubator.vector");
+        }
+        return VectorCandleKernel.INSTANCE;
+    }
+
+    /**
+     * Resolves a configured kernel name. {@code auto} picks {@link #vectorized()} when the
+     * Vector API is available and {@link #scalar()} otherwise.
+     *
+     * @param name {@code auto}, {@code vector} or {@code scalar} (case-insensitive)
+     * @throws IllegalArgumentException if the name is unknown
+     * @throws IllegalStateException if {@code vector} is requested but unavailable
+     */
+    static CandleKernel resolve(String name) {
+        return switch (name.toLowerCase(Locale.ROOT)) {
+            case "auto" -> ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent() ? vectorized() : scalar();
+            case "vector" -> vectorized();
+            case "scalar" -> scalar();
+            default -> throw new IllegalArgumentException("Unknown aggregation kernel: " + name);
+        };
+    }
+}
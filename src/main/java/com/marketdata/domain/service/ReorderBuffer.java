@@ -0,0 +1,187 @@
+package com.marketdata.domain.service;
+
+import com.marketdata.domain.model.BidAskEvent;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.function.LongSupplier;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Per-symbol reorder buffer for incoming events.
+ * <p>
+ * Each symbol tracks a watermark: the highest timestamp seen minus the reorder window.
+ * Events newer than the watermark are held and released in timestamp order (ties keep
+ * arrival order) once the watermark passes them. Events that arrive already behind the
+ * watermark cannot be reordered any more and are routed to the late-event handler.
+ * <p>
+ * When a symbol's feed goes quiet, {@link #advanceIdle()} lets its event time run on from
+ * the newest timestamp seen by the time elapsed since, so held events still drain. The
+ * watermark is never derived from the wall clock, so a feed that lags behind real time
+ * (or a replay of old events) is reordered like any other.
+ * <p>
+ * Symbols are addressed by their dictionary ID, so per-symbol state lives in a plain array.
+ */
+public class ReorderBuffer {
+
+    private static final Comparator<Pending> ORDER =
+        Comparator.comparingLong((Pending p) -> p.event.timestampNanos()).thenComparingLong(p -> p.sequence);
+
+    private final long window;
+    private final LongSupplier clock;
+    private final ObjIntConsumer<BidAskEvent> inOrder;
+    private final ObjIntConsumer<BidAskEvent> late;
+    private volatile SymbolBuffer[] buffers = new SymbolBuffer[16];
+
+    /**
+     * @param window How far behind the newest timestamp an event may arrive and still be
+     *               reordered, in the same unit as {@link BidAskEvent#timestampNanos()}
+     * @param inOrder Receives events in timestamp order, with their symbol ID
+     * @param late Receives events that arrived behind the watermark
+     */
+    public ReorderBuffer(long window, ObjIntConsumer<BidAskEvent> inOrder, ObjIntConsumer<BidAskEvent> late) {
+        this(window, System::nanoTime, inOrder, late);
+    }
+
+    /**
+     * @param clock Monotonic clock measuring idle time, in the unit of {@code window}
+     */
+    public ReorderBuffer(long window, LongSupplier clock,
+                         ObjIntConsumer<BidAskEvent> inOrder, ObjIntConsumer<BidAskEvent> late) {
+        if (window < 0) {
+            throw new IllegalArgumentException("Reorder window must be >= 0");
+        }
+        this.window = window;
+        this.clock = clock;
+        this.inOrder = inOrder;
+        this.late = late;
+    }
+
+    /**
+     * Accepts an event, releasing any buffered events the new watermark has passed.
+     */
+    public void offer(int symbolId, BidAskEvent event) {
+        var buffer = bufferFor(symbolId);
+        synchronized (buffer) {
+            if (event.timestampNanos() < buffer.watermark()) {
+                late.accept(event, symbolId);
+                return;
+            }
+            buffer.pending.add(new Pending(event, buffer.nextSequence++));
+            buffer.maxTimestamp = Math.max(buffer.maxTimestamp, event.timestampNanos());
+            if (event.timestampNanos() >= buffer.newestTimestamp) {
+                buffer.newestTimestamp = event.timestampNanos();
+                buffer.newestSeenAt = clock.getAsLong();
+            }
+            release(symbolId, buffer, buffer.watermark());
+        }
+    }
+
+    /**
+     * Releases held events of symbols whose feed has gone quiet. A symbol's event time is
+     * taken to have advanced from its newest timestamp by the time elapsed since that event
+     * arrived; events more than the window behind it are released, and the watermark only
+     * moves as far as needed to keep later arrivals behind them out of order.
+     */
+    public void advanceIdle() {
+        long now = clock.getAsLong();
+        var current = buffers;
+        for (int symbolId = 0; symbolId < current.length; symbolId++) {
+            var buffer = current[symbolId];
+            if (buffer == null) continue;
+            synchronized (buffer) {
+                if (buffer.pending.isEmpty()) continue;
+                long eventTime = saturatedAdd(buffer.newestTimestamp, Math.max(0, now - buffer.newestSeenAt));
+                long released = release(symbolId, buffer, eventTime - window);
+                if (released != Long.MIN_VALUE) {
+                    buffer.maxTimestamp = Math.max(buffer.maxTimestamp, saturatedAdd(released + 1, window));
+                }
+            }
+        }
+    }
+
+    /**
+     * Releases all buffered events in order without moving the watermarks.
+     * Intended for shutdown; events offered afterwards may be released out of order
+     * relative to the flushed ones.
+     */
+    public void flush() {
+        var current = buffers;
+        for (int symbolId = 0; symbolId < current.length; symbolId++) {
+            var buffer = current[symbolId];
+            if (buffer == null) continue;
+            synchronized (buffer) {
+                while (!buffer.pending.isEmpty()) {
+                    inOrder.accept(buffer.pending.poll().event, symbolId);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of events currently held across all symbols
+     */
+    public int size() {
+        int size = 0;
+        for (var buffer : buffers) {
+            if (buffer == null) continue;
+            synchronized (buffer) {
+                size += buffer.pending.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return timestamp of the last event released, or {@code Long.MIN_VALUE} if none
+     */
+    private long release(int symbolId, SymbolBuffer buffer, long watermark) {
+        long last = Long.MIN_VALUE;
+        while (!buffer.pending.isEmpty() && buffer.pending.peek().event.timestampNanos() < watermark) {
+            var event = buffer.pending.poll().event;
+            last = event.timestampNanos();
+            inOrder.accept(event, symbolId);
+        }
+        return last;
+    }
+
+    private SymbolBuffer bufferFor(int symbolId) {
+        var current = buffers;
+        if (symbolId < current.length && current[symbolId] != null) {
+            return current[symbolId];
+        }
+        return createBuffer(symbolId);
+    }
+
+    private synchronized SymbolBuffer createBuffer(int symbolId) {
+        var current = buffers;
+        if (symbolId >= current.length) {
+            current = Arrays.copyOf(current, Math.max(symbolId + 1, current.length * 2));
+        }
+        if (current[symbolId] == null) {
+            current[symbolId] = new SymbolBuffer();
+        }
+        buffers = current;
+        return current[symbolId];
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return ((a ^ sum) & (b ^ sum)) < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    private final class SymbolBuffer {
+        final PriorityQueue<Pending> pending = new PriorityQueue<>(ORDER);
+        long maxTimestamp = Long.MIN_VALUE;
+        long newestTimestamp = Long.MIN_VALUE;
+        long newestSeenAt;
+        long nextSequence;
+
+        long watermark() {
+            return maxTimestamp == Long.MIN_VALUE ? Long.MIN_VALUE : maxTimestamp - window;
+        }
+    }
+
+    private record Pending(BidAskEvent event, long sequence) { }
+}
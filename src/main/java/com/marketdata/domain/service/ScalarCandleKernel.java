@@ -0,0 +1,42 @@
+package com.marketdata.domain.service;
+
+/**
+ * {@link CandleKernel} in plain loops, for JVMs without the Vector API.
+ */
+final class ScalarCandleKernel implements CandleKernel {
+
+    static final ScalarCandleKernel INSTANCE = new ScalarCandleKernel();
+
+    private ScalarCandleKernel() {
+    }
+
+    @Override
+    public void midPrices(double[] bids, double[] asks, int from, int to, double[] mids) {
+        for (int i = from; i < to; i++) {
+            mids[i - from] = (bids[i] + asks[i]) * 0.5;
+        }
+    }
+
+    @Override
+    public double max(double[] values, int from, int to) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            if (values[i] > max) max = values[i];
+        }
+        return max;
+    }
+
+    @Override
+    public double min(double[] values, int from, int to) {
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            if (values[i] < min) min = values[i];
+        }
+        return min;
+    }
+
+    @Override
+    public String toString() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,155 @@
+package com.marketdata.domain.service;
+
+import com.marketdata.domain.model.BidAskEvent;
+
+import java.util.Arrays;
+
+/**
+ * Drops ticks that repeat one of the last N ticks of the same symbol.
+ * <p>
+ * Feeds replay recent ticks on reconnect; a tick is considered a repeat when its
+ * (timestamp, bid, ask) matches one already seen for that symbol. Each symbol keeps a
+ * fixed-size ring of 64-bit fingerprints plus an open-addressing index over the ring,
+ * so memory is bounded ({@code ~24 bytes x window} per symbol) and checks are O(1)
+ * without allocating. Fingerprint collisions could in theory drop a distinct tick, with
+ * probability around {@code window / 2^64}.
+ */
+public class TickDeduplicator {
+
+    private final int window;
+    private volatile RecentTicks[] symbols = new RecentTicks[16];
+
+    /**
+     * @param window Number of recent ticks remembered per symbol; 0 disables deduplication
+     */
+    public TickDeduplicator(int window) {
+        if (window < 0) {
+            throw new IllegalArgumentException("Dedup window must be >= 0");
+        }
+        this.window = window;
+    }
+
+    /**
+     * Checks whether the tick repeats a recent one, remembering it if not.
+     *
+     * @return true if the tick should be dropped
+     */
+    public boolean isDuplicate(int symbolId, BidAskEvent event) {
+        if (window == 0) {
+            return false;
+        }
+        var recent = recentFor(symbolId);
+        long fingerprint = fingerprint(event);
+        synchronized (recent) {
+            return !recent.add(fingerprint);
+        }
+    }
+
+    static long fingerprint(BidAskEvent event) {
+        long h = mix(event.timestampNanos());
+        h = mix(h ^ Double.doubleToLongBits(event.bid()));
+        h = mix(h ^ Double.doubleToLongBits(event.ask()));
+        // 0 marks an empty slot in the index
+        return h == 0 ? 1 : h;
+    }
+
+    /**
+     * Stafford variant 13 of the SplitMix64 finalizer.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private RecentTicks recentFor(int symbolId) {
+        var current = symbols;
+        if (symbolId < current.length && current[symbolId] != null) {
+            return current[symbolId];
+        }
+        return createRecent(symbolId);
+    }
+
+    private synchronized RecentTicks createRecent(int symbolId) {
+        var current = symbols;
+        if (symbolId >= current.length) {
+            current = Arrays.copyOf(current, Math.max(symbolId + 1, current.length * 2));
+        }
+        if (current[symbolId] == null) {
+            current[symbolId] = new RecentTicks(window);
+        }
+        symbols = current;
+        return current[symbolId];
+    }
+
+    /**
+     * FIFO ring of fingerprints with a linear-probing set over its contents.
+     * The set is kept at most half full; removal uses backward-shift deletion so no
+     * tombstones accumulate.
+     */
+    private static final class RecentTicks {
+        private final long[] ring;
+        private final long[] table;
+        private final int mask;
+        private int head;
+        private int size;
+
+        RecentTicks(int capacity) {
+            ring = new long[capacity];
+            table = new long[Integer.highestOneBit(capacity * 2 - 1) << 1];
+            mask = table.length - 1;
+        }
+
+        boolean add(long fingerprint) {
+            if (contains(fingerprint)) {
+                return false;
+            }
+            if (size == ring.length) {
+                remove(ring[head]);
+            } else {
+                size++;
+            }
+            ring[head] = fingerprint;
+            head = (head + 1) % ring.length;
+            insert(fingerprint);
+            return true;
+        }
+
+        private boolean contains(long fingerprint) {
+            for (int i = slot(fingerprint); table[i] != 0; i = (i + 1) & mask) {
+                if (table[i] == fingerprint) return true;
+            }
+            return false;
+        }
+
+        private void insert(long fingerprint) {
+            int i = slot(fingerprint);
+            while (table[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            table[i] = fingerprint;
+        }
+
+        private void remove(long fingerprint) {
+            int i = slot(fingerprint);
+            while (table[i] != fingerprint) {
+                i = (i + 1) & mask;
+            }
+            // Shift later entries of the probe run back into the hole
+            int hole = i;
+            for (int j = (hole + 1) & mask; table[j] != 0; j = (j + 1) & mask) {
+                int home = slot(table[j]);
+                boolean movable = hole <= j ? (home <= hole || home > j) : (home <= hole && home > j);
+                if (movable) {
+                    table[hole] = table[j];
+                    hole = j;
+                }
+            }
+            table[hole] = 0;
+        }
+
+        private int slot(long fingerprint) {
+            return (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+        }
+    }
+}
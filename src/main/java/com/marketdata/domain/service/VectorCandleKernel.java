@@ -0,0 +1,76 @@
+package com.marketdata.domain.service;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link CandleKernel} on the incubating Vector API, processing as many doubles per
+ * instruction as the CPU's preferred vector width allows (4 with AVX2, 8 with AVX-512).
+ * Ranges shorter than one vector, and the tail of longer ones, are handled in scalar code.
+ * Only load this class after checking that {@code jdk.incubator.vector} is present.
+ */
+final class VectorCandleKernel implements CandleKernel {
+
+    static final VectorCandleKernel INSTANCE = new VectorCandleKernel();
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private VectorCandleKernel() {
+    }
+
+    @Override
+    public void midPrices(double[] bids, double[] asks, int from, int to, double[] mids) {
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, bids, i)
+                .add(DoubleVector.fromArray(SPECIES, asks, i))
+                .mul(0.5)
+                .intoArray(mids, i - from);
+        }
+        for (; i < to; i++) {
+            mids[i - from] = (bids[i] + asks[i]) * 0.5;
+        }
+    }
+
+    @Override
+    public double max(double[] values, int from, int to) {
+        double max = Double.NEGATIVE_INFINITY;
+        int i = from;
+        int bound = from + SPECIES.loopBound(to - from);
+        if (i < bound) {
+            var lanes = DoubleVector.fromArray(SPECIES, values, i);
+            for (i += SPECIES.length(); i < bound; i += SPECIES.length()) {
+                lanes = lanes.max(DoubleVector.fromArray(SPECIES, values, i));
+            }
+            max = lanes.reduceLanes(VectorOperators.MAX);
+        }
+        for (; i < to; i++) {
+            if (values[i] > max) max = values[i];
+        }
+        return max;
+    }
+
+    @Override
+    public double min(double[] values, int from, int to) {
+        double min = Double.POSITIVE_INFINITY;
+        int i = from;
+        int bound = from + SPECIES.loopBound(to - from);
+        if (i < bound) {
+            var lanes = DoubleVector.fromArray(SPECIES, values, i);
+            for (i += SPECIES.length(); i < bound; i += SPECIES.length()) {
+                lanes = lanes.min(DoubleVector.fromArray(SPECIES, values, i));
+            }
+            min = lanes.reduceLanes(VectorOperators.MIN);
+        }
+        for (; i < to; i++) {
+            if (values[i] < min) min = values[i];
+        }
+        return min;
+    }
+
+    @Override
+    public String toString() {
+        return "vector(" + SPECIES.length() + " lanes)";
+    }
+}
@@ -0,0 +1,56 @@
+package com.marketdata.infrastructure.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.marketdata.domain.model.EpochNanos;
+import com.marketdata.domain.port.out.CandleInvalidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evicts cached candle ranges that contain a late event.
+ * Entries are matched on their {@link CandleCacheKey}; ranges for other symbols or
+ * other time windows stay cached. Matching walks every cached key, so the late events of a
+ * batch are evicted together in one pass with {@link #invalidateAll}.
+ */
+public class CaffeineCandleInvalidator implements CandleInvalidator {
+    private static final Logger logger = LoggerFactory.getLogger(CaffeineCandleInvalidator.class);
+
+    private final Cache<Object, Object> cache;
+
+    public CaffeineCandleInvalidator(Cache<Object, Object> cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public void invalidate(int symbolId, long timestampNanos) {
+        invalidateAll(Map.of(symbolId, List.of(timestampNanos)));
+    }
+
+    @Override
+    public void invalidateAll(Map<Integer, ? extends Collection<Long>> timestampsNanos) {
+        var seconds = new HashMap<Integer, long[]>();
+        timestampsNanos.forEach((symbolId, timestamps) -> seconds.put(symbolId,
+            timestamps.stream().mapToLong(EpochNanos::toEpochSecond).toArray()));
+        boolean evicted = cache.asMap().keySet().removeIf(key ->
+            key instanceof CandleCacheKey candleKey && covers(candleKey, seconds.get(candleKey.symbolId())));
+        if (evicted) {
+            logger.debug("Evicted cached candles covering late events {}", timestampsNanos);
+        }
+    }
+
+    private static boolean covers(CandleCacheKey key, long[] seconds) {
+        if (seconds != null) {
+            for (long second : seconds) {
+                if (second >= key.from() && second <= key.to()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
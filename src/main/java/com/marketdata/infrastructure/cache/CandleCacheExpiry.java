@@ -0,0 +1,36 @@
+package com.marketdata.infrastructure.cache;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.time.Duration;
+
+/**
+ * Expires cached candle ranges a fixed time after they are written, like
+ * {@code expireAfterWrite}, but as a variable expiry so an entry restored from a
+ * {@link CandleCacheSnapshotter snapshot} can be given only the time it had left.
+ *
+ * @param ttl time an entry stays cached after it is written
+ */
+public record CandleCacheExpiry(Duration ttl) implements Expiry<Object, Object> {
+
+    public CandleCacheExpiry {
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Candle cache TTL must be positive: " + ttl);
+        }
+    }
+
+    @Override
+    public long expireAfterCreate(Object key, Object value, long currentTime) {
+        return ttl.toNanos();
+    }
+
+    @Override
+    public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+        return ttl.toNanos();
+    }
+
+    @Override
+    public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+        return currentDuration;
+    }
+}
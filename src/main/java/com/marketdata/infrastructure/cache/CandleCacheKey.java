@@ -0,0 +1,14 @@
+package com.marketdata.infrastructure.cache;
+
+import com.marketdata.domain.model.Timeframe;
+
+/**
+ * Key of the {@code candles} cache.
+ * Uses the symbol's dictionary ID so hashing and equality are plain primitive comparisons.
+ *
+ * @param symbolId Symbol dictionary ID
+ * @param timeframe Candle timeframe
+ * @param from Start time (inclusive) in seconds
+ * @param to End time (inclusive) in seconds
+ */
+public record CandleCacheKey(int symbolId, Timeframe timeframe, long from, long to) { }
@@ -0,0 +1,56 @@
+package com.marketdata.infrastructure.cache;
+
+import com.marketdata.domain.model.Timeframe;
+import com.marketdata.domain.port.out.DataVersions;
+import com.marketdata.domain.port.out.SymbolDictionary;
+import org.springframework.cache.interceptor.KeyGenerator;
+
+import java.lang.reflect.Method;
+
+/**
+ * Builds {@link CandleCacheKey}s for methods with the
+ * {@code (String symbol, Timeframe timeframe, long from, long to)} signature, and decides
+ * which of their results may be cached at all (see {@link #SEALED_RANGE}).
+ * <p>
+ * Unknown symbols all map to {@link SymbolDictionary#NO_ID}. That is safe: such queries
+ * always yield no candles, and once a symbol is registered it gets its own key.
+ */
+public class CandleCacheKeyGenerator implements KeyGenerator {
+
+    /**
+     * Cache condition for the methods this generator keys: only ranges that were sealed
+     * before the call are looked up and stored. A range aggregated while it was still
+     * open can miss ticks held in the reorder buffer, and nothing evicts it once those
+     * ticks are stored in order, so it must never be cached under a key sealed queries read.
+     */
+    public static final String SEALED_RANGE = "@candleCacheKeyGenerator.isSealed(#p0, #p3)";
+
+    private final SymbolDictionary symbols;
+    private final DataVersions dataVersions;
+
+    /**
+     * @param dataVersions decides whether a range has sealed; ranges never seal without it
+     */
+    public CandleCacheKeyGenerator(SymbolDictionary symbols, DataVersions dataVersions) {
+        this.symbols = symbols;
+        this.dataVersions = dataVersions;
+    }
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        return new CandleCacheKey(
+            symbols.find((String) params[0]),
+            (Timeframe) params[1],
+            (Long) params[2],
+            (Long) params[3]
+        );
+    }
+
+    /**
+     * @param toEpochSec end of the range in epoch seconds (inclusive)
+     * @return whether the range only changes through late corrections, which evict it
+     */
+    public boolean isSealed(String symbol, long toEpochSec) {
+        return dataVersions != null && dataVersions.versionOf(symbol, toEpochSec).sealed();
+    }
+}
@@ -0,0 +1,326 @@
+package com.marketdata.infrastructure.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.marketdata.domain.model.Candle;
+import com.marketdata.domain.model.EpochNanos;
+import com.marketdata.domain.model.Timeframe;
+import com.marketdata.domain.model.TimeframeMapper;
+import com.marketdata.domain.port.out.EventRepository;
+import com.marketdata.domain.port.out.SymbolDictionary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Periodically writes the {@code candles} cache to a binary file and restores it on startup.
+ * <p>
+ * A snapshot records the repository's {@link EventRepository#lastSequence() sequence} before
+ * the cache is copied. On restore, every cached range of a symbol that ends at or after the
+ * earliest event stored since that sequence, less {@code sequenceMargin}, is dropped, so late
+ * corrections and ticks stored while the process was down are never served from the
+ * snapshot. The margin covers events that were assigned a sequence before the snapshot but
+ * committed after it. Each entry is written with the time it has left before it expires;
+ * entries that would have expired by the time of the restore are skipped, and the rest are
+ * restored with only the time they had left, if the cache expires entries variably (see
+ * {@link CandleCacheExpiry}). In a cache with a fixed expire-after-write they start a new
+ * expiry period. A repository whose sequence is behind the snapshot's (e.g. a recreated database) makes
+ * the whole snapshot stale.
+ * <p>
+ * Keys are written with the symbol rather than its dictionary ID. Calendar timeframes in
+ * non-UTC zones or with a session offset are not written; they are recomputed on demand.
+ */
+public class CandleCacheSnapshotter implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(CandleCacheSnapshotter.class);
+
+    static final String SNAPSHOT_FILE = "candles.snap";
+    private static final int MAGIC = 0x43414E44;
+    private static final int FORMAT_VERSION = 2;
+    private static final byte FIXED = 0;
+    private static final byte CALENDAR = 1;
+
+    private final Cache<Object, Object> cache;
+    private final EventRepository repository;
+    private final SymbolDictionary symbols;
+    private final Path file;
+    private final long intervalMillis;
+    private final long sequenceMargin;
+    private final LongSupplier clock;
+    private final Timer writeTimer;
+    private final Timer restoreTimer;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Periodic snapshots begin on {@link #start()}.
+     *
+     * @param intervalMillis period between snapshots, or 0 to only write one on {@link #close()}
+     * @param sequenceMargin sequences below the snapshot's that are re-checked on restore
+     */
+    public CandleCacheSnapshotter(Cache<Object, Object> cache, EventRepository repository, SymbolDictionary symbols,
+                                  Path directory, long intervalMillis, long sequenceMargin,
+                                  MeterRegistry meterRegistry) {
+        this(cache, repository, symbols, directory, intervalMillis, sequenceMargin, meterRegistry, EpochNanos::now);
+    }
+
+    CandleCacheSnapshotter(Cache<Object, Object> cache, EventRepository repository, SymbolDictionary symbols,
+                           Path directory, long intervalMillis, long sequenceMargin, MeterRegistry meterRegistry,
+                           LongSupplier clock) {
+        if (intervalMillis < 0) {
+            throw new IllegalArgumentException("Snapshot interval must not be negative: " + intervalMillis);
+        }
+        if (sequenceMargin < 0) {
+            throw new IllegalArgumentException("Sequence margin must not be negative: " + sequenceMargin);
+        }
+        this.cache = cache;
+        this.repository = repository;
+        this.symbols = symbols;
+        this.file = directory.resolve(SNAPSHOT_FILE);
+        this.clock = clock;
+        this.writeTimer = timer(meterRegistry, "write");
+        this.restoreTimer = timer(meterRegistry, "restore");
+        this.intervalMillis = intervalMillis;
+        this.sequenceMargin = sequenceMargin;
+    }
+
+    /**
+     * Starts periodic snapshots, if an interval is configured. Called after {@link #restore()},
+     * so the first snapshot cannot replace the file before it has been read.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            throw new IllegalStateException("Candle cache snapshots already started");
+        }
+        if (intervalMillis > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, "candle-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::snapshot, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("marketdata.cache.snapshot")
+            .tag("operation", operation)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Writes the current cache contents, replacing the previous snapshot atomically.
+     * Failures are logged; the previous snapshot stays in place.
+     */
+    public synchronized void snapshot() {
+        writeTimer.record(() -> {
+            var tmp = file.resolveSibling(SNAPSHOT_FILE + ".tmp");
+            try {
+                Files.createDirectories(file.getParent());
+                int written = write(tmp);
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                logger.debug("Wrote {} cached candle ranges to {}", written, file);
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Failed to write candle cache snapshot {}", file, e);
+            }
+        });
+    }
+
+    private int write(Path target) throws IOException {
+        // Read before copying, so anything stored concurrently counts as newer on restore
+        long sequence = repository.lastSequence();
+        long now = clock.getAsLong();
+        int written = 0;
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(target)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(now);
+            out.writeLong(sequence);
+            for (var entry : cache.asMap().entrySet()) {
+                if (!(entry.getKey() instanceof CandleCacheKey key)
+                        || key.symbolId() == SymbolDictionary.NO_ID
+                        || !(entry.getValue() instanceof List<?> candles)
+                        || !isWritable(key.timeframe())) {
+                    continue;
+                }
+                long remaining = remainingNanos(key);
+                if (remaining <= 0) {
+                    continue;
+                }
+                out.writeBoolean(true);
+                out.writeUTF(symbols.symbolOf(key.symbolId()));
+                writeTimeframe(out, key.timeframe());
+                out.writeLong(key.from());
+                out.writeLong(key.to());
+                out.writeLong(remaining);
+                out.writeInt(candles.size());
+                for (Object candle : candles) {
+                    writeCandle(out, (Candle) candle);
+                }
+                written++;
+            }
+            out.writeBoolean(false);
+        }
+        return written;
+    }
+
+    /**
+     * Loads the last snapshot into the cache, then drops ranges changed since it was taken.
+     * Entries are inserted before the repository is consulted, so an event stored during
+     * the restore is either seen by the reconciliation or evicted by the live invalidator.
+     *
+     * @return number of ranges restored
+     */
+    public synchronized int restore() {
+        return restoreTimer.record(() -> {
+            try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                return restore(in);
+            } catch (NoSuchFileException e) {
+                return 0;
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Ignoring unreadable candle cache snapshot {}", file, e);
+                return 0;
+            }
+        });
+    }
+
+    private int restore(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+            logger.warn("Ignoring candle cache snapshot {} with unknown format", file);
+            return 0;
+        }
+        long takenAt = in.readLong();
+        long sequence = in.readLong();
+        long downtime = Math.max(0, clock.getAsLong() - takenAt);
+        if (repository.lastSequence() < sequence) {
+            logger.info("Ignoring candle cache snapshot {}: repository is behind it", file);
+            return 0;
+        }
+
+        var restored = new ArrayList<CandleCacheKey>();
+        while (in.readBoolean()) {
+            String symbol = in.readUTF();
+            Timeframe timeframe = readTimeframe(in);
+            long from = in.readLong();
+            long to = in.readLong();
+            long remaining = in.readLong();
+            int size = in.readInt();
+            var candles = new ArrayList<Candle>(size);
+            for (int i = 0; i < size; i++) {
+                candles.add(readCandle(in));
+            }
+            int symbolId = symbols.find(symbol);
+            long left = remaining == Long.MAX_VALUE ? remaining : remaining - downtime;
+            if (symbolId != SymbolDictionary.NO_ID && left > 0) {
+                var key = new CandleCacheKey(symbolId, timeframe, from, to);
+                put(key, List.copyOf(candles), left);
+                restored.add(key);
+            }
+        }
+
+        int dropped = 0;
+        for (var changed : repository.earliestStoredSince(Math.max(0, sequence - sequenceMargin)).entrySet()) {
+            int symbolId = symbols.find(changed.getKey());
+            long earliest = EpochNanos.toEpochSecond(changed.getValue());
+            for (var key : restored) {
+                if (key.symbolId() == symbolId && key.to() >= earliest && cache.asMap().remove(key) != null) {
+                    dropped++;
+                }
+            }
+        }
+        logger.info("Restored {} cached candle ranges from {} ({} changed since)",
+            restored.size() - dropped, file, dropped);
+        return restored.size() - dropped;
+    }
+
+    /**
+     * Time the entry has left before it expires, or {@link Long#MAX_VALUE} if it never does.
+     */
+    private long remainingNanos(CandleCacheKey key) {
+        var policy = cache.policy();
+        var variable = policy.expireVariably();
+        if (variable.isPresent()) {
+            return variable.get().getExpiresAfter(key, TimeUnit.NANOSECONDS).orElse(0);
+        }
+        return policy.expireAfterWrite()
+            .map(fixed -> fixed.getExpiresAfter(TimeUnit.NANOSECONDS)
+                - fixed.ageOf(key, TimeUnit.NANOSECONDS).orElse(0))
+            .orElse(Long.MAX_VALUE);
+    }
+
+    private void put(CandleCacheKey key, List<Candle> candles, long remainingNanos) {
+        var variable = cache.policy().expireVariably();
+        if (variable.isPresent() && remainingNanos != Long.MAX_VALUE) {
+            variable.get().put(key, candles, remainingNanos, TimeUnit.NANOSECONDS);
+        } else {
+            cache.put(key, candles);
+        }
+    }
+
+    private static boolean isWritable(Timeframe timeframe) {
+        return !timeframe.isCalendar() || !"custom".equals(TimeframeMapper.labelOf(timeframe));
+    }
+
+    /**
+     * Fixed timeframes are written by length and offset; calendar ones by their predefined label.
+     */
+    private static void writeTimeframe(DataOutputStream out, Timeframe timeframe) throws IOException {
+        out.writeByte(timeframe.isCalendar() ? CALENDAR : FIXED);
+        out.writeUTF(timeframe.toString());
+        if (!timeframe.isCalendar()) {
+            out.writeLong(timeframe.durationSeconds());
+            out.writeLong(timeframe.offsetSeconds());
+        }
+    }
+
+    private static Timeframe readTimeframe(DataInputStream in) throws IOException {
+        byte kind = in.readByte();
+        String label = in.readUTF();
+        return switch (kind) {
+            case FIXED -> Timeframe.fixed(label, in.readLong(), in.readLong());
+            case CALENDAR -> TimeframeMapper.parse(label);
+            default -> throw new IOException("Unknown timeframe kind " + kind);
+        };
+    }
+
+    private static void writeCandle(DataOutputStream out, Candle candle) throws IOException {
+        out.writeLong(candle.getTime());
+        out.writeDouble(candle.getOpen());
+        out.writeDouble(candle.getHigh());
+        out.writeDouble(candle.getLow());
+        out.writeDouble(candle.getClose());
+        out.writeLong(candle.getVolume());
+    }
+
+    private static Candle readCandle(DataInputStream in) throws IOException {
+        return new Candle(in.readLong(), in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(),
+            in.readLong());
+    }
+
+    /**
+     * Stops periodic snapshots and writes a final one.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+            }
+        }
+        snapshot();
+    }
+}
@@ -0,0 +1,143 @@
+package com.marketdata.infrastructure.cache;
+
+import com.marketdata.domain.model.Candle;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of candle lists for the shared cache tier.
+ * <p>
+ * Bucket times are varint deltas from the previous candle, one or two bytes for a regular
+ * series. Each price is XORed with the price written before it; neighbouring prices share
+ * their sign, exponent and leading mantissa bits, so only the differing middle bytes are
+ * written after a one-byte header. Volumes are varints. A typical candle takes 15-30 bytes
+ * instead of 48.
+ */
+public final class CandleCodec {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private CandleCodec() {
+    }
+
+    public static byte[] encode(List<Candle> candles) {
+        var out = new ByteArrayOutputStream(16 + candles.size() * 24);
+        out.write(FORMAT_VERSION);
+        writeVarLong(out, candles.size());
+        long previousTime = 0;
+        long previousPrice = 0;
+        for (Candle candle : candles) {
+            writeVarLong(out, zigZag(candle.getTime() - previousTime));
+            previousTime = candle.getTime();
+            previousPrice = writePrice(out, previousPrice, candle.getOpen());
+            previousPrice = writePrice(out, previousPrice, candle.getHigh());
+            previousPrice = writePrice(out, previousPrice, candle.getLow());
+            previousPrice = writePrice(out, previousPrice, candle.getClose());
+            writeVarLong(out, zigZag(candle.getVolume()));
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code bytes} is not a candle list in this format
+     */
+    public static List<Candle> decode(byte[] bytes) {
+        var in = ByteBuffer.wrap(bytes);
+        try {
+            byte version = in.get();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported candle encoding version " + version);
+            }
+            int size = Math.toIntExact(readVarLong(in));
+            var candles = new ArrayList<Candle>(size);
+            long time = 0;
+            long price = 0;
+            for (int i = 0; i < size; i++) {
+                time += unZigZag(readVarLong(in));
+                long open = price = readPrice(in, price);
+                long high = price = readPrice(in, price);
+                long low = price = readPrice(in, price);
+                long close = price = readPrice(in, price);
+                candles.add(new Candle(time, Double.longBitsToDouble(open), Double.longBitsToDouble(high),
+                    Double.longBitsToDouble(low), Double.longBitsToDouble(close), unZigZag(readVarLong(in))));
+            }
+            if (in.hasRemaining()) {
+                throw new IllegalArgumentException(in.remaining() + " trailing bytes after candles");
+            }
+            return candles;
+        } catch (BufferUnderflowException | ArithmeticException e) {
+            throw new IllegalArgumentException("Truncated candle encoding", e);
+        }
+    }
+
+    /**
+     * Writes a header byte (leading zero bytes in the high nibble, significant byte count in
+     * the low one) and the significant bytes of the XOR; 0 alone stands for an unchanged price.
+     */
+    private static long writePrice(ByteArrayOutputStream out, long previous, double price) {
+        long bits = Double.doubleToRawLongBits(price);
+        long xor = bits ^ previous;
+        if (xor == 0) {
+            out.write(0);
+            return bits;
+        }
+        int leading = Long.numberOfLeadingZeros(xor) / Byte.SIZE;
+        int trailing = Long.numberOfTrailingZeros(xor) / Byte.SIZE;
+        int length = Long.BYTES - leading - trailing;
+        out.write(leading << 4 | length);
+        for (int i = length - 1; i >= 0; i--) {
+            out.write((int) (xor >>> (Byte.SIZE * (trailing + i))));
+        }
+        return bits;
+    }
+
+    private static long readPrice(ByteBuffer in, long previous) {
+        int header = in.get() & 0xFF;
+        if (header == 0) {
+            return previous;
+        }
+        int leading = header >>> 4;
+        int length = header & 0x0F;
+        int trailing = Long.BYTES - leading - length;
+        if (length == 0 || trailing < 0) {
+            throw new IllegalArgumentException("Invalid price header " + header);
+        }
+        long xor = 0;
+        for (int i = 0; i < length; i++) {
+            xor = xor << Byte.SIZE | (in.get() & 0xFF);
+        }
+        return previous ^ (xor << (Byte.SIZE * trailing));
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint longer than 64 bits");
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,93 @@
+package com.marketdata.infrastructure.cache;
+
+import com.marketdata.domain.model.DataVersion;
+import com.marketdata.domain.model.EpochNanos;
+import com.marketdata.domain.port.out.DataVersions;
+import com.marketdata.domain.port.out.SymbolDictionary;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-symbol write counters held in memory.
+ * <p>
+ * Every write bumps the symbol's live counter. Writes for events older than
+ * {@code sealAfter} (late corrections) also bump its history counter. Ranges ending before
+ * {@code now - sealAfter} are versioned by the history counter alone, so their ETags survive
+ * the steady stream of new ticks.
+ * <p>
+ * Counters start from a random per-instance epoch rather than zero, so a version seen
+ * before a restart or served by another instance never matches this instance's.
+ */
+public class InMemoryDataVersions implements DataVersions {
+
+    private final SymbolDictionary symbols;
+    private final long sealAfterNanos;
+    private final LongSupplier clock;
+    private final long epoch;
+    private volatile Counters[] counters = new Counters[16];
+
+    public InMemoryDataVersions(SymbolDictionary symbols, long sealAfterNanos) {
+        this(symbols, sealAfterNanos, EpochNanos::now, new SecureRandom().nextLong());
+    }
+
+    InMemoryDataVersions(SymbolDictionary symbols, long sealAfterNanos, LongSupplier clock, long epoch) {
+        this.symbols = symbols;
+        this.sealAfterNanos = sealAfterNanos;
+        this.clock = clock;
+        this.epoch = epoch;
+    }
+
+    @Override
+    public void recordWrite(int symbolId, long timestampNanos) {
+        var symbol = countersFor(symbolId);
+        symbol.live.incrementAndGet();
+        if (timestampNanos < clock.getAsLong() - sealAfterNanos) {
+            symbol.history.incrementAndGet();
+        }
+    }
+
+    @Override
+    public DataVersion versionOf(String symbol, long toEpochSec) {
+        int symbolId = symbols.find(symbol);
+        var current = counters;
+        var symbolCounters = symbolId < current.length ? current[symbolId] : null;
+        boolean sealed = EpochNanos.endOfEpochSecond(toEpochSec) < clock.getAsLong() - sealAfterNanos;
+        if (symbolCounters == null) {
+            return new DataVersion(epoch, sealed);
+        }
+        return new DataVersion(sealed ? symbolCounters.history.get() : symbolCounters.live.get(), sealed);
+    }
+
+    private Counters countersFor(int symbolId) {
+        var current = counters;
+        if (symbolId < current.length && current[symbolId] != null) {
+            return current[symbolId];
+        }
+        return createCounters(symbolId);
+    }
+
+    private synchronized Counters createCounters(int symbolId) {
+        var current = counters;
+        if (symbolId >= current.length) {
+            current = Arrays.copyOf(current, Math.max(symbolId + 1, current.length * 2));
+        }
+        if (current[symbolId] == null) {
+            current[symbolId] = new Counters(epoch);
+        }
+        counters = current;
+        return current[symbolId];
+    }
+
+    private static final class Counters {
+        final AtomicLong live;
+        final AtomicLong history;
+
+        Counters(long epoch) {
+            live = new AtomicLong(epoch);
+            history = new AtomicLong(epoch);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.marketdata.infrastructure.cache;
+
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.Range;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.SocketOptions;
+import io.lettuce.core.TimeoutOptions;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * {@link SharedCacheTier} on Redis.
+ * <p>
+ * Values are plain keys with a TTL. A group is a sorted set of its keys scored by expiry
+ * time; expired members are pruned on every put and skipped by {@link #keys(String)}, so
+ * a group stays as small as its live entries. Groups themselves do not expire.
+ * Puts are sent without waiting for the reply, so filling the shared tier adds no latency
+ * to the request that computed the value. Messages use Redis pub/sub, which is
+ * fire-and-forget: an instance that is disconnected when a message is sent misses it.
+ * <p>
+ * Redis being unreachable at startup does not fail the application: the tier starts
+ * disconnected, operations throw {@link IllegalStateException} so callers fall back as for
+ * any other failure, and connecting is retried every {@code reconnectInterval} in the
+ * background. Listeners subscribed meanwhile are attached once it connects. Once connected,
+ * Lettuce reconnects and resubscribes by itself.
+ */
+public class RedisSharedCacheTier implements SharedCacheTier {
+    private static final Logger logger = LoggerFactory.getLogger(RedisSharedCacheTier.class);
+
+    private static final RedisCodec<String, byte[]> CODEC = RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE);
+
+    private final RedisClient client;
+    private final String uri;
+    private final String channel;
+    private final List<RedisPubSubAdapter<String, byte[]>> listeners = new ArrayList<>();
+    private volatile StatefulRedisConnection<String, byte[]> connection;
+    private StatefulRedisPubSubConnection<String, byte[]> pubSub;
+    private ScheduledExecutorService reconnector;
+
+    /**
+     * @param uri Redis URI, e.g. {@code redis://localhost:6379}
+     * @param channel pub/sub channel for {@link #publish(byte[]) messages}
+     * @param timeout how long connecting or a command may take before it fails
+     * @param reconnectInterval delay between connection attempts while Redis is unreachable
+     */
+    public RedisSharedCacheTier(String uri, String channel, Duration timeout, Duration reconnectInterval) {
+        if (reconnectInterval.isNegative() || reconnectInterval.isZero()) {
+            throw new IllegalArgumentException("Reconnect interval must be positive: " + reconnectInterval);
+        }
+        var redisUri = RedisURI.create(uri);
+        redisUri.setTimeout(timeout);
+        this.client = RedisClient.create(redisUri);
+        client.setOptions(ClientOptions.builder()
+            .socketOptions(SocketOptions.builder().connectTimeout(timeout).build())
+            .timeoutOptions(TimeoutOptions.enabled(timeout))
+            .build());
+        this.uri = uri;
+        this.channel = channel;
+        if (!connect()) {
+            startReconnecting(reconnectInterval);
+        }
+    }
+
+    private synchronized void startReconnecting(Duration interval) {
+        reconnector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "shared-cache-reconnect");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reconnector.scheduleWithFixedDelay(() -> {
+            if (connect()) {
+                reconnector.shutdown();
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens both connections and subscribes the listeners registered so far.
+     *
+     * @return whether the tier is connected
+     */
+    private synchronized boolean connect() {
+        if (connection != null) {
+            return true;
+        }
+        StatefulRedisConnection<String, byte[]> commands = null;
+        try {
+            commands = client.connect(CODEC);
+            var subscriptions = client.connectPubSub(CODEC);
+            pubSub = subscriptions;
+            listeners.forEach(subscriptions::addListener);
+            if (!listeners.isEmpty()) {
+                subscriptions.sync().subscribe(channel);
+            }
+            connection = commands;
+            logger.info("Shared cache tier connected to {}", uri);
+            return true;
+        } catch (RuntimeException e) {
+            if (commands != null) {
+                commands.close();
+            }
+            if (pubSub != null) {
+                pubSub.close();
+                pubSub = null;
+            }
+            logger.warn("Shared cache tier cannot reach {}, retrying in the background: {}", uri, e.toString());
+            return false;
+        }
+    }
+
+    private StatefulRedisConnection<String, byte[]> connection() {
+        var current = connection;
+        if (current == null) {
+            throw new IllegalStateException("Shared cache tier is not connected to " + uri);
+        }
+        return current;
+    }
+
+    @Override
+    public byte[] get(String key) {
+        return connection().sync().get(key);
+    }
+
+    @Override
+    public void put(String group, String key, byte[] value, long ttlMillis) {
+        long now = System.currentTimeMillis();
+        var commands = connection().async();
+        commands.set(key, value, SetArgs.Builder.px(ttlMillis)).exceptionally(e -> {
+            logger.debug("Failed to store {} in the shared cache: {}", key, e.toString());
+            return null;
+        });
+        commands.zadd(group, (double) (now + ttlMillis), bytes(key));
+        commands.zremrangebyscore(group, Range.create(0L, now));
+    }
+
+    @Override
+    public Set<String> keys(String group) {
+        var members = connection().sync().zrangebyscore(group,
+            Range.from(Range.Boundary.including(System.currentTimeMillis()), Range.Boundary.unbounded()));
+        var keys = new LinkedHashSet<String>();
+        for (byte[] member : members) {
+            keys.add(new String(member, StandardCharsets.UTF_8));
+        }
+        return keys;
+    }
+
+    @Override
+    public void remove(String group, Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        var commands = connection().sync();
+        commands.del(keys.toArray(String[]::new));
+        commands.zrem(group, keys.stream().map(RedisSharedCacheTier::bytes).toArray(byte[][]::new));
+    }
+
+    @Override
+    public void publish(byte[] message) {
+        connection().sync().publish(channel, message);
+    }
+
+    /**
+     * Subscribes now if connected, otherwise once the tier connects.
+     */
+    @Override
+    public synchronized void subscribe(Consumer<byte[]> listener) {
+        var adapter = new RedisPubSubAdapter<String, byte[]>() {
+            @Override
+            public void message(String messageChannel, byte[] message) {
+                if (channel.equals(messageChannel)) {
+                    listener.accept(message);
+                }
+            }
+        };
+        listeners.add(adapter);
+        if (connection != null) {
+            pubSub.addListener(adapter);
+            pubSub.sync().subscribe(channel);
+        }
+    }
+
+    private static byte[] bytes(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (reconnector != null) {
+            reconnector.shutdownNow();
+        }
+        if (connection != null) {
+            pubSub.close();
+            connection.close();
+        }
+        client.shutdown();
+    }
+}
@@ -0,0 +1,43 @@
+package com.marketdata.infrastructure.cache;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Cache storage shared by every instance of the service.
+ * <p>
+ * Entries are filed under a group so that all live entries of a group can be listed for
+ * invalidation without scanning the store. Messages published on the tier reach every
+ * subscriber, the publisher's own included. Implementations may throw unchecked exceptions
+ * when the store is unreachable; callers treat the tier as an optimisation and carry on.
+ */
+public interface SharedCacheTier extends AutoCloseable {
+
+    /**
+     * @return the stored value, or {@code null} if absent or expired
+     */
+    byte[] get(String key);
+
+    /**
+     * Stores {@code value} for {@code ttlMillis} and files {@code key} under {@code group}.
+     */
+    void put(String group, String key, byte[] value, long ttlMillis);
+
+    /**
+     * @return keys filed under {@code group} that have not expired
+     */
+    Set<String> keys(String group);
+
+    /**
+     * Deletes {@code keys} and removes them from {@code group}.
+     */
+    void remove(String group, Collection<String> keys);
+
+    void publish(byte[] message);
+
+    void subscribe(Consumer<byte[]> listener);
+
+    @Override
+    void close();
+}
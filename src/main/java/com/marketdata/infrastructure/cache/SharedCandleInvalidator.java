@@ -0,0 +1,182 @@
+package com.marketdata.infrastructure.cache;
+
+import com.marketdata.domain.model.EpochNanos;
+import com.marketdata.domain.port.out.CandleInvalidator;
+import com.marketdata.domain.port.out.SymbolDictionary;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evicts candle ranges containing a late event from the local near-cache, the shared tier
+ * and, through an invalidation message, the near-caches of every other instance.
+ * <p>
+ * The near-cache is evicted on the calling (ingestion) thread. The shared tier is not:
+ * late events are collected per symbol as the epoch seconds they fall in, and a background
+ * flush every {@code flushIntervalMillis} lists each symbol's shared keys once, removes the
+ * ones covering any of its seconds and publishes one message for them. A burst of late
+ * ticks therefore costs one round of shared-tier calls per symbol rather than one per tick.
+ * <p>
+ * Messages carry the sending instance's ID, the symbol and its seconds; an instance
+ * ignores its own messages since it has already evicted locally. A message that is lost
+ * leaves a stale near-cache entry on the receiving instance until it expires, as does a
+ * failed flush in the shared tier.
+ */
+public class SharedCandleInvalidator implements CandleInvalidator, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(SharedCandleInvalidator.class);
+
+    private final CandleInvalidator near;
+    private final SharedCacheTier shared;
+    private final SymbolDictionary symbols;
+    private final long flushIntervalMillis;
+    private final String instanceId;
+    // Sets are only touched inside compute() until flush() removes them
+    private final ConcurrentHashMap<Integer, Set<Long>> pending = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+
+    /**
+     * Nothing is subscribed or flushed until {@link #start()}.
+     *
+     * @param near evicts ranges from this instance's near-cache
+     * @param flushIntervalMillis delay between flushes of collected invalidations to the shared tier
+     */
+    public SharedCandleInvalidator(CandleInvalidator near, SharedCacheTier shared, SymbolDictionary symbols,
+                                   long flushIntervalMillis) {
+        if (flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Invalidation flush interval must be positive: " + flushIntervalMillis);
+        }
+        this.near = near;
+        this.shared = shared;
+        this.symbols = symbols;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.instanceId = UUID.randomUUID().toString();
+    }
+
+    /**
+     * Subscribes to invalidation messages from other instances and starts the flush.
+     */
+    @PostConstruct
+    public synchronized void start() {
+        if (flusher != null) {
+            throw new IllegalStateException("Shared candle invalidation already started");
+        }
+        shared.subscribe(this::onMessage);
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "candle-invalidation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void invalidate(int symbolId, long timestampNanos) {
+        invalidateAll(Map.of(symbolId, List.of(timestampNanos)));
+    }
+
+    @Override
+    public void invalidateAll(Map<Integer, ? extends Collection<Long>> timestampsNanos) {
+        near.invalidateAll(timestampsNanos);
+        timestampsNanos.forEach((symbolId, timestamps) -> pending.compute(symbolId, (id, seconds) -> {
+            var collected = seconds == null ? new HashSet<Long>() : seconds;
+            for (long timestampNanos : timestamps) {
+                collected.add(EpochNanos.toEpochSecond(timestampNanos));
+            }
+            return collected;
+        }));
+    }
+
+    /**
+     * Evicts the shared ranges covering the collected seconds and tells the other instances.
+     */
+    void flush() {
+        for (var symbolId : pending.keySet()) {
+            var seconds = pending.remove(symbolId);
+            if (seconds == null) {
+                continue;
+            }
+            String symbol = symbols.symbolOf(symbolId);
+            try {
+                String group = TwoLevelCandleCache.group(symbol);
+                var stale = shared.keys(group).stream()
+                    .filter(key -> seconds.stream().anyMatch(second -> TwoLevelCandleCache.covers(key, second)))
+                    .toList();
+                shared.remove(group, stale);
+                shared.publish(message(instanceId, symbol, seconds));
+                logger.debug("Evicted {} shared candle ranges for {} covering {}", stale.size(), symbol, seconds);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to invalidate shared candles for {} at {}: {}", symbol, seconds, e.toString());
+            }
+        }
+    }
+
+    void onMessage(byte[] message) {
+        try (var in = new DataInputStream(new ByteArrayInputStream(message))) {
+            String sender = in.readUTF();
+            String symbol = in.readUTF();
+            var seconds = new long[in.readInt()];
+            for (int i = 0; i < seconds.length; i++) {
+                seconds[i] = in.readLong();
+            }
+            if (sender.equals(instanceId)) {
+                return;
+            }
+            int symbolId = symbols.find(symbol);
+            if (symbolId != SymbolDictionary.NO_ID) {
+                var timestamps = new ArrayList<Long>(seconds.length);
+                for (long second : seconds) {
+                    timestamps.add(EpochNanos.ofEpochSecond(second));
+                }
+                near.invalidateAll(Map.of(symbolId, timestamps));
+            }
+        } catch (IOException | NegativeArraySizeException e) {
+            logger.warn("Ignored malformed candle invalidation message: {}", e.toString());
+        }
+    }
+
+    static byte[] message(String sender, String symbol, Collection<Long> seconds) {
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeUTF(sender);
+            out.writeUTF(symbol);
+            out.writeInt(seconds.size());
+            for (long second : seconds) {
+                out.writeLong(second);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Stops the background flush and flushes what has been collected since the last one.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (flusher != null) {
+                flusher.shutdownNow();
+            }
+        }
+        flush();
+    }
+}
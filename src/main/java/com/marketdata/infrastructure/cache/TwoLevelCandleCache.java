@@ -0,0 +1,189 @@
+package com.marketdata.infrastructure.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.marketdata.domain.model.Candle;
+import com.marketdata.domain.model.Timeframe;
+import com.marketdata.domain.model.TimeframeMapper;
+import com.marketdata.domain.port.out.SymbolDictionary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code candles} cache with a local Caffeine near-cache in front of a {@link SharedCacheTier}.
+ * <p>
+ * Lookups try the near-cache first, then the shared tier, copying shared hits into the
+ * near-cache; values computed on a miss are written to both. Shared entries are
+ * {@link CandleCodec}-encoded and keyed by symbol rather than dictionary ID, so instances
+ * with different dictionaries agree on keys. They expire after the same TTL as the
+ * near-cache, so a value copied from the shared tier can be served for up to twice
+ * that long. Calendar timeframes in non-UTC zones or with a session offset stay near-only.
+ * <p>
+ * The shared tier is an optimisation: when it fails, lookups fall back to computing the
+ * value. Shared lookups are timed as {@code marketdata.cache.shared} tagged by outcome.
+ * {@link #clear()} only clears the near-cache.
+ */
+public class TwoLevelCandleCache extends CaffeineCache {
+    private static final Logger logger = LoggerFactory.getLogger(TwoLevelCandleCache.class);
+
+    private static final String PREFIX = "candles:";
+
+    private final SharedCacheTier shared;
+    private final SymbolDictionary symbols;
+    private final long ttlMillis;
+    private final Timer hits;
+    private final Timer misses;
+    private final Timer errors;
+
+    /**
+     * @param ttl time the near-cache keeps entries after write, used for shared entries too
+     */
+    public TwoLevelCandleCache(String name, Cache<Object, Object> near, Duration ttl, SharedCacheTier shared,
+                               SymbolDictionary symbols, MeterRegistry meterRegistry) {
+        super(name, near);
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Near-cache TTL must be positive: " + ttl);
+        }
+        this.shared = shared;
+        this.symbols = symbols;
+        this.ttlMillis = ttl.toMillis();
+        this.hits = timer(meterRegistry, "hit");
+        this.misses = timer(meterRegistry, "miss");
+        this.errors = timer(meterRegistry, "error");
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("marketdata.cache.shared")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Object value = super.lookup(key);
+        if (value != null) {
+            return value;
+        }
+        List<Candle> candles = lookupShared(key);
+        if (candles != null) {
+            getNativeCache().put(key, candles);
+        }
+        return candles;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return super.get(key, () -> {
+            List<Candle> candles = lookupShared(key);
+            if (candles != null) {
+                return (T) candles;
+            }
+            T value = valueLoader.call();
+            putShared(key, value);
+            return value;
+        });
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        super.put(key, value);
+        putShared(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        super.evict(key);
+        String symbol = symbolOf(key);
+        String sharedKey = symbol == null ? null : sharedKey(symbol, (CandleCacheKey) key);
+        if (sharedKey != null) {
+            try {
+                shared.remove(group(symbol), List.of(sharedKey));
+            } catch (RuntimeException e) {
+                logger.warn("Failed to evict {} from the shared cache: {}", sharedKey, e.toString());
+            }
+        }
+    }
+
+    private List<Candle> lookupShared(Object key) {
+        String symbol = symbolOf(key);
+        String sharedKey = symbol == null ? null : sharedKey(symbol, (CandleCacheKey) key);
+        if (sharedKey == null) {
+            return null;
+        }
+        long started = System.nanoTime();
+        try {
+            byte[] bytes = shared.get(sharedKey);
+            var candles = bytes == null ? null : CandleCodec.decode(bytes);
+            (candles == null ? misses : hits).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            return candles;
+        } catch (RuntimeException e) {
+            errors.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            logger.warn("Shared cache lookup of {} failed: {}", sharedKey, e.toString());
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void putShared(Object key, Object value) {
+        String symbol = symbolOf(key);
+        String sharedKey = symbol == null ? null : sharedKey(symbol, (CandleCacheKey) key);
+        if (sharedKey == null || !(value instanceof List<?>)) {
+            return;
+        }
+        try {
+            shared.put(group(symbol), sharedKey, CandleCodec.encode((List<Candle>) value), ttlMillis);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to store {} in the shared cache: {}", sharedKey, e.toString());
+        }
+    }
+
+    private String symbolOf(Object key) {
+        if (key instanceof CandleCacheKey candleKey && candleKey.symbolId() != SymbolDictionary.NO_ID) {
+            return symbols.symbolOf(candleKey.symbolId());
+        }
+        return null;
+    }
+
+    /**
+     * Shared-tier group holding every cached range of {@code symbol}.
+     */
+    static String group(String symbol) {
+        return PREFIX + symbol;
+    }
+
+    /**
+     * {@code candles:<symbol>:<timeframe>:<from>:<to>}, or {@code null} for timeframes that
+     * stay near-only. Fixed timeframes are written as length and offset in seconds.
+     */
+    static String sharedKey(String symbol, CandleCacheKey key) {
+        Timeframe timeframe = key.timeframe();
+        String timeframeId;
+        if (!timeframe.isCalendar()) {
+            timeframeId = timeframe.durationSeconds() + "s" + timeframe.offsetSeconds();
+        } else if (!"custom".equals(TimeframeMapper.labelOf(timeframe))) {
+            timeframeId = timeframe.toString();
+        } else {
+            return null;
+        }
+        return group(symbol) + ":" + timeframeId + ":" + key.from() + ":" + key.to();
+    }
+
+    /**
+     * Whether the range of a key built by {@link #sharedKey} contains {@code epochSecond}.
+     */
+    static boolean covers(String sharedKey, long epochSecond) {
+        int toStart = sharedKey.lastIndexOf(':');
+        int fromStart = sharedKey.lastIndexOf(':', toStart - 1);
+        long from = Long.parseLong(sharedKey, fromStart + 1, toStart, 10);
+        long to = Long.parseLong(sharedKey, toStart + 1, sharedKey.length(), 10);
+        return epochSecond >= from && epochSecond <= to;
+    }
+}
@@ -0,0 +1,92 @@
+package com.marketdata.infrastructure.cluster;
+
+import com.marketdata.domain.port.out.SymbolOwnership;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Assigns symbols to nodes by consistent hashing.
+ * <p>
+ * Each node is placed on a 64-bit ring at {@code virtualNodes} points; a symbol belongs to
+ * the first point at or after its own hash, wrapping around. Adding or removing a node
+ * moves only the symbols adjacent to its points, about {@code 1/N} of them. Hashes are
+ * computed from UTF-8 bytes, so every node given the same member list computes the same
+ * assignment. The points are kept in a sorted array, so a lookup is one hash and a
+ * binary search. A ring never changes once built, so it keeps the default
+ * {@link #version()}; membership changes mean building a new ring.
+ */
+public class ConsistentHashRing implements SymbolOwnership {
+
+    private final String self;
+    private final long[] points;
+    private final String[] owners;
+
+    /**
+     * @param self base URL of this node; must be one of {@code nodes}
+     * @param nodes base URLs of all nodes, including this one
+     * @param virtualNodes points per node; more points spread symbols more evenly
+     */
+    public ConsistentHashRing(String self, List<String> nodes, int virtualNodes) {
+        var members = new LinkedHashSet<>(nodes);
+        if (!members.contains(self)) {
+            throw new IllegalArgumentException("Cluster nodes " + nodes + " do not include this node " + self);
+        }
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Virtual nodes must be positive: " + virtualNodes);
+        }
+        this.self = self;
+        int size = members.size() * virtualNodes;
+        var entries = new Entry[size];
+        int i = 0;
+        for (String node : members) {
+            for (int v = 0; v < virtualNodes; v++) {
+                entries[i++] = new Entry(hash(node + "#" + v), node);
+            }
+        }
+        // Ties (astronomically rare) are broken by node name so all nodes agree
+        Arrays.sort(entries, (a, b) -> a.point != b.point ? Long.compare(a.point, b.point) : a.node.compareTo(b.node));
+        this.points = new long[size];
+        this.owners = new String[size];
+        for (i = 0; i < size; i++) {
+            points[i] = entries[i].point;
+            owners[i] = entries[i].node;
+        }
+    }
+
+    @Override
+    public String ownerOf(String symbol) {
+        int index = Arrays.binarySearch(points, hash(symbol));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    @Override
+    public boolean isLocal(String symbol) {
+        return ownerOf(symbol).equals(self);
+    }
+
+    /**
+     * FNV-1a, then the MurmurHash3 finalizer so that similar strings (node#1, node#2) land
+     * far apart on the ring.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb93fe1a85ec3L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private record Entry(long point, String node) { }
+}
@@ -0,0 +1,30 @@
+package com.marketdata.infrastructure.repository;
+
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+
+/**
+ * Detects the database behind a DataSource for dialect-specific SQL and DDL.
+ */
+final class DatabaseProduct {
+
+    static final String POSTGRESQL = "PostgreSQL";
+    static final String H2 = "H2";
+
+    private DatabaseProduct() {
+    }
+
+    /**
+     * @return JDBC product name (e.g. {@code PostgreSQL}, {@code H2}), or {@code unknown}
+     */
+    static String of(DataSource dataSource) {
+        try {
+            return JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        } catch (MetaDataAccessException e) {
+            return "unknown";
+        }
+    }
+}
@@ -5,20 +5,21 @@ import jakarta.persistence.*;
 
 /**
  * JPA entity for storing raw bid/ask events.
- * Indexed by symbol and timestamp for efficient querying.
+ * The symbol is stored as its dictionary ID (see {@link SymbolEntity}) and the timestamp as
+ * epoch nanoseconds, keeping rows and indexes compact. Indexes are managed by
+ * {@link EventSchemaManager} and the PostgreSQL migrations.
+ * The generated {@code id} breaks ties between events with identical timestamps.
  */
 @Entity
-@Table(name = "bid_ask_events", indexes = {
-    @Index(name = "idx_symbol_timestamp", columnList = "symbol, timestamp")
-})
+@Table(name = "bid_ask_events")
 public class EventEntity {
     
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
-    @Column(nullable = false, length = 20)
-    private String symbol;
+    @Column(name = "symbol_id", nullable = false)
+    private int symbolId;
     
     @Column(nullable = false)
     private double bid;
@@ -26,35 +27,38 @@ public class EventEntity {
     @Column(nullable = false)
     private double ask;
     
-    @Column(name = "timestamp", nullable = false)
-    private long timestamp;
+    @Column(name = "timestamp_nanos", nullable = false)
+    private long timestampNanos;
     
     protected EventEntity() {
     }
     
-    public EventEntity(String symbol, double bid, double ask, long timestamp) {
-        this.symbol = symbol;
+    public EventEntity(int symbolId, double bid, double ask, long timestampNanos) {
+        this.symbolId = symbolId;
         this.bid = bid;
         this.ask = ask;
-        this.timestamp = timestamp;
+        this.timestampNanos = timestampNanos;
     }
     
-    public static EventEntity from(BidAskEvent event) {
+    public static EventEntity from(BidAskEvent event, int symbolId) {
         return new EventEntity(
-            event.symbol(),
+            symbolId,
             event.bid(),
             event.ask(),
-            event.timestamp()
+            event.timestampNanos()
         );
     }
     
-    public BidAskEvent toDomain() {
-        return new BidAskEvent(symbol, bid, ask, timestamp);
+    /**
+     * @param symbol the symbol for {@link #getSymbolId()}, resolved by the caller
+     */
+    public BidAskEvent toDomain(String symbol) {
+        return new BidAskEvent(symbol, bid, ask, timestampNanos);
     }
     
     public Long getId() { return id; }
-    public String getSymbol() { return symbol; }
+    public int getSymbolId() { return symbolId; }
     public double getBid() { return bid; }
     public double getAsk() { return ask; }
-    public long getTimestamp() { return timestamp; }
+    public long getTimestampNanos() { return timestampNanos; }
 }
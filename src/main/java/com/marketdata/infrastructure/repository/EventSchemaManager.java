@@ -0,0 +1,123 @@
+package com.marketdata.infrastructure.repository;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Indexes on {@code bid_ask_events} that JPA annotations cannot express or that should
+ * only exist when explicitly enabled.
+ * <p>
+ * On PostgreSQL the covering and uniqueness indexes come from the Flyway migrations, which
+ * build them concurrently; here they are only checked for, and the optional BRIN index is
+ * built concurrently too. Other databases (H2 in development) get them created directly.
+ * Depends on {@link JpaEventRepository} so it runs after Hibernate has created the table.
+ */
+@Component
+public class EventSchemaManager {
+    private static final Logger logger = LoggerFactory.getLogger(EventSchemaManager.class);
+
+    static final String TICK_UNIQUE_INDEX = "uq_bid_ask_events_tick";
+    static final String COVERING_INDEX = "idx_bid_ask_events_covering";
+    static final String BRIN_INDEX = "idx_bid_ask_events_timestamp_brin";
+    static final String SYMBOL_TIMESTAMP_INDEX = "idx_symbol_timestamp";
+
+    private static final String DELETE_DUPLICATE_TICKS_SQL = """
+        DELETE FROM bid_ask_events e
+        WHERE EXISTS (
+            SELECT 1 FROM bid_ask_events d
+            WHERE d.symbol_id = e.symbol_id
+              AND d.timestamp_nanos = e.timestamp_nanos
+              AND d.bid = e.bid
+              AND d.ask = e.ask
+              AND d.id < e.id)
+        """;
+
+    private static final String VALID_INDEX_SQL = """
+        SELECT COUNT(*) FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid
+        WHERE c.relname = ? AND i.indisvalid
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean dedupGuard;
+    private final boolean coveringIndex;
+    private final boolean brinIndex;
+
+    public EventSchemaManager(JpaEventRepository jpaRepository, JdbcTemplate jdbcTemplate,
+                              @Value("${marketdata.ingestion.dedup.db-guard:false}") boolean dedupGuard,
+                              @Value("${marketdata.schema.covering-index:true}") boolean coveringIndex,
+                              @Value("${marketdata.schema.brin-index:false}") boolean brinIndex) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dedupGuard = dedupGuard;
+        this.coveringIndex = coveringIndex;
+        this.brinIndex = brinIndex;
+    }
+
+    @PostConstruct
+    public void apply() {
+        String product = DatabaseProduct.of(jdbcTemplate.getDataSource());
+        if (DatabaseProduct.POSTGRESQL.equals(product)) {
+            applyPostgres();
+        } else {
+            applyGeneric(product);
+        }
+    }
+
+    /**
+     * Never blocks writes: migrated indexes are only verified, and BRIN is built concurrently
+     * (which needs autocommit, the pool's default).
+     */
+    private void applyPostgres() {
+        if (coveringIndex) {
+            requireMigrated(COVERING_INDEX);
+        }
+        if (dedupGuard) {
+            requireMigrated(TICK_UNIQUE_INDEX);
+        }
+        if (brinIndex) {
+            // Tiny index for append-only data where timestamps follow physical row order
+            jdbcTemplate.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + BRIN_INDEX
+                + " ON bid_ask_events USING BRIN (timestamp_nanos)");
+            logger.info("BRIN timestamp index enabled ({})", BRIN_INDEX);
+        }
+    }
+
+    private void requireMigrated(String index) {
+        Integer valid = jdbcTemplate.queryForObject(VALID_INDEX_SQL, Integer.class, index);
+        if (valid == null || valid == 0) {
+            logger.warn("Index {} is missing or invalid; apply the Flyway migrations (db/migration/postgresql)", index);
+        } else {
+            logger.info("Index {} present", index);
+        }
+    }
+
+    private void applyGeneric(String product) {
+        if (coveringIndex) {
+            // Every column the candle and stream queries read, so they can be answered with
+            // index-only scans instead of a heap visit per tick
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + COVERING_INDEX
+                + " ON bid_ask_events (symbol_id, timestamp_nanos, id, bid, ask)");
+            logger.info("Covering index enabled ({})", COVERING_INDEX);
+        } else {
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + SYMBOL_TIMESTAMP_INDEX
+                + " ON bid_ask_events (symbol_id, timestamp_nanos)");
+        }
+        if (brinIndex) {
+            logger.warn("BRIN index requested but not supported by {}; skipped", product);
+        }
+        if (dedupGuard) {
+            // Last line of defence against replayed ticks that fall outside the in-memory dedup
+            // window. Duplicates stored while the guard was off would make the build fail.
+            int removed = jdbcTemplate.update(DELETE_DUPLICATE_TICKS_SQL);
+            if (removed > 0) {
+                logger.info("Removed {} duplicate ticks before enabling the uniqueness guard", removed);
+            }
+            jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + TICK_UNIQUE_INDEX
+                + " ON bid_ask_events (symbol_id, timestamp_nanos, bid, ask)");
+            logger.info("Tick uniqueness guard enabled ({})", TICK_UNIQUE_INDEX);
+        }
+    }
+}
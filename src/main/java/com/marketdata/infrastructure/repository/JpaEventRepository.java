@@ -1,6 +1,8 @@
 package com.marketdata.infrastructure.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -16,14 +18,19 @@ public interface JpaEventRepository extends JpaRepository<EventEntity, Long> {
      * Find events by symbol and timestamp range.
      * Used for Java-based candle aggregation.
      *
-     * @param symbol Trading symbol
-     * @param from Start time in seconds (inclusive)
-     * @param to End time in seconds (inclusive)
-     * @return List of events sorted by timestamp
+     * @param symbolId Symbol dictionary ID
+     * @param fromNanos Start time in epoch nanoseconds (inclusive)
+     * @param toNanos End time in epoch nanoseconds (inclusive)
+     * @return List of events sorted by timestamp, then insertion order
      */
-    List<EventEntity> findBySymbolAndTimestampBetween(
-        String symbol, 
-        long from, 
-        long to
+    @Query("""
+        SELECT e FROM EventEntity e
+        WHERE e.symbolId = :symbolId AND e.timestampNanos BETWEEN :fromNanos AND :toNanos
+        ORDER BY e.timestampNanos, e.id
+        """)
+    List<EventEntity> findBySymbolIdAndTimestampNanosBetween(
+        @Param("symbolId") int symbolId,
+        @Param("fromNanos") long fromNanos,
+        @Param("toNanos") long toNanos
     );
 }
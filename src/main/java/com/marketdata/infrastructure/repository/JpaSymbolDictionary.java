@@ -0,0 +1,109 @@
+package com.marketdata.infrastructure.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.marketdata.domain.port.out.SymbolDictionary;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Symbol dictionary backed by the {@code symbols} table.
+ * Lookups are served from memory; the database is only touched the first time
+ * a symbol (or ID) is seen by this instance. Misses are remembered briefly too, so
+ * queries for unknown symbols do not reach the database on every request; another
+ * instance registering such a symbol becomes visible here once the miss expires.
+ */
+@Component
+public class JpaSymbolDictionary implements SymbolDictionary {
+
+    static final Duration MISS_TTL = Duration.ofSeconds(5);
+    static final int MAX_MISSES = 10_000;
+
+    private final JpaSymbolRepository jpaRepository;
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final Cache<String, Boolean> misses = Caffeine.newBuilder()
+        .maximumSize(MAX_MISSES)
+        .expireAfterWrite(MISS_TTL)
+        .build();
+    private volatile String[] symbols = new String[16];
+
+    public JpaSymbolDictionary(JpaSymbolRepository jpaRepository) {
+        this.jpaRepository = jpaRepository;
+    }
+
+    @Override
+    public int idOf(String symbol) {
+        Integer id = ids.get(symbol);
+        return id != null ? id : register(symbol);
+    }
+
+    @Override
+    public int find(String symbol) {
+        Integer id = ids.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        if (misses.getIfPresent(symbol) != null) {
+            return NO_ID;
+        }
+        var entity = jpaRepository.findBySymbol(symbol);
+        if (entity.isEmpty()) {
+            misses.put(symbol, Boolean.TRUE);
+            return NO_ID;
+        }
+        return remember(entity.get());
+    }
+
+    @Override
+    public String symbolOf(int id) {
+        var known = symbols;
+        if (id > 0 && id < known.length && known[id] != null) {
+            return known[id];
+        }
+        return jpaRepository.findById(id)
+            .map(entity -> symbols[remember(entity)])
+            .orElseThrow(() -> new IllegalArgumentException("Unknown symbol id: " + id));
+    }
+
+    /**
+     * Registers a new symbol. Synchronized so that concurrent first sightings of the
+     * same symbol insert a single row; a concurrent insert from another instance is
+     * resolved by re-reading the row that won.
+     */
+    private synchronized int register(String symbol) {
+        Integer id = ids.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        var entity = jpaRepository.findBySymbol(symbol).orElseGet(() -> insert(symbol));
+        return remember(entity);
+    }
+
+    private SymbolEntity insert(String symbol) {
+        try {
+            return jpaRepository.save(new SymbolEntity(symbol));
+        } catch (DataIntegrityViolationException e) {
+            return jpaRepository.findBySymbol(symbol).orElseThrow(() -> e);
+        }
+    }
+
+    private synchronized int remember(SymbolEntity entity) {
+        int id = entity.getId();
+        var known = symbols;
+        if (id >= known.length) {
+            known = Arrays.copyOf(known, Math.max(id + 1, known.length * 2));
+        }
+        if (known[id] == null) {
+            known[id] = entity.getSymbol();
+        }
+        symbols = known;
+        ids.putIfAbsent(known[id], id);
+        misses.invalidate(known[id]);
+        return id;
+    }
+}
@@ -0,0 +1,15 @@
+package com.marketdata.infrastructure.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * JPA repository for the symbol dictionary table.
+ */
+@Repository
+public interface JpaSymbolRepository extends JpaRepository<SymbolEntity, Integer> {
+
+    Optional<SymbolEntity> findBySymbol(String symbol);
+}
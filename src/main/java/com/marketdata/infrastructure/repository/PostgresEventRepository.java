@@ -2,89 +2,359 @@ package com.marketdata.infrastructure.repository;
 
 import com.marketdata.domain.model.BidAskEvent;
 import com.marketdata.domain.model.Candle;
+import com.marketdata.domain.model.EpochNanos;
+import com.marketdata.domain.model.EventColumns;
 import com.marketdata.domain.model.Timeframe;
+import com.marketdata.domain.model.TimeframeMapper;
 import com.marketdata.domain.port.out.EventRepository;
+import com.marketdata.domain.port.out.SymbolDictionary;
+import com.marketdata.domain.service.CandleAggregator;
+import com.marketdata.infrastructure.cache.CandleCacheKeyGenerator;
+import com.marketdata.jfr.HistoryQueryEvent;
+import com.marketdata.jfr.RepositoryCallEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * Stores bid/ask events in PostgreSQL database.
  * Provides SQL-based candle aggregation for efficient querying.
+ * Writes and sequence lookups use the primary; reads go where the {@link ReadRouter} sends them.
  */
 @Component
 @Profile({"postgres", "default"})
 public class PostgresEventRepository implements EventRepository {
+    private static final Logger logger = LoggerFactory.getLogger(PostgresEventRepository.class);
+
+    /** Target reported in JFR for calls on the write pool. */
+    private static final String WRITE_TARGET = "write";
+    
+    static final String STREAM_EVENTS_SQL = """
+        SELECT bid, ask, timestamp_nanos
+        FROM bid_ask_events
+        WHERE symbol_id = :symbolId
+          AND timestamp_nanos >= :fromNanos
+          AND timestamp_nanos <= :toNanos
+        ORDER BY timestamp_nanos, id
+        """;
+    
+    static final String STREAM_EVENTS_BACKWARD_SQL = """
+        SELECT bid, ask, timestamp_nanos
+        FROM bid_ask_events
+        WHERE symbol_id = :symbolId
+          AND timestamp_nanos >= :fromNanos
+          AND timestamp_nanos <= :toNanos
+        ORDER BY timestamp_nanos DESC, id DESC
+        """;
     
-    private static final String AGGREGATE_CANDLES_SQL = """
-        WITH bucketed_events AS (
-            SELECT
-                (timestamp / :intervalSeconds) * :intervalSeconds AS bucket_time,
-                bid,
-                ask,
-                timestamp,
-                ROW_NUMBER() OVER (PARTITION BY (timestamp / :intervalSeconds) ORDER BY timestamp) AS rn_first,
-                ROW_NUMBER() OVER (PARTITION BY (timestamp / :intervalSeconds) ORDER BY timestamp DESC) AS rn_last
-            FROM bid_ask_events
-            WHERE symbol = :symbol
-              AND timestamp >= :from
-              AND timestamp <= :to
-        )
-        SELECT
-            bucket_time,
-            (MAX(CASE WHEN rn_first = 1 THEN bid END) + MAX(CASE WHEN rn_first = 1 THEN ask END)) / 2.0 AS open,
-            MAX((bid + ask) / 2.0) AS high,
-            MIN((bid + ask) / 2.0) AS low,
-            (MAX(CASE WHEN rn_last = 1 THEN bid END) + MAX(CASE WHEN rn_last = 1 THEN ask END)) / 2.0 AS close,
-            COUNT(*) AS volume
-        FROM bucketed_events
-        GROUP BY bucket_time
-        ORDER BY bucket_time
+    static final String EARLIEST_SINCE_SQL = """
+        SELECT symbol_id, MIN(timestamp_nanos) AS earliest
+        FROM bid_ask_events
+        WHERE id > :sequence
+        GROUP BY symbol_id
         """;
     
     private final JpaEventRepository jpaRepository;
     private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ReadRouter reads;
+    private final SymbolDictionary symbols;
+    private final SqlAggregationStrategy strategy;
+    private final MeterRegistry meterRegistry;
+    private final boolean dedupGuard;
+    private final Timer saveTimer;
+    private final Timer queryTimer;
+    private final Timer streamTimer;
+    private final Timer streamBackwardTimer;
+    
+    public PostgresEventRepository(JpaEventRepository jpaRepository, NamedParameterJdbcTemplate jdbcTemplate,
+                                   SymbolDictionary symbols, int fetchSize, String strategy) {
+        this(jpaRepository, jdbcTemplate, symbols, fetchSize, strategy, Metrics.globalRegistry);
+    }
+    
+    /**
+     * Reads from the primary through {@code jdbcTemplate}'s data source.
+     */
+    public PostgresEventRepository(JpaEventRepository jpaRepository, NamedParameterJdbcTemplate jdbcTemplate,
+                                   SymbolDictionary symbols, int fetchSize, String strategy,
+                                   MeterRegistry meterRegistry) {
+        this(jpaRepository, jdbcTemplate, symbols,
+            ReadRouter.primaryOnly(jdbcTemplate.getJdbcTemplate().getDataSource(), fetchSize), strategy,
+            meterRegistry, false);
+    }
     
-    public PostgresEventRepository(JpaEventRepository jpaRepository, NamedParameterJdbcTemplate jdbcTemplate) {
+    /**
+     * Operations are timed as {@code marketdata.repository} tagged by operation; candle
+     * aggregation is also tagged by timeframe and only timed on cache misses.
+     */
+    @Autowired
+    public PostgresEventRepository(JpaEventRepository jpaRepository, NamedParameterJdbcTemplate jdbcTemplate,
+                                   SymbolDictionary symbols, ReadRouter reads,
+                                   @Value("${marketdata.query.sql-strategy:auto}") String strategy,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${marketdata.ingestion.dedup.db-guard:false}") boolean dedupGuard) {
         this.jpaRepository = jpaRepository;
         this.jdbcTemplate = jdbcTemplate;
+        this.symbols = symbols;
+        this.reads = reads;
+        this.strategy = SqlAggregationStrategy.resolve(strategy, jdbcTemplate.getJdbcTemplate().getDataSource());
+        logger.info("SQL candle aggregation strategy: {}", this.strategy);
+        this.meterRegistry = meterRegistry;
+        this.dedupGuard = dedupGuard;
+        this.saveTimer = timer("save");
+        this.queryTimer = timer("query");
+        this.streamTimer = timer("stream");
+        this.streamBackwardTimer = timer("stream-backward");
+    }
+    
+    private Timer timer(String operation) {
+        return Timer.builder("marketdata.repository")
+            .tag("operation", operation)
+            .register(meterRegistry);
     }
     
+    /**
+     * Duplicate ticks rejected by the optional uniqueness guard (see {@link EventSchemaManager})
+     * are dropped rather than failing ingestion. Any other integrity violation is rethrown.
+     */
     @Override
     public void save(BidAskEvent event) {
-        jpaRepository.save(EventEntity.from(event));
+        save(symbols.idOf(event.symbol()), event);
+    }
+
+    @Override
+    public void save(int symbolId, BidAskEvent event) {
+        long second = EpochNanos.toEpochSecond(event.timestampNanos());
+        var call = RepositoryCallEvent.start("save", event.symbol(), second, second);
+        saveTimer.record(() -> saveEntity(symbolId, event));
+        call.finish(WRITE_TARGET, 1);
+    }
+    
+    private void saveEntity(int symbolId, BidAskEvent event) {
+        try {
+            jpaRepository.save(EventEntity.from(event, symbolId));
+        } catch (DataIntegrityViolationException e) {
+            if (!dedupGuard || !violates(e, EventSchemaManager.TICK_UNIQUE_INDEX)) {
+                throw e;
+            }
+            logger.debug("Dropped duplicate tick: {} at {}", event.symbol(), event.timestampNanos());
+        }
+    }
+    
+    /**
+     * Whether the named constraint caused the failure. Drivers report it in the message
+     * (PostgreSQL quotes it, H2 qualifies it with the schema), so the message is searched.
+     */
+    private static boolean violates(DataIntegrityViolationException e, String constraint) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            String message = cause.getMessage();
+            if (message != null && message.toLowerCase(Locale.ROOT).contains(constraint)) {
+                return true;
+            }
+        }
+        return false;
     }
     
+    /**
+     * Unknown symbols short-circuit to an empty result without touching the events table.
+     * All returned events share the dictionary's canonical symbol instance.
+     */
     @Override
     public List<BidAskEvent> query(String symbol, long from, long to) {
-        return jpaRepository
-            .findBySymbolAndTimestampBetween(symbol, from, to)
-            .stream()
-            .map(EventEntity::toDomain)
-            .toList();
+        return queryTimer.record(() -> queryEntities(symbol, from, to));
+    }
+    
+    private List<BidAskEvent> queryEntities(String symbol, long from, long to) {
+        int symbolId = symbols.find(symbol);
+        if (symbolId == SymbolDictionary.NO_ID) {
+            return List.of();
+        }
+        String canonical = symbols.symbolOf(symbolId);
+        var call = RepositoryCallEvent.start("query", canonical, from, to);
+        var target = reads.forRange(to);
+        var events = target.jdbc().query(STREAM_EVENTS_SQL, rangeParams(symbolId, from, to),
+            (rs, rowNum) -> new BidAskEvent(
+                canonical, rs.getDouble("bid"), rs.getDouble("ask"), rs.getLong("timestamp_nanos")));
+        call.finish(target.name(), events.size());
+        return events;
+    }
+    
+    private static MapSqlParameterSource rangeParams(int symbolId, long from, long to) {
+        return new MapSqlParameterSource()
+            .addValue("symbolId", symbolId)
+            .addValue("fromNanos", EpochNanos.ofEpochSecond(from))
+            .addValue("toNanos", EpochNanos.endOfEpochSecond(to));
+    }
+    
+    /**
+     * Streams rows straight from a JDBC cursor without creating entities, so only
+     * {@code fetch-size} rows are buffered at a time. Runs in a read-only transaction
+     * because PostgreSQL only honours the fetch size with auto-commit disabled.
+     */
+    @Override
+    public void stream(String symbol, long from, long to, Consumer<BidAskEvent> consumer) {
+        streamRows("stream", symbol, from, to, canonical -> rs -> consumer.accept(new BidAskEvent(
+            canonical, rs.getDouble("bid"), rs.getDouble("ask"), rs.getLong("timestamp_nanos"))));
+    }
+
+    /**
+     * Same cursor as {@link #stream}, with each row's primitives copied straight into the
+     * columns, by position since this runs once per row.
+     */
+    @Override
+    public void streamColumns(String symbol, long from, long to, EventColumns.Sink sink) {
+        var columns = new EventColumns(sink);
+        streamRows("stream-columns", symbol, from, to,
+            canonical -> rs -> columns.add(rs.getLong(3), rs.getDouble(1), rs.getDouble(2)));
+        columns.flush();
+    }
+
+    private void streamRows(String operation, String symbol, long from, long to,
+                            Function<String, RowCallbackHandler> handler) {
+        int symbolId = symbols.find(symbol);
+        if (symbolId == SymbolDictionary.NO_ID) {
+            return;
+        }
+        String canonical = symbols.symbolOf(symbolId);
+        var call = RepositoryCallEvent.start(operation, canonical, from, to);
+        var target = reads.forRange(to);
+        var rowHandler = handler.apply(canonical);
+        long[] rows = new long[1];
+        
+        streamTimer.record(() -> target.inReadTransaction(() ->
+            target.streaming().query(STREAM_EVENTS_SQL, rangeParams(symbolId, from, to), (RowCallbackHandler) rs -> {
+                rows[0]++;
+                rowHandler.processRow(rs);
+            })));
+        call.finish(target.name(), rows[0]);
+    }
+    
+    /**
+     * Walks the index backwards and closes the cursor as soon as {@code consumer} stops,
+     * so at most one fetch beyond the needed rows is read.
+     */
+    @Override
+    public void streamBackward(String symbol, long from, long to, Predicate<BidAskEvent> consumer) {
+        int symbolId = symbols.find(symbol);
+        if (symbolId == SymbolDictionary.NO_ID) {
+            return;
+        }
+        String canonical = symbols.symbolOf(symbolId);
+        var call = RepositoryCallEvent.start("stream-backward", canonical, from, to);
+        var target = reads.forRange(to);
+        long[] rows = new long[1];
+        
+        streamBackwardTimer.record(() -> target.inReadTransaction(() ->
+            target.streaming().query(STREAM_EVENTS_BACKWARD_SQL, rangeParams(symbolId, from, to),
+                (ResultSetExtractor<Void>) rs -> {
+                    while (rs.next()) {
+                        rows[0]++;
+                        if (!consumer.test(new BidAskEvent(
+                                canonical, rs.getDouble("bid"), rs.getDouble("ask"), rs.getLong("timestamp_nanos")))) {
+                            break;
+                        }
+                    }
+                    return null;
+                })));
+        call.finish(target.name(), rows[0]);
+    }
+    
+    /**
+     * The generated event ID serves as the sequence number. Read from the primary, since a
+     * replica's sequence would trail the events the caller has just stored.
+     */
+    @Override
+    public long lastSequence() {
+        var call = RepositoryCallEvent.start("last-sequence", null, 0, 0);
+        Long id = jdbcTemplate.getJdbcTemplate().queryForObject("SELECT MAX(id) FROM bid_ask_events", Long.class);
+        call.finish(WRITE_TARGET, 1);
+        return id == null ? 0 : id;
+    }
+    
+    /**
+     * A primary key range scan, so the cost is proportional to the number of newer events.
+     */
+    @Override
+    public Map<String, Long> earliestStoredSince(long sequence) {
+        var call = RepositoryCallEvent.start("earliest-since", null, 0, 0);
+        var earliest = new HashMap<String, Long>();
+        jdbcTemplate.query(EARLIEST_SINCE_SQL, new MapSqlParameterSource("sequence", sequence),
+            (RowCallbackHandler) rs -> earliest.put(symbols.symbolOf(rs.getInt("symbol_id")), rs.getLong("earliest")));
+        call.finish(WRITE_TARGET, earliest.size());
+        return earliest;
     }
     
     /**
      * SQL-based candle aggregation using JDBC for type-safe result mapping.
      * More efficient than Java aggregation for large datasets.
-     * Results are cached for 5 minutes to reduce database load.
+     * Results for sealed ranges are cached for 5 minutes to reduce database load; ranges
+     * that have not sealed yet are aggregated on every call.
+     * The SQL comes from the configured {@link SqlAggregationStrategy}.
+     * Calendar timeframes are aggregated in SQL at a fixed base granularity that nests in
+     * every calendar bucket, then rolled up in Java. Running marks the calling query as a
+     * cache miss in JFR.
      */
     @Override
-    @Cacheable(value = "candles", key = "#symbol + '-' + #timeframe + '-' + #from + '-' + #to")
+    @Cacheable(value = "candles", keyGenerator = "candleCacheKeyGenerator",
+        condition = CandleCacheKeyGenerator.SEALED_RANGE)
     public List<Candle> aggregateCandles(String symbol, Timeframe timeframe, long from, long to) {
-        long intervalSeconds = timeframe.durationSeconds();
-        
+        HistoryQueryEvent.cacheMiss();
+        int symbolId = symbols.find(symbol);
+        if (symbolId == SymbolDictionary.NO_ID) {
+            return List.of();
+        }
+        var call = RepositoryCallEvent.start("aggregate", symbols.symbolOf(symbolId), from, to);
+        var target = reads.forRange(to);
+        var sample = Timer.start(meterRegistry);
+        List<Candle> candles = List.of();
+        try {
+            if (timeframe.isCalendar()) {
+                var base = aggregateFixed(target, symbolId, timeframe.nestedFixedBase(), from, to);
+                candles = CandleAggregator.rollUp(base, timeframe);
+            } else {
+                candles = aggregateFixed(target, symbolId, timeframe, from, to);
+            }
+            return candles;
+        } finally {
+            call.finish(target.name(), candles.size());
+            sample.stop(Timer.builder("marketdata.repository")
+                .tag("operation", "aggregate")
+                .tag("timeframe", TimeframeMapper.labelOf(timeframe))
+                .register(meterRegistry));
+        }
+    }
+
+    private List<Candle> aggregateFixed(ReadRouter.Target target, int symbolId, Timeframe timeframe,
+                                        long from, long to) {
         MapSqlParameterSource params = new MapSqlParameterSource()
-            .addValue("symbol", symbol)
-            .addValue("from", from)
-            .addValue("to", to)
-            .addValue("intervalSeconds", intervalSeconds);
+            .addValue("symbolId", symbolId)
+            .addValue("fromNanos", EpochNanos.ofEpochSecond(from))
+            .addValue("toNanos", EpochNanos.endOfEpochSecond(to))
+            .addValue("intervalNanos", timeframe.durationNanos())
+            .addValue("intervalSeconds", timeframe.durationSeconds())
+            .addValue("offsetNanos", EpochNanos.ofEpochSecond(timeframe.offsetSeconds()))
+            .addValue("offsetSeconds", timeframe.offsetSeconds());
         
-        return jdbcTemplate.query(AGGREGATE_CANDLES_SQL, params,
+        return target.jdbc().query(strategy.sql(), params,
             (rs, rowNum) -> new Candle(
                 rs.getLong("bucket_time"),
                 rs.getDouble("open"),
@@ -0,0 +1,131 @@
+package com.marketdata.infrastructure.repository;
+
+import com.marketdata.domain.model.EpochNanos;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Chooses the data source for each event read.
+ * <p>
+ * Ranges ending within {@code maxLagNanos} of now are read from the primary, since a
+ * replica may not have their latest events yet; older ranges are spread round-robin
+ * across the replicas. Without replicas every read goes to the primary. The bound must
+ * cover replication lag plus the ingestion reorder window, since events are only stored
+ * once the window has passed.
+ */
+public class ReadRouter implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ReadRouter.class);
+
+    private final Target primary;
+    private final List<Target> replicas;
+    private final long maxLagNanos;
+    private final LongSupplier clock;
+    private final List<DataSource> owned;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Takes ownership of the data sources and closes them on {@link #close()}.
+     *
+     * @param primary read pool on the primary database
+     * @param replicas read pools on replicas, possibly none
+     * @param fetchSize rows fetched per round trip when streaming
+     * @param maxLagNanos how far behind the primary a replica may be
+     */
+    public ReadRouter(DataSource primary, List<DataSource> replicas, int fetchSize, long maxLagNanos) {
+        this(primary, replicas, fetchSize, maxLagNanos, EpochNanos::now, true);
+    }
+
+    ReadRouter(DataSource primary, List<DataSource> replicas, int fetchSize, long maxLagNanos,
+               LongSupplier clock, boolean ownsDataSources) {
+        this.primary = Target.of("primary", primary, fetchSize);
+        var replicaTargets = new ArrayList<Target>();
+        for (int i = 0; i < replicas.size(); i++) {
+            replicaTargets.add(Target.of("replica-" + i, replicas.get(i), fetchSize));
+        }
+        this.replicas = List.copyOf(replicaTargets);
+        this.maxLagNanos = maxLagNanos;
+        this.clock = clock;
+        var dataSources = new ArrayList<DataSource>();
+        if (ownsDataSources) {
+            dataSources.add(primary);
+            dataSources.addAll(replicas);
+        }
+        this.owned = List.copyOf(dataSources);
+    }
+
+    /**
+     * Sends every read to {@code dataSource}, which stays owned by the caller.
+     */
+    public static ReadRouter primaryOnly(DataSource dataSource, int fetchSize) {
+        return new ReadRouter(dataSource, List.of(), fetchSize, 0, EpochNanos::now, false);
+    }
+
+    /**
+     * @param toEpochSec end of the range to read, in epoch seconds (inclusive)
+     */
+    public Target forRange(long toEpochSec) {
+        if (replicas.isEmpty() || EpochNanos.endOfEpochSecond(toEpochSec) >= clock.getAsLong() - maxLagNanos) {
+            return primary;
+        }
+        return replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+    }
+
+    @Override
+    public void close() {
+        for (DataSource dataSource : owned) {
+            if (dataSource instanceof Closeable closeable) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    logger.warn("Failed to close read pool {}", dataSource, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Templates bound to one data source.
+     *
+     * @param name {@code primary} or {@code replica-<n>}
+     * @param jdbc template for queries whose results are small
+     * @param streaming template with the configured fetch size, for cursors
+     */
+    public record Target(String name, DataSource dataSource, NamedParameterJdbcTemplate jdbc,
+                         NamedParameterJdbcTemplate streaming, TransactionTemplate readTransaction) {
+
+        static Target of(String name, DataSource dataSource, int fetchSize) {
+            var streaming = new JdbcTemplate(dataSource);
+            streaming.setFetchSize(fetchSize);
+            var readTransaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+            readTransaction.setReadOnly(true);
+            return new Target(name, dataSource, new NamedParameterJdbcTemplate(dataSource),
+                new NamedParameterJdbcTemplate(streaming), readTransaction);
+        }
+
+        /**
+         * Runs {@code action} with auto-commit disabled, which PostgreSQL needs to honour the
+         * fetch size. Joins a transaction that already holds a connection to this data source
+         * rather than committing it early.
+         */
+        public void inReadTransaction(Runnable action) {
+            if (TransactionSynchronizationManager.hasResource(dataSource)) {
+                action.run();
+            } else {
+                readTransaction.executeWithoutResult(status -> action.run());
+            }
+        }
+    }
+}
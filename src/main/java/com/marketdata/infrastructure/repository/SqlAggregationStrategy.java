@@ -0,0 +1,163 @@
+package com.marketdata.infrastructure.repository;
+
+import javax.sql.DataSource;
+import java.util.Locale;
+
+/**
+ * SQL used by {@link PostgresEventRepository} to aggregate candles.
+ * All variants take the same parameters and return the same columns; open/close follow
+ * {@code (timestamp_nanos, id)} order.
+ */
+public enum SqlAggregationStrategy {
+
+    /**
+     * Two {@code ROW_NUMBER()} windows over the range, re-aggregated with {@code MAX(CASE ...)}.
+     * Portable, but sorts the whole range twice.
+     */
+    WINDOW("""
+        WITH bucketed_events AS (
+            SELECT
+                ((timestamp_nanos - :offsetNanos) / :intervalNanos) * :intervalSeconds + :offsetSeconds AS bucket_time,
+                bid,
+                ask,
+                ROW_NUMBER() OVER (PARTITION BY ((timestamp_nanos - :offsetNanos) / :intervalNanos) ORDER BY timestamp_nanos, id) AS rn_first,
+                ROW_NUMBER() OVER (PARTITION BY ((timestamp_nanos - :offsetNanos) / :intervalNanos) ORDER BY timestamp_nanos DESC, id DESC) AS rn_last
+            FROM bid_ask_events
+            WHERE symbol_id = :symbolId
+              AND timestamp_nanos >= :fromNanos
+              AND timestamp_nanos <= :toNanos
+        )
+        SELECT
+            bucket_time,
+            (MAX(CASE WHEN rn_first = 1 THEN bid END) + MAX(CASE WHEN rn_first = 1 THEN ask END)) / 2.0 AS open,
+            MAX((bid + ask) / 2.0) AS high,
+            MIN((bid + ask) / 2.0) AS low,
+            (MAX(CASE WHEN rn_last = 1 THEN bid END) + MAX(CASE WHEN rn_last = 1 THEN ask END)) / 2.0 AS close,
+            COUNT(*) AS volume
+        FROM bucketed_events
+        GROUP BY bucket_time
+        ORDER BY bucket_time
+        """),
+
+    /**
+     * One grouped pass for high/low/volume and the first/last timestamps of each bucket,
+     * then two {@code (symbol_id, timestamp_nanos)} index probes per bucket for the open and
+     * close rows. No sort of the range; standard SQL. Only reads columns in the covering
+     * index (see {@link EventSchemaManager}), so every step can be an index-only scan.
+     */
+    INDEX_LOOKUP("""
+        WITH buckets AS (
+            SELECT
+                bucket_time,
+                MIN(timestamp_nanos) AS first_ts,
+                MAX(timestamp_nanos) AS last_ts,
+                MAX(mid) AS high,
+                MIN(mid) AS low,
+                COUNT(*) AS volume
+            FROM (
+                SELECT
+                    ((timestamp_nanos - :offsetNanos) / :intervalNanos) * :intervalSeconds + :offsetSeconds AS bucket_time,
+                    timestamp_nanos,
+                    (bid + ask) / 2.0 AS mid
+                FROM bid_ask_events
+                WHERE symbol_id = :symbolId
+                  AND timestamp_nanos >= :fromNanos
+                  AND timestamp_nanos <= :toNanos
+            ) ranged
+            GROUP BY bucket_time
+        )
+        SELECT
+            b.bucket_time,
+            (SELECT (bid + ask) / 2.0 FROM bid_ask_events
+             WHERE symbol_id = :symbolId AND timestamp_nanos = b.first_ts
+             ORDER BY id LIMIT 1) AS open,
+            b.high,
+            b.low,
+            (SELECT (bid + ask) / 2.0 FROM bid_ask_events
+             WHERE symbol_id = :symbolId AND timestamp_nanos = b.last_ts
+             ORDER BY id DESC LIMIT 1) AS close,
+            b.volume
+        FROM buckets b
+        ORDER BY b.bucket_time
+        """),
+
+    /**
+     * {@code DISTINCT ON} picks the open and close rows per bucket (PostgreSQL and H2 only).
+     * Written with derived tables rather than chained CTEs because H2 drops parameter
+     * bindings in a CTE that is referenced from another CTE. Correct on H2 but very slow
+     * there, as H2 re-evaluates the joined derived tables per row.
+     */
+    DISTINCT_ON("""
+        SELECT s.bucket_time, o.open, s.high, s.low, c.close, s.volume
+        FROM (
+            SELECT
+                ((timestamp_nanos - :offsetNanos) / :intervalNanos) * :intervalSeconds + :offsetSeconds AS bucket_time,
+                MAX((bid + ask) / 2.0) AS high,
+                MIN((bid + ask) / 2.0) AS low,
+                COUNT(*) AS volume
+            FROM bid_ask_events
+            WHERE symbol_id = :symbolId
+              AND timestamp_nanos >= :fromNanos
+              AND timestamp_nanos <= :toNanos
+            GROUP BY bucket_time
+        ) s
+        JOIN (
+            SELECT DISTINCT ON (bucket_time)
+                ((timestamp_nanos - :offsetNanos) / :intervalNanos) * :intervalSeconds + :offsetSeconds AS bucket_time,
+                timestamp_nanos,
+                id,
+                (bid + ask) / 2.0 AS open
+            FROM bid_ask_events
+            WHERE symbol_id = :symbolId
+              AND timestamp_nanos >= :fromNanos
+              AND timestamp_nanos <= :toNanos
+            ORDER BY bucket_time, timestamp_nanos, id
+        ) o ON o.bucket_time = s.bucket_time
+        JOIN (
+            SELECT DISTINCT ON (bucket_time)
+                ((timestamp_nanos - :offsetNanos) / :intervalNanos) * :intervalSeconds + :offsetSeconds AS bucket_time,
+                timestamp_nanos,
+                id,
+                (bid + ask) / 2.0 AS close
+            FROM bid_ask_events
+            WHERE symbol_id = :symbolId
+              AND timestamp_nanos >= :fromNanos
+              AND timestamp_nanos <= :toNanos
+            ORDER BY bucket_time, timestamp_nanos DESC, id DESC
+        ) c ON c.bucket_time = s.bucket_time
+        ORDER BY s.bucket_time
+        """);
+
+    private final String sql;
+
+    SqlAggregationStrategy(String sql) {
+        this.sql = sql;
+    }
+
+    String sql() {
+        return sql;
+    }
+
+    /**
+     * Resolves a configured strategy name. {@code auto} picks {@link #INDEX_LOOKUP} for
+     * PostgreSQL and H2, where it needs no sort of the range (2-2.5x faster than
+     * {@link #WINDOW} on H2 in {@code SqlAggregationBenchmarkTest}), and {@link #WINDOW}
+     * for anything else.
+     *
+     * @param name strategy name (case-insensitive, {@code -} or {@code _}) or {@code auto}
+     * @param dataSource used to detect the database for {@code auto}
+     */
+    public static SqlAggregationStrategy resolve(String name, DataSource dataSource) {
+        if (!"auto".equalsIgnoreCase(name)) {
+            try {
+                return valueOf(name.replace('-', '_').toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown SQL aggregation strategy: " + name);
+            }
+        }
+        return switch (DatabaseProduct.of(dataSource)) {
+            case DatabaseProduct.POSTGRESQL, DatabaseProduct.H2 -> INDEX_LOOKUP;
+            default -> WINDOW;
+        };
+    }
+}
@@ -0,0 +1,31 @@
+package com.marketdata.infrastructure.repository;
+
+import jakarta.persistence.*;
+
+/**
+ * JPA entity for the symbol dictionary.
+ * Each symbol is stored once; events reference it by {@code id}.
+ */
+@Entity
+@Table(name = "symbols", uniqueConstraints = {
+    @UniqueConstraint(name = "uq_symbols_symbol", columnNames = "symbol")
+})
+public class SymbolEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(nullable = false, length = 20)
+    private String symbol;
+
+    protected SymbolEntity() {
+    }
+
+    public SymbolEntity(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public Integer getId() { return id; }
+    public String getSymbol() { return symbol; }
+}
@@ -0,0 +1,83 @@
+package com.marketdata.infrastructure.source;
+
+import com.marketdata.domain.model.BidAskEvent;
+import com.marketdata.domain.port.out.MarketDataSource;
+import com.marketdata.domain.port.out.SymbolOwnership;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Passes on only the events of symbols this node owns, so each cluster node ingests its
+ * own shard of a feed that carries every symbol.
+ * <p>
+ * Ownership is looked up once per symbol and cached until the assignment's
+ * {@link SymbolOwnership#version() version} changes, so a tick costs one map lookup rather
+ * than hashing its symbol onto the ring. The cache is keyed by symbol rather than dictionary
+ * ID, since only owned symbols are ever registered in the dictionary.
+ */
+public class ShardedMarketDataSource implements MarketDataSource {
+
+    private final MarketDataSource delegate;
+    private final SymbolOwnership ownership;
+    private volatile Owned owned;
+
+    public ShardedMarketDataSource(MarketDataSource delegate, SymbolOwnership ownership) {
+        this.delegate = delegate;
+        this.ownership = ownership;
+        this.owned = new Owned(ownership.version());
+    }
+
+    @Override
+    public void start(Consumer<BidAskEvent> handler) {
+        delegate.start(event -> {
+            if (isLocal(event.symbol())) {
+                handler.accept(event);
+            }
+        });
+    }
+
+    @Override
+    public void startBatches(Consumer<List<BidAskEvent>> handler) {
+        delegate.startBatches(batch -> {
+            var local = new ArrayList<BidAskEvent>(batch.size());
+            for (var event : batch) {
+                if (isLocal(event.symbol())) {
+                    local.add(event);
+                }
+            }
+            if (!local.isEmpty()) {
+                handler.accept(local);
+            }
+        });
+    }
+
+    @Override
+    public void stop() {
+        delegate.stop();
+    }
+
+    private boolean isLocal(String symbol) {
+        var current = owned;
+        long version = ownership.version();
+        if (current.version != version) {
+            current = new Owned(version);
+            owned = current;
+        }
+        var local = current.symbols.get(symbol);
+        if (local == null) {
+            local = ownership.isLocal(symbol);
+            current.symbols.put(symbol, local);
+        }
+        return local;
+    }
+
+    private record Owned(long version, Map<String, Boolean> symbols) {
+        Owned(long version) {
+            this(version, new ConcurrentHashMap<>());
+        }
+    }
+}
@@ -0,0 +1,436 @@
+package com.marketdata.infrastructure.wal;
+
+import com.marketdata.domain.model.BidAskEvent;
+import com.marketdata.domain.port.out.WriteAheadLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead log in fixed-size memory-mapped segment files.
+ * <p>
+ * Records are {@code [length][crc32c][timestamp][bid][ask][symbol length][symbol]}; a zero
+ * length marks the end of a segment's data. A segment is named after the log position of
+ * its first byte, so positions are global and ordered across segments. Appends are plain
+ * memory writes; {@code msync} runs in a group commit that covers every record written
+ * since the previous one, either every {@code syncInterval} or on demand when
+ * {@code awaitSync} makes appenders wait for durability.
+ * <p>
+ * On {@link #open()} the tail of the newest segment is validated record by record. Anything after
+ * the first torn or corrupt record is zeroed, since the OS may have written later pages
+ * of the mapping before earlier ones.
+ */
+public class MappedWriteAheadLog implements WriteAheadLog, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(MappedWriteAheadLog.class);
+
+    private static final String SUFFIX = ".wal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int FIXED_PAYLOAD_SIZE = Long.BYTES + 2 * Double.BYTES + Short.BYTES;
+    private static final int MAX_SYMBOL_BYTES = 256;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long syncIntervalMillis;
+    private final boolean awaitSync;
+    private final Timer syncTimer;
+    private final ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + FIXED_PAYLOAD_SIZE + MAX_SYMBOL_BYTES);
+    private final CRC32C crc = new CRC32C();
+    private final Object syncLock = new Object();
+    private final Object checkpointLock = new Object();
+
+    // Guarded by this
+    private byte[][] encodedSymbols = new byte[16][];
+    private ScheduledExecutorService syncer;
+    private Segment current;
+    private int offset;
+    private long checkpoint;
+
+    // Guarded by syncLock
+    private long durable;
+
+    /**
+     * Nothing is touched on disk until {@link #open()}.
+     *
+     * @param segmentSize bytes per segment file; records never span segments
+     * @param syncIntervalMillis background sync period (0 disables the background sync)
+     * @param awaitSync whether {@link #awaitDurable(long)} waits for the record to be synced
+     */
+    public MappedWriteAheadLog(Path directory, int segmentSize, long syncIntervalMillis, boolean awaitSync,
+                               MeterRegistry meterRegistry) {
+        if (segmentSize < record.capacity() * 2) {
+            throw new IllegalArgumentException("WAL segment size too small: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.awaitSync = awaitSync;
+        this.syncTimer = meterRegistry.timer("marketdata.wal.sync");
+    }
+
+    /**
+     * Recovers the newest segment and starts the background sync.
+     *
+     * @return this log, for chaining after construction
+     */
+    public synchronized MappedWriteAheadLog open() {
+        if (current != null) {
+            throw new IllegalStateException("Write-ahead log already open: " + directory);
+        }
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open write-ahead log in " + directory, e);
+        }
+        synchronized (syncLock) {
+            durable = position();
+        }
+        if (syncIntervalMillis > 0) {
+            syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, "wal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncer.scheduleWithFixedDelay(this::syncAll, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        return this;
+    }
+
+    @Override
+    public synchronized long append(BidAskEvent event) {
+        requireOpen();
+        return write(event, encode(event.symbol()));
+    }
+
+    /**
+     * Encodes each symbol once per ID. Records still carry the symbol itself, so the log
+     * replays correctly against a dictionary that has been rebuilt since.
+     */
+    @Override
+    public synchronized long append(int symbolId, BidAskEvent event) {
+        requireOpen();
+        if (symbolId >= encodedSymbols.length) {
+            encodedSymbols = Arrays.copyOf(encodedSymbols, Math.max(symbolId + 1, encodedSymbols.length * 2));
+        }
+        var symbol = encodedSymbols[symbolId];
+        if (symbol == null) {
+            symbol = encode(event.symbol());
+            encodedSymbols[symbolId] = symbol;
+        }
+        return write(event, symbol);
+    }
+
+    private static byte[] encode(String symbol) {
+        var bytes = symbol.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_SYMBOL_BYTES) {
+            throw new IllegalArgumentException("Symbol too long for the write-ahead log: " + symbol);
+        }
+        return bytes;
+    }
+
+    private long write(BidAskEvent event, byte[] symbol) {
+        record.clear();
+        record.position(HEADER_SIZE);
+        record.putLong(event.timestampNanos())
+            .putDouble(event.bid())
+            .putDouble(event.ask())
+            .putShort((short) symbol.length)
+            .put(symbol);
+        int payloadSize = record.position() - HEADER_SIZE;
+        crc.reset();
+        crc.update(record.array(), HEADER_SIZE, payloadSize);
+        record.putInt(0, payloadSize).putInt(Integer.BYTES, (int) crc.getValue());
+
+        int size = record.position();
+        // Keep room for the zero length that terminates the segment
+        if (offset + size + Integer.BYTES > current.size) {
+            rotate();
+        }
+        long position = current.base + offset;
+        current.buffer.put(offset, record.array(), 0, size);
+        offset += size;
+        return position;
+    }
+
+    @Override
+    public void awaitDurable(long position) {
+        if (awaitSync) {
+            sync(position);
+        }
+    }
+
+    @Override
+    public synchronized long position() {
+        requireOpen();
+        return current.base + offset;
+    }
+
+    private void requireOpen() {
+        if (current == null) {
+            throw new IllegalStateException("Write-ahead log not open: " + directory);
+        }
+    }
+
+    /**
+     * Persists the checkpoint atomically, then deletes segments that lie entirely before it.
+     */
+    @Override
+    public void checkpoint(long position) {
+        synchronized (checkpointLock) {
+            synchronized (this) {
+                if (position <= checkpoint) {
+                    return;
+                }
+                checkpoint = position;
+            }
+            writeCheckpoint(position);
+        }
+    }
+
+    private void writeCheckpoint(long position) {
+        try {
+            var temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+            try (var channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, position));
+                channel.force(true);
+            }
+            Files.move(temp, directory.resolve(CHECKPOINT_FILE),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            // A segment ends where the next one starts
+            var bases = segmentBases();
+            for (int i = 0; i + 1 < bases.size() && bases.get(i + 1) <= position; i++) {
+                Files.deleteIfExists(segmentPath(bases.get(i)));
+            }
+        } catch (IOException e) {
+            // The previous checkpoint stays valid; replay just starts further back
+            logger.warn("Failed to write WAL checkpoint at {}", position, e);
+        }
+    }
+
+    @Override
+    public void replay(ObjLongConsumer<BidAskEvent> consumer) {
+        long from;
+        long end;
+        synchronized (this) {
+            from = checkpoint;
+            end = position();
+        }
+        int replayed = 0;
+        try {
+            var bases = segmentBases();
+            for (int i = 0; i < bases.size(); i++) {
+                long base = bases.get(i);
+                if (base >= end || (i + 1 < bases.size() && bases.get(i + 1) <= from)) {
+                    continue;
+                }
+                try (var channel = FileChannel.open(segmentPath(base), StandardOpenOption.READ)) {
+                    var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    int position = (int) Math.max(0, from - base);
+                    while (base + position < end) {
+                        var event = read(buffer, position);
+                        if (event == null) {
+                            break;
+                        }
+                        consumer.accept(event, base + position);
+                        position += HEADER_SIZE + buffer.getInt(position);
+                        replayed++;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replay write-ahead log", e);
+        }
+        if (replayed > 0) {
+            logger.info("Replayed {} events from the write-ahead log", replayed);
+        }
+    }
+
+    /**
+     * Syncs everything appended so far and stops the background sync.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (current == null) {
+                return;
+            }
+            if (syncer != null) {
+                syncer.shutdownNow();
+            }
+        }
+        syncAll();
+    }
+
+    private void syncAll() {
+        long end = position();
+        if (end > 0) {
+            sync(end - 1);
+        }
+    }
+
+    /**
+     * Group commit: the first waiter syncs everything written so far, and callers whose
+     * records it covered return without another {@code msync}.
+     */
+    private void sync(long position) {
+        synchronized (syncLock) {
+            if (durable > position) {
+                return;
+            }
+            Segment segment;
+            int end;
+            synchronized (this) {
+                segment = current;
+                end = offset;
+            }
+            int from = segment.synced;
+            if (end > from) {
+                syncTimer.record(() -> segment.buffer.force(from, end - from));
+                segment.synced = end;
+            }
+            durable = Math.max(durable, segment.base + end);
+        }
+    }
+
+    /**
+     * Syncs and closes the full segment, then maps a fresh one after it.
+     */
+    private void rotate() {
+        var full = current;
+        full.buffer.force();
+        full.synced = full.size;
+        long base = full.base + full.size;
+        current = Segment.create(segmentPath(base), base, segmentSize);
+        offset = 0;
+        full.close();
+    }
+
+    private void recover() throws IOException {
+        var checkpointFile = directory.resolve(CHECKPOINT_FILE);
+        checkpoint = Files.exists(checkpointFile) ? ByteBuffer.wrap(Files.readAllBytes(checkpointFile)).getLong() : 0;
+        var bases = segmentBases();
+        if (bases.isEmpty()) {
+            current = Segment.create(segmentPath(checkpoint), checkpoint, segmentSize);
+            offset = 0;
+            return;
+        }
+        long last = bases.getLast();
+        current = Segment.open(segmentPath(last), last);
+        offset = 0;
+        while (offset + HEADER_SIZE <= current.size && read(current.buffer, offset) != null) {
+            offset += HEADER_SIZE + current.buffer.getInt(offset);
+        }
+        var zeros = new byte[64 * 1024];
+        for (int i = offset; i < current.size; i += zeros.length) {
+            current.buffer.put(i, zeros, 0, Math.min(zeros.length, current.size - i));
+        }
+        current.buffer.force();
+        current.synced = offset;
+        logger.info("Opened write-ahead log at position {} (checkpoint {})", position(), checkpoint);
+    }
+
+    /**
+     * Decodes the record at {@code position}, or returns {@code null} at the end of the
+     * data or at a torn record.
+     */
+    private BidAskEvent read(ByteBuffer buffer, int position) {
+        if (position + HEADER_SIZE > buffer.limit()) {
+            return null;
+        }
+        int length = buffer.getInt(position);
+        if (length < FIXED_PAYLOAD_SIZE || length > FIXED_PAYLOAD_SIZE + MAX_SYMBOL_BYTES
+                || position + HEADER_SIZE + length > buffer.limit()) {
+            return null;
+        }
+        var payload = new byte[length];
+        buffer.get(position + HEADER_SIZE, payload);
+        var check = new CRC32C();
+        check.update(payload);
+        if ((int) check.getValue() != buffer.getInt(position + Integer.BYTES)) {
+            return null;
+        }
+        var data = ByteBuffer.wrap(payload);
+        long timestamp = data.getLong();
+        double bid = data.getDouble();
+        double ask = data.getDouble();
+        var symbol = new byte[data.getShort()];
+        data.get(symbol);
+        return new BidAskEvent(new String(symbol, StandardCharsets.UTF_8), bid, ask, timestamp);
+    }
+
+    private Path segmentPath(long base) {
+        return directory.resolve(String.format("%020d%s", base, SUFFIX));
+    }
+
+    private List<Long> segmentBases() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .map(path -> path.getFileName().toString())
+                .filter(name -> name.endsWith(SUFFIX))
+                .map(name -> Long.parseLong(name.substring(0, name.length() - SUFFIX.length())))
+                .sorted()
+                .toList();
+        }
+    }
+
+    private static final class Segment {
+        final long base;
+        final int size;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int synced;
+
+        private Segment(long base, FileChannel channel) throws IOException {
+            this.base = base;
+            this.size = (int) channel.size();
+            this.channel = channel;
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+
+        static Segment open(Path path, long base) throws IOException {
+            return new Segment(base, FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        }
+
+        static Segment create(Path path, long base, int size) {
+            try {
+                var channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+                // Extending the file zero-fills it, so unwritten space reads as end of data
+                channel.write(ByteBuffer.allocate(1), size - 1);
+                return new Segment(base, channel);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot create WAL segment " + path, e);
+            }
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close WAL segment at {}", base, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.marketdata.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one history query, from the request reaching the query service until its
+ * candles are returned.
+ * <p>
+ * The cache outcome is {@code none} for uncached paths. For SQL aggregation it starts as
+ * {@code hit} and becomes {@code miss} when the repository runs the aggregation on the
+ * query's thread (see {@link #cacheMiss()}).
+ */
+@Name("marketdata.HistoryQuery")
+@Label("History Query")
+@Category({"Market Data", "Query"})
+@Description("Candle query with its range, work done and cache outcome")
+@StackTrace(false)
+public class HistoryQueryEvent extends Event {
+
+    private static final ThreadLocal<HistoryQueryEvent> CURRENT = new ThreadLocal<>();
+
+    @Label("Symbol")
+    public String symbol;
+
+    @Label("Path")
+    @Description("java, sql, detailed or countback")
+    public String path;
+
+    @Label("Timeframe")
+    public String timeframe;
+
+    @Label("From")
+    @Description("Start of the range in epoch seconds")
+    public long from;
+
+    @Label("To")
+    @Description("End of the range in epoch seconds")
+    public long to;
+
+    @Label("Events Scanned")
+    @Description("Ticks aggregated into the returned candles")
+    public long events;
+
+    @Label("Candles")
+    public int candles;
+
+    @Label("Cache")
+    @Description("hit, miss or none")
+    public String cacheOutcome;
+
+    /**
+     * Describes a query and, if the event is enabled, starts timing it and makes it the
+     * thread's current query until {@link #finish(long, int)}.
+     *
+     * @param cached whether the path is served through the candle cache
+     */
+    public static HistoryQueryEvent start(String path, String symbol, String timeframe, long from, long to,
+                                          boolean cached) {
+        var event = new HistoryQueryEvent();
+        event.path = path;
+        event.symbol = symbol;
+        event.timeframe = timeframe;
+        event.from = from;
+        event.to = to;
+        event.cacheOutcome = cached ? "hit" : "none";
+        if (event.isEnabled()) {
+            event.begin();
+            CURRENT.set(event);
+        }
+        return event;
+    }
+
+    /**
+     * Marks the thread's current query, if any, as a cache miss.
+     */
+    public static void cacheMiss() {
+        var event = CURRENT.get();
+        if (event != null && "hit".equals(event.cacheOutcome)) {
+            event.cacheOutcome = "miss";
+        }
+    }
+
+    public void finish(long events, int candles) {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+        if (shouldCommit()) {
+            this.events = events;
+            this.candles = candles;
+            commit();
+        }
+    }
+}
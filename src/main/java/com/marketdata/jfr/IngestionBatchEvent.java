@@ -0,0 +1,39 @@
+package com.marketdata.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for one release of events from the reorder buffer into the repository: those
+ * triggered by a single incoming tick, an idle flush, a replay step or shutdown.
+ * Releases that store nothing are not recorded.
+ */
+@Name("marketdata.IngestionBatch")
+@Label("Ingestion Batch")
+@Category({"Market Data", "Ingestion"})
+@Description("Events released from the reorder buffer and stored together")
+@StackTrace(false)
+public class IngestionBatchEvent extends Event {
+
+    @Label("Trigger")
+    @Description("live, replay, idle or shutdown")
+    public String trigger;
+
+    @Label("Size")
+    @Description("Events stored, late ones included")
+    public int size;
+
+    @Label("Late")
+    @Description("Events stored behind the reorder window")
+    public int late;
+
+    @Label("Max Lag")
+    @Description("Longest time from event timestamp to storage in the batch")
+    @Timespan(Timespan.NANOSECONDS)
+    public long maxLag;
+}
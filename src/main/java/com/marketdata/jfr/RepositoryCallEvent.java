@@ -0,0 +1,63 @@
+package com.marketdata.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one call to the event repository. Saves are recorded too, so a recording
+ * configuration can filter fast calls with a threshold on this event.
+ */
+@Name("marketdata.RepositoryCall")
+@Label("Repository Call")
+@Category({"Market Data", "Repository"})
+@Description("Event repository operation with its range and result size")
+@StackTrace(false)
+public class RepositoryCallEvent extends Event {
+
+    @Label("Operation")
+    @Description("save, query, stream, stream-backward, aggregate, last-sequence or earliest-since")
+    public String operation;
+
+    @Label("Symbol")
+    public String symbol;
+
+    @Label("From")
+    @Description("Start of the range in epoch seconds")
+    public long from;
+
+    @Label("To")
+    @Description("End of the range in epoch seconds")
+    public long to;
+
+    @Label("Target")
+    @Description("Pool the call went to: write, primary or replica-<n>")
+    public String target;
+
+    @Label("Rows")
+    @Description("Events or candles returned, or rows written")
+    public long rows;
+
+    public static RepositoryCallEvent start(String operation, String symbol, long from, long to) {
+        var event = new RepositoryCallEvent();
+        if (event.isEnabled()) {
+            event.operation = operation;
+            event.symbol = symbol;
+            event.from = from;
+            event.to = to;
+            event.begin();
+        }
+        return event;
+    }
+
+    public void finish(String target, long rows) {
+        if (shouldCommit()) {
+            this.target = target;
+            this.rows = rows;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+-- Schema as generated by Hibernate before migrations were introduced.
+-- Existing databases already have it and are baselined at this version instead.
+CREATE TABLE bid_ask_events (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    symbol      VARCHAR(20)      NOT NULL,
+    bid         DOUBLE PRECISION NOT NULL,
+    ask         DOUBLE PRECISION NOT NULL,
+    "timestamp" BIGINT           NOT NULL
+);
+
+CREATE INDEX idx_symbol_timestamp ON bid_ask_events (symbol, "timestamp");
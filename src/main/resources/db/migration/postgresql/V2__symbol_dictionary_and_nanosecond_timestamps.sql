@@ -0,0 +1,30 @@
+-- Stores symbols once in a dictionary and events by symbol ID, and moves event
+-- timestamps from epoch seconds to epoch nanoseconds.
+-- Rewrites every row of bid_ask_events under an exclusive lock: stop ingestion first.
+CREATE TABLE symbols (
+    id     INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    symbol VARCHAR(20) NOT NULL,
+    CONSTRAINT uq_symbols_symbol UNIQUE (symbol)
+);
+
+INSERT INTO symbols (symbol)
+SELECT DISTINCT symbol FROM bid_ask_events ORDER BY symbol;
+
+ALTER TABLE bid_ask_events
+    ADD COLUMN symbol_id INTEGER,
+    ADD COLUMN timestamp_nanos BIGINT;
+
+UPDATE bid_ask_events e
+SET symbol_id = s.id,
+    timestamp_nanos = e."timestamp" * 1000000000
+FROM symbols s
+WHERE s.symbol = e.symbol;
+
+-- Drops idx_symbol_timestamp together with the old columns
+ALTER TABLE bid_ask_events
+    ALTER COLUMN symbol_id SET NOT NULL,
+    ALTER COLUMN timestamp_nanos SET NOT NULL,
+    DROP COLUMN symbol,
+    DROP COLUMN "timestamp";
+
+CREATE INDEX idx_symbol_timestamp ON bid_ask_events (symbol_id, timestamp_nanos);
@@ -0,0 +1,5 @@
+-- Every column the candle and stream queries read, so they can be answered with
+-- index-only scans. Built concurrently so ingestion keeps writing meanwhile.
+-- If the build fails it leaves an INVALID index: drop it and run the migration again.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_bid_ask_events_covering
+    ON bid_ask_events (symbol_id, timestamp_nanos, id) INCLUDE (bid, ask);
@@ -0,0 +1,2 @@
+-- Redundant once the covering index exists: its key starts with the same columns
+DROP INDEX CONCURRENTLY IF EXISTS idx_symbol_timestamp;
@@ -0,0 +1,8 @@
+-- Feed replays stored before the uniqueness guard existed: keep the first copy of each tick
+DELETE FROM bid_ask_events e
+USING bid_ask_events d
+WHERE d.symbol_id = e.symbol_id
+  AND d.timestamp_nanos = e.timestamp_nanos
+  AND d.bid = e.bid
+  AND d.ask = e.ask
+  AND d.id < e.id;
@@ -0,0 +1,6 @@
+-- Last line of defence against replayed ticks outside the in-memory dedup window
+-- (marketdata.ingestion.dedup.db-guard). Duplicates stored between V5 and this build
+-- make it fail and leave an INVALID index: drop it, re-run the V5 delete by hand, and
+-- run the migration again.
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uq_bid_ask_events_tick
+    ON bid_ask_events (symbol_id, timestamp_nanos, bid, ask);
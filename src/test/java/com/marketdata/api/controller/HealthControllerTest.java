@@ -0,0 +1,41 @@
+package com.marketdata.api.controller;
+
+import com.marketdata.domain.model.HealthReport;
+import com.marketdata.domain.port.in.CheckHealthUseCase;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class HealthControllerTest {
+
+    private final CheckHealthUseCase health = mock(CheckHealthUseCase.class);
+    private final HealthController controller = new HealthController(health);
+
+    @Test
+    void testReadyReportsChecks() {
+        when(health.readiness()).thenReturn(new HealthReport(true, Map.of("cache", Map.of("warm", true)), List.of()));
+
+        var response = controller.readiness();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("UP", response.getBody().get("status"));
+        assertEquals(Map.of("cache", Map.of("warm", true)), response.getBody().get("checks"));
+        assertFalse(response.getBody().containsKey("failures"));
+    }
+
+    @Test
+    void testFailingProbeReturns503WithReasons() {
+        when(health.liveness()).thenReturn(new HealthReport(false, Map.of(), List.of("ingestion is not running")));
+
+        var response = controller.liveness();
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("DOWN", response.getBody().get("status"));
+        assertEquals(List.of("ingestion is not running"), response.getBody().get("failures"));
+    }
+}
@@ -1,6 +1,10 @@
 package com.marketdata.api.controller;
 
 import com.marketdata.domain.model.Candle;
+import com.marketdata.domain.model.CandlePage;
+import com.marketdata.domain.model.DataVersion;
+import com.marketdata.domain.model.DetailedCandle;
+import com.marketdata.domain.model.Ohlc;
 import com.marketdata.domain.model.Timeframe;
 import com.marketdata.domain.port.in.QueryHistoryUseCase;
 import org.junit.jupiter.api.BeforeEach;
@@ -22,6 +26,7 @@ class HistoryControllerTest {
     void setUp() {
         queryHistoryUseCase = mock(QueryHistoryUseCase.class);
         controller = new HistoryController(queryHistoryUseCase);
+        when(queryHistoryUseCase.dataVersion(anyString(), anyLong())).thenReturn(new DataVersion(0, false));
     }
 
     @Test
@@ -36,7 +41,7 @@ class HistoryControllerTest {
             .thenReturn(candles);
 
         // When
-        var response = controller.history("BTC-USD", "1m", 1620000000L, 1620000600L);
+        var response = controller.history("BTC-USD", "1m", 1620000000L, 1620000600L, null, 0, null, null, null, null);
 
         // Then
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -56,7 +61,7 @@ class HistoryControllerTest {
             .thenReturn(List.of());
 
         // When
-        var response = controller.history("BTC-USD", "1m", 1620000000L, 1620000600L);
+        var response = controller.history("BTC-USD", "1m", 1620000000L, 1620000600L, null, 0, null, null, null, null);
 
         // Then
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -77,7 +82,7 @@ class HistoryControllerTest {
             .thenReturn(candles);
 
         // When
-        var response = controller.historyWithSql("BTC-USD", "1m", 1620000000L, 1620000600L);
+        var response = controller.historyWithSql("BTC-USD", "1m", 1620000000L, 1620000600L, null, 0, null, null, null, null);
 
         // Then
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -97,7 +102,7 @@ class HistoryControllerTest {
             .thenReturn(List.of());
 
         // When
-        var response = controller.historyWithSql("BTC-USD", "1m", 1620000000L, 1620000600L);
+        var response = controller.historyWithSql("BTC-USD", "1m", 1620000000L, 1620000600L, null, 0, null, null, null, null);
 
         // Then
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -114,10 +119,10 @@ class HistoryControllerTest {
             .thenReturn(candles);
 
         // When - Test different intervals
-        controller.history("BTC-USD", "5m", 1620000000L, 1620000600L);
+        controller.history("BTC-USD", "5m", 1620000000L, 1620000600L, null, 0, null, null, null, null);
         verify(queryHistoryUseCase).getHistory("BTC-USD", Timeframe.M5, 1620000000L, 1620000600L);
 
-        controller.history("BTC-USD", "1h", 1620000000L, 1620000600L);
+        controller.history("BTC-USD", "1h", 1620000000L, 1620000600L, null, 0, null, null, null, null);
         verify(queryHistoryUseCase).getHistory("BTC-USD", Timeframe.H1, 1620000000L, 1620000600L);
     }
 
@@ -126,7 +131,7 @@ class HistoryControllerTest {
         // When/Then - Invalid interval should throw exception
         IllegalArgumentException ex = assertThrows(
             IllegalArgumentException.class,
-            () -> controller.history("BTC-USD", "15", 1620000000L, 1620000600L)
+            () -> controller.history("BTC-USD", "15", 1620000000L, 1620000600L, null, 0, null, null, null, null)
         );
         assertTrue(ex.getMessage().contains("Invalid interval: 15"));
         assertTrue(ex.getMessage().contains("Supported formats"));
@@ -137,7 +142,7 @@ class HistoryControllerTest {
         // When/Then - 'to' before 'from' should throw exception
         IllegalArgumentException ex = assertThrows(
             IllegalArgumentException.class,
-            () -> controller.history("BTC-USD", "1m", 1620000600L, 1620000000L)
+            () -> controller.history("BTC-USD", "1m", 1620000600L, 1620000000L, null, 0, null, null, null, null)
         );
         assertTrue(ex.getMessage().contains("'to' timestamp must be >= 'from' timestamp"));
     }
@@ -147,8 +152,188 @@ class HistoryControllerTest {
         // When/Then - Invalid interval should throw exception
         IllegalArgumentException ex = assertThrows(
             IllegalArgumentException.class,
-            () -> controller.historyWithSql("BTC-USD", "2m", 1620000000L, 1620000600L)
+            () -> controller.historyWithSql("BTC-USD", "2x", 1620000000L, 1620000600L, null, 0, null, null, null, null)
         );
-        assertTrue(ex.getMessage().contains("Invalid interval: 2m"));
+        assertTrue(ex.getMessage().contains("Invalid interval: 2x"));
+    }
+
+    @Test
+    void testHistory_MaxPointsUsesBudgetedQuery() {
+        // Given
+        var candles = List.of(new Candle(1620000000L, 50000.0, 51000.0, 49000.0, 50500.0, 100));
+        when(queryHistoryUseCase.getHistoryWithSql(anyString(), any(Timeframe.class), anyLong(), anyLong(), anyInt()))
+            .thenReturn(candles);
+
+        // When
+        var response = controller.historyWithSql("BTC-USD", "1m", 1620000000L, 1620086400L, null, 0, 500, null, null, null);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(queryHistoryUseCase).getHistoryWithSql("BTC-USD", Timeframe.M1, 1620000000L, 1620086400L, 500);
+        verify(queryHistoryUseCase, never()).getHistoryWithSql(anyString(), any(Timeframe.class), anyLong(), anyLong());
+    }
+
+    @Test
+    void testHistory_CountbackReturnsPageWithCursor() {
+        // Given
+        var page = new CandlePage(List.of(new Candle(1620000540L, 50000.0, 51000.0, 49000.0, 50500.0, 10)), 1620000539L);
+        when(queryHistoryUseCase.getLastCandles(anyString(), any(Timeframe.class), anyLong(), anyInt())).thenReturn(page);
+
+        // When
+        var response = controller.history("BTC-USD", "1m", 0L, 1620000600L, null, 0, null, 1, null, null);
+
+        // Then
+        assertEquals(1620000539L, response.getBody().getNextTo());
+        assertEquals(List.of(1620000540L), response.getBody().getTimestamps());
+        verify(queryHistoryUseCase).getLastCandles("BTC-USD", Timeframe.M1, 1620000600L, 1);
+        verify(queryHistoryUseCase, never()).getHistory(anyString(), any(Timeframe.class), anyLong(), anyLong());
+    }
+
+    @Test
+    void testHistory_FieldsReturnRequestedStatisticsOnly() {
+        // Given
+        var detailed = new DetailedCandle(new Candle(1620000000L, 50000.5, 50001.5, 49999.5, 50000.5, 2),
+            new Ohlc(50000.0, 50001.0, 49999.0, 50000.0), new Ohlc(50001.0, 50002.0, 50000.0, 50001.0),
+            1.0, 1.0, 1.0, 50000.5);
+        when(queryHistoryUseCase.getDetailedHistory(anyString(), any(Timeframe.class), anyLong(), anyLong()))
+            .thenReturn(List.of(detailed));
+
+        // When
+        var response = controller.history("BTC-USD", "1m", 1620000000L, 1620000600L, null, 0, null, null, "bid,SPREAD", null);
+
+        // Then
+        var body = response.getBody();
+        assertEquals(List.of(50000.5), body.getOpen());
+        assertEquals(List.of(50000.0), body.getBidOpen());
+        assertEquals(List.of(49999.0), body.getBidLow());
+        assertEquals(List.of(1.0), body.getSpreadAvg());
+        assertNull(body.getAskOpen());
+        assertNull(body.getMean());
+        verify(queryHistoryUseCase, never()).getHistory(anyString(), any(Timeframe.class), anyLong(), anyLong());
+    }
+
+    @Test
+    void testHistoryWithSql_FieldsUseDetailedAggregation() {
+        // Given
+        when(queryHistoryUseCase.getDetailedHistory(anyString(), any(Timeframe.class), anyLong(), anyLong(), anyInt()))
+            .thenReturn(List.of());
+
+        // When
+        var response = controller.historyWithSql("BTC-USD", "1m", 1620000000L, 1620000600L, null, 0, 100, null, "mean", null);
+
+        // Then
+        assertEquals(List.of(), response.getBody().getMean());
+        verify(queryHistoryUseCase).getDetailedHistory("BTC-USD", Timeframe.M1, 1620000000L, 1620000600L, 100);
+        verify(queryHistoryUseCase, never()).getHistoryWithSql(anyString(), any(Timeframe.class), anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    void testHistory_WithoutFieldsOmitsStatistics() {
+        // Given
+        when(queryHistoryUseCase.getHistory(anyString(), any(Timeframe.class), anyLong(), anyLong()))
+            .thenReturn(List.of(new Candle(1620000000L, 50000.0, 51000.0, 49000.0, 50500.0, 100)));
+
+        // When
+        var response = controller.history("BTC-USD", "1m", 1620000000L, 1620000600L, null, 0, null, null, null, null);
+
+        // Then
+        assertNull(response.getBody().getBidOpen());
+        assertNull(response.getBody().getSpreadMin());
+        verify(queryHistoryUseCase, never()).getDetailedHistory(anyString(), any(Timeframe.class), anyLong(), anyLong());
+    }
+
+    @Test
+    void testHistory_InvalidFields() {
+        assertThrows(IllegalArgumentException.class, () ->
+            controller.history("BTC-USD", "1m", 1620000000L, 1620000600L, null, 0, null, null, "bid,volume", null)
+        );
+    }
+
+    @Test
+    void testHistory_FieldsWithCountbackRejected() {
+        assertThrows(IllegalArgumentException.class, () ->
+            controller.history("BTC-USD", "1m", 0L, 1620000600L, null, 0, null, 10, "ask", null)
+        );
+        verify(queryHistoryUseCase, never()).getLastCandles(anyString(), any(Timeframe.class), anyLong(), anyInt());
+    }
+
+    @Test
+    void testHistory_FieldsChangeETag() {
+        // Given
+        when(queryHistoryUseCase.getHistory(anyString(), any(Timeframe.class), anyLong(), anyLong()))
+            .thenReturn(List.of());
+        when(queryHistoryUseCase.getDetailedHistory(anyString(), any(Timeframe.class), anyLong(), anyLong()))
+            .thenReturn(List.of());
+
+        // When
+        var plain = controller.history("BTC-USD", "1m", 1620000000L, 1620000600L, null, 0, null, null, null, null);
+        var detailed = controller.history("BTC-USD", "1m", 1620000000L, 1620000600L, null, 0, null, null, "bid", null);
+
+        // Then
+        assertNotEquals(plain.getHeaders().getETag(), detailed.getHeaders().getETag());
+    }
+
+    @Test
+    void testHistory_MatchingETagSkipsQuery() {
+        // Given
+        when(queryHistoryUseCase.getHistory(anyString(), any(Timeframe.class), anyLong(), anyLong()))
+            .thenReturn(List.of());
+        var first = controller.history("BTC-USD", "1m", 1620000000L, 1620000600L, null, 0, null, null, null, null);
+        var etag = first.getHeaders().getETag();
+
+        // When
+        var response = controller.history("BTC-USD", "1m", 1620000000L, 1620000600L, null, 0, null, null, null, "W/" + etag);
+
+        // Then
+        assertNotNull(etag);
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals(etag, response.getHeaders().getETag());
+        assertNull(response.getBody());
+        verify(queryHistoryUseCase, times(1)).getHistory(anyString(), any(Timeframe.class), anyLong(), anyLong());
+    }
+
+    @Test
+    void testHistory_ETagChangesWithDataVersionAndParameters() {
+        // Given
+        when(queryHistoryUseCase.getHistory(anyString(), any(Timeframe.class), anyLong(), anyLong()))
+            .thenReturn(List.of());
+        var etag = controller.history("BTC-USD", "1m", 1620000000L, 1620000600L, null, 0, null, null, null, null)
+            .getHeaders().getETag();
+
+        // When
+        var otherInterval = controller.history("BTC-USD", "5m", 1620000000L, 1620000600L, null, 0, null, null, null, etag);
+        var otherEndpoint = controller.historyWithSql("BTC-USD", "1m", 1620000000L, 1620000600L, null, 0, null, null, null, etag);
+        when(queryHistoryUseCase.dataVersion(anyString(), anyLong())).thenReturn(new DataVersion(1, false));
+        var newData = controller.history("BTC-USD", "1m", 1620000000L, 1620000600L, null, 0, null, null, null, etag);
+
+        // Then
+        assertEquals(HttpStatus.OK, otherInterval.getStatusCode());
+        assertEquals(HttpStatus.OK, otherEndpoint.getStatusCode());
+        assertEquals(HttpStatus.OK, newData.getStatusCode());
+        assertNotEquals(etag, newData.getHeaders().getETag());
+    }
+
+    @Test
+    void testHistory_SealedRangeIsCachedBriefly() {
+        // Given
+        when(queryHistoryUseCase.getHistory(anyString(), any(Timeframe.class), anyLong(), anyLong()))
+            .thenReturn(List.of());
+        when(queryHistoryUseCase.dataVersion("BTC-USD", 1620000600L)).thenReturn(new DataVersion(3, true));
+
+        // When
+        var sealed = controller.history("BTC-USD", "1m", 1620000000L, 1620000600L, null, 0, null, null, null, null);
+        var live = controller.history("BTC-USD", "1m", 1620000000L, 1620000700L, null, 0, null, null, null, null);
+
+        // Then
+        assertEquals("max-age=300, public", sealed.getHeaders().getCacheControl());
+        assertEquals("no-cache", live.getHeaders().getCacheControl());
+    }
+
+    @Test
+    void testMatches_HandlesListsAndWildcard() {
+        assertTrue(HistoryController.matches("\"a\", \"b\"", "\"b\""));
+        assertTrue(HistoryController.matches("*", "\"b\""));
+        assertFalse(HistoryController.matches("\"a\"", "\"b\""));
+        assertFalse(HistoryController.matches(null, "\"b\""));
     }
 }
@@ -1,9 +1,14 @@
 package com.marketdata.api.dto;
 
 import com.marketdata.domain.model.Candle;
+import com.marketdata.domain.model.CandlePage;
+import com.marketdata.domain.model.CandleStatistic;
+import com.marketdata.domain.model.DetailedCandle;
+import com.marketdata.domain.model.Ohlc;
 import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -43,6 +48,25 @@ class HistoryResponseDtoTest {
         assertEquals(2L, dto.getVolume().get(1));
     }
 
+    @Test
+    void testFromDetailedCandlesIncludesSelectedStatistics() {
+        var candle = new DetailedCandle(new Candle(1620000000, 100.5, 102.5, 99.5, 101.5, 4),
+            new Ohlc(100.0, 102.0, 99.0, 101.0), new Ohlc(101.0, 103.0, 100.0, 102.0), 0.5, 1.5, 1.0, 101.0);
+
+        HistoryResponseDto dto = HistoryResponseDto.from(List.of(candle), EnumSet.of(CandleStatistic.ASK, CandleStatistic.MEAN));
+
+        assertEquals(List.of(1620000000L), dto.getTimestamps());
+        assertEquals(List.of(100.5), dto.getOpen());
+        assertEquals(List.of(4L), dto.getVolume());
+        assertEquals(List.of(101.0), dto.getAskOpen());
+        assertEquals(List.of(103.0), dto.getAskHigh());
+        assertEquals(List.of(100.0), dto.getAskLow());
+        assertEquals(List.of(102.0), dto.getAskClose());
+        assertEquals(List.of(101.0), dto.getMean());
+        assertNull(dto.getBidOpen());
+        assertNull(dto.getSpreadMax());
+    }
+
     @Test
     void testFromEmptyListCreatesEmptyArrays() {
         HistoryResponseDto dto = HistoryResponseDto.from(List.of());
@@ -63,4 +87,14 @@ class HistoryResponseDtoTest {
         assertEquals("error", dto.getStatus());
         assertTrue(dto.getTimestamps().isEmpty());
     }
+
+    @Test
+    void testFromPageCarriesCursor() {
+        var page = new CandlePage(List.of(new Candle(1620000060, 1.0, 2.0, 0.5, 1.5, 1)), 1620000059L);
+
+        HistoryResponseDto dto = HistoryResponseDto.from(page);
+
+        assertEquals(1620000059L, dto.getNextTo());
+        assertNull(HistoryResponseDto.from(List.of()).getNextTo());
+    }
 }
@@ -1,8 +1,10 @@
 package com.marketdata.api.exception;
 
 import com.marketdata.api.dto.HistoryResponseDto;
+import com.marketdata.domain.port.in.QueryRejectedException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MissingServletRequestParameterException;
@@ -52,4 +54,15 @@ class GlobalExceptionHandlerTest {
         assertNotNull(response.getBody());
         assertEquals("error", response.getBody().getStatus());
     }
+
+    @Test
+    void testHandleQueryRejected() {
+        var tooLarge = handler.handleQueryRejected(new QueryRejectedException("Query too large", false));
+        var busy = handler.handleQueryRejected(new QueryRejectedException("Too many large queries", true));
+
+        assertEquals(HttpStatus.BAD_REQUEST, tooLarge.getStatusCode());
+        assertEquals("Query too large", tooLarge.getBody().getErrorMessage());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, busy.getStatusCode());
+        assertEquals("1", busy.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
 }
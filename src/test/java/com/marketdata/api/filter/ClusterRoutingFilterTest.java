@@ -0,0 +1,125 @@
+package com.marketdata.api.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketdata.domain.port.out.SymbolOwnership;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ClusterRoutingFilterTest {
+
+    private static final String SELF = "http://localhost:1";
+
+    private HttpServer owner;
+    private String ownerUrl;
+    private final AtomicReference<String> forwardedUri = new AtomicReference<>();
+    private final AtomicReference<String> forwardedBy = new AtomicReference<>();
+    private final AtomicReference<String> forwardedCondition = new AtomicReference<>();
+    private SymbolOwnership ownership;
+    private FilterChain chain;
+    private ClusterRoutingFilter filter;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        owner = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        owner.createContext("/", exchange -> {
+            forwardedUri.set(exchange.getRequestURI().toString());
+            forwardedBy.set(exchange.getRequestHeaders().getFirst(ClusterRoutingFilter.FORWARDED_BY));
+            forwardedCondition.set(exchange.getRequestHeaders().getFirst(HttpHeaders.IF_NONE_MATCH));
+            byte[] body = "{\"s\":\"ok\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add(HttpHeaders.CONTENT_TYPE, "application/json");
+            exchange.getResponseHeaders().add(HttpHeaders.ETAG, "\"v1\"");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        owner.start();
+        ownerUrl = "http://localhost:" + owner.getAddress().getPort();
+
+        ownership = mock(SymbolOwnership.class);
+        when(ownership.isLocal("BTC-USD")).thenReturn(true);
+        when(ownership.ownerOf("ETH-USD")).thenReturn(ownerUrl);
+        chain = mock(FilterChain.class);
+        filter = new ClusterRoutingFilter(ownership, SELF, Duration.ofSeconds(5), new ObjectMapper(),
+            new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        owner.stop(0);
+    }
+
+    @Test
+    void testServesOwnedSymbolsLocally() throws Exception {
+        var request = request("BTC-USD");
+        var response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+        assertNull(forwardedUri.get());
+    }
+
+    @Test
+    void testForwardsOtherSymbolsToOwner() throws Exception {
+        var request = request("ETH-USD");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"v0\"");
+        var response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, chain);
+
+        verifyNoInteractions(chain);
+        assertEquals("/history?symbol=ETH-USD&interval=1m&from=1620000000&to=1620003600", forwardedUri.get());
+        assertEquals(SELF, forwardedBy.get());
+        assertEquals("\"v0\"", forwardedCondition.get());
+        assertEquals(200, response.getStatus());
+        assertEquals("\"v1\"", response.getHeader(HttpHeaders.ETAG));
+        assertEquals("{\"s\":\"ok\"}", response.getContentAsString());
+    }
+
+    @Test
+    void testServesForwardedRequestsLocally() throws Exception {
+        var request = request("ETH-USD");
+        request.addHeader(ClusterRoutingFilter.FORWARDED_BY, "http://localhost:2");
+        var response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+        assertNull(forwardedUri.get());
+    }
+
+    @Test
+    void testUnreachableOwnerIsBadGateway() throws Exception {
+        owner.stop(0);
+        var response = new MockHttpServletResponse();
+
+        filter.doFilter(request("ETH-USD"), response, chain);
+
+        assertEquals(502, response.getStatus());
+        assertTrue(response.getContentAsString().contains("ETH-USD"));
+        verifyNoInteractions(chain);
+    }
+
+    private static MockHttpServletRequest request(String symbol) {
+        var request = new MockHttpServletRequest("GET", "/history");
+        request.setQueryString("symbol=" + symbol + "&interval=1m&from=1620000000&to=1620003600");
+        request.addParameter("symbol", symbol);
+        return request;
+    }
+}
@@ -0,0 +1,176 @@
+package com.marketdata.api.filter;
+
+import com.marketdata.api.controller.HistoryController;
+import com.marketdata.domain.model.DataVersion;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedResponseFilterTest {
+
+    private static final String BODY = "{\"s\":\"ok\",\"t\":[" + "1620000000,".repeat(500) + "1620000060]}";
+
+    private CompressedResponseFilter filter;
+    private String currentETag;
+    private DataVersion currentVersion;
+    private List<String> conditions;
+
+    @BeforeEach
+    void setUp() {
+        filter = new CompressedResponseFilter(6, 1024, 1024 * 1024, new SimpleMeterRegistry());
+        currentETag = "\"v1\"";
+        currentVersion = new DataVersion(1, true);
+        conditions = new ArrayList<>();
+    }
+
+    @Test
+    void testCompressesAndReusesStoredBody() throws Exception {
+        var first = get("gzip, deflate");
+        var second = get("gzip");
+
+        assertEquals("gzip", first.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(BODY, gunzip(first.getContentAsByteArray()));
+        assertEquals(HttpServletResponse.SC_OK, second.getStatus());
+        assertEquals(BODY, gunzip(second.getContentAsByteArray()));
+        assertEquals("\"v1-gz\"", second.getHeader(HttpHeaders.ETAG));
+        assertEquals(List.of("none", "\"v1\""), conditions);
+    }
+
+    @Test
+    void testGzipRepresentationHasItsOwnETag() throws Exception {
+        var gzip = get("gzip");
+        var identity = get(null);
+
+        assertEquals("\"v1-gz\"", gzip.getHeader(HttpHeaders.ETAG));
+        assertEquals("\"v1\"", identity.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void testRevalidatesClientGzipETag() throws Exception {
+        var notModified = get("gzip", "\"v1-gz\"");
+        currentETag = "\"v2\"";
+        var modified = get("gzip", "\"v1-gz\"");
+
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, notModified.getStatus());
+        assertEquals("\"v1-gz\"", notModified.getHeader(HttpHeaders.ETAG));
+        assertEquals(HttpServletResponse.SC_OK, modified.getStatus());
+        assertEquals("\"v2-gz\"", modified.getHeader(HttpHeaders.ETAG));
+        assertEquals(BODY, gunzip(modified.getContentAsByteArray()));
+        assertEquals(List.of("\"v1\"", "\"v1\""), conditions);
+    }
+
+    @Test
+    void testStoredBodyIsDroppedWhenDataVersionChangesUnderTheSameETag() throws Exception {
+        get("gzip");
+        currentVersion = new DataVersion(1, false);
+
+        var response = get("gzip");
+
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals(BODY, gunzip(response.getContentAsByteArray()));
+        assertEquals(List.of("none", "\"v1\"", "none"), conditions);
+        get("gzip");
+        assertEquals("\"v1\"", conditions.getLast(), "stored again for the new version");
+    }
+
+    @Test
+    void testResponsesWithoutDataVersionAreNotStored() throws Exception {
+        currentVersion = null;
+
+        get("gzip");
+        get("gzip");
+
+        assertEquals(List.of("none", "none"), conditions);
+    }
+
+    @Test
+    void testRefreshesStoredBodyWhenETagChanges() throws Exception {
+        get("gzip");
+        currentETag = "\"v2\"";
+
+        var response = get("gzip");
+
+        assertEquals("\"v2-gz\"", response.getHeader(HttpHeaders.ETAG));
+        assertEquals(BODY, gunzip(response.getContentAsByteArray()));
+        assertEquals("\"v2-gz\"", get("gzip").getHeader(HttpHeaders.ETAG));
+        assertEquals(List.of("none", "\"v1\"", "\"v2\""), conditions);
+    }
+
+    @Test
+    void testLeavesUncompressedWhenNotAccepted() throws Exception {
+        var identity = get(null);
+        var refused = get("gzip;q=0");
+
+        assertNull(identity.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(BODY, identity.getContentAsString());
+        assertNull(refused.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(identity.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT_ENCODING));
+    }
+
+    @Test
+    void testIgnoresMalformedQuality() throws Exception {
+        var response = get("gzip;q=abc");
+
+        assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(BODY, gunzip(response.getContentAsByteArray()));
+    }
+
+    private MockHttpServletResponse get(String acceptEncoding) throws Exception {
+        return get(acceptEncoding, null);
+    }
+
+    private MockHttpServletResponse get(String acceptEncoding, String ifNoneMatch) throws Exception {
+        var request = new MockHttpServletRequest("GET", "/history");
+        request.setQueryString("symbol=BTC-USD&interval=1m&from=0&to=60");
+        if (acceptEncoding != null) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        var response = new MockHttpServletResponse();
+        filter.doFilter(request, response, controller());
+        return response;
+    }
+
+    /**
+     * Mimics the history controller: publishes the data version, and answers 304 if the
+     * condition matches the current ETag.
+     */
+    private FilterChain controller() {
+        return (request, response) -> {
+            request.setAttribute(HistoryController.DATA_VERSION_ATTRIBUTE, currentVersion);
+            var condition = ((HttpServletRequest) request).getHeader(HttpHeaders.IF_NONE_MATCH);
+            conditions.add(condition == null ? "none" : condition);
+            var http = (HttpServletResponse) response;
+            http.setHeader(HttpHeaders.ETAG, currentETag);
+            if (currentETag.equals(condition)) {
+                http.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+            http.setContentType("application/json");
+            http.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+    private static String gunzip(byte[] gzip) throws IOException {
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.marketdata.api.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GzipEncoderTest {
+
+    @Test
+    void testOutputIsReadableByGzipStreams() throws IOException {
+        var encoder = new GzipEncoder(6);
+        var json = "{\"s\":\"ok\",\"t\":[" + "1620000000,".repeat(5000) + "1620000060]}";
+
+        var first = encoder.encode(json.getBytes(StandardCharsets.UTF_8));
+        var second = encoder.encode("{}".getBytes(StandardCharsets.UTF_8));
+
+        assertTrue(first.length < json.length() / 10);
+        assertEquals(json, gunzip(first));
+        assertEquals("{}", gunzip(second));
+    }
+
+    @Test
+    void testRejectsInvalidLevel() {
+        assertThrows(IllegalArgumentException.class, () -> new GzipEncoder(0));
+        assertThrows(IllegalArgumentException.class, () -> new GzipEncoder(10));
+    }
+
+    @Test
+    void testReusesPooledDeflatersUntilClosed() throws IOException {
+        var encoder = new GzipEncoder(6, 1);
+
+        encoder.encode("{}".getBytes(StandardCharsets.UTF_8));
+        encoder.encode("{}".getBytes(StandardCharsets.UTF_8));
+        assertEquals(1, encoder.pooled());
+
+        encoder.close();
+        assertEquals(0, encoder.pooled());
+        assertEquals("{}", gunzip(encoder.encode("{}".getBytes(StandardCharsets.UTF_8))));
+        assertEquals(0, encoder.pooled());
+    }
+
+    private static String gunzip(byte[] gzip) throws IOException {
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
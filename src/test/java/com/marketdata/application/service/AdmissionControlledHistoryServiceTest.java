@@ -0,0 +1,115 @@
+package com.marketdata.application.service;
+
+import com.marketdata.domain.model.Candle;
+import com.marketdata.domain.model.Timeframe;
+import com.marketdata.domain.port.in.QueryHistoryUseCase;
+import com.marketdata.domain.port.in.QueryRejectedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AdmissionControlledHistoryServiceTest {
+
+    private static final long DAY = 86_400;
+    private static final long FROM = 1620000000L;
+
+    private QueryHistoryUseCase delegate;
+    private SimpleMeterRegistry meterRegistry;
+    private AdmissionControlledHistoryService service;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(QueryHistoryUseCase.class);
+        when(delegate.getHistory(anyString(), any(Timeframe.class), anyLong(), anyLong())).thenReturn(List.of());
+        meterRegistry = new SimpleMeterRegistry();
+        service = new AdmissionControlledHistoryService(delegate, 10_000, 30 * DAY, DAY, 1, 50, meterRegistry);
+    }
+
+    @Test
+    void testRejectsTooManyBuckets() {
+        var ex = assertThrows(QueryRejectedException.class,
+            () -> service.getHistory("BTC-USD", Timeframe.S1, FROM, FROM + 10_000));
+
+        assertFalse(ex.isRetryable());
+        assertTrue(ex.getMessage().contains("10001 candles"));
+        verifyNoInteractions(delegate);
+    }
+
+    @Test
+    void testRejectsTooLongRange() {
+        assertThrows(QueryRejectedException.class,
+            () -> service.getHistoryWithSql("BTC-USD", Timeframe.D1, 0, FROM));
+        verifyNoInteractions(delegate);
+    }
+
+    @Test
+    void testMaxPointsIsCostedAtCoarsenedTimeframe() {
+        service.getHistory("BTC-USD", Timeframe.M1, FROM, FROM + 7 * DAY, 500);
+
+        verify(delegate).getHistory("BTC-USD", Timeframe.M1, FROM, FROM + 7 * DAY, 500);
+    }
+
+    @Test
+    void testCountbackIsCostedByPageSize() {
+        assertThrows(QueryRejectedException.class,
+            () -> service.getLastCandles("BTC-USD", Timeframe.S1, FROM, 10_001));
+        assertThrows(QueryRejectedException.class,
+            () -> service.getLastCandles("BTC-USD", Timeframe.D1, FROM, 31));
+    }
+
+    @Test
+    void testCountbackIsCostedAtTheSpanItScans() throws Exception {
+        var running = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        when(delegate.getHistory(anyString(), eq(Timeframe.H1), anyLong(), anyLong())).thenAnswer(invocation -> {
+            running.countDown();
+            release.await();
+            return List.<Candle>of();
+        });
+        var expensive = CompletableFuture.runAsync(
+            () -> service.getHistory("BTC-USD", Timeframe.H1, FROM, FROM + 7 * DAY));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        // 10 hourly candles span 10h but the scan reads 40h, over the 1d expensive threshold
+        assertThrows(QueryRejectedException.class, () -> service.getLastCandles("ETH-USD", Timeframe.H1, FROM, 10));
+        service.getLastCandles("ETH-USD", Timeframe.H1, FROM, 6);
+
+        release.countDown();
+        expensive.get(5, TimeUnit.SECONDS);
+        verify(delegate).getLastCandles("ETH-USD", Timeframe.H1, FROM, 6);
+    }
+
+    @Test
+    void testExpensiveQueriesAreLimitedWhileCheapOnesRun() throws Exception {
+        var running = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        when(delegate.getHistory(anyString(), eq(Timeframe.H1), anyLong(), anyLong())).thenAnswer(invocation -> {
+            running.countDown();
+            release.await();
+            return List.<Candle>of();
+        });
+        var expensive = CompletableFuture.runAsync(
+            () -> service.getHistory("BTC-USD", Timeframe.H1, FROM, FROM + 7 * DAY));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        var ex = assertThrows(QueryRejectedException.class,
+            () -> service.getHistory("ETH-USD", Timeframe.M15, FROM, FROM + 2 * DAY));
+        var cheap = service.getHistory("ETH-USD", Timeframe.M1, FROM, FROM + 3600);
+
+        release.countDown();
+        expensive.get(5, TimeUnit.SECONDS);
+        assertTrue(ex.isRetryable());
+        assertTrue(cheap.isEmpty());
+        assertEquals(1, meterRegistry.get("marketdata.query.rejected").tag("reason", "busy").counter().count());
+        assertNotNull(service.getHistory("ETH-USD", Timeframe.M15, FROM, FROM + 2 * DAY));
+    }
+}
@@ -0,0 +1,56 @@
+package com.marketdata.application.service;
+
+import com.marketdata.application.service.CacheBlocks.Piece;
+import com.marketdata.domain.model.Timeframe;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheBlocksTest {
+
+    private final CacheBlocks blocks = new CacheBlocks(10);
+
+    @Test
+    void testSplitsOnTheSameGridWhateverTheBounds() {
+        assertEquals(List.of(
+                new Piece(1620000123L, 1620000599L, false),
+                new Piece(1620000600L, 1620001199L, true),
+                new Piece(1620001200L, 1620001250L, false)),
+            blocks.split(Timeframe.M1, 1620000123L, 1620001250L, end -> true));
+        assertEquals(List.of(
+                new Piece(1620000600L, 1620001199L, true),
+                new Piece(1620001200L, 1620001799L, true)),
+            blocks.split(Timeframe.M1, 1620000600L, 1620001799L, end -> true));
+    }
+
+    @Test
+    void testStopsAtTheFirstUnsealedBlock() {
+        assertEquals(List.of(
+                new Piece(1620000600L, 1620001199L, true),
+                new Piece(1620001200L, 1620002400L, false)),
+            blocks.split(Timeframe.M1, 1620000600L, 1620002400L, end -> end < 1620001500L));
+    }
+
+    @Test
+    void testFollowsTheTimeframeOffset() {
+        var shifted = Timeframe.fixed("1h+15m", 3600, 900);
+
+        assertEquals(List.of(
+                new Piece(0, 899, false),
+                new Piece(900, 36_899, true),
+                new Piece(36_900, 40_000, false)),
+            blocks.split(shifted, 0, 40_000, end -> true));
+        assertEquals(900, blocks.blockStart(shifted, 36_899));
+    }
+
+    @Test
+    void testLeavesCalendarAndDisabledRangesWhole() {
+        var whole = List.of(new Piece(0, 10_000_000, false));
+
+        assertEquals(whole, blocks.split(Timeframe.MN1, 0, 10_000_000, end -> true));
+        assertEquals(whole, new CacheBlocks(0).split(Timeframe.M1, 0, 10_000_000, end -> true));
+        assertThrows(IllegalArgumentException.class, () -> new CacheBlocks(-1));
+    }
+}
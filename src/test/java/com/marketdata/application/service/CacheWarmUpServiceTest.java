@@ -0,0 +1,125 @@
+package com.marketdata.application.service;
+
+import com.marketdata.domain.model.DataVersion;
+import com.marketdata.domain.model.EpochNanos;
+import com.marketdata.domain.model.Timeframe;
+import com.marketdata.domain.model.WarmUpTarget;
+import com.marketdata.domain.port.out.DataVersions;
+import com.marketdata.domain.port.out.EventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CacheWarmUpServiceTest {
+
+    private static final long NOW = 1620000123L;
+
+    private EventRepository repository;
+    private DataVersions dataVersions;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(EventRepository.class);
+        when(repository.aggregateCandles(anyString(), any(Timeframe.class), anyLong(), anyLong())).thenReturn(List.of());
+        dataVersions = mock(DataVersions.class);
+        // Ranges ending more than ten seconds ago are sealed
+        when(dataVersions.versionOf(anyString(), anyLong()))
+            .thenAnswer(call -> new DataVersion(1, call.<Long>getArgument(1) < NOW - 10));
+    }
+
+    @Test
+    void testWarmsSealedCacheBlocksOfEachTarget() {
+        var service = service(List.of(
+            new WarmUpTarget("BTC-USD", Timeframe.M1, 3600),
+            new WarmUpTarget("ETH-USD", Timeframe.H1, 86_400)), 60_000);
+
+        service.start();
+
+        awaitWarm(service);
+        // 10-bucket blocks from the one holding NOW - lookback; the block holding NOW is not sealed
+        for (long block = 1619996400L; block < 1620000000L; block += 600) {
+            verify(repository).aggregateCandles("BTC-USD", Timeframe.M1, block, block + 599);
+        }
+        for (long block = 1619892000L; block < 1620000000L; block += 36_000) {
+            verify(repository).aggregateCandles("ETH-USD", Timeframe.H1, block, block + 35_999);
+        }
+        verify(repository, times(9)).aggregateCandles(anyString(), any(Timeframe.class), anyLong(), anyLong());
+    }
+
+    @Test
+    void testWarmsCompleteBucketsWhenNotSplitIntoBlocks() {
+        var service = new CacheWarmUpService(repository, dataVersions, 0,
+            List.of(new WarmUpTarget("BTC-USD", Timeframe.M1, 3600)), 2, 60_000, () -> EpochNanos.ofEpochSecond(NOW));
+
+        service.start();
+
+        verify(repository, timeout(5000)).aggregateCandles("BTC-USD", Timeframe.M1, 1619996520L, 1620000119L);
+        awaitWarm(service);
+    }
+
+    @Test
+    void testWarmWithoutTargets() {
+        var service = service(List.of(), 60_000);
+
+        service.start();
+
+        assertTrue(service.isWarm());
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void testFailedTargetDoesNotBlockWarmUp() {
+        when(repository.aggregateCandles(eq("BAD"), any(Timeframe.class), anyLong(), anyLong()))
+            .thenThrow(new IllegalStateException("database unavailable"));
+        var service = service(List.of(
+            new WarmUpTarget("BAD", Timeframe.M1, 3600),
+            new WarmUpTarget("BTC-USD", Timeframe.M1, 3600)), 60_000);
+
+        service.start();
+
+        awaitWarm(service);
+        verify(repository, times(6)).aggregateCandles(eq("BTC-USD"), any(Timeframe.class), anyLong(), anyLong());
+    }
+
+    @Test
+    void testReportsWarmAfterTimeout() throws InterruptedException {
+        var blocked = new CountDownLatch(1);
+        when(repository.aggregateCandles(anyString(), any(Timeframe.class), anyLong(), anyLong())).thenAnswer(call -> {
+            blocked.await();
+            return List.of();
+        });
+        var service = service(List.of(new WarmUpTarget("BTC-USD", Timeframe.M1, 3600)), 100);
+
+        service.start();
+
+        assertFalse(service.isWarm());
+        awaitWarm(service);
+        blocked.countDown();
+    }
+
+    @Test
+    void testRejectsInvalidTargets() {
+        assertThrows(IllegalArgumentException.class, () -> new WarmUpTarget("", Timeframe.M1, 60));
+        assertThrows(IllegalArgumentException.class, () -> new WarmUpTarget("BTC-USD", Timeframe.M1, 0));
+    }
+
+    private CacheWarmUpService service(List<WarmUpTarget> targets, long timeoutMillis) {
+        return new CacheWarmUpService(repository, dataVersions, 10, targets, 2, timeoutMillis,
+            () -> EpochNanos.ofEpochSecond(NOW));
+    }
+
+    private static void awaitWarm(CacheWarmUpService service) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!service.isWarm() && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertTrue(service.isWarm());
+    }
+}
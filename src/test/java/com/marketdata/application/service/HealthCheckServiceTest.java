@@ -0,0 +1,122 @@
+package com.marketdata.application.service;
+
+import com.marketdata.domain.model.EpochNanos;
+import com.marketdata.domain.model.IngestionStatus;
+import com.marketdata.domain.port.in.IngestMarketDataUseCase;
+import com.marketdata.domain.port.in.WarmUpCacheUseCase;
+import com.marketdata.domain.port.out.EventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class HealthCheckServiceTest {
+
+    private static final long SECOND = EpochNanos.NANOS_PER_SECOND;
+    private static final long NOW = 1620000000L * SECOND;
+
+    private IngestMarketDataUseCase ingestion;
+    private WarmUpCacheUseCase warmUp;
+    private EventRepository repository;
+    private HealthCheckService service;
+
+    @BeforeEach
+    void setUp() {
+        ingestion = mock(IngestMarketDataUseCase.class);
+        warmUp = mock(WarmUpCacheUseCase.class);
+        repository = mock(EventRepository.class);
+        when(warmUp.isWarm()).thenReturn(true);
+        when(ingestion.status()).thenReturn(status(true, SECOND, 10, 2_000_000));
+        service = new HealthCheckService(ingestion, warmUp, repository, 30 * SECOND, 1000, 500_000_000L,
+            60 * SECOND, () -> NOW);
+    }
+
+    @Test
+    void testReadyWhenFreshAndWarm() {
+        var report = service.readiness();
+
+        assertTrue(report.up(), report.failures().toString());
+        @SuppressWarnings("unchecked")
+        var ingestionChecks = (Map<String, Object>) report.checks().get("ingestion");
+        assertEquals(Map.of("BTC-USD", 1000L), ingestionChecks.get("lagMs"));
+        assertEquals(10, ingestionChecks.get("pending"));
+        assertEquals(2.0, ingestionChecks.get("writeLatencyMs"));
+    }
+
+    @Test
+    void testNotReadyWhileWarmingUp() {
+        when(warmUp.isWarm()).thenReturn(false);
+
+        var report = service.readiness();
+
+        assertFalse(report.up());
+        assertEquals("cache is warming up", report.failures().getFirst());
+    }
+
+    @Test
+    void testNotReadyWhenSymbolLags() {
+        when(ingestion.status()).thenReturn(status(true, 31 * SECOND, 10, 2_000_000));
+
+        var report = service.readiness();
+
+        assertFalse(report.up());
+        assertTrue(report.failures().getFirst().contains("BTC-USD"));
+    }
+
+    @Test
+    void testNotReadyWhenBackedUpOrSlow() {
+        when(ingestion.status()).thenReturn(status(true, 0, 1001, 600_000_000L));
+
+        var report = service.readiness();
+
+        assertFalse(report.up());
+        assertEquals(2, report.failures().size());
+    }
+
+    @Test
+    void testNotReadyWhenNoEventIsAcceptedForTooLong() {
+        when(ingestion.status()).thenReturn(new IngestionStatus(true, Map.of(), 0, 2_000_000, NOW - 61 * SECOND));
+
+        var report = service.readiness();
+
+        assertFalse(report.up());
+        assertEquals(List.of("no events accepted for 61000 ms"), report.failures());
+    }
+
+    @Test
+    void testNotReadyWhenStoreUnreachable() {
+        when(repository.lastSequence()).thenThrow(new IllegalStateException("connection refused"));
+
+        var report = service.readiness();
+
+        assertFalse(report.up());
+        assertEquals(Map.of("reachable", false), report.checks().get("store"));
+    }
+
+    @Test
+    void testZeroLimitsDisableChecks() {
+        service = new HealthCheckService(ingestion, warmUp, repository, 0, 0, 0, 0, () -> NOW);
+        when(ingestion.status()).thenReturn(
+            new IngestionStatus(true, Map.of("BTC-USD", Long.MAX_VALUE), 1_000_000, Long.MAX_VALUE, 1));
+
+        assertTrue(service.readiness().up());
+    }
+
+    @Test
+    void testLivenessFollowsIngestion() {
+        assertTrue(service.liveness().up());
+
+        when(ingestion.status()).thenReturn(status(false, 0, 0, 0));
+
+        assertFalse(service.liveness().up());
+        assertFalse(service.readiness().up());
+    }
+
+    private static IngestionStatus status(boolean running, long lag, int pending, long writeLatency) {
+        return new IngestionStatus(running, Map.of("BTC-USD", lag), pending, writeLatency, NOW - SECOND);
+    }
+}
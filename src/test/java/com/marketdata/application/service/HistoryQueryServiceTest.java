@@ -2,15 +2,26 @@ package com.marketdata.application.service;
 
 import com.marketdata.domain.model.BidAskEvent;
 import com.marketdata.domain.model.Candle;
+import com.marketdata.domain.model.DataVersion;
 import com.marketdata.domain.model.Timeframe;
 import com.marketdata.domain.port.in.QueryHistoryUseCase;
+import com.marketdata.domain.port.out.DataVersions;
 import com.marketdata.infrastructure.repository.TestEventRepository;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
 
 class HistoryQueryServiceTest {
 
@@ -32,9 +43,9 @@ class HistoryQueryServiceTest {
     @Test
     void testGetHistoryReturnsSortedCandles() {
         // Store events in different 1-minute buckets (unsorted)
-        eventRepository.save(new BidAskEvent("BTC-USD", 50000.0, 50001.0, 1620000120L));
-        eventRepository.save(new BidAskEvent("BTC-USD", 49000.0, 49001.0, 1620000060L));
-        eventRepository.save(new BidAskEvent("BTC-USD", 51000.0, 51001.0, 1620000180L));
+        eventRepository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0, 50001.0, 1620000120L));
+        eventRepository.save(BidAskEvent.ofEpochSecond("BTC-USD", 49000.0, 49001.0, 1620000060L));
+        eventRepository.save(BidAskEvent.ofEpochSecond("BTC-USD", 51000.0, 51001.0, 1620000180L));
 
         List<Candle> candles = service.getHistory("BTC-USD", Timeframe.M1, 1620000000, 1620000200);
 
@@ -46,10 +57,10 @@ class HistoryQueryServiceTest {
 
     @Test
     void testGetHistoryFiltersTimeRange() {
-        eventRepository.save(new BidAskEvent("BTC-USD", 49000.0, 49001.0, 1620000000L));
-        eventRepository.save(new BidAskEvent("BTC-USD", 50000.0, 50001.0, 1620000060L));
-        eventRepository.save(new BidAskEvent("BTC-USD", 51000.0, 51001.0, 1620000120L));
-        eventRepository.save(new BidAskEvent("BTC-USD", 52000.0, 52001.0, 1620000180L));
+        eventRepository.save(BidAskEvent.ofEpochSecond("BTC-USD", 49000.0, 49001.0, 1620000000L));
+        eventRepository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0, 50001.0, 1620000060L));
+        eventRepository.save(BidAskEvent.ofEpochSecond("BTC-USD", 51000.0, 51001.0, 1620000120L));
+        eventRepository.save(BidAskEvent.ofEpochSecond("BTC-USD", 52000.0, 52001.0, 1620000180L));
 
         List<Candle> candles = service.getHistory("BTC-USD", Timeframe.M1, 1620000060, 1620000120);
 
@@ -60,8 +71,8 @@ class HistoryQueryServiceTest {
 
     @Test
     void testGetHistoryFiltersBySymbol() {
-        eventRepository.save(new BidAskEvent("BTC-USD", 50000.0, 50001.0, 1620000060L));
-        eventRepository.save(new BidAskEvent("ETH-USD", 3000.0, 3001.0, 1620000060L));
+        eventRepository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0, 50001.0, 1620000060L));
+        eventRepository.save(BidAskEvent.ofEpochSecond("ETH-USD", 3000.0, 3001.0, 1620000060L));
 
         List<Candle> btcCandles = service.getHistory("BTC-USD", Timeframe.M1, 1620000000, 1620000120);
         List<Candle> ethCandles = service.getHistory("ETH-USD", Timeframe.M1, 1620000000, 1620000120);
@@ -72,4 +83,299 @@ class HistoryQueryServiceTest {
         assertEquals(1, ethCandles.size());
         assertEquals(3000.5, ethCandles.get(0).getOpen(), 0.1);
     }
+
+    @Test
+    void testParallelAggregationMatchesSingleThreaded() {
+        // One tick every 7 seconds for ~3 hours
+        for (long t = 1620000003L; t < 1620000000L + 3 * 3600; t += 7) {
+            eventRepository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0 + t % 97, 50001.0 + t % 97, t));
+        }
+        var ranges = Collections.synchronizedList(new ArrayList<long[]>());
+        var recording = new TestEventRepository() {
+            @Override
+            public List<BidAskEvent> query(String symbol, long from, long to) {
+                ranges.add(new long[] {from, to});
+                return eventRepository.query(symbol, from, to);
+            }
+        };
+        var pool = new ForkJoinPool(4);
+        try {
+            var parallel = new HistoryQueryService(recording, new com.marketdata.domain.service.CandleAggregator(), pool, 16);
+
+            var expected = service.getHistory("BTC-USD", Timeframe.M1, 1620000000L, 1620000000L + 3 * 3600);
+            var actual = parallel.getHistory("BTC-USD", Timeframe.M1, 1620000000L, 1620000000L + 3 * 3600);
+
+            assertTrue(ranges.size() > 1, "range should be split");
+            for (var range : ranges) {
+                assertEquals(0, range[0] % 60, "slices start on bucket boundaries");
+            }
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getTime(), actual.get(i).getTime());
+                assertEquals(expected.get(i).getOpen(), actual.get(i).getOpen());
+                assertEquals(expected.get(i).getClose(), actual.get(i).getClose());
+                assertEquals(expected.get(i).getVolume(), actual.get(i).getVolume());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testHistoryIsStreamedAsColumns() {
+        for (long t = 1620000000L; t < 1620000600L; t += 3) {
+            eventRepository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0 + t % 13, 50001.0 + t % 7, t));
+        }
+        var repository = spy(eventRepository);
+        var aggregator = new com.marketdata.domain.service.CandleAggregator();
+        var columnar = new HistoryQueryService(repository, aggregator);
+
+        var candles = columnar.getHistory("BTC-USD", Timeframe.M1, 1620000000L, 1620000599L);
+
+        verify(repository).streamColumns(eq("BTC-USD"), eq(1620000000L), eq(1620000599L), any());
+        var expected = aggregator.aggregate(eventRepository.query("BTC-USD", 1620000000L, 1620000599L), Timeframe.M1);
+        assertEquals(expected.size(), candles.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getTime(), candles.get(i).getTime());
+            assertEquals(expected.get(i).getOpen(), candles.get(i).getOpen());
+            assertEquals(expected.get(i).getHigh(), candles.get(i).getHigh());
+            assertEquals(expected.get(i).getLow(), candles.get(i).getLow());
+            assertEquals(expected.get(i).getClose(), candles.get(i).getClose());
+            assertEquals(expected.get(i).getVolume(), candles.get(i).getVolume());
+        }
+    }
+
+    @Test
+    void testDetailedHistoryIsSlicedLikePlainHistory() {
+        for (long t = 1620000003L; t < 1620000000L + 3 * 3600; t += 7) {
+            eventRepository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0 + t % 97, 50001.0 + t % 97 + t % 5, t));
+        }
+        var pool = new ForkJoinPool(4);
+        try {
+            var parallel = new HistoryQueryService(eventRepository, new com.marketdata.domain.service.CandleAggregator(), pool, 16);
+
+            var expected = service.getDetailedHistory("BTC-USD", Timeframe.M1, 1620000000L, 1620000000L + 3 * 3600);
+            var actual = parallel.getDetailedHistory("BTC-USD", Timeframe.M1, 1620000000L, 1620000000L + 3 * 3600);
+            var plain = service.getHistory("BTC-USD", Timeframe.M1, 1620000000L, 1620000000L + 3 * 3600);
+
+            assertEquals(plain.size(), expected.size());
+            assertEquals(plain.size(), actual.size());
+            for (int i = 0; i < plain.size(); i++) {
+                assertEquals(plain.get(i).getTime(), actual.get(i).mid().getTime());
+                assertEquals(plain.get(i).getClose(), actual.get(i).mid().getClose());
+                assertEquals(plain.get(i).getVolume(), actual.get(i).mid().getVolume());
+                assertEquals(expected.get(i).bid(), actual.get(i).bid());
+                assertEquals(expected.get(i).ask(), actual.get(i).ask());
+                assertEquals(expected.get(i).spreadMax(), actual.get(i).spreadMax());
+                assertEquals(expected.get(i).spreadAvg(), actual.get(i).spreadAvg(), 1e-9);
+                assertEquals(expected.get(i).mean(), actual.get(i).mean(), 1e-9);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testDetailedHistoryRespectsMaxPoints() {
+        for (long t = 1620000000L; t < 1620000000L + 86400; t += 60) {
+            eventRepository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0, 50002.0, t));
+        }
+
+        var candles = service.getDetailedHistory("BTC-USD", Timeframe.M1, 1620000000L, 1620086399L, 100);
+
+        assertTrue(candles.size() <= 100);
+        assertEquals(1440, candles.stream().mapToLong(candle -> candle.mid().getVolume()).sum());
+        assertEquals(2.0, candles.get(0).spreadAvg());
+        assertEquals(50001.0, candles.get(0).mean());
+    }
+
+    @Test
+    void testSmallRangeStaysOnCallingThread() {
+        var threads = new ArrayList<Thread>();
+        var recording = new TestEventRepository() {
+            @Override
+            public List<BidAskEvent> query(String symbol, long from, long to) {
+                threads.add(Thread.currentThread());
+                return List.of();
+            }
+        };
+        var pool = new ForkJoinPool(2);
+        try {
+            var parallel = new HistoryQueryService(recording, new com.marketdata.domain.service.CandleAggregator(), pool, 16);
+
+            parallel.getHistory("BTC-USD", Timeframe.M1, 1620000000L, 1620000600L);
+
+            assertEquals(List.of(Thread.currentThread()), threads);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testBlockedSlicesDoNotStallThePool() {
+        // Every slice waits until two fetches are in flight: a single worker only gets
+        // there if the pool adds a spare while the first fetch blocks
+        var inFlight = new CountDownLatch(2);
+        var blocking = new TestEventRepository() {
+            @Override
+            public List<BidAskEvent> query(String symbol, long from, long to) {
+                inFlight.countDown();
+                try {
+                    assertTrue(inFlight.await(5, TimeUnit.SECONDS), "slices were fetched one at a time");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return List.of();
+            }
+        };
+        var pool = new ForkJoinPool(1);
+        try {
+            var parallel = new HistoryQueryService(blocking, new com.marketdata.domain.service.CandleAggregator(), pool, 5);
+
+            assertTrue(parallel.getHistory("BTC-USD", Timeframe.M1, 1620000000L, 1620001199L).isEmpty());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testMaxPointsBoundsResult() {
+        // One tick per minute for a day
+        for (long t = 1620000000L; t < 1620000000L + 86400; t += 60) {
+            eventRepository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0, 50001.0, t));
+        }
+
+        List<Candle> candles = service.getHistory("BTC-USD", Timeframe.M1, 1620000000L, 1620086399L, 100);
+
+        assertTrue(candles.size() <= 100);
+        assertEquals(1440, candles.stream().mapToLong(Candle::getVolume).sum());
+        // 1440 minutes into 100 points -> 15m buckets
+        assertEquals(900, candles.get(1).getTime() - candles.get(0).getTime());
+    }
+
+    @Test
+    void testLastCandlesPagesBackwards() {
+        // Ticks in 10 one-minute buckets, two per bucket
+        for (long t = 1620000000L; t < 1620000600L; t += 30) {
+            eventRepository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0 + t % 600, 50001.0 + t % 600, t));
+        }
+        var all = service.getHistory("BTC-USD", Timeframe.M1, 1620000000L, 1620000599L);
+
+        var pages = new ArrayList<Candle>();
+        Long to = 1620000599L;
+        int requests = 0;
+        while (to != null) {
+            var page = service.getLastCandles("BTC-USD", Timeframe.M1, to, 4);
+            assertTrue(page.candles().size() <= 4);
+            pages.addAll(0, page.candles());
+            to = page.nextTo();
+            requests++;
+        }
+
+        assertEquals(3, requests);
+        assertEquals(all.size(), pages.size());
+        for (int i = 0; i < all.size(); i++) {
+            assertEquals(all.get(i).getTime(), pages.get(i).getTime());
+            assertEquals(all.get(i).getOpen(), pages.get(i).getOpen());
+            assertEquals(all.get(i).getClose(), pages.get(i).getClose());
+            assertEquals(all.get(i).getVolume(), pages.get(i).getVolume());
+        }
+    }
+
+    @Test
+    void testLastCandlesStopsReadingOnceFilled() {
+        var consumed = new int[1];
+        var counting = new TestEventRepository() {
+            @Override
+            public void streamBackward(String symbol, long from, long to, Predicate<BidAskEvent> consumer) {
+                for (long t = to; t >= from; t -= 10) {
+                    consumed[0]++;
+                    if (!consumer.test(BidAskEvent.ofEpochSecond(symbol, 1.0, 2.0, t))) {
+                        return;
+                    }
+                }
+            }
+        };
+        var backward = new HistoryQueryService(counting, new com.marketdata.domain.service.CandleAggregator());
+
+        var page = backward.getLastCandles("BTC-USD", Timeframe.M1, 1620000599L, 2);
+
+        assertEquals(2, page.candles().size());
+        assertEquals(1620000479L, page.nextTo());
+        // Two full buckets of six ticks plus the first tick of the third
+        assertEquals(13, consumed[0]);
+    }
+
+    @Test
+    void testLastCandlesScanIsBoundedOverSparseData() {
+        var scanned = new ArrayList<long[]>();
+        var sparse = new TestEventRepository() {
+            @Override
+            public void streamBackward(String symbol, long from, long to, Predicate<BidAskEvent> consumer) {
+                scanned.add(new long[] {from, to});
+                super.streamBackward(symbol, from, to, consumer);
+            }
+        };
+        // One tick at the end of the page, and one a week earlier
+        sparse.save(BidAskEvent.ofEpochSecond("BTC-USD", 1.0, 2.0, 1620000590L));
+        sparse.save(BidAskEvent.ofEpochSecond("BTC-USD", 1.0, 2.0, 1620000590L - 7 * 86_400));
+        var bounded = new HistoryQueryService(sparse, new com.marketdata.domain.service.CandleAggregator());
+
+        var page = bounded.getLastCandles("BTC-USD", Timeframe.M1, 1620000599L, 5);
+
+        assertEquals(1, page.candles().size());
+        assertEquals(1620000599L - 5 * 60 * 4 + 1, scanned.getFirst()[0], "reads 4x the page span");
+        assertEquals(1620000590L - 7 * 86_400, page.nextTo(), "continues at the newest earlier event");
+        var last = bounded.getLastCandles("BTC-USD", Timeframe.M1, page.nextTo(), 5);
+        assertEquals(1, last.candles().size());
+        assertNull(last.nextTo());
+    }
+
+    @Test
+    void testRecordsAggregationMetrics() {
+        var meterRegistry = new SimpleMeterRegistry();
+        var metered = new HistoryQueryService(
+            eventRepository, new com.marketdata.domain.service.CandleAggregator(), null, Long.MAX_VALUE, null, meterRegistry);
+        eventRepository.save(BidAskEvent.ofEpochSecond("BTC-USD", 1.0, 2.0, 1620000000L));
+        eventRepository.save(BidAskEvent.ofEpochSecond("BTC-USD", 1.0, 2.0, 1620000010L));
+        eventRepository.save(BidAskEvent.ofEpochSecond("BTC-USD", 1.0, 2.0, 1620000070L));
+
+        metered.getHistory("BTC-USD", Timeframe.M1, 1620000000L, 1620000119L);
+
+        var tags = Tags.of("path", "java", "timeframe", "1m");
+        assertEquals(1, meterRegistry.get("marketdata.query.aggregation").tags(tags).timer().count());
+        assertEquals(3, meterRegistry.get("marketdata.query.events").tags(tags).summary().totalAmount());
+        assertEquals(2, meterRegistry.get("marketdata.query.candles").tags(tags).summary().totalAmount());
+    }
+
+    @Test
+    void testSqlAggregationSharesSealedCacheBlocks() {
+        for (long t = 1620000000L; t < 1620003600L; t += 30) {
+            eventRepository.save(BidAskEvent.ofEpochSecond("BTC-USD", 1.0 + t % 7, 2.0 + t % 7, t));
+        }
+        var repository = spy(eventRepository);
+        var dataVersions = mock(DataVersions.class);
+        // Ranges ending before 1620003000 are sealed
+        when(dataVersions.versionOf(anyString(), anyLong()))
+            .thenAnswer(call -> new DataVersion(1, call.<Long>getArgument(1) < 1620003000L));
+        var blocked = new HistoryQueryService(repository, new com.marketdata.domain.service.CandleAggregator(), null,
+            Long.MAX_VALUE, dataVersions, new SimpleMeterRegistry(), 10);
+
+        var candles = blocked.getHistoryWithSql("BTC-USD", Timeframe.M1, 1620000123L, 1620003500L);
+
+        var whole = eventRepository.aggregateCandles("BTC-USD", Timeframe.M1, 1620000123L, 1620003500L);
+        assertEquals(fields(whole), fields(candles));
+        var inOrder = inOrder(repository);
+        inOrder.verify(repository).aggregateCandles("BTC-USD", Timeframe.M1, 1620000123L, 1620000599L);
+        for (long block = 1620000600L; block < 1620003000L; block += 600) {
+            inOrder.verify(repository).aggregateCandles("BTC-USD", Timeframe.M1, block, block + 599);
+        }
+        inOrder.verify(repository).aggregateCandles("BTC-USD", Timeframe.M1, 1620003000L, 1620003500L);
+    }
+
+    private static List<List<Object>> fields(List<Candle> candles) {
+        return candles.stream()
+            .map(c -> List.<Object>of(c.getTime(), c.getOpen(), c.getHigh(), c.getLow(), c.getClose(), c.getVolume()))
+            .toList();
+    }
 }
@@ -0,0 +1,266 @@
+package com.marketdata.application.service;
+
+import com.marketdata.domain.model.BidAskEvent;
+import com.marketdata.domain.model.EpochNanos;
+import com.marketdata.domain.port.out.CandleInvalidator;
+import com.marketdata.domain.port.out.DataVersions;
+import com.marketdata.domain.port.out.MarketDataSource;
+import com.marketdata.domain.port.out.WriteAheadLog;
+import com.marketdata.infrastructure.repository.TestEventRepository;
+import com.marketdata.infrastructure.repository.TestSymbolDictionary;
+import com.marketdata.infrastructure.wal.MappedWriteAheadLog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class MarketDataIngestionServiceTest {
+
+    private TestEventRepository eventRepository;
+    private TestSymbolDictionary symbolDictionary;
+    private CandleInvalidator candleInvalidator;
+    private DataVersions dataVersions;
+    private SimpleMeterRegistry meterRegistry;
+    private MarketDataIngestionService service;
+
+    @BeforeEach
+    void setUp() {
+        eventRepository = new TestEventRepository();
+        symbolDictionary = new TestSymbolDictionary();
+        candleInvalidator = mock(CandleInvalidator.class);
+        dataVersions = mock(DataVersions.class);
+        meterRegistry = new SimpleMeterRegistry();
+        service = new MarketDataIngestionService(
+            mock(MarketDataSource.class), eventRepository, symbolDictionary, candleInvalidator, dataVersions,
+            WriteAheadLog.disabled(), Duration.ofSeconds(2).toNanos(), 16, meterRegistry);
+    }
+
+    @Test
+    void testOutOfOrderEventsAreStoredAfterWindow() {
+        service.handle(BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000001L));
+        service.handle(BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000000L));
+        assertTrue(eventRepository.query("BTC-USD", 0, Long.MAX_VALUE).isEmpty());
+
+        service.handle(BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000005L));
+
+        assertEquals(2, eventRepository.query("BTC-USD", 0, Long.MAX_VALUE).size());
+        verifyNoInteractions(candleInvalidator);
+    }
+
+    @Test
+    void testStatusReportsLagOfSymbolsBehindAndBacklog() {
+        service.handle(BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000000L));
+        service.handle(BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000005L));
+        service.handle(BidAskEvent.ofEpochSecond("ETH-USD", 10.0, 11.0, 1620000001L));
+        // A quiet symbol that has stored everything it accepted
+        service.handle(BidAskEvent.ofEpochSecond("SOL-USD", 1.0, 1.1, 1610000000L));
+        service.handle(BidAskEvent.ofEpochSecond("SOL-USD", 1.0, 1.1, 1610000005L));
+        service.stop();
+        service.handle(BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000006L));
+        service.handle(BidAskEvent.ofEpochSecond("ETH-USD", 10.0, 11.0, 1620000002L));
+
+        var status = service.status();
+
+        assertFalse(status.running());
+        assertEquals(Map.of("BTC-USD", EpochNanos.ofEpochSecond(1), "ETH-USD", EpochNanos.ofEpochSecond(1)),
+            status.lagNanos());
+        assertEquals(2, status.pending());
+        assertTrue(status.writeLatencyNanos() > 0);
+        assertEquals(EpochNanos.ofEpochSecond(1620000006L), status.newestAcceptedNanos());
+    }
+
+    @Test
+    void testEventsAwaitingASaveRetryArePending() {
+        var repository = spy(eventRepository);
+        doThrow(new IllegalStateException("database down")).when(repository).save(anyInt(), any());
+        var failing = new MarketDataIngestionService(
+            mock(MarketDataSource.class), repository, symbolDictionary, candleInvalidator, dataVersions,
+            WriteAheadLog.disabled(), Duration.ofSeconds(2).toNanos(), 16, meterRegistry);
+
+        failing.handle(BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000000L));
+        failing.handle(BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000005L));
+
+        assertEquals(2, failing.status().pending());
+    }
+
+    @Test
+    void testLateEventIsStoredAndInvalidatesCandles() {
+        service.handle(BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000010L));
+
+        service.handle(BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000000L));
+
+        assertEquals(1, eventRepository.query("BTC-USD", 1620000000L, 1620000000L).size());
+        verify(candleInvalidator).invalidateAll(
+            Map.of(symbolDictionary.find("BTC-USD"), List.of(EpochNanos.ofEpochSecond(1620000000L))));
+    }
+
+    @Test
+    void testLateEventsOfABatchAreInvalidatedTogetherBeforeTheirWritesAreRecorded() {
+        service.handle(BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000010L));
+        service.handle(BidAskEvent.ofEpochSecond("ETH-USD", 10.0, 11.0, 1620000010L));
+
+        service.handleBatch(List.of(
+            BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000000L),
+            BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000001L),
+            BidAskEvent.ofEpochSecond("ETH-USD", 10.0, 11.0, 1620000000L)));
+
+        int btc = symbolDictionary.find("BTC-USD");
+        int eth = symbolDictionary.find("ETH-USD");
+        var order = inOrder(candleInvalidator, dataVersions);
+        order.verify(candleInvalidator).invalidateAll(Map.of(
+            btc, List.of(EpochNanos.ofEpochSecond(1620000000L), EpochNanos.ofEpochSecond(1620000001L)),
+            eth, List.of(EpochNanos.ofEpochSecond(1620000000L))));
+        order.verify(dataVersions).recordWrite(btc, EpochNanos.ofEpochSecond(1620000000L));
+        verify(candleInvalidator, times(1)).invalidateAll(any());
+    }
+
+    @Test
+    void testStopFlushesBufferedEvents() {
+        service.handle(BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000000L));
+
+        service.stop();
+
+        assertEquals(1, eventRepository.query("BTC-USD", 0, Long.MAX_VALUE).size());
+        verify(dataVersions).recordWrite(symbolDictionary.find("BTC-USD"), EpochNanos.ofEpochSecond(1620000000L));
+    }
+
+    @Test
+    void testReplayedTicksAreDropped() {
+        var tick = BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000000L);
+        service.handle(tick);
+        service.handle(BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000000L));
+
+        service.stop();
+
+        assertEquals(1, eventRepository.query("BTC-USD", 0, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    void testRecordsOutcomesAndPendingEvents() {
+        service.handle(BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000000L));
+        service.handle(BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000000L));
+        assertEquals(1, meterRegistry.get("marketdata.ingestion.reorder.pending").gauge().value());
+
+        service.stop();
+
+        assertEquals(1, meterRegistry.get("marketdata.ingestion.events").tag("outcome", "stored").counter().count());
+        assertEquals(1, meterRegistry.get("marketdata.ingestion.events").tag("outcome", "duplicate").counter().count());
+        assertEquals(0, meterRegistry.get("marketdata.ingestion.reorder.pending").gauge().value());
+        assertEquals(1, meterRegistry.get("marketdata.ingestion.lag").timer().count());
+    }
+
+    @Test
+    void testBufferedEventsSurviveCrashThroughWriteAheadLog(@TempDir Path walDir) {
+        var wal = new MappedWriteAheadLog(walDir, 4096, 0, false, meterRegistry).open();
+        var crashed = ingestionService(wal);
+        crashed.handle(BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000000L));
+        crashed.handle(BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000001L));
+        assertTrue(eventRepository.query("BTC-USD", 0, Long.MAX_VALUE).isEmpty());
+        wal.close();
+
+        var recoveredWal = new MappedWriteAheadLog(walDir, 4096, 0, false, meterRegistry).open();
+        var recovered = ingestionService(recoveredWal);
+        recovered.start();
+        recovered.stop();
+        recoveredWal.close();
+
+        assertEquals(2, eventRepository.query("BTC-USD", 0, Long.MAX_VALUE).size());
+        var replayed = new ArrayList<BidAskEvent>();
+        try (var reopened = new MappedWriteAheadLog(walDir, 4096, 0, false, meterRegistry).open()) {
+            reopened.replay((event, position) -> replayed.add(event));
+        }
+        assertTrue(replayed.isEmpty(), "stop() checkpoints past stored events");
+    }
+
+    @Test
+    void testBatchIsAppendedThenAcknowledgedWithOneSync() {
+        var wal = mock(WriteAheadLog.class);
+        when(wal.append(anyInt(), any())).thenReturn(10L, 20L, 30L);
+        var batched = ingestionService(wal);
+
+        batched.handleBatch(List.of(
+            BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000000L),
+            BidAskEvent.ofEpochSecond("ETH-USD", 10.0, 11.0, 1620000000L),
+            BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000001L)));
+
+        var order = inOrder(wal);
+        order.verify(wal, times(3)).append(anyInt(), any());
+        order.verify(wal).awaitDurable(30L);
+        verify(wal, times(1)).awaitDurable(anyLong());
+        assertEquals(3, batched.status().pending());
+    }
+
+    @Test
+    void testBatchOfDuplicatesIsNotSynced() {
+        var wal = mock(WriteAheadLog.class);
+        var batched = ingestionService(wal);
+        var event = BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000000L);
+        batched.handle(event);
+
+        batched.handleBatch(List.of(event));
+
+        verify(wal, times(1)).append(anyInt(), any());
+        verify(wal, times(1)).awaitDurable(anyLong());
+    }
+
+    @Test
+    void testFailedSaveIsRetriedAndInvalidatesCandles() {
+        var repository = spy(eventRepository);
+        doThrow(new IllegalStateException("database down")).doCallRealMethod().when(repository).save(any());
+        var retrying = new MarketDataIngestionService(
+            mock(MarketDataSource.class), repository, symbolDictionary, candleInvalidator, dataVersions,
+            WriteAheadLog.disabled(), Duration.ofSeconds(2).toNanos(), 16, meterRegistry);
+        var event = BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000000L);
+        retrying.handle(event);
+
+        retrying.stop();
+
+        assertEquals(1, repository.query("BTC-USD", 0, Long.MAX_VALUE).size());
+        verify(candleInvalidator).invalidateAll(
+            Map.of(symbolDictionary.find("BTC-USD"), List.of(event.timestampNanos())));
+        assertEquals(1, meterRegistry.get("marketdata.ingestion.events").tag("outcome", "stored").counter().count());
+    }
+
+    @Test
+    void testEventIsDroppedAfterRepeatedFailuresSoTheCheckpointAdvances(@TempDir Path walDir) {
+        var repository = spy(eventRepository);
+        doThrow(new IllegalStateException("rejected")).when(repository).save(any());
+        try (var wal = new MappedWriteAheadLog(walDir, 4096, 0, false, meterRegistry).open()) {
+            var failing = new MarketDataIngestionService(
+                mock(MarketDataSource.class), repository, symbolDictionary, candleInvalidator, dataVersions,
+                wal, Duration.ofSeconds(2).toNanos(), 16, meterRegistry);
+            failing.handle(BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000000L));
+            failing.stop();
+            // Attempts 1 and 2 ran on stop(); each flush makes one more and checkpoints
+            for (int attempt = 3; attempt < MarketDataIngestionService.MAX_SAVE_ATTEMPTS; attempt++) {
+                failing.flushIdle();
+            }
+            var stalled = new ArrayList<BidAskEvent>();
+            wal.replay((event, position) -> stalled.add(event));
+            assertEquals(1, stalled.size(), "a failing event holds back the checkpoint");
+
+            failing.flushIdle();
+
+            var replayed = new ArrayList<BidAskEvent>();
+            wal.replay((event, position) -> replayed.add(event));
+            assertTrue(replayed.isEmpty());
+        }
+        verify(repository, times(MarketDataIngestionService.MAX_SAVE_ATTEMPTS)).save(any());
+        assertEquals(1, meterRegistry.get("marketdata.ingestion.events").tag("outcome", "failed").counter().count());
+    }
+
+    private MarketDataIngestionService ingestionService(WriteAheadLog wal) {
+        return new MarketDataIngestionService(
+            mock(MarketDataSource.class), eventRepository, symbolDictionary, candleInvalidator, dataVersions,
+            wal, Duration.ofSeconds(2).toNanos(), 16, meterRegistry);
+    }
+}
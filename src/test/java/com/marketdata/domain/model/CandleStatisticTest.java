@@ -0,0 +1,28 @@
+package com.marketdata.domain.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CandleStatisticTest {
+
+    @Test
+    void testParseCommaSeparatedFields() {
+        assertEquals(EnumSet.of(CandleStatistic.BID, CandleStatistic.SPREAD), CandleStatistic.parse("bid,spread"));
+        assertEquals(EnumSet.allOf(CandleStatistic.class), CandleStatistic.parse(" Ask , MEAN,bid,spread,bid "));
+    }
+
+    @Test
+    void testParseMissingFieldsIsEmpty() {
+        assertTrue(CandleStatistic.parse(null).isEmpty());
+        assertTrue(CandleStatistic.parse("  ").isEmpty());
+    }
+
+    @Test
+    void testParseUnknownFieldThrows() {
+        var e = assertThrows(IllegalArgumentException.class, () -> CandleStatistic.parse("bid,vwap"));
+        assertTrue(e.getMessage().contains("vwap"));
+    }
+}
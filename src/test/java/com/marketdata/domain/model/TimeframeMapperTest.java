@@ -8,6 +8,11 @@ class TimeframeMapperTest {
 
     @Test
     void testParseTradingFormat() {
+        // Second format
+        assertEquals(Timeframe.S1, TimeframeMapper.parse("1s"));
+        assertEquals(Timeframe.S5, TimeframeMapper.parse("5s"));
+        assertEquals(Timeframe.S15, TimeframeMapper.parse("15s"));
+
         // Minute format
         assertEquals(Timeframe.M1, TimeframeMapper.parse("1m"));
         assertEquals(Timeframe.M5, TimeframeMapper.parse("5m"));
@@ -75,7 +80,7 @@ class TimeframeMapperTest {
     @Test
     void testParseInvalidFormats() {
         // Test various invalid formats
-        String[] invalidIntervals = {"2m", "10m", "3h", "2d", "15", "1min", "5minutes"};
+        String[] invalidIntervals = {"0m", "2x", "15", "1min", "5minutes", "400d", "13M", "1000000s"};
         
         for (String interval : invalidIntervals) {
             IllegalArgumentException ex = assertThrows(
@@ -87,4 +92,38 @@ class TimeframeMapperTest {
             assertTrue(ex.getMessage().contains("Supported formats"));
         }
     }
+
+    @Test
+    void testParseCustomIntervals() {
+        assertEquals(180, TimeframeMapper.parse("3m").getSeconds());
+        assertEquals(7200, TimeframeMapper.parse("2h").getSeconds());
+        assertEquals(14400, TimeframeMapper.parse("4h").getSeconds());
+        assertEquals(43200, TimeframeMapper.parse("12h").getSeconds());
+        assertEquals("12h", TimeframeMapper.parse("12h").toString());
+        assertTrue(TimeframeMapper.parse("3M").isCalendar());
+    }
+
+    @Test
+    void testParseWithTimezoneAndSessionOffset() {
+        var fxDay = TimeframeMapper.parse("1d", "America/New_York", -420);
+
+        assertTrue(fxDay.isCalendar());
+        assertEquals(1619989200L, fxDay.bucketStart(1620043200L));
+        // Intraday buckets are not affected by the zone
+        assertEquals(Timeframe.H1, TimeframeMapper.parse("1h", "America/New_York", 0));
+    }
+
+    @Test
+    void testParseInvalidTimezone() {
+        IllegalArgumentException ex = assertThrows(
+            IllegalArgumentException.class,
+            () -> TimeframeMapper.parse("1d", "Mars/Olympus", 0)
+        );
+        assertTrue(ex.getMessage().contains("Invalid timezone"));
+    }
+
+    @Test
+    void testParseInvalidSessionOffset() {
+        assertThrows(IllegalArgumentException.class, () -> TimeframeMapper.parse("1d", null, 1440));
+    }
 }
@@ -2,6 +2,12 @@ package com.marketdata.domain.model;
 
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class TimeframeTest {
@@ -44,4 +50,155 @@ class TimeframeTest {
         assertEquals(900, Timeframe.M15.getSeconds());
         assertEquals(3600, Timeframe.H1.getSeconds());
     }
+
+    @Test
+    void testSubMinuteTimeframeSeconds() {
+        assertEquals(1, Timeframe.S1.getSeconds());
+        assertEquals(5, Timeframe.S5.getSeconds());
+        assertEquals(15, Timeframe.S15.getSeconds());
+    }
+
+    @Test
+    void testBucketStartNanos() {
+        long epochNanos = 1620000123_987654321L; // 1620000123.987654321
+
+        assertEquals(1620000123L, Timeframe.S1.bucketStartNanos(epochNanos));
+        assertEquals(1620000120L, Timeframe.S5.bucketStartNanos(epochNanos));
+        assertEquals(1620000120L, Timeframe.S15.bucketStartNanos(epochNanos));
+        assertEquals(1620000120L, Timeframe.M1.bucketStartNanos(epochNanos));
+        assertEquals(1620000000L, Timeframe.M5.bucketStartNanos(epochNanos));
+    }
+
+    @Test
+    void testBucketStartNanosMatchesSeconds() {
+        var timeframes = List.of(Timeframe.S1, Timeframe.S5, Timeframe.S15, Timeframe.M1, Timeframe.M5,
+            Timeframe.M15, Timeframe.M30, Timeframe.H1, Timeframe.H5, Timeframe.D1, Timeframe.W1, Timeframe.MN1);
+        for (var timeframe : timeframes) {
+            long epochSec = 1620003723L;
+            assertEquals(timeframe.bucketStart(epochSec),
+                timeframe.bucketStartNanos(EpochNanos.ofEpochSecond(epochSec) + 999_999_999L), timeframe.toString());
+        }
+    }
+
+    @Test
+    void testWeeksStartOnMonday() {
+        // 2021-05-03 00:00 UTC is a Monday
+        assertEquals(1620000000L, Timeframe.W1.bucketStart(1620003723L));
+        assertEquals(1620000000L - 604800, Timeframe.W1.bucketStart(1619999999L));
+        assertFalse(Timeframe.W1.isCalendar());
+    }
+
+    @Test
+    void testMonthsFollowTheCalendar() {
+        // 2021-05-03 01:02:03 UTC -> 2021-05-01, next bucket 2021-06-01
+        assertEquals(1619827200L, Timeframe.MN1.bucketStart(1620003723L));
+        assertEquals(1622505600L, Timeframe.MN1.nextBucketStart(1619827200L));
+        // February 2021 has 28 days
+        assertEquals(1612137600L + 28 * 86400, Timeframe.MN1.nextBucketStart(1612137600L));
+        assertTrue(Timeframe.MN1.isCalendar());
+    }
+
+    @Test
+    void testDaysAcrossDaylightSavingChange() {
+        var newYork = Timeframe.calendar("1d", ChronoUnit.DAYS, 1, ZoneId.of("America/New_York"), 0);
+
+        // 2021-03-14 starts at 05:00 UTC (EST) and lasts 23 hours
+        long dayStart = 1615698000L;
+        assertEquals(dayStart, newYork.bucketStart(dayStart + 3600));
+        assertEquals(dayStart + 23 * 3600, newYork.nextBucketStart(dayStart));
+        assertEquals(dayStart + 23 * 3600, newYork.bucketStart(dayStart + 23 * 3600));
+    }
+
+    @Test
+    void testCalendarBucketsBefore1970AndAfter2100() {
+        // 1969-12-15 -> 1969-12-01, next 1970-01-01
+        assertEquals(-31 * 86400L, Timeframe.MN1.bucketStart(-17 * 86400L));
+        assertEquals(0L, Timeframe.MN1.nextBucketStart(-31 * 86400L));
+        // 2100-02-10 -> 2100-02-01, next 2100-03-01 (2100 is not a leap year)
+        long february2100 = LocalDate.of(2100, 2, 1).atStartOfDay(ZoneOffset.UTC).toEpochSecond();
+        assertEquals(february2100, Timeframe.MN1.bucketStart(february2100 + 9 * 86400));
+        assertEquals(february2100 + 28 * 86400, Timeframe.MN1.nextBucketStart(february2100));
+    }
+
+    @Test
+    void testDaysAcrossDaylightSavingChangeBefore1970() {
+        var zone = ZoneId.of("America/New_York");
+        var newYork = Timeframe.calendar("1d", ChronoUnit.DAYS, 1, zone, 0);
+
+        // 1969-04-27 lasted 23 hours in New York
+        long dayStart = LocalDate.of(1969, 4, 27).atStartOfDay(zone).toEpochSecond();
+        assertEquals(dayStart, newYork.bucketStart(dayStart + 3600));
+        assertEquals(dayStart + 23 * 3600, newYork.nextBucketStart(dayStart));
+        assertEquals(dayStart - 24 * 3600, newYork.bucketStart(dayStart - 1));
+    }
+
+    @Test
+    void testCalendarBucketsAreContiguousAcrossTheTableStart() {
+        var fxWeek = Timeframe.calendar("1w", ChronoUnit.WEEKS, 1, ZoneId.of("America/New_York"), -7 * 3600);
+
+        long bucket = fxWeek.bucketStart(-30 * 86400L);
+        for (int i = 0; i < 10; i++) {
+            long next = fxWeek.nextBucketStart(bucket);
+            assertTrue(next > bucket);
+            assertEquals(bucket, fxWeek.bucketStart(next - 1));
+            assertEquals(next, fxWeek.bucketStart(next));
+            bucket = next;
+        }
+    }
+
+    @Test
+    void testSessionOffsetShiftsDayStart() {
+        // FX day: 17:00 New York on the previous day
+        var fxDay = Timeframe.calendar("1d", ChronoUnit.DAYS, 1, ZoneId.of("America/New_York"), -7 * 3600);
+
+        // 2021-05-03 12:00 UTC -> 2021-05-02 17:00 EDT = 21:00 UTC
+        assertEquals(1619989200L, fxDay.bucketStart(1620043200L));
+        assertEquals(Timeframe.M15, fxDay.nestedFixedBase());
+    }
+
+    @Test
+    void testFixedOffsetZoneUsesIntegerBucketing() {
+        var day = Timeframe.calendar("1d", ChronoUnit.DAYS, 1, ZoneOffset.ofHours(2), 0);
+
+        assertFalse(day.isCalendar());
+        // 2021-05-03 03:02 +02:00 -> 2021-05-03 00:00 +02:00
+        assertEquals(1619992800L, day.bucketStart(1620003723L));
+    }
+
+    @Test
+    void testCustomFixedTimeframe() {
+        var fourHours = Timeframe.ofSeconds("4h", 4 * 3600);
+
+        assertEquals(1620000000L, fourHours.bucketStart(1620003723L));
+        assertEquals(1620014400L, fourHours.nextBucketStart(1620000000L));
+        assertEquals(fourHours, Timeframe.ofSeconds("240m", 240 * 60));
+    }
+
+    @Test
+    void testCoarsenKeepsTimeframeWithinBudget() {
+        assertSame(Timeframe.M1, Timeframe.M1.coarsen(1620000000L, 1620003599L, 60));
+    }
+
+    @Test
+    void testCoarsenPrefersCommonSizes() {
+        // One year of 1m candles into 1000 points needs >= ~8.8h buckets -> 12h
+        var coarse = Timeframe.M1.coarsen(1609459200L, 1640995199L, 1000);
+
+        assertEquals(12 * 3600, coarse.getSeconds());
+        assertTrue((coarse.bucketStart(1640995199L) - coarse.bucketStart(1609459200L)) / coarse.getSeconds() < 1000);
+    }
+
+    @Test
+    void testCoarsenKeepsAlignment() {
+        var shifted = Timeframe.fixed("1h", 3600, 1800);
+        var coarse = shifted.coarsen(1620000000L, 1620000000L + 100 * 3600, 10);
+
+        assertEquals(1800, coarse.offsetSeconds());
+        assertEquals(0, coarse.getSeconds() % 3600);
+    }
+
+    @Test
+    void testCoarsenLeavesCalendarTimeframes() {
+        assertSame(Timeframe.MN1, Timeframe.MN1.coarsen(0L, 1640995199L, 10));
+    }
 }
@@ -0,0 +1,306 @@
+package com.marketdata.domain.service;
+
+import com.marketdata.domain.model.BidAskEvent;
+import com.marketdata.domain.model.Candle;
+import com.marketdata.domain.model.EpochNanos;
+import com.marketdata.domain.model.Ohlc;
+import com.marketdata.domain.model.Timeframe;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CandleAggregatorTest {
+
+    private static final long BASE = EpochNanos.ofEpochSecond(1620000000L);
+
+    private final CandleAggregator aggregator = new CandleAggregator();
+
+    @Test
+    void testSubSecondOrderingDeterminesOpenAndClose() {
+        var events = List.of(
+            event(100.0, BASE + 1_000),
+            event(300.0, BASE + 500_000_000),
+            event(200.0, BASE + 999_999_999)
+        );
+
+        var candles = aggregator.aggregate(events, Timeframe.S1);
+
+        assertEquals(1, candles.size());
+        assertEquals(100.5, candles.get(0).getOpen());
+        assertEquals(300.5, candles.get(0).getHigh());
+        assertEquals(100.5, candles.get(0).getLow());
+        assertEquals(200.5, candles.get(0).getClose());
+        assertEquals(3, candles.get(0).getVolume());
+    }
+
+    @Test
+    void testUnsortedInputIsSortedFirst() {
+        var events = List.of(
+            event(200.0, BASE + 700_000_000),
+            event(100.0, BASE + 100_000_000),
+            event(300.0, BASE + 2 * EpochNanos.NANOS_PER_SECOND)
+        );
+
+        var candles = aggregator.aggregate(events, Timeframe.S1);
+
+        assertEquals(2, candles.size());
+        assertEquals(1620000000L, candles.get(0).getTime());
+        assertEquals(100.5, candles.get(0).getOpen());
+        assertEquals(200.5, candles.get(0).getClose());
+        assertEquals(1620000002L, candles.get(1).getTime());
+    }
+
+    @Test
+    void testFiveSecondBuckets() {
+        var events = List.of(
+            event(100.0, BASE),
+            event(101.0, BASE + 4 * EpochNanos.NANOS_PER_SECOND),
+            event(102.0, BASE + 5 * EpochNanos.NANOS_PER_SECOND),
+            event(103.0, BASE + 14 * EpochNanos.NANOS_PER_SECOND)
+        );
+
+        var candles = aggregator.aggregate(events, Timeframe.S5);
+
+        assertEquals(List.of(1620000000L, 1620000005L, 1620000010L),
+            candles.stream().map(c -> c.getTime()).toList());
+        assertEquals(List.of(2L, 1L, 1L), candles.stream().map(c -> c.getVolume()).toList());
+    }
+
+    @Test
+    void testCalendarMonthBuckets() {
+        // 2021-04-30 23:59:59, 2021-05-01 00:00:00 and 2021-05-31 12:00:00 UTC
+        var events = List.of(
+            event(100.0, EpochNanos.ofEpochSecond(1619827199L)),
+            event(101.0, EpochNanos.ofEpochSecond(1619827200L)),
+            event(102.0, EpochNanos.ofEpochSecond(1622462400L))
+        );
+
+        var candles = aggregator.aggregate(events, Timeframe.MN1);
+
+        assertEquals(List.of(1617235200L, 1619827200L), candles.stream().map(c -> c.getTime()).toList());
+        assertEquals(List.of(1L, 2L), candles.stream().map(c -> c.getVolume()).toList());
+    }
+
+    @Test
+    void testRollUpMatchesDirectAggregation() {
+        var events = new ArrayList<BidAskEvent>();
+        for (int i = 0; i < 40; i++) {
+            events.add(event(100.0 + (i * 7) % 13, BASE + i * 20 * EpochNanos.NANOS_PER_SECOND));
+        }
+        var threeMinutes = Timeframe.ofSeconds("3m", 180);
+
+        var direct = aggregator.aggregate(events, threeMinutes);
+        var rolled = CandleAggregator.rollUp(aggregator.aggregate(events, Timeframe.M1), threeMinutes);
+
+        assertEquals(direct.size(), rolled.size());
+        for (int i = 0; i < direct.size(); i++) {
+            assertEquals(direct.get(i).getTime(), rolled.get(i).getTime());
+            assertEquals(direct.get(i).getOpen(), rolled.get(i).getOpen());
+            assertEquals(direct.get(i).getHigh(), rolled.get(i).getHigh());
+            assertEquals(direct.get(i).getLow(), rolled.get(i).getLow());
+            assertEquals(direct.get(i).getClose(), rolled.get(i).getClose());
+            assertEquals(direct.get(i).getVolume(), rolled.get(i).getVolume());
+        }
+    }
+
+    @Test
+    void testDownsamplePreservesExtremes() {
+        var candles = new ArrayList<Candle>();
+        for (int i = 0; i < 10; i++) {
+            candles.add(new Candle(1620000000L + i * 60, 100 + i, 110 + i + (i == 7 ? 50 : 0), 90 - i, 101 + i, 1));
+        }
+
+        var sampled = CandleAggregator.downsample(candles, 3);
+
+        assertEquals(3, sampled.size());
+        assertEquals(List.of(1620000000L, 1620000240L, 1620000480L), sampled.stream().map(Candle::getTime).toList());
+        assertEquals(100.0, sampled.get(0).getOpen());
+        assertEquals(167.0, sampled.get(1).getHigh());
+        assertEquals(81.0, sampled.get(2).getLow());
+        assertEquals(110.0, sampled.get(2).getClose());
+        assertEquals(10, sampled.stream().mapToLong(Candle::getVolume).sum());
+    }
+
+    @Test
+    void testDownsampleWithinBudgetIsUnchanged() {
+        var candles = List.of(new Candle(1620000000L, 1, 2, 0.5, 1.5, 3));
+        assertSame(candles, CandleAggregator.downsample(candles, 1));
+    }
+
+    @Test
+    void testDetailedAccumulatorComputesSidesAndSpreadInOnePass() {
+        var accumulator = aggregator.detailedAccumulator(Timeframe.M1);
+        accumulator.accept(new BidAskEvent("BTC-USD", 100.0, 101.0, BASE));
+        accumulator.accept(new BidAskEvent("BTC-USD", 104.0, 107.0, BASE + 10 * EpochNanos.NANOS_PER_SECOND));
+        accumulator.accept(new BidAskEvent("BTC-USD", 98.0, 100.0, BASE + 20 * EpochNanos.NANOS_PER_SECOND));
+        accumulator.accept(new BidAskEvent("BTC-USD", 99.0, 99.5, BASE + 60 * EpochNanos.NANOS_PER_SECOND));
+
+        var candles = accumulator.candles();
+
+        assertEquals(2, candles.size());
+        var first = candles.get(0);
+        assertEquals(1620000000L, first.mid().getTime());
+        assertEquals(100.5, first.mid().getOpen());
+        assertEquals(105.5, first.mid().getHigh());
+        assertEquals(99.0, first.mid().getLow());
+        assertEquals(99.0, first.mid().getClose());
+        assertEquals(3, first.mid().getVolume());
+        assertEquals(new Ohlc(100.0, 104.0, 98.0, 98.0), first.bid());
+        assertEquals(new Ohlc(101.0, 107.0, 100.0, 100.0), first.ask());
+        assertEquals(1.0, first.spreadMin());
+        assertEquals(3.0, first.spreadMax());
+        assertEquals(2.0, first.spreadAvg());
+        assertEquals((100.5 + 105.5 + 99.0) / 3, first.mean(), 1e-9);
+        assertEquals(0.5, candles.get(1).spreadAvg());
+        assertEquals(1, candles.get(1).mid().getVolume());
+    }
+
+    @Test
+    void testDetailedMidCandlesMatchPlainAggregation() {
+        var events = new ArrayList<BidAskEvent>();
+        for (int i = 0; i < 500; i++) {
+            events.add(event(100.0 + (i * 7) % 13, BASE + i * 20 * EpochNanos.NANOS_PER_SECOND));
+        }
+        var accumulator = aggregator.detailedAccumulator(Timeframe.M5);
+        events.forEach(accumulator);
+
+        var detailed = accumulator.candles();
+        var plain = aggregator.aggregate(events, Timeframe.M5);
+
+        assertEquals(plain.size(), detailed.size());
+        for (int i = 0; i < plain.size(); i++) {
+            var mid = detailed.get(i).mid();
+            assertEquals(plain.get(i).getTime(), mid.getTime());
+            assertEquals(plain.get(i).getOpen(), mid.getOpen());
+            assertEquals(plain.get(i).getHigh(), mid.getHigh());
+            assertEquals(plain.get(i).getLow(), mid.getLow());
+            assertEquals(plain.get(i).getClose(), mid.getClose());
+            assertEquals(plain.get(i).getVolume(), mid.getVolume());
+        }
+    }
+
+    @Test
+    void testDownsampleDetailedWeightsAveragesByTicks() {
+        var accumulator = aggregator.detailedAccumulator(Timeframe.S1);
+        accumulator.accept(new BidAskEvent("BTC-USD", 100.0, 102.0, BASE));
+        accumulator.accept(new BidAskEvent("BTC-USD", 100.0, 101.0, BASE + EpochNanos.NANOS_PER_SECOND));
+        accumulator.accept(new BidAskEvent("BTC-USD", 100.0, 101.0, BASE + EpochNanos.NANOS_PER_SECOND + 1));
+        accumulator.accept(new BidAskEvent("BTC-USD", 90.0, 91.0, BASE + 2 * EpochNanos.NANOS_PER_SECOND));
+
+        var merged = CandleAggregator.downsampleDetailed(accumulator.candles(), 2);
+
+        assertEquals(2, merged.size());
+        var first = merged.get(0);
+        assertEquals(3, first.mid().getVolume());
+        assertEquals(new Ohlc(100.0, 100.0, 100.0, 100.0), first.bid());
+        assertEquals(new Ohlc(102.0, 102.0, 101.0, 101.0), first.ask());
+        assertEquals(1.0, first.spreadMin());
+        assertEquals(2.0, first.spreadMax());
+        assertEquals(4.0 / 3, first.spreadAvg(), 1e-9);
+        assertEquals((101.0 + 100.5 + 100.5) / 3, first.mean(), 1e-9);
+        assertEquals(90.5, merged.get(1).mean());
+    }
+
+    @Test
+    void testScalarAndVectorKernelsAggregateIdentically() {
+        var random = new SplittableRandom(7);
+        int length = 10_000;
+        var timestamps = new long[length];
+        var bids = new double[length];
+        var asks = new double[length];
+        long nanos = BASE;
+        for (int i = 0; i < length; i++) {
+            nanos += random.nextLong(1, 2 * EpochNanos.NANOS_PER_SECOND);
+            timestamps[i] = nanos;
+            bids[i] = 50000.0 + random.nextDouble(-500, 500);
+            asks[i] = bids[i] + random.nextDouble(0.1, 2);
+        }
+
+        for (var timeframe : List.of(Timeframe.S1, Timeframe.M1, Timeframe.H1, Timeframe.D1)) {
+            var scalar = new CandleAggregator(CandleKernel.scalar()).aggregate(timestamps, bids, asks, length, timeframe);
+            var vector = new CandleAggregator(CandleKernel.vectorized()).aggregate(timestamps, bids, asks, length, timeframe);
+            assertSameCandles(scalar, vector);
+        }
+    }
+
+    @Test
+    void testColumnarAggregationMatchesEventAggregation() {
+        int length = 5000;
+        var timestamps = new long[length + 3];
+        var bids = new double[length + 3];
+        var asks = new double[length + 3];
+        var events = new ArrayList<BidAskEvent>();
+        for (int i = 0; i < length; i++) {
+            timestamps[i] = BASE + i * 250_000_000L;
+            bids[i] = 100.0 + (i * 31) % 17;
+            asks[i] = bids[i] + 1 + i % 3;
+            events.add(new BidAskEvent("BTC-USD", bids[i], asks[i], timestamps[i]));
+        }
+
+        var columnar = aggregator.aggregate(timestamps, bids, asks, length, Timeframe.M1);
+
+        assertSameCandles(aggregator.aggregate(events, Timeframe.M1), columnar);
+        assertEquals(length, columnar.stream().mapToLong(Candle::getVolume).sum());
+        assertEquals(21, columnar.size());
+    }
+
+    @Test
+    void testColumnarBucketSpanningManyBlocks() {
+        int length = 3 * 1024 + 5;
+        var timestamps = new long[length];
+        var bids = new double[length];
+        var asks = new double[length];
+        for (int i = 0; i < length; i++) {
+            timestamps[i] = BASE + i * 1_000_000L;
+            bids[i] = i == 1500 ? 200.0 : i == 2500 ? 10.0 : 100.0;
+            asks[i] = bids[i] + 1;
+        }
+
+        var candles = aggregator.aggregate(timestamps, bids, asks, length, Timeframe.H1);
+
+        assertEquals(1, candles.size());
+        assertEquals(100.5, candles.get(0).getOpen());
+        assertEquals(200.5, candles.get(0).getHigh());
+        assertEquals(10.5, candles.get(0).getLow());
+        assertEquals(100.5, candles.get(0).getClose());
+        assertEquals(length, candles.get(0).getVolume());
+    }
+
+    @Test
+    void testColumnarAccumulatorBuffersSingleEventsIntoBlocks() {
+        var events = new ArrayList<BidAskEvent>();
+        for (int i = 0; i < 2500; i++) {
+            events.add(event(100.0 + (i * 31) % 17, BASE + i * 100_000_000L));
+        }
+
+        var accumulator = aggregator.columnarAccumulator(Timeframe.M1);
+        events.forEach(accumulator);
+
+        assertSameCandles(aggregator.aggregate(events, Timeframe.M1), accumulator.candles());
+    }
+
+    @Test
+    void testEmptyInput() {
+        assertTrue(aggregator.aggregate(List.of(), Timeframe.M1).isEmpty());
+    }
+
+    private static void assertSameCandles(List<Candle> expected, List<Candle> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getTime(), actual.get(i).getTime());
+            assertEquals(expected.get(i).getOpen(), actual.get(i).getOpen());
+            assertEquals(expected.get(i).getHigh(), actual.get(i).getHigh());
+            assertEquals(expected.get(i).getLow(), actual.get(i).getLow());
+            assertEquals(expected.get(i).getClose(), actual.get(i).getClose());
+            assertEquals(expected.get(i).getVolume(), actual.get(i).getVolume());
+        }
+    }
+
+    private static BidAskEvent event(double bid, long timestampNanos) {
+        return new BidAskEvent("BTC-USD", bid, bid + 1.0, timestampNanos);
+    }
+}
@@ -0,0 +1,88 @@
+package com.marketdata.domain.service;
+
+import com.marketdata.domain.model.BidAskEvent;
+import com.marketdata.domain.model.EpochNanos;
+import com.marketdata.domain.model.EventColumns;
+import com.marketdata.domain.model.Timeframe;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the two ways a {@code /history} slice can consume its cursor: creating an event
+ * per row for the per-event accumulator, or copying each row into {@link EventColumns} for
+ * the columnar accumulator on the scalar and vectorized kernels. The database itself is
+ * left out; {@code SqlAggregationBenchmarkTest} measures the paths end to end.
+ * The kernels share call sites, so whichever runs second may be measured with a profile
+ * polluted by the first; pass a single kernel for clean numbers.
+ * Disabled by default; run with
+ * {@code mvn test -Dtest=CandleKernelBenchmarkTest -Dbenchmark=true [-Dbenchmark.events=10000000]
+ * [-Dbenchmark.kernels=scalar]}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CandleKernelBenchmarkTest {
+
+    private static final long START = EpochNanos.ofEpochSecond(1620000000L);
+    private static final int WARMUP = 5;
+    private static final int RUNS = 10;
+
+    @Test
+    void compareKernels() {
+        int events = Integer.getInteger("benchmark.events", 5_000_000);
+        var timestamps = new long[events];
+        var bids = new double[events];
+        var asks = new double[events];
+        var random = new SplittableRandom(42);
+        long nanos = START;
+        for (int i = 0; i < events; i++) {
+            nanos += random.nextLong(1, 500_000_000L);
+            timestamps[i] = nanos;
+            bids[i] = 50000.0 + random.nextDouble(-500, 500);
+            asks[i] = bids[i] + 1.0;
+        }
+        for (var timeframe : List.of(Timeframe.S1, Timeframe.M1, Timeframe.H1)) {
+            int expected = time("events", timeframe, events, () -> {
+                var accumulator = new CandleAggregator().accumulator(timeframe);
+                for (int i = 0; i < events; i++) {
+                    accumulator.accept(new BidAskEvent("BTC-USD", bids[i], asks[i], timestamps[i]));
+                }
+                return accumulator.candles().size();
+            });
+            for (String name : System.getProperty("benchmark.kernels", "vector,scalar").split(",")) {
+                var kernel = CandleKernel.resolve(name);
+                var aggregator = new CandleAggregator(kernel);
+                int candles = time("columns " + kernel, timeframe, events, () -> {
+                    var accumulator = aggregator.columnarAccumulator(timeframe);
+                    var columns = new EventColumns(accumulator);
+                    for (int i = 0; i < events; i++) {
+                        columns.add(timestamps[i], bids[i], asks[i]);
+                    }
+                    columns.flush();
+                    return accumulator.candles().size();
+                });
+                assertEquals(expected, candles);
+            }
+        }
+    }
+
+    private static int time(String name, Timeframe timeframe, int events, IntSupplier run) {
+        int candles = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            candles = run.getAsInt();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            candles = run.getAsInt();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-28s %-4s events=%d candles=%d best=%.1f ms (%.0f M events/s)%n",
+            name, timeframe, events, candles, best / 1e6, events * 1e3 / best);
+        return candles;
+    }
+}
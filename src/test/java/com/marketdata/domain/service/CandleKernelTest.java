@@ -0,0 +1,60 @@
+package com.marketdata.domain.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CandleKernelTest {
+
+    private final CandleKernel scalar = CandleKernel.scalar();
+    private final CandleKernel vector = CandleKernel.vectorized();
+
+    @Test
+    void testMidPricesMatchScalar() {
+        var random = new SplittableRandom(1);
+        var bids = random.doubles(1000, 100, 200).toArray();
+        var asks = random.doubles(1000, 200, 300).toArray();
+
+        for (int[] range : new int[][] {{0, 1000}, {3, 997}, {10, 13}, {5, 5}}) {
+            var expected = new double[1000];
+            var actual = new double[1000];
+            scalar.midPrices(bids, asks, range[0], range[1], expected);
+            vector.midPrices(bids, asks, range[0], range[1], actual);
+            assertArrayEquals(expected, actual);
+        }
+        var mids = new double[1];
+        vector.midPrices(bids, asks, 7, 8, mids);
+        assertEquals((bids[7] + asks[7]) / 2.0, mids[0]);
+    }
+
+    @Test
+    void testMinMaxMatchScalarForEveryAlignment() {
+        var values = new SplittableRandom(2).doubles(100, -1000, 1000).toArray();
+
+        for (int from = 0; from < 20; from++) {
+            for (int to = from + 1; to <= values.length; to++) {
+                assertEquals(scalar.max(values, from, to), vector.max(values, from, to));
+                assertEquals(scalar.min(values, from, to), vector.min(values, from, to));
+            }
+        }
+    }
+
+    @Test
+    void testEmptyRange() {
+        var values = new double[] {1.0, 2.0};
+
+        assertEquals(Double.NEGATIVE_INFINITY, vector.max(values, 1, 1));
+        assertEquals(Double.POSITIVE_INFINITY, vector.min(values, 1, 1));
+        assertEquals(Double.NEGATIVE_INFINITY, scalar.max(values, 1, 1));
+    }
+
+    @Test
+    void testResolve() {
+        assertSame(vector, CandleKernel.resolve("auto"));
+        assertSame(vector, CandleKernel.resolve("Vector"));
+        assertSame(scalar, CandleKernel.resolve("scalar"));
+        assertThrows(IllegalArgumentException.class, () -> CandleKernel.resolve("gpu"));
+    }
+}
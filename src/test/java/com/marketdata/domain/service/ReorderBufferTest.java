@@ -0,0 +1,150 @@
+package com.marketdata.domain.service;
+
+import com.marketdata.domain.model.BidAskEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReorderBufferTest {
+
+    private static final int BTC = 1;
+    private static final int ETH = 2;
+
+    private List<BidAskEvent> released;
+    private List<BidAskEvent> late;
+    private long clock;
+    private ReorderBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        released = new ArrayList<>();
+        late = new ArrayList<>();
+        clock = 0;
+        buffer = new ReorderBuffer(5, () -> clock, (e, id) -> released.add(e), (e, id) -> late.add(e));
+    }
+
+    @Test
+    void testReleasesInTimestampOrder() {
+        buffer.offer(BTC, event("BTC-USD", 100));
+        buffer.offer(BTC, event("BTC-USD", 103));
+        buffer.offer(BTC, event("BTC-USD", 101)); // out of order, within window
+        assertTrue(released.isEmpty());
+
+        buffer.offer(BTC, event("BTC-USD", 110)); // watermark 105
+
+        assertEquals(List.of(100L, 101L, 103L), timestamps(released));
+        assertTrue(late.isEmpty());
+        assertEquals(1, buffer.size());
+    }
+
+    @Test
+    void testEqualTimestampsKeepArrivalOrder() {
+        var first = new BidAskEvent("BTC-USD", 1.0, 2.0, 100);
+        var second = new BidAskEvent("BTC-USD", 3.0, 4.0, 100);
+        buffer.offer(BTC, first);
+        buffer.offer(BTC, second);
+
+        buffer.offer(BTC, event("BTC-USD", 200));
+
+        assertSame(first, released.get(0));
+        assertSame(second, released.get(1));
+    }
+
+    @Test
+    void testEventBehindWatermarkIsLate() {
+        buffer.offer(BTC, event("BTC-USD", 100));
+        buffer.offer(BTC, event("BTC-USD", 110)); // watermark 105
+
+        buffer.offer(BTC, event("BTC-USD", 104));
+
+        assertEquals(List.of(104L), timestamps(late));
+        assertEquals(List.of(100L), timestamps(released));
+    }
+
+    @Test
+    void testWatermarksArePerSymbol() {
+        buffer.offer(BTC, event("BTC-USD", 1000));
+        buffer.offer(ETH, event("ETH-USD", 100)); // far behind BTC, but ETH has its own watermark
+
+        assertTrue(late.isEmpty());
+    }
+
+    @Test
+    void testAdvanceIdleDrainsIdleSymbols() {
+        buffer.offer(BTC, event("BTC-USD", 100));
+        buffer.offer(ETH, event("ETH-USD", 100));
+
+        clock += 6;
+        buffer.advanceIdle();
+
+        assertEquals(2, released.size());
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void testAdvanceIdleWaitsForTheWindowInEventTime() {
+        buffer.offer(BTC, event("BTC-USD", 100));
+        clock += 3;
+        buffer.offer(BTC, event("BTC-USD", 102));
+
+        clock += 4; // BTC event time is now 106: only 100 is more than a window behind
+        buffer.advanceIdle();
+
+        assertEquals(List.of(100L), timestamps(released));
+        assertEquals(1, buffer.size());
+    }
+
+    @Test
+    void testAdvanceIdleIgnoresHowFarEventTimeLagsTheWallClock() {
+        // Timestamps far behind the (nanosecond) clock, like a lagging feed or a replay
+        clock = 1_000_000;
+        buffer.offer(BTC, event("BTC-USD", 100));
+        clock += 6;
+        buffer.advanceIdle();
+
+        buffer.offer(BTC, event("BTC-USD", 101));
+        buffer.offer(BTC, event("BTC-USD", 100));
+
+        assertEquals(List.of(100L), timestamps(released));
+        assertEquals(List.of(100L), timestamps(late), "only ticks behind a released one are late");
+        assertEquals(1, buffer.size());
+    }
+
+    @Test
+    void testFlushReleasesEverything() {
+        buffer.offer(BTC, event("BTC-USD", 102));
+        buffer.offer(BTC, event("BTC-USD", 101));
+
+        buffer.flush();
+
+        assertEquals(List.of(101L, 102L), timestamps(released));
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void testZeroWindowOnlyReordersTies() {
+        var strict = new ReorderBuffer(0, (e, id) -> released.add(e), (e, id) -> late.add(e));
+        strict.offer(BTC, event("BTC-USD", 100));
+        strict.offer(BTC, event("BTC-USD", 100));
+        strict.offer(BTC, event("BTC-USD", 99));
+
+        assertEquals(List.of(99L), timestamps(late));
+    }
+
+    @Test
+    void testNegativeWindowRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new ReorderBuffer(-1, (e, id) -> { }, (e, id) -> { }));
+    }
+
+    private static BidAskEvent event(String symbol, long timestamp) {
+        return new BidAskEvent(symbol, 100.0, 101.0, timestamp);
+    }
+
+    private static List<Long> timestamps(List<BidAskEvent> events) {
+        return events.stream().map(BidAskEvent::timestampNanos).toList();
+    }
+}
@@ -0,0 +1,82 @@
+package com.marketdata.domain.service;
+
+import com.marketdata.domain.model.BidAskEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TickDeduplicatorTest {
+
+    @Test
+    void testRepeatedTickIsDuplicate() {
+        var dedup = new TickDeduplicator(16);
+        var tick = new BidAskEvent("BTC-USD", 50000.0, 50001.0, 1620000000L);
+
+        assertFalse(dedup.isDuplicate(1, tick));
+        assertTrue(dedup.isDuplicate(1, new BidAskEvent("BTC-USD", 50000.0, 50001.0, 1620000000L)));
+    }
+
+    @Test
+    void testDifferentPriceOrTimeIsNotDuplicate() {
+        var dedup = new TickDeduplicator(16);
+        dedup.isDuplicate(1, new BidAskEvent("BTC-USD", 50000.0, 50001.0, 1620000000L));
+
+        assertFalse(dedup.isDuplicate(1, new BidAskEvent("BTC-USD", 50000.0, 50002.0, 1620000000L)));
+        assertFalse(dedup.isDuplicate(1, new BidAskEvent("BTC-USD", 50000.5, 50001.0, 1620000000L)));
+        assertFalse(dedup.isDuplicate(1, new BidAskEvent("BTC-USD", 50000.0, 50001.0, 1620000001L)));
+    }
+
+    @Test
+    void testSymbolsAreTrackedSeparately() {
+        var dedup = new TickDeduplicator(16);
+        dedup.isDuplicate(1, new BidAskEvent("BTC-USD", 100.0, 101.0, 1620000000L));
+
+        assertFalse(dedup.isDuplicate(2, new BidAskEvent("ETH-USD", 100.0, 101.0, 1620000000L)));
+    }
+
+    @Test
+    void testOnlyLastWindowTicksAreRemembered() {
+        var dedup = new TickDeduplicator(3);
+        for (int i = 0; i < 4; i++) {
+            dedup.isDuplicate(1, tick(i));
+        }
+
+        assertFalse(dedup.isDuplicate(1, tick(0)), "evicted from the window");
+        assertTrue(dedup.isDuplicate(1, tick(3)));
+    }
+
+    @Test
+    void testRingEvictionKeepsIndexConsistent() {
+        // Many more ticks than the window: the index must stay exact as old entries are removed
+        var dedup = new TickDeduplicator(64);
+        for (int i = 0; i < 10_000; i++) {
+            assertFalse(dedup.isDuplicate(1, tick(i)));
+            assertTrue(dedup.isDuplicate(1, tick(i)));
+            if (i >= 63) {
+                assertTrue(dedup.isDuplicate(1, tick(i - 63)), "still within window: " + (i - 63));
+            }
+        }
+    }
+
+    @Test
+    void testZeroWindowDisables() {
+        var dedup = new TickDeduplicator(0);
+        assertFalse(dedup.isDuplicate(1, tick(0)));
+        assertFalse(dedup.isDuplicate(1, tick(0)));
+    }
+
+    @Test
+    void testFingerprintsSpreadAcrossTicks() {
+        var seen = new HashSet<Long>();
+        for (int i = 0; i < 100_000; i++) {
+            seen.add(TickDeduplicator.fingerprint(tick(i)));
+        }
+        assertEquals(100_000, seen.size());
+    }
+
+    private static BidAskEvent tick(int i) {
+        return new BidAskEvent("BTC-USD", 50000.0 + (i % 7), 50001.0 + (i % 7), 1620000000L + i);
+    }
+}
@@ -0,0 +1,72 @@
+package com.marketdata.infrastructure.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.marketdata.domain.model.EpochNanos;
+import com.marketdata.domain.model.Timeframe;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CaffeineCandleInvalidatorTest {
+
+    private Cache<Object, Object> cache;
+    private CaffeineCandleInvalidator invalidator;
+
+    @BeforeEach
+    void setUp() {
+        cache = Caffeine.newBuilder().build();
+        invalidator = new CaffeineCandleInvalidator(cache);
+    }
+
+    @Test
+    void testEvictsOnlyRangesCoveringTheEvent() {
+        var covering = new CandleCacheKey(1, Timeframe.M1, 1620000000L, 1620000600L);
+        var earlier = new CandleCacheKey(1, Timeframe.M1, 1619990000L, 1619999999L);
+        var otherSymbol = new CandleCacheKey(2, Timeframe.M1, 1620000000L, 1620000600L);
+        cache.put(covering, List.of());
+        cache.put(earlier, List.of());
+        cache.put(otherSymbol, List.of());
+
+        invalidator.invalidate(1, EpochNanos.ofEpochSecond(1620000300L));
+
+        assertNull(cache.getIfPresent(covering));
+        assertNotNull(cache.getIfPresent(earlier));
+        assertNotNull(cache.getIfPresent(otherSymbol));
+    }
+
+    @Test
+    void testRangeBoundsAreInclusive() {
+        var key = new CandleCacheKey(1, Timeframe.M5, 1620000000L, 1620000600L);
+        cache.put(key, List.of());
+
+        invalidator.invalidate(1, EpochNanos.ofEpochSecond(1620000600L) + 500_000_000L);
+
+        assertNull(cache.getIfPresent(key));
+    }
+
+    @Test
+    void testEvictsTheLateEventsOfEverySymbolInOneCall() {
+        var first = new CandleCacheKey(1, Timeframe.M1, 1620000000L, 1620000600L);
+        var second = new CandleCacheKey(1, Timeframe.M1, 1620000601L, 1620001200L);
+        var otherSymbol = new CandleCacheKey(2, Timeframe.M1, 1620000000L, 1620000600L);
+        var untouched = new CandleCacheKey(2, Timeframe.M1, 1620000601L, 1620001200L);
+        cache.put(first, List.of());
+        cache.put(second, List.of());
+        cache.put(otherSymbol, List.of());
+        cache.put(untouched, List.of());
+
+        invalidator.invalidateAll(Map.of(
+            1, List.of(EpochNanos.ofEpochSecond(1620000300L), EpochNanos.ofEpochSecond(1620000900L)),
+            2, List.of(EpochNanos.ofEpochSecond(1620000000L))));
+
+        assertNull(cache.getIfPresent(first));
+        assertNull(cache.getIfPresent(second));
+        assertNull(cache.getIfPresent(otherSymbol));
+        assertNotNull(cache.getIfPresent(untouched));
+    }
+}
@@ -0,0 +1,115 @@
+package com.marketdata.infrastructure.cache;
+
+import com.marketdata.domain.model.DataVersion;
+import com.marketdata.domain.model.Timeframe;
+import com.marketdata.domain.port.out.DataVersions;
+import com.marketdata.infrastructure.repository.TestSymbolDictionary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig(CandleCacheKeyGeneratorTest.Config.class)
+class CandleCacheKeyGeneratorTest {
+
+    private static final long T0 = 1620000000L;
+
+    @Configuration
+    @EnableCaching
+    static class Config {
+        @Bean
+        DataVersions dataVersions() {
+            return mock(DataVersions.class);
+        }
+
+        @Bean
+        CandleCacheKeyGenerator candleCacheKeyGenerator(DataVersions dataVersions) {
+            return new CandleCacheKeyGenerator(new TestSymbolDictionary(), dataVersions);
+        }
+
+        @Bean
+        CacheManager cacheManager() {
+            return new CaffeineCacheManager("candles");
+        }
+
+        @Bean
+        Aggregations aggregations() {
+            return new Aggregations();
+        }
+    }
+
+    /**
+     * Stands in for the repository, with the same cache annotation.
+     */
+    static class Aggregations {
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Cacheable(value = "candles", keyGenerator = "candleCacheKeyGenerator",
+            condition = CandleCacheKeyGenerator.SEALED_RANGE)
+        public Integer aggregateCandles(String symbol, Timeframe timeframe, long from, long to) {
+            return calls.incrementAndGet();
+        }
+
+        public int calls() {
+            return calls.get();
+        }
+    }
+
+    @Autowired
+    private DataVersions dataVersions;
+
+    @Autowired
+    private Aggregations aggregations;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        reset(dataVersions);
+        cacheManager.getCache("candles").clear();
+    }
+
+    @Test
+    void testSealedRangesAreCached() {
+        when(dataVersions.versionOf(anyString(), anyLong())).thenReturn(new DataVersion(1, true));
+        int before = aggregations.calls();
+
+        var first = aggregations.aggregateCandles("BTC-USD", Timeframe.M1, T0, T0 + 59);
+        var second = aggregations.aggregateCandles("BTC-USD", Timeframe.M1, T0, T0 + 59);
+
+        assertEquals(first, second);
+        assertEquals(before + 1, aggregations.calls());
+    }
+
+    @Test
+    void testRangeAggregatedBeforeItSealedIsNotServedOnceSealed() {
+        when(dataVersions.versionOf("BTC-USD", T0 + 59)).thenReturn(new DataVersion(1, false));
+        var open = aggregations.aggregateCandles("BTC-USD", Timeframe.M1, T0, T0 + 59);
+        assertEquals(open + 1, aggregations.aggregateCandles("BTC-USD", Timeframe.M1, T0, T0 + 59));
+
+        when(dataVersions.versionOf("BTC-USD", T0 + 59)).thenReturn(new DataVersion(2, true));
+        var sealed = aggregations.aggregateCandles("BTC-USD", Timeframe.M1, T0, T0 + 59);
+
+        assertEquals(open + 2, sealed, "computed afresh once sealed");
+        assertEquals(sealed, aggregations.aggregateCandles("BTC-USD", Timeframe.M1, T0, T0 + 59));
+    }
+
+    @Test
+    void testNothingIsSealedWithoutVersionTracking() {
+        assertFalse(new CandleCacheKeyGenerator(new TestSymbolDictionary(), null).isSealed("BTC-USD", T0));
+    }
+}
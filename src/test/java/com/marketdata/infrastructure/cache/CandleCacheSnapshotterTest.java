@@ -0,0 +1,216 @@
+package com.marketdata.infrastructure.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.marketdata.domain.model.BidAskEvent;
+import com.marketdata.domain.model.Candle;
+import com.marketdata.domain.model.EpochNanos;
+import com.marketdata.domain.model.Timeframe;
+import com.marketdata.domain.model.TimeframeMapper;
+import com.marketdata.domain.port.out.EventRepository;
+import com.marketdata.infrastructure.repository.TestEventRepository;
+import com.marketdata.infrastructure.repository.TestSymbolDictionary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CandleCacheSnapshotterTest {
+
+    private static final long T0 = 1620000000L;
+
+    @TempDir
+    Path directory;
+
+    private final TestEventRepository repository = new TestEventRepository();
+    private final TestSymbolDictionary symbols = new TestSymbolDictionary();
+    private final AtomicLong clock = new AtomicLong(EpochNanos.ofEpochSecond(T0 + 3600));
+    private int btc;
+    private int eth;
+
+    @BeforeEach
+    void setUp() {
+        btc = symbols.idOf("BTC-USD");
+        eth = symbols.idOf("ETH-USD");
+        repository.save(new BidAskEvent("BTC-USD", 100, 101, EpochNanos.ofEpochSecond(T0)));
+    }
+
+    @Test
+    void testRestoresCandlesForFixedAndCalendarTimeframes() {
+        var coarsened = Timeframe.M1.coarsen(T0, T0 + 86_400, 10);
+        var keys = List.of(
+            new CandleCacheKey(btc, Timeframe.M1, T0, T0 + 600),
+            new CandleCacheKey(btc, Timeframe.MN1, T0, T0 + 86_400),
+            new CandleCacheKey(eth, coarsened, T0, T0 + 86_400),
+            new CandleCacheKey(eth, TimeframeMapper.parse("1d", "+09:00", 0), T0, T0 + 86_400));
+        // Recomputed on demand rather than written
+        var zonedCalendar = new CandleCacheKey(btc, TimeframeMapper.parse("1M", "Europe/London", 0), T0, T0 + 86_400);
+        var cache = newCache();
+        for (var key : keys) {
+            cache.put(key, List.of(new Candle(T0, 1.5, 2.5, 0.5, 2.0, 7)));
+        }
+        cache.put(zonedCalendar, List.of());
+        snapshotter(cache).snapshot();
+
+        var restored = newCache();
+        assertEquals(4, snapshotter(restored).restore());
+        assertNull(restored.getIfPresent(zonedCalendar));
+
+        for (var key : keys) {
+            @SuppressWarnings("unchecked")
+            var candles = (List<Candle>) restored.getIfPresent(key);
+            assertNotNull(candles, key.toString());
+            var candle = candles.getFirst();
+            assertEquals(T0, candle.getTime());
+            assertEquals(1.5, candle.getOpen());
+            assertEquals(2.5, candle.getHigh());
+            assertEquals(0.5, candle.getLow());
+            assertEquals(2.0, candle.getClose());
+            assertEquals(7, candle.getVolume());
+        }
+    }
+
+    @Test
+    void testDropsRangesChangedSinceSnapshot() {
+        var settled = new CandleCacheKey(btc, Timeframe.M1, T0, T0 + 599);
+        var corrected = new CandleCacheKey(btc, Timeframe.M1, T0 + 600, T0 + 1199);
+        var later = new CandleCacheKey(btc, Timeframe.M5, T0, T0 + 3000);
+        var otherSymbol = new CandleCacheKey(eth, Timeframe.M1, T0 + 600, T0 + 1199);
+        var cache = newCache();
+        for (var key : List.of(settled, corrected, later, otherSymbol)) {
+            cache.put(key, List.of());
+        }
+        snapshotter(cache).snapshot();
+
+        // A late correction stored while the process was down
+        repository.save(new BidAskEvent("BTC-USD", 100, 101, EpochNanos.ofEpochSecond(T0 + 900)));
+
+        var restored = newCache();
+        assertEquals(2, snapshotter(restored).restore());
+        assertNotNull(restored.getIfPresent(settled));
+        assertNull(restored.getIfPresent(corrected));
+        assertNull(restored.getIfPresent(later));
+        assertNotNull(restored.getIfPresent(otherSymbol));
+    }
+
+    @Test
+    void testRechecksEventsCommittedAfterTheSnapshotBelowItsSequence() {
+        var repository = mock(EventRepository.class);
+        when(repository.lastSequence()).thenReturn(10L);
+        // Event 9 was assigned its ID before the snapshot but committed after it
+        when(repository.earliestStoredSince(9)).thenReturn(Map.of("BTC-USD", EpochNanos.ofEpochSecond(T0 + 900)));
+        var key = new CandleCacheKey(btc, Timeframe.M1, T0 + 600, T0 + 1199);
+        var cache = newCache();
+        cache.put(key, List.of());
+        new CandleCacheSnapshotter(cache, repository, symbols, directory, 0, 1, new SimpleMeterRegistry(), clock::get)
+            .snapshot();
+
+        var restored = newCache();
+        var snapshotter = new CandleCacheSnapshotter(restored, repository, symbols, directory, 0, 1,
+            new SimpleMeterRegistry(), clock::get);
+
+        assertEquals(0, snapshotter.restore());
+        assertNull(restored.getIfPresent(key));
+    }
+
+    @Test
+    void testSkipsEntriesThatWouldHaveExpired() {
+        var cache = newCache();
+        cache.put(new CandleCacheKey(btc, Timeframe.M1, T0, T0 + 600), List.of());
+        snapshotter(cache).snapshot();
+
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(6));
+
+        var restored = newCache();
+        assertEquals(0, snapshotter(restored).restore());
+        assertEquals(0, restored.estimatedSize());
+    }
+
+    @Test
+    void testRestoredEntriesKeepOnlyTheTimeTheyHadLeft() {
+        var cache = newCache();
+        var key = new CandleCacheKey(btc, Timeframe.M1, T0, T0 + 600);
+        cache.put(key, List.of());
+        snapshotter(cache).snapshot();
+
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(2));
+
+        var restored = newCache();
+        assertEquals(1, snapshotter(restored).restore());
+        var left = restored.policy().expireVariably().orElseThrow().getExpiresAfter(key).orElseThrow();
+        assertTrue(left.compareTo(Duration.ofMinutes(3)) <= 0, "restored with " + left);
+        assertTrue(left.compareTo(Duration.ofMinutes(2)) > 0, "restored with " + left);
+    }
+
+    @Test
+    void testIgnoresSnapshotAheadOfRepository() {
+        var cache = newCache();
+        cache.put(new CandleCacheKey(btc, Timeframe.M1, T0, T0 + 600), List.of());
+        snapshotter(cache).snapshot();
+
+        var recreated = new TestEventRepository();
+        var restored = newCache();
+        var snapshotter = new CandleCacheSnapshotter(restored, recreated, symbols, directory, 0, 0,
+            new SimpleMeterRegistry(), clock::get);
+
+        assertEquals(0, snapshotter.restore());
+        assertEquals(0, restored.estimatedSize());
+    }
+
+    @Test
+    void testIgnoresMissingAndCorruptSnapshots() throws IOException {
+        var cache = newCache();
+        assertEquals(0, snapshotter(cache).restore());
+
+        Files.write(directory.resolve(CandleCacheSnapshotter.SNAPSHOT_FILE), new byte[]{1, 2, 3});
+        assertEquals(0, snapshotter(cache).restore());
+        assertEquals(0, cache.estimatedSize());
+    }
+
+    @Test
+    void testStartBeginsPeriodicSnapshots() throws InterruptedException {
+        var snapshot = directory.resolve("periodic").resolve(CandleCacheSnapshotter.SNAPSHOT_FILE);
+        try (var snapshotter = new CandleCacheSnapshotter(newCache(), repository, symbols, snapshot.getParent(), 10,
+                0, new SimpleMeterRegistry(), clock::get)) {
+            Thread.sleep(50);
+            assertFalse(Files.exists(snapshot.getParent()), "nothing is written before start()");
+
+            snapshotter.start();
+            for (int i = 0; i < 100 && !Files.exists(snapshot); i++) {
+                Thread.sleep(10);
+            }
+            assertTrue(Files.exists(snapshot));
+        }
+    }
+
+    @Test
+    void testCloseWritesFinalSnapshot() {
+        var cache = newCache();
+        cache.put(new CandleCacheKey(btc, Timeframe.M1, T0, T0 + 600), List.of());
+        snapshotter(cache).close();
+
+        assertTrue(Files.exists(directory.resolve(CandleCacheSnapshotter.SNAPSHOT_FILE)));
+        assertEquals(1, snapshotter(newCache()).restore());
+    }
+
+    private Cache<Object, Object> newCache() {
+        return Caffeine.newBuilder().expireAfter(new CandleCacheExpiry(Duration.ofMinutes(5))).build();
+    }
+
+    private CandleCacheSnapshotter snapshotter(Cache<Object, Object> cache) {
+        return new CandleCacheSnapshotter(cache, repository, symbols, directory, 0, 0, new SimpleMeterRegistry(),
+            clock::get);
+    }
+}
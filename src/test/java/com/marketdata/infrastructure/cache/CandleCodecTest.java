@@ -0,0 +1,74 @@
+package com.marketdata.infrastructure.cache;
+
+import com.marketdata.domain.model.Candle;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CandleCodecTest {
+
+    @Test
+    void testRoundTripsExactValues() {
+        var candles = List.of(
+            new Candle(1620000000L, 50000.5, 50100.25, 49900.0, 50050.0, 42),
+            new Candle(1620000060L, 50050.0, 50050.0, 50050.0, 50050.0, 1),
+            new Candle(1620000180L, -0.0, Double.MAX_VALUE, Double.MIN_VALUE, Double.NaN, 0),
+            new Candle(-86_400L, 0.1, 0.2, 0.3, 0.4, Long.MAX_VALUE));
+
+        assertCandlesEqual(candles, CandleCodec.decode(CandleCodec.encode(candles)));
+    }
+
+    @Test
+    void testEmptyList() {
+        assertEquals(List.of(), CandleCodec.decode(CandleCodec.encode(List.of())));
+    }
+
+    @Test
+    void testRegularSeriesIsSmallerThanRawDoubles() {
+        var random = new Random(7);
+        var candles = new ArrayList<Candle>();
+        double price = 50_000;
+        for (int i = 0; i < 1440; i++) {
+            double open = price;
+            double close = Math.round((open + random.nextGaussian() * 20) * 100) / 100.0;
+            candles.add(new Candle(1620000000L + i * 60L, open, Math.max(open, close) + 5,
+                Math.min(open, close) - 5, close, random.nextInt(500)));
+            price = close;
+        }
+
+        byte[] encoded = CandleCodec.encode(candles);
+
+        assertCandlesEqual(candles, CandleCodec.decode(encoded));
+        int raw = candles.size() * (2 * Long.BYTES + 4 * Double.BYTES);
+        assertTrue(encoded.length < raw * 0.75, encoded.length + " bytes vs " + raw + " raw");
+    }
+
+    @Test
+    void testRejectsMalformedInput() {
+        byte[] encoded = CandleCodec.encode(List.of(new Candle(1620000000L, 1, 2, 0.5, 1.5, 3)));
+
+        assertThrows(IllegalArgumentException.class, () -> CandleCodec.decode(Arrays.copyOf(encoded, encoded.length - 1)));
+        assertThrows(IllegalArgumentException.class, () -> CandleCodec.decode(Arrays.copyOf(encoded, encoded.length + 1)));
+        encoded[0] = 99;
+        assertThrows(IllegalArgumentException.class, () -> CandleCodec.decode(encoded));
+    }
+
+    static void assertCandlesEqual(List<Candle> expected, List<Candle> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            var e = expected.get(i);
+            var a = actual.get(i);
+            assertEquals(e.getTime(), a.getTime());
+            assertEquals(Double.doubleToRawLongBits(e.getOpen()), Double.doubleToRawLongBits(a.getOpen()));
+            assertEquals(Double.doubleToRawLongBits(e.getHigh()), Double.doubleToRawLongBits(a.getHigh()));
+            assertEquals(Double.doubleToRawLongBits(e.getLow()), Double.doubleToRawLongBits(a.getLow()));
+            assertEquals(Double.doubleToRawLongBits(e.getClose()), Double.doubleToRawLongBits(a.getClose()));
+            assertEquals(e.getVolume(), a.getVolume());
+        }
+    }
+}
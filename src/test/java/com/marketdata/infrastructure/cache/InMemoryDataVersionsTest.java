@@ -0,0 +1,82 @@
+package com.marketdata.infrastructure.cache;
+
+import com.marketdata.domain.model.EpochNanos;
+import com.marketdata.infrastructure.repository.TestSymbolDictionary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryDataVersionsTest {
+
+    private static final long NOW = 1620001000L;
+    private static final long EPOCH = 42;
+
+    private TestSymbolDictionary symbols;
+    private InMemoryDataVersions versions;
+
+    @BeforeEach
+    void setUp() {
+        symbols = new TestSymbolDictionary();
+        versions = versions(EPOCH);
+    }
+
+    private InMemoryDataVersions versions(long epoch) {
+        return new InMemoryDataVersions(symbols, Duration.ofSeconds(10).toNanos(), () -> EpochNanos.ofEpochSecond(NOW),
+            epoch);
+    }
+
+    @Test
+    void testLiveWritesChangeOnlyOpenRanges() {
+        int id = symbols.idOf("BTC-USD");
+        var sealedBefore = versions.versionOf("BTC-USD", NOW - 60);
+        var openBefore = versions.versionOf("BTC-USD", NOW);
+
+        versions.recordWrite(id, EpochNanos.ofEpochSecond(NOW - 1));
+
+        assertTrue(sealedBefore.sealed());
+        assertFalse(openBefore.sealed());
+        assertEquals(sealedBefore, versions.versionOf("BTC-USD", NOW - 60));
+        assertNotEquals(openBefore, versions.versionOf("BTC-USD", NOW));
+    }
+
+    @Test
+    void testLateCorrectionsChangeSealedRanges() {
+        int id = symbols.idOf("BTC-USD");
+        var before = versions.versionOf("BTC-USD", NOW - 60);
+
+        versions.recordWrite(id, EpochNanos.ofEpochSecond(NOW - 120));
+
+        assertNotEquals(before, versions.versionOf("BTC-USD", NOW - 60));
+    }
+
+    @Test
+    void testSymbolsAreVersionedIndependently() {
+        int btc = symbols.idOf("BTC-USD");
+        symbols.idOf("ETH-USD");
+        var eth = versions.versionOf("ETH-USD", NOW);
+
+        for (int i = 0; i < 100; i++) {
+            versions.recordWrite(btc, EpochNanos.ofEpochSecond(NOW));
+        }
+
+        assertEquals(eth, versions.versionOf("ETH-USD", NOW));
+        assertEquals(EPOCH, versions.versionOf("UNKNOWN", NOW).version());
+    }
+
+    @Test
+    void testVersionsDifferAcrossRestarts() {
+        int id = symbols.idOf("BTC-USD");
+        var restarted = versions(EPOCH + 1000);
+
+        // Same writes seen by both: a version issued before the restart must not match
+        versions.recordWrite(id, EpochNanos.ofEpochSecond(NOW - 120));
+        restarted.recordWrite(id, EpochNanos.ofEpochSecond(NOW - 120));
+
+        assertNotEquals(versions.versionOf("BTC-USD", NOW), restarted.versionOf("BTC-USD", NOW));
+        assertNotEquals(versions.versionOf("BTC-USD", NOW - 60), restarted.versionOf("BTC-USD", NOW - 60));
+        assertNotEquals(versions.versionOf("UNKNOWN", NOW), restarted.versionOf("UNKNOWN", NOW));
+    }
+}
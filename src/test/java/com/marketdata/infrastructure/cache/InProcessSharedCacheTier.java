@@ -0,0 +1,91 @@
+package com.marketdata.infrastructure.cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * In-process stand-in for a shared cache tier. Several caches given the same instance
+ * behave like instances sharing one Redis. Expiry follows a settable clock.
+ */
+public class InProcessSharedCacheTier implements SharedCacheTier {
+
+    private record Entry(byte[] value, long expiresAtMillis) { }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> groups = new ConcurrentHashMap<>();
+    private final CopyOnWriteArrayList<Consumer<byte[]>> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong clockMillis = new AtomicLong();
+    private volatile boolean failing;
+
+    public void advanceMillis(long millis) {
+        clockMillis.addAndGet(millis);
+    }
+
+    /**
+     * Makes every operation throw, as an unreachable store would.
+     */
+    public void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public byte[] get(String key) {
+        checkAvailable();
+        var entry = entries.get(key);
+        return entry == null || entry.expiresAtMillis() <= clockMillis.get() ? null : entry.value();
+    }
+
+    @Override
+    public void put(String group, String key, byte[] value, long ttlMillis) {
+        checkAvailable();
+        entries.put(key, new Entry(value.clone(), clockMillis.get() + ttlMillis));
+        groups.computeIfAbsent(group, g -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+
+    @Override
+    public Set<String> keys(String group) {
+        checkAvailable();
+        return groups.getOrDefault(group, Set.of()).stream()
+            .filter(key -> get(key) != null)
+            .collect(Collectors.toSet());
+    }
+
+    @Override
+    public void remove(String group, Collection<String> keys) {
+        checkAvailable();
+        keys.forEach(entries::remove);
+        groups.getOrDefault(group, Set.of()).removeAll(keys);
+    }
+
+    @Override
+    public void publish(byte[] message) {
+        checkAvailable();
+        listeners.forEach(listener -> listener.accept(message));
+    }
+
+    @Override
+    public void subscribe(Consumer<byte[]> listener) {
+        listeners.add(listener);
+    }
+
+    private void checkAvailable() {
+        if (failing) {
+            throw new IllegalStateException("shared cache unavailable");
+        }
+    }
+
+    @Override
+    public void close() {
+        listeners.clear();
+    }
+}
@@ -0,0 +1,32 @@
+package com.marketdata.infrastructure.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedisSharedCacheTierTest {
+
+    private static final String UNREACHABLE = "redis://localhost:1";
+
+    @Test
+    void testStartsDisconnectedWhenRedisIsUnreachable() {
+        try (var tier = new RedisSharedCacheTier(UNREACHABLE, "invalidations", Duration.ofMillis(200),
+                Duration.ofMinutes(1))) {
+            tier.subscribe(message -> { });
+
+            assertThrows(IllegalStateException.class, () -> tier.get("key"));
+            assertThrows(IllegalStateException.class, () -> tier.put("group", "key", new byte[0], 1000));
+            assertThrows(IllegalStateException.class, () -> tier.remove("group", List.of("key")));
+            assertThrows(IllegalStateException.class, () -> tier.publish(new byte[0]));
+        }
+    }
+
+    @Test
+    void testRejectsNonPositiveReconnectInterval() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new RedisSharedCacheTier(UNREACHABLE, "invalidations", Duration.ofMillis(200), Duration.ZERO));
+    }
+}
@@ -0,0 +1,146 @@
+package com.marketdata.infrastructure.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.marketdata.domain.model.Candle;
+import com.marketdata.domain.model.EpochNanos;
+import com.marketdata.domain.model.Timeframe;
+import com.marketdata.infrastructure.repository.TestSymbolDictionary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SharedCandleInvalidatorTest {
+
+    private static final long T0 = 1620000000L;
+    private static final List<Candle> CANDLES = List.of(new Candle(T0, 100, 110, 90, 105, 12));
+
+    private final InProcessSharedCacheTier shared = new InProcessSharedCacheTier();
+    private final TestSymbolDictionary symbolsA = new TestSymbolDictionary();
+    private final TestSymbolDictionary symbolsB = new TestSymbolDictionary();
+    private TwoLevelCandleCache cacheA;
+    private TwoLevelCandleCache cacheB;
+    private SharedCandleInvalidator invalidatorA;
+
+    @BeforeEach
+    void setUp() {
+        symbolsB.idOf("ETH-USD");
+        cacheA = cache(symbolsA);
+        cacheB = cache(symbolsB);
+        invalidatorA = invalidator(cacheA, symbolsA);
+        invalidator(cacheB, symbolsB);
+    }
+
+    @Test
+    void testLateEventEvictsCoveringRangesEverywhere() {
+        var covering = new CandleCacheKey(symbolsA.idOf("BTC-USD"), Timeframe.M1, T0, T0 + 600);
+        var earlier = new CandleCacheKey(symbolsA.idOf("BTC-USD"), Timeframe.M1, T0 - 600, T0 - 1);
+        var otherSymbol = new CandleCacheKey(symbolsA.idOf("ETH-USD"), Timeframe.M1, T0, T0 + 600);
+        for (var key : List.of(covering, earlier, otherSymbol)) {
+            cacheA.put(key, CANDLES);
+            assertNotNull(cacheB.get(onB(key)), "B reads through to the shared tier");
+        }
+
+        invalidatorA.invalidate(symbolsA.find("BTC-USD"), EpochNanos.ofEpochSecond(T0 + 30));
+        assertNotNull(cacheB.getNativeCache().getIfPresent(onB(covering)), "other instances wait for the flush");
+        invalidatorA.flush();
+
+        assertNull(cacheA.getNativeCache().getIfPresent(covering));
+        assertNull(cacheB.getNativeCache().getIfPresent(onB(covering)));
+        assertNull(cacheB.get(onB(covering)), "gone from the shared tier too");
+        assertNotNull(cacheA.getNativeCache().getIfPresent(earlier));
+        assertNotNull(cacheB.getNativeCache().getIfPresent(onB(earlier)));
+        assertNotNull(cacheB.getNativeCache().getIfPresent(onB(otherSymbol)));
+        assertEquals(2, shared.size());
+    }
+
+    @Test
+    void testUnavailableSharedTierStillEvictsLocally() {
+        var key = new CandleCacheKey(symbolsA.idOf("BTC-USD"), Timeframe.M1, T0, T0 + 600);
+        cacheA.put(key, CANDLES);
+        shared.setFailing(true);
+
+        invalidatorA.invalidate(key.symbolId(), EpochNanos.ofEpochSecond(T0));
+        assertDoesNotThrow(invalidatorA::flush);
+
+        assertNull(cacheA.getNativeCache().getIfPresent(key));
+    }
+
+    @Test
+    void testIgnoresMessagesForUnknownSymbolsAndMalformedMessages() {
+        var key = new CandleCacheKey(symbolsA.idOf("BTC-USD"), Timeframe.M1, T0, T0 + 600);
+        cacheA.put(key, CANDLES);
+
+        invalidatorA.onMessage(SharedCandleInvalidator.message("other", "SOL-USD", List.of(T0)));
+        invalidatorA.onMessage(new byte[] {1, 2, 3});
+
+        assertNotNull(cacheA.getNativeCache().getIfPresent(key));
+    }
+
+    @Test
+    void testCoalescesLateEventsIntoOneMessagePerSymbol() {
+        var messages = new ArrayList<byte[]>();
+        shared.subscribe(messages::add);
+        int btc = symbolsA.idOf("BTC-USD");
+        var first = new CandleCacheKey(btc, Timeframe.M1, T0, T0 + 59);
+        var second = new CandleCacheKey(btc, Timeframe.M1, T0 + 60, T0 + 119);
+        var untouched = new CandleCacheKey(btc, Timeframe.M1, T0 + 120, T0 + 179);
+        for (var key : List.of(first, second, untouched)) {
+            cacheA.put(key, CANDLES);
+            assertNotNull(cacheB.get(onB(key)));
+        }
+
+        invalidatorA.invalidate(btc, EpochNanos.ofEpochSecond(T0 + 10));
+        invalidatorA.invalidate(btc, EpochNanos.ofEpochSecond(T0 + 10));
+        invalidatorA.invalidate(btc, EpochNanos.ofEpochSecond(T0 + 70));
+        invalidatorA.flush();
+        invalidatorA.flush();
+
+        assertEquals(1, messages.size());
+        assertNull(cacheB.getNativeCache().getIfPresent(onB(first)));
+        assertNull(cacheB.getNativeCache().getIfPresent(onB(second)));
+        assertNotNull(cacheB.getNativeCache().getIfPresent(onB(untouched)));
+        assertEquals(1, shared.size());
+    }
+
+    @Test
+    void testSubscribesOnlyOnceStarted() {
+        var symbols = new TestSymbolDictionary();
+        var key = new CandleCacheKey(symbols.idOf("BTC-USD"), Timeframe.M1, T0, T0 + 600);
+        var near = Caffeine.newBuilder().build();
+        near.put(key, CANDLES);
+        var invalidator = new SharedCandleInvalidator(new CaffeineCandleInvalidator(near), shared, symbols, 60_000);
+
+        shared.publish(SharedCandleInvalidator.message("other", "BTC-USD", List.of(T0)));
+        assertNotNull(near.getIfPresent(key));
+
+        invalidator.start();
+        shared.publish(SharedCandleInvalidator.message("other", "BTC-USD", List.of(T0)));
+        assertNull(near.getIfPresent(key));
+        assertThrows(IllegalStateException.class, invalidator::start);
+        invalidator.close();
+    }
+
+    private CandleCacheKey onB(CandleCacheKey key) {
+        return new CandleCacheKey(symbolsB.idOf(symbolsA.symbolOf(key.symbolId())), key.timeframe(), key.from(),
+            key.to());
+    }
+
+    private TwoLevelCandleCache cache(TestSymbolDictionary symbols) {
+        return new TwoLevelCandleCache("candles", Caffeine.newBuilder().expireAfterWrite(5, TimeUnit.MINUTES).build(),
+            Duration.ofMinutes(5), shared, symbols, new SimpleMeterRegistry());
+    }
+
+    private SharedCandleInvalidator invalidator(TwoLevelCandleCache cache, TestSymbolDictionary symbols) {
+        var invalidator = new SharedCandleInvalidator(new CaffeineCandleInvalidator(cache.getNativeCache()), shared,
+            symbols, 60_000);
+        invalidator.start();
+        return invalidator;
+    }
+}
@@ -0,0 +1,137 @@
+package com.marketdata.infrastructure.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.marketdata.domain.model.Candle;
+import com.marketdata.domain.model.Timeframe;
+import com.marketdata.domain.model.TimeframeMapper;
+import com.marketdata.infrastructure.repository.TestSymbolDictionary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.marketdata.infrastructure.cache.CandleCodecTest.assertCandlesEqual;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TwoLevelCandleCacheTest {
+
+    private static final long T0 = 1620000000L;
+    private static final List<Candle> CANDLES = List.of(
+        new Candle(T0, 100, 110, 90, 105, 12),
+        new Candle(T0 + 60, 105, 106, 101, 102, 3));
+
+    private final InProcessSharedCacheTier shared = new InProcessSharedCacheTier();
+    private final TestSymbolDictionary symbolsA = new TestSymbolDictionary();
+    private final TestSymbolDictionary symbolsB = new TestSymbolDictionary();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TwoLevelCandleCache instanceA;
+    private TwoLevelCandleCache instanceB;
+
+    @BeforeEach
+    void setUp() {
+        // Different registration order, so the two instances disagree on dictionary IDs
+        symbolsA.idOf("BTC-USD");
+        symbolsB.idOf("ETH-USD");
+        symbolsB.idOf("BTC-USD");
+        instanceA = cache(symbolsA);
+        instanceB = cache(symbolsB);
+    }
+
+    @Test
+    void testServesValuesComputedByAnotherInstance() {
+        instanceA.put(key(symbolsA, Timeframe.M1), CANDLES);
+
+        var keyB = key(symbolsB, Timeframe.M1);
+        var value = instanceB.get(keyB);
+
+        assertNotNull(value);
+        @SuppressWarnings("unchecked")
+        var candles = (List<Candle>) value.get();
+        assertCandlesEqual(CANDLES, candles);
+        assertSame(candles, instanceB.getNativeCache().getIfPresent(keyB), "copied into the near-cache");
+        assertEquals(1, meterRegistry.get("marketdata.cache.shared").tag("outcome", "hit").timer().count());
+    }
+
+    @Test
+    void testLoaderRunsOnlyOnFullMiss() {
+        var keyA = key(symbolsA, Timeframe.H1);
+        assertEquals(CANDLES, instanceA.get(keyA, () -> CANDLES));
+
+        List<Candle> candles = instanceB.get(key(symbolsB, Timeframe.H1), () -> fail("computed twice"));
+
+        assertCandlesEqual(CANDLES, candles);
+    }
+
+    @Test
+    void testMissesOnOtherTimeframesAndRanges() {
+        instanceA.put(key(symbolsA, Timeframe.M1), CANDLES);
+
+        assertNull(instanceB.get(key(symbolsB, Timeframe.M5)));
+        assertNull(instanceB.get(new CandleCacheKey(symbolsB.find("BTC-USD"), Timeframe.M1, T0, T0 + 60)));
+        assertNull(instanceB.get(new CandleCacheKey(symbolsB.find("ETH-USD"), Timeframe.M1, T0, T0 + 600)));
+    }
+
+    @Test
+    void testSharedEntriesExpireWithNearCacheTtl() {
+        instanceA.put(key(symbolsA, Timeframe.M1), CANDLES);
+        shared.advanceMillis(TimeUnit.MINUTES.toMillis(5));
+
+        assertNull(instanceB.get(key(symbolsB, Timeframe.M1)));
+    }
+
+    @Test
+    void testZonedCalendarTimeframesStayNearOnly() {
+        var zoned = TimeframeMapper.parse("1M", "Europe/London", 0);
+        instanceA.put(key(symbolsA, zoned), CANDLES);
+
+        assertEquals(0, shared.size());
+        assertNotNull(instanceA.get(key(symbolsA, zoned)));
+        instanceA.put(key(symbolsA, Timeframe.MN1), CANDLES);
+        assertNotNull(instanceB.get(key(symbolsB, Timeframe.MN1)));
+    }
+
+    @Test
+    void testUnavailableSharedTierFallsBackToNearCache() {
+        shared.setFailing(true);
+        var keyA = key(symbolsA, Timeframe.M1);
+
+        assertDoesNotThrow(() -> instanceA.put(keyA, CANDLES));
+        assertNotNull(instanceA.get(keyA));
+        assertNull(instanceB.get(key(symbolsB, Timeframe.M1)));
+        assertEquals(CANDLES, instanceB.get(key(symbolsB, Timeframe.M1), () -> CANDLES));
+        assertEquals(2, meterRegistry.get("marketdata.cache.shared").tag("outcome", "error").timer().count());
+    }
+
+    @Test
+    void testEvictRemovesSharedEntry() {
+        instanceA.put(key(symbolsA, Timeframe.M1), CANDLES);
+
+        instanceB.evict(key(symbolsB, Timeframe.M1));
+
+        assertEquals(0, shared.size());
+    }
+
+    @Test
+    void testSharedKeyCoversRange() {
+        var sharedKey = TwoLevelCandleCache.sharedKey("BTC-USD", new CandleCacheKey(1, Timeframe.M1, T0, T0 + 600));
+
+        assertEquals("candles:BTC-USD:60s0:1620000000:1620000600", sharedKey);
+        assertTrue(TwoLevelCandleCache.covers(sharedKey, T0));
+        assertTrue(TwoLevelCandleCache.covers(sharedKey, T0 + 600));
+        assertFalse(TwoLevelCandleCache.covers(sharedKey, T0 - 1));
+        assertFalse(TwoLevelCandleCache.covers(sharedKey, T0 + 601));
+    }
+
+    private TwoLevelCandleCache cache(TestSymbolDictionary symbols) {
+        return new TwoLevelCandleCache("candles",
+            Caffeine.newBuilder().expireAfterWrite(5, TimeUnit.MINUTES).build(), Duration.ofMinutes(5), shared,
+            symbols, meterRegistry);
+    }
+
+    private static CandleCacheKey key(TestSymbolDictionary symbols, Timeframe timeframe) {
+        return new CandleCacheKey(symbols.find("BTC-USD"), timeframe, T0, T0 + 600);
+    }
+}
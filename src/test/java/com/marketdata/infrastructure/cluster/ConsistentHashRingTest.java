@@ -0,0 +1,71 @@
+package com.marketdata.infrastructure.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRingTest {
+
+    private static final List<String> NODES = List.of("http://a:8080", "http://b:8080", "http://c:8080");
+    private static final int SYMBOLS = 3000;
+
+    @Test
+    void testEveryNodeComputesTheSameOwners() {
+        var a = new ConsistentHashRing("http://a:8080", NODES, 128);
+        var c = new ConsistentHashRing("http://c:8080", NODES.reversed(), 128);
+
+        for (int i = 0; i < SYMBOLS; i++) {
+            String symbol = "SYM-" + i;
+            assertEquals(a.ownerOf(symbol), c.ownerOf(symbol));
+            assertEquals(a.ownerOf(symbol).equals("http://a:8080"), a.isLocal(symbol));
+        }
+    }
+
+    @Test
+    void testSpreadsSymbolsEvenly() {
+        var ring = new ConsistentHashRing("http://a:8080", NODES, 128);
+        var counts = new HashMap<String, Integer>();
+        for (int i = 0; i < SYMBOLS; i++) {
+            counts.merge(ring.ownerOf("SYM-" + i), 1, Integer::sum);
+        }
+
+        assertEquals(3, counts.size());
+        counts.values().forEach(count -> assertTrue(count > 750 && count < 1250, counts.toString()));
+    }
+
+    @Test
+    void testAddingNodeOnlyMovesSymbolsToIt() {
+        var before = new ConsistentHashRing("http://a:8080", NODES, 128);
+        var after = new ConsistentHashRing("http://a:8080",
+            List.of("http://a:8080", "http://b:8080", "http://c:8080", "http://d:8080"), 128);
+
+        int moved = 0;
+        for (int i = 0; i < SYMBOLS; i++) {
+            String symbol = "SYM-" + i;
+            if (!before.ownerOf(symbol).equals(after.ownerOf(symbol))) {
+                assertEquals("http://d:8080", after.ownerOf(symbol));
+                moved++;
+            }
+        }
+        assertTrue(moved > SYMBOLS / 6 && moved < SYMBOLS / 3, "moved " + moved);
+    }
+
+    @Test
+    void testSingleNodeOwnsEverything() {
+        var ring = new ConsistentHashRing("http://a:8080", List.of("http://a:8080"), 1);
+
+        assertTrue(ring.isLocal("BTC-USD"));
+        assertTrue(ring.isLocal("ETH-USD"));
+    }
+
+    @Test
+    void testRejectsMemberListWithoutSelf() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new ConsistentHashRing("http://x:8080", NODES, 128));
+        assertThrows(IllegalArgumentException.class,
+            () -> new ConsistentHashRing("http://a:8080", NODES, 0));
+    }
+}
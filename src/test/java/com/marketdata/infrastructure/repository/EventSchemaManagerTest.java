@@ -0,0 +1,113 @@
+package com.marketdata.infrastructure.repository;
+
+import com.marketdata.domain.model.BidAskEvent;
+import com.marketdata.domain.model.Timeframe;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies the optional tick uniqueness guard against H2.
+ * Runs without a test transaction so each insert commits (or fails) on its own, as in ingestion.
+ */
+@DataJpaTest
+@ActiveProfiles("default")
+@Import({EventSchemaManager.class, JpaSymbolDictionary.class})
+@TestPropertySource(properties = "marketdata.ingestion.dedup.db-guard=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EventSchemaManagerTest {
+
+    @Autowired
+    private JpaEventRepository jpaRepository;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JpaSymbolDictionary symbolDictionary;
+
+    private PostgresEventRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = repository(jpaRepository, true);
+        jpaRepository.deleteAll();
+    }
+
+    private PostgresEventRepository repository(JpaEventRepository jpa, boolean dedupGuard) {
+        var reads = ReadRouter.primaryOnly(jdbcTemplate.getJdbcTemplate().getDataSource(), 1000);
+        return new PostgresEventRepository(jpa, jdbcTemplate, symbolDictionary, reads, "auto",
+            new SimpleMeterRegistry(), dedupGuard);
+    }
+
+    @Test
+    void testDuplicateTickIsDroppedByUniqueIndex() {
+        var tick = BidAskEvent.ofEpochSecond("BTC-USD", 50000.0, 50001.0, 1620000000L);
+
+        repository.save(tick);
+        assertDoesNotThrow(() -> repository.save(tick));
+
+        assertEquals(1, jpaRepository.count());
+        assertEquals(1, repository.aggregateCandles("BTC-USD", Timeframe.M1,
+            1620000000L, 1620000060L).get(0).getVolume());
+    }
+
+    @Test
+    void testDistinctTicksAreKept() {
+        repository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0, 50001.0, 1620000000L));
+        repository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0, 50002.0, 1620000000L));
+        repository.save(BidAskEvent.ofEpochSecond("ETH-USD", 50000.0, 50001.0, 1620000000L));
+
+        assertEquals(3, jpaRepository.count());
+    }
+
+    @Test
+    void testDuplicateTickFailsWhenGuardIsDisabled() {
+        var unguarded = repository(jpaRepository, false);
+        var tick = BidAskEvent.ofEpochSecond("BTC-USD", 50000.0, 50001.0, 1620000000L);
+
+        unguarded.save(tick);
+
+        assertThrows(DataIntegrityViolationException.class, () -> unguarded.save(tick));
+    }
+
+    @Test
+    void testOtherIntegrityViolationsAreRethrown() {
+        var failing = mock(JpaEventRepository.class);
+        when(failing.save(any())).thenThrow(new DataIntegrityViolationException(
+            "NULL not allowed for column \"symbol_id\""));
+
+        assertThrows(DataIntegrityViolationException.class, () -> repository(failing, true)
+            .save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0, 50001.0, 1620000000L)));
+    }
+
+    @Test
+    void testDuplicatesAreRemovedBeforeTheGuardIsCreated() {
+        jdbcTemplate.getJdbcTemplate().execute("DROP INDEX " + EventSchemaManager.TICK_UNIQUE_INDEX);
+        int symbolId = symbolDictionary.idOf("BTC-USD");
+        var tick = BidAskEvent.ofEpochSecond("BTC-USD", 50000.0, 50001.0, 1620000000L);
+        jpaRepository.save(EventEntity.from(tick, symbolId));
+        jpaRepository.save(EventEntity.from(tick, symbolId));
+        jpaRepository.save(EventEntity.from(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0, 50002.0, 1620000000L), symbolId));
+
+        new EventSchemaManager(jpaRepository, jdbcTemplate.getJdbcTemplate(), true, true, false).apply();
+
+        assertEquals(2, jpaRepository.count());
+        assertDoesNotThrow(() -> repository.save(tick));
+        assertEquals(2, jpaRepository.count());
+    }
+}
@@ -0,0 +1,90 @@
+package com.marketdata.infrastructure.repository;
+
+import com.marketdata.domain.port.out.SymbolDictionary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@ActiveProfiles("default")
+class JpaSymbolDictionaryTest {
+
+    @Autowired
+    private JpaSymbolRepository symbolRepository;
+
+    private JpaSymbolDictionary dictionary;
+
+    @BeforeEach
+    void setUp() {
+        symbolRepository.deleteAll();
+        dictionary = new JpaSymbolDictionary(symbolRepository);
+    }
+
+    @Test
+    void testIdOfAssignsStableIds() {
+        int btc = dictionary.idOf("BTC-USD");
+        int eth = dictionary.idOf("ETH-USD");
+
+        assertTrue(btc > 0);
+        assertNotEquals(btc, eth);
+        assertEquals(btc, dictionary.idOf("BTC-USD"));
+        assertEquals(1, symbolRepository.findAll().stream().filter(s -> s.getSymbol().equals("BTC-USD")).count());
+    }
+
+    @Test
+    void testSymbolOfRoundTrip() {
+        int id = dictionary.idOf("BTC-USD");
+
+        assertEquals("BTC-USD", dictionary.symbolOf(id));
+        assertSame(dictionary.symbolOf(id), dictionary.symbolOf(id));
+    }
+
+    @Test
+    void testFindDoesNotRegister() {
+        assertEquals(SymbolDictionary.NO_ID, dictionary.find("DOGE-USD"));
+        assertTrue(symbolRepository.findBySymbol("DOGE-USD").isEmpty());
+    }
+
+    @Test
+    void testFindCachesMisses() {
+        var repository = mock(JpaSymbolRepository.class);
+        when(repository.findBySymbol("DOGE-USD")).thenReturn(Optional.empty());
+        var cached = new JpaSymbolDictionary(repository);
+
+        assertEquals(SymbolDictionary.NO_ID, cached.find("DOGE-USD"));
+        assertEquals(SymbolDictionary.NO_ID, cached.find("DOGE-USD"));
+
+        verify(repository, times(1)).findBySymbol("DOGE-USD");
+    }
+
+    @Test
+    void testRegisteringClearsCachedMiss() {
+        assertEquals(SymbolDictionary.NO_ID, dictionary.find("DOGE-USD"));
+
+        int id = dictionary.idOf("DOGE-USD");
+
+        assertEquals(id, dictionary.find("DOGE-USD"));
+    }
+
+    @Test
+    void testIdsSurviveNewInstance() {
+        int id = dictionary.idOf("BTC-USD");
+
+        // A fresh instance (e.g. after restart or on another node) resolves from the table
+        var other = new JpaSymbolDictionary(symbolRepository);
+        assertEquals(id, other.find("BTC-USD"));
+        assertEquals("BTC-USD", other.symbolOf(id));
+    }
+
+    @Test
+    void testSymbolOfUnknownIdThrows() {
+        assertThrows(IllegalArgumentException.class, () -> dictionary.symbolOf(9999));
+    }
+}
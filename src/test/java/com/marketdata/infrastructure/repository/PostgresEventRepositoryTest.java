@@ -2,15 +2,31 @@ package com.marketdata.infrastructure.repository;
 
 import com.marketdata.domain.model.BidAskEvent;
 import com.marketdata.domain.model.Candle;
+import com.marketdata.domain.model.EpochNanos;
 import com.marketdata.domain.model.Timeframe;
+import com.marketdata.domain.model.TimeframeMapper;
+import com.marketdata.jfr.RepositoryCallEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 
+import javax.sql.DataSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -21,20 +37,32 @@ import static org.junit.jupiter.api.Assertions.*;
  */
 @DataJpaTest
 @ActiveProfiles("default")
-@Import(PostgresEventRepository.class)
+@Import({PostgresEventRepository.class, JpaSymbolDictionary.class, SimpleMeterRegistry.class,
+    PostgresEventRepositoryTest.ReadRouterConfig.class})
 class PostgresEventRepositoryTest {
 
+    @TestConfiguration
+    static class ReadRouterConfig {
+        @Bean
+        ReadRouter readRouter(DataSource dataSource) {
+            return ReadRouter.primaryOnly(dataSource, 2);
+        }
+    }
+
     @Autowired
     private JpaEventRepository jpaRepository;
 
     @Autowired
     private NamedParameterJdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private JpaSymbolRepository symbolRepository;
+
     private PostgresEventRepository repository;
 
     @BeforeEach
     void setUp() {
-        repository = new PostgresEventRepository(jpaRepository, jdbcTemplate);
+        repository = new PostgresEventRepository(jpaRepository, jdbcTemplate, new JpaSymbolDictionary(symbolRepository), 2, "auto");
         jpaRepository.deleteAll(); // Clean database before each test
     }
 
@@ -42,9 +70,9 @@ class PostgresEventRepositoryTest {
     void testSqlAggregation_SingleBucket() {
         // Given: Multiple events in the same 1-minute bucket
         long baseTime = 1620000000L;
-        repository.save(new BidAskEvent("BTC-USD", 50000.0, 50001.0, baseTime));
-        repository.save(new BidAskEvent("BTC-USD", 50100.0, 50101.0, baseTime + 10));
-        repository.save(new BidAskEvent("BTC-USD", 49900.0, 49901.0, baseTime + 20));
+        repository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0, 50001.0, baseTime));
+        repository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50100.0, 50101.0, baseTime + 10));
+        repository.save(BidAskEvent.ofEpochSecond("BTC-USD", 49900.0, 49901.0, baseTime + 20));
 
         // When: Aggregate to 1-minute candles
         List<Candle> candles = repository.aggregateCandles("BTC-USD", Timeframe.M1, baseTime, baseTime + 60);
@@ -60,12 +88,30 @@ class PostgresEventRepositoryTest {
         assertEquals(3, candle.getVolume()); // Event count
     }
 
+    @Test
+    void testEarliestStoredSinceSequence() {
+        repository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0, 50001.0, 1620000600L));
+        long sequence = repository.lastSequence();
+
+        repository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0, 50001.0, 1620000900L));
+        repository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0, 50001.0, 1620000300L)); // Late correction
+        repository.save(BidAskEvent.ofEpochSecond("ETH-USD", 3000.0, 3001.0, 1620000700L));
+
+        var earliest = repository.earliestStoredSince(sequence);
+
+        assertTrue(repository.lastSequence() > sequence);
+        assertEquals(2, earliest.size());
+        assertEquals(EpochNanos.ofEpochSecond(1620000300L), earliest.get("BTC-USD"));
+        assertEquals(EpochNanos.ofEpochSecond(1620000700L), earliest.get("ETH-USD"));
+        assertTrue(repository.earliestStoredSince(repository.lastSequence()).isEmpty());
+    }
+
     @Test
     void testSqlAggregation_MultipleBuckets() {
         // Given: Events in different 1-minute buckets
-        repository.save(new BidAskEvent("BTC-USD", 50000.0, 50001.0, 1620000000L)); // Minute 0
-        repository.save(new BidAskEvent("BTC-USD", 51000.0, 51001.0, 1620000060L)); // Minute 1
-        repository.save(new BidAskEvent("BTC-USD", 52000.0, 52001.0, 1620000120L)); // Minute 2
+        repository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0, 50001.0, 1620000000L)); // Minute 0
+        repository.save(BidAskEvent.ofEpochSecond("BTC-USD", 51000.0, 51001.0, 1620000060L)); // Minute 1
+        repository.save(BidAskEvent.ofEpochSecond("BTC-USD", 52000.0, 52001.0, 1620000120L)); // Minute 2
 
         // When: Aggregate
         List<Candle> candles = repository.aggregateCandles("BTC-USD", Timeframe.M1, 1620000000L, 1620000180L);
@@ -80,8 +126,8 @@ class PostgresEventRepositoryTest {
     @Test
     void testSqlAggregation_FiltersBySymbol() {
         // Given: Events for different symbols
-        repository.save(new BidAskEvent("BTC-USD", 50000.0, 50001.0, 1620000000L));
-        repository.save(new BidAskEvent("ETH-USD", 3000.0, 3001.0, 1620000000L));
+        repository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0, 50001.0, 1620000000L));
+        repository.save(BidAskEvent.ofEpochSecond("ETH-USD", 3000.0, 3001.0, 1620000000L));
 
         // When: Aggregate for BTC only
         List<Candle> btcCandles = repository.aggregateCandles("BTC-USD", Timeframe.M1, 1620000000L, 1620000060L);
@@ -98,10 +144,10 @@ class PostgresEventRepositoryTest {
     @Test
     void testSqlAggregation_FiltersByTimeRange() {
         // Given: Events at different times
-        repository.save(new BidAskEvent("BTC-USD", 49000.0, 49001.0, 1620000000L));
-        repository.save(new BidAskEvent("BTC-USD", 50000.0, 50001.0, 1620000060L));
-        repository.save(new BidAskEvent("BTC-USD", 51000.0, 51001.0, 1620000120L));
-        repository.save(new BidAskEvent("BTC-USD", 52000.0, 52001.0, 1620000180L));
+        repository.save(BidAskEvent.ofEpochSecond("BTC-USD", 49000.0, 49001.0, 1620000000L));
+        repository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0, 50001.0, 1620000060L));
+        repository.save(BidAskEvent.ofEpochSecond("BTC-USD", 51000.0, 51001.0, 1620000120L));
+        repository.save(BidAskEvent.ofEpochSecond("BTC-USD", 52000.0, 52001.0, 1620000180L));
 
         // When: Query only middle range
         List<Candle> candles = repository.aggregateCandles("BTC-USD", Timeframe.M1, 1620000060L, 1620000120L);
@@ -127,7 +173,7 @@ class PostgresEventRepositoryTest {
     void testSqlAggregation_DifferentTimeframes() {
         // Given: Events spanning 5 minutes
         for (int i = 0; i < 5; i++) {
-            repository.save(new BidAskEvent("BTC-USD", 50000.0 + i * 100, 50001.0 + i * 100, 1620000000L + i * 60));
+            repository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0 + i * 100, 50001.0 + i * 100, 1620000000L + i * 60));
         }
 
         // When: Aggregate to 5-minute candles
@@ -137,4 +183,211 @@ class PostgresEventRepositoryTest {
         assertEquals(1, candles.size());
         assertEquals(5, candles.get(0).getVolume());
     }
+
+    @Test
+    void testQuery_UnknownSymbolReturnsEmpty() {
+        // Given: Events for a different symbol only
+        repository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0, 50001.0, 1620000000L));
+
+        // When/Then: A never-seen symbol yields nothing from either path
+        assertTrue(repository.query("DOGE-USD", 1620000000L, 1620000060L).isEmpty());
+        assertTrue(repository.aggregateCandles("DOGE-USD", Timeframe.M1, 1620000000L, 1620000060L).isEmpty());
+    }
+
+    @Test
+    void testQuery_ReturnsSymbolFromDictionary() {
+        // Given
+        repository.save(BidAskEvent.ofEpochSecond("ETH-USD", 3000.0, 3001.0, 1620000000L));
+        repository.save(BidAskEvent.ofEpochSecond("ETH-USD", 3010.0, 3011.0, 1620000010L));
+
+        // When
+        List<BidAskEvent> events = repository.query("ETH-USD", 1620000000L, 1620000060L);
+
+        // Then: Events carry the symbol name back, sharing one canonical instance
+        assertEquals(2, events.size());
+        assertEquals("ETH-USD", events.get(0).symbol());
+        assertSame(events.get(0).symbol(), events.get(1).symbol());
+    }
+
+    @Test
+    void testSqlAggregation_SubSecondOrdering() {
+        // Given: Three ticks within one second, inserted out of order
+        long base = EpochNanos.ofEpochSecond(1620000000L);
+        repository.save(new BidAskEvent("BTC-USD", 50200.0, 50201.0, base + 900_000_000L));
+        repository.save(new BidAskEvent("BTC-USD", 50000.0, 50001.0, base + 100_000_000L));
+        repository.save(new BidAskEvent("BTC-USD", 50100.0, 50101.0, base + 500_000_000L));
+
+        // When
+        List<Candle> sqlCandles = repository.aggregateCandles("BTC-USD", Timeframe.S1, 1620000000L, 1620000000L);
+        List<BidAskEvent> events = repository.query("BTC-USD", 1620000000L, 1620000000L);
+
+        // Then: Open/close follow nanosecond order in both paths
+        assertEquals(1, sqlCandles.size());
+        assertEquals(50000.5, sqlCandles.get(0).getOpen(), 0.001);
+        assertEquals(50200.5, sqlCandles.get(0).getClose(), 0.001);
+        assertEquals(List.of(base + 100_000_000L, base + 500_000_000L, base + 900_000_000L),
+            events.stream().map(BidAskEvent::timestampNanos).toList());
+    }
+
+    @Test
+    void testSqlAggregation_SecondTimeframes() {
+        // Given: One tick per second for 10 seconds
+        for (int i = 0; i < 10; i++) {
+            repository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0 + i, 50001.0 + i, 1620000000L + i));
+        }
+
+        // When
+        List<Candle> candles = repository.aggregateCandles("BTC-USD", Timeframe.S5, 1620000000L, 1620000009L);
+
+        // Then
+        assertEquals(2, candles.size());
+        assertEquals(1620000005L, candles.get(1).getTime());
+        assertEquals(5, candles.get(1).getVolume());
+    }
+
+    @Test
+    void testSqlAggregation_CalendarMonthsAndCustomIntervals() {
+        // Given: Ticks on both sides of the 2021-05-01 month boundary
+        repository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0, 50001.0, 1619827199L));
+        repository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50100.0, 50101.0, 1619827200L));
+        repository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50200.0, 50201.0, 1619827200L + 3 * 3600));
+
+        // When
+        List<Candle> months = repository.aggregateCandles("BTC-USD", Timeframe.MN1, 1617235200L, 1622505599L);
+        List<Candle> twoHours = repository.aggregateCandles("BTC-USD", TimeframeMapper.parse("2h"),
+            1619827199L, 1619827200L + 3 * 3600);
+
+        // Then
+        assertEquals(List.of(1617235200L, 1619827200L), months.stream().map(Candle::getTime).toList());
+        assertEquals(50100.5, months.get(1).getOpen(), 0.001);
+        assertEquals(50200.5, months.get(1).getClose(), 0.001);
+        assertEquals(2, months.get(1).getVolume());
+        assertEquals(List.of(1619820000L, 1619827200L, 1619834400L), twoHours.stream().map(Candle::getTime).toList());
+    }
+
+    @Test
+    void testStream_MatchesQueryOrder() {
+        // Given: More events than the fetch size, inserted out of order
+        for (int i = 4; i >= 0; i--) {
+            repository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0 + i, 50001.0 + i, 1620000000L + i));
+        }
+        repository.save(BidAskEvent.ofEpochSecond("ETH-USD", 3000.0, 3001.0, 1620000002L));
+
+        // When
+        List<BidAskEvent> streamed = new ArrayList<>();
+        repository.stream("BTC-USD", 1620000001L, 1620000004L, streamed::add);
+
+        // Then
+        assertEquals(repository.query("BTC-USD", 1620000001L, 1620000004L), streamed);
+        assertEquals(4, streamed.size());
+        assertEquals("BTC-USD", streamed.get(0).symbol());
+    }
+
+    @Test
+    void testStreamColumns_MatchesStream() {
+        for (int i = 4; i >= 0; i--) {
+            repository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0 + i, 50001.0 + i, 1620000000L + i));
+        }
+        repository.save(BidAskEvent.ofEpochSecond("ETH-USD", 3000.0, 3001.0, 1620000002L));
+
+        List<BidAskEvent> streamed = new ArrayList<>();
+        repository.streamColumns("BTC-USD", 1620000001L, 1620000004L, (timestamps, bids, asks, length) -> {
+            for (int i = 0; i < length; i++) {
+                streamed.add(new BidAskEvent("BTC-USD", bids[i], asks[i], timestamps[i]));
+            }
+        });
+
+        assertEquals(repository.query("BTC-USD", 1620000001L, 1620000004L), streamed);
+    }
+
+    @Test
+    void testStream_UnknownSymbolEmitsNothing() {
+        List<BidAskEvent> streamed = new ArrayList<>();
+        repository.stream("DOGE-USD", 1620000000L, 1620000060L, streamed::add);
+        assertTrue(streamed.isEmpty());
+    }
+
+    @Test
+    void testSqlAggregation_AllStrategiesAgree() {
+        // Given: Several buckets, with ticks sharing a timestamp at bucket edges
+        var dictionary = new JpaSymbolDictionary(symbolRepository);
+        long base = EpochNanos.ofEpochSecond(1620000000L);
+        for (int i = 0; i < 50; i++) {
+            long ts = base + (i / 2) * 7_000_000_000L;
+            repository.save(new BidAskEvent("BTC-USD", 50000.0 + (i * 37) % 11, 50001.0 + (i * 37) % 11, ts));
+        }
+
+        for (var timeframe : List.of(Timeframe.S15, Timeframe.M1, TimeframeMapper.parse("1m", null, 1))) {
+            var expected = new PostgresEventRepository(jpaRepository, jdbcTemplate, dictionary, 2, "window")
+                .aggregateCandles("BTC-USD", timeframe, 1620000000L, 1620000300L);
+            for (var strategy : SqlAggregationStrategy.values()) {
+                var actual = new PostgresEventRepository(jpaRepository, jdbcTemplate, dictionary, 2, strategy.name())
+                    .aggregateCandles("BTC-USD", timeframe, 1620000000L, 1620000300L);
+
+                assertEquals(expected.size(), actual.size(), strategy + " " + timeframe);
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.get(i).getTime(), actual.get(i).getTime(), strategy + " " + timeframe);
+                    assertEquals(expected.get(i).getOpen(), actual.get(i).getOpen(), 0.001, strategy + " " + timeframe);
+                    assertEquals(expected.get(i).getHigh(), actual.get(i).getHigh(), 0.001, strategy + " " + timeframe);
+                    assertEquals(expected.get(i).getLow(), actual.get(i).getLow(), 0.001, strategy + " " + timeframe);
+                    assertEquals(expected.get(i).getClose(), actual.get(i).getClose(), 0.001, strategy + " " + timeframe);
+                    assertEquals(expected.get(i).getVolume(), actual.get(i).getVolume(), strategy + " " + timeframe);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testSqlStrategy_UnknownNameRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new PostgresEventRepository(
+            jpaRepository, jdbcTemplate, new JpaSymbolDictionary(symbolRepository), 2, "fastest"));
+    }
+
+    @Test
+    void testStreamBackward_NewestFirstAndStopsEarly() {
+        // Given
+        for (int i = 0; i < 5; i++) {
+            repository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0 + i, 50001.0 + i, 1620000000L + i));
+        }
+
+        // When: Stop after three events
+        List<BidAskEvent> streamed = new ArrayList<>();
+        repository.streamBackward("BTC-USD", 0, 1620000003L, event -> {
+            streamed.add(event);
+            return streamed.size() < 3;
+        });
+
+        // Then
+        assertEquals(List.of(1620000003L, 1620000002L, 1620000001L),
+            streamed.stream().map(BidAskEvent::epochSecond).toList());
+    }
+
+    @Test
+    void testCallsAreRecordedInJfr(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("repository.jfr");
+        try (var recording = new Recording()) {
+            recording.enable(RepositoryCallEvent.class);
+            recording.start();
+            repository.save(BidAskEvent.ofEpochSecond("JFR-USD", 100.0, 101.0, 1620000000L));
+            repository.save(BidAskEvent.ofEpochSecond("JFR-USD", 100.0, 101.0, 1620000030L));
+            repository.stream("JFR-USD", 1620000000L, 1620000059L, event -> { });
+            repository.aggregateCandles("JFR-USD", Timeframe.M1, 1620000000L, 1620000059L);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        var calls = RecordingFile.readAllEvents(file).stream()
+            .filter(event -> "JFR-USD".equals(event.getString("symbol")))
+            .sorted(Comparator.comparing(RecordedEvent::getEndTime))
+            .toList();
+
+        assertEquals(List.of("save", "save", "stream", "aggregate"),
+            calls.stream().map(event -> event.getString("operation")).toList());
+        assertEquals("write", calls.get(0).getString("target"));
+        assertEquals(1620000030L, calls.get(1).getLong("from"));
+        assertEquals("primary", calls.get(2).getString("target"));
+        assertEquals(2, calls.get(2).getLong("rows"));
+        assertEquals(1620000059L, calls.get(3).getLong("to"));
+        assertEquals(1, calls.get(3).getLong("rows"));
+    }
 }
@@ -0,0 +1,78 @@
+package com.marketdata.infrastructure.repository;
+
+import com.marketdata.domain.model.BidAskEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies with {@code EXPLAIN} that candle and stream queries are answered from the
+ * covering index created by {@link EventSchemaManager}, without table scans.
+ */
+@DataJpaTest
+@ActiveProfiles("default")
+@Import({EventSchemaManager.class, JpaSymbolDictionary.class})
+class QueryPlanTest {
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JpaEventRepository jpaRepository;
+
+    @Autowired
+    private JpaSymbolDictionary symbolDictionary;
+
+    private MapSqlParameterSource params;
+
+    @BeforeEach
+    void setUp() {
+        int symbolId = symbolDictionary.idOf("BTC-USD");
+        for (int i = 0; i < 100; i++) {
+            jpaRepository.save(EventEntity.from(
+                BidAskEvent.ofEpochSecond("BTC-USD", 50000.0 + i, 50001.0 + i, 1620000000L + i), symbolId));
+        }
+        params = new MapSqlParameterSource()
+            .addValue("symbolId", symbolId)
+            .addValue("fromNanos", 1620000000_000000000L)
+            .addValue("toNanos", 1620000099_999999999L)
+            .addValue("intervalNanos", 60_000000000L)
+            .addValue("intervalSeconds", 60L)
+            .addValue("offsetNanos", 0L)
+            .addValue("offsetSeconds", 0L);
+    }
+
+    @Test
+    void testStreamQueryUsesCoveringIndex() {
+        assertIndexOnly(explain(PostgresEventRepository.STREAM_EVENTS_SQL));
+        assertIndexOnly(explain(PostgresEventRepository.STREAM_EVENTS_BACKWARD_SQL));
+    }
+
+    @Test
+    void testAggregationStrategiesUseCoveringIndex() {
+        for (var strategy : SqlAggregationStrategy.values()) {
+            assertIndexOnly(explain(strategy.sql()));
+        }
+    }
+
+    private String explain(String sql) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, params, String.class));
+    }
+
+    private static void assertIndexOnly(String plan) {
+        // Identifier case depends on the H2 URL, so compare case-insensitively
+        String normalized = plan.toLowerCase(Locale.ROOT);
+        assertTrue(normalized.contains(EventSchemaManager.COVERING_INDEX), plan);
+        assertFalse(normalized.contains("tablescan"), plan);
+        assertFalse(normalized.contains("idx_symbol_timestamp"), plan);
+    }
+}
@@ -0,0 +1,61 @@
+package com.marketdata.infrastructure.repository;
+
+import com.marketdata.domain.model.EpochNanos;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReadRouterTest {
+
+    private static final long NOW = 1620000000L;
+    private static final long MAX_LAG = TimeUnit.SECONDS.toNanos(10);
+
+    @Test
+    void testRecentRangesReadFromPrimary() {
+        var router = router(List.of(mock(DataSource.class)));
+
+        assertEquals("primary", router.forRange(NOW).name());
+        assertEquals("primary", router.forRange(NOW - 9).name());
+        assertEquals("primary", router.forRange(NOW + 60).name());
+    }
+
+    @Test
+    void testOlderRangesAlternateBetweenReplicas() {
+        var router = router(List.of(mock(DataSource.class), mock(DataSource.class)));
+
+        assertEquals("replica-0", router.forRange(NOW - 11).name());
+        assertEquals("replica-1", router.forRange(NOW - 3600).name());
+        assertEquals("replica-0", router.forRange(NOW - 86_400).name());
+    }
+
+    @Test
+    void testWithoutReplicasEverythingReadsFromPrimary() {
+        var router = router(List.of());
+
+        assertEquals("primary", router.forRange(NOW - 86_400).name());
+    }
+
+    @Test
+    void testClosesOwnedPoolsOnly() {
+        var primary = mock(HikariDataSource.class);
+        var replica = mock(HikariDataSource.class);
+        new ReadRouter(primary, List.of(replica), 100, MAX_LAG, () -> EpochNanos.ofEpochSecond(NOW), true).close();
+        verify(primary).close();
+        verify(replica).close();
+
+        var shared = mock(HikariDataSource.class);
+        ReadRouter.primaryOnly(shared, 100).close();
+        verify(shared, never()).close();
+    }
+
+    private static ReadRouter router(List<DataSource> replicas) {
+        return new ReadRouter(mock(DataSource.class), replicas, 100, MAX_LAG,
+            () -> EpochNanos.ofEpochSecond(NOW), false);
+    }
+}
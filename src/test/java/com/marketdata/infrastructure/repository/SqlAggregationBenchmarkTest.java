@@ -0,0 +1,124 @@
+package com.marketdata.infrastructure.repository;
+
+import com.marketdata.domain.model.EpochNanos;
+import com.marketdata.domain.model.Timeframe;
+import com.marketdata.domain.service.CandleAggregator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the SQL aggregation strategies and the Java path on a realistic volume.
+ * {@link SqlAggregationStrategy#DISTINCT_ON} only runs against PostgreSQL.
+ * Disabled by default; run with
+ * {@code mvn test -Dtest=SqlAggregationBenchmarkTest -Dbenchmark=true [-Dbenchmark.events=1000000]}.
+ */
+@DataJpaTest
+@ActiveProfiles("default")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class SqlAggregationBenchmarkTest {
+
+    private static final long START = 1620000000L;
+    private static final int WARMUP = 2;
+    private static final int RUNS = 5;
+
+    @Autowired
+    private JpaEventRepository jpaRepository;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JpaSymbolRepository symbolRepository;
+
+    @Test
+    void compareStrategies() {
+        int events = Integer.getInteger("benchmark.events", 500_000);
+        var dictionary = new JpaSymbolDictionary(symbolRepository);
+        long end = insertTicks(dictionary, events);
+        String product = DatabaseProduct.of(jdbcTemplate.getJdbcTemplate().getDataSource());
+
+        for (var timeframe : List.of(Timeframe.M1, Timeframe.H1)) {
+            int expected = -1;
+            for (var strategy : SqlAggregationStrategy.values()) {
+                if (strategy == SqlAggregationStrategy.DISTINCT_ON && !DatabaseProduct.POSTGRESQL.equals(product)) {
+                    continue;
+                }
+                var repository = new PostgresEventRepository(jpaRepository, jdbcTemplate, dictionary, 1000, strategy.name());
+                int candles = time(strategy.name(), timeframe, events,
+                    () -> repository.aggregateCandles("BTC-USD", timeframe, START, end).size());
+                if (expected >= 0) {
+                    assertEquals(expected, candles);
+                }
+                expected = candles;
+            }
+            var repository = new PostgresEventRepository(jpaRepository, jdbcTemplate, dictionary, 1000, "auto");
+            var aggregator = new CandleAggregator();
+            time("JAVA_STREAM", timeframe, events, () -> {
+                var accumulator = aggregator.accumulator(timeframe);
+                repository.stream("BTC-USD", START, end, accumulator);
+                return accumulator.candles().size();
+            });
+            time("JAVA_COLUMNS", timeframe, events, () -> {
+                var accumulator = aggregator.columnarAccumulator(timeframe);
+                repository.streamColumns("BTC-USD", START, end, accumulator);
+                return accumulator.candles().size();
+            });
+        }
+    }
+
+    /**
+     * Inserts ticks for two symbols at ~4 ticks per second with jittered sub-second timestamps.
+     *
+     * @return last tick time in epoch seconds
+     */
+    private long insertTicks(JpaSymbolDictionary dictionary, int events) {
+        int btc = dictionary.idOf("BTC-USD");
+        int eth = dictionary.idOf("ETH-USD");
+        var random = new SplittableRandom(42);
+        var batch = new ArrayList<Object[]>();
+        long nanos = EpochNanos.ofEpochSecond(START);
+        for (int i = 0; i < events; i++) {
+            nanos += random.nextLong(1, 500_000_000L);
+            double bid = 50000.0 + random.nextDouble(-500, 500);
+            batch.add(new Object[] {i % 4 == 0 ? eth : btc, bid, bid + 1.0, nanos});
+            if (batch.size() == 10_000) {
+                flush(batch);
+            }
+        }
+        flush(batch);
+        return EpochNanos.toEpochSecond(nanos);
+    }
+
+    private void flush(List<Object[]> batch) {
+        jdbcTemplate.getJdbcTemplate().batchUpdate(
+            "INSERT INTO bid_ask_events (symbol_id, bid, ask, timestamp_nanos) VALUES (?, ?, ?, ?)", batch);
+        batch.clear();
+    }
+
+    private static int time(String name, Timeframe timeframe, int events, IntSupplier run) {
+        int candles = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            candles = run.getAsInt();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            candles = run.getAsInt();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-12s %-4s events=%d candles=%d best=%.1f ms%n",
+            name, timeframe, events, candles, best / 1e6);
+        return candles;
+    }
+}
@@ -2,13 +2,16 @@ package com.marketdata.infrastructure.repository;
 
 import com.marketdata.domain.model.BidAskEvent;
 import com.marketdata.domain.model.Candle;
+import com.marketdata.domain.model.EpochNanos;
 import com.marketdata.domain.model.Timeframe;
 import com.marketdata.domain.port.out.EventRepository;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static java.util.Comparator.comparingLong;
 
@@ -19,10 +22,26 @@ import static java.util.Comparator.comparingLong;
 public class TestEventRepository implements EventRepository {
 
     private final Map<String, List<BidAskEvent>> events = new ConcurrentHashMap<>();
+    private final List<BidAskEvent> stored = new CopyOnWriteArrayList<>();
 
     @Override
     public void save(BidAskEvent event) {
         events.computeIfAbsent(event.symbol(), k -> new ArrayList<>()).add(event);
+        stored.add(event);
+    }
+
+    @Override
+    public long lastSequence() {
+        return stored.size();
+    }
+
+    @Override
+    public Map<String, Long> earliestStoredSince(long sequence) {
+        var earliest = new HashMap<String, Long>();
+        for (var event : stored.subList((int) sequence, stored.size())) {
+            earliest.merge(event.symbol(), event.timestampNanos(), Math::min);
+        }
+        return earliest;
     }
 
     @Override
@@ -32,9 +51,11 @@ public class TestEventRepository implements EventRepository {
             return List.of();
         }
 
+        long fromNanos = EpochNanos.ofEpochSecond(from);
+        long toNanos = EpochNanos.endOfEpochSecond(to);
         return symbolEvents.stream()
-                .filter(e -> e.timestamp() >= from && e.timestamp() <= to)
-                .sorted(comparingLong(BidAskEvent::timestamp))
+                .filter(e -> e.timestampNanos() >= fromNanos && e.timestampNanos() <= toNanos)
+                .sorted(comparingLong(BidAskEvent::timestampNanos))
                 .toList();
     }
 
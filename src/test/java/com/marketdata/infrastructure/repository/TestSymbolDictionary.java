@@ -0,0 +1,38 @@
+package com.marketdata.infrastructure.repository;
+
+import com.marketdata.domain.port.out.SymbolDictionary;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-memory test implementation of SymbolDictionary.
+ */
+public class TestSymbolDictionary implements SymbolDictionary {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final List<String> symbols = new CopyOnWriteArrayList<>(List.of(""));
+
+    @Override
+    public synchronized int idOf(String symbol) {
+        return ids.computeIfAbsent(symbol, s -> {
+            symbols.add(s);
+            return symbols.size() - 1;
+        });
+    }
+
+    @Override
+    public int find(String symbol) {
+        return ids.getOrDefault(symbol, NO_ID);
+    }
+
+    @Override
+    public String symbolOf(int id) {
+        if (id <= 0 || id >= symbols.size()) {
+            throw new IllegalArgumentException("Unknown symbol id: " + id);
+        }
+        return symbols.get(id);
+    }
+}
@@ -0,0 +1,82 @@
+package com.marketdata.infrastructure.source;
+
+import com.marketdata.domain.model.BidAskEvent;
+import com.marketdata.domain.port.out.MarketDataSource;
+import com.marketdata.domain.port.out.SymbolOwnership;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ShardedMarketDataSourceTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPassesOnlyOwnedSymbols() {
+        var delegate = mock(MarketDataSource.class);
+        var ownership = mock(SymbolOwnership.class);
+        when(ownership.isLocal("BTC-USD")).thenReturn(true);
+        var received = new ArrayList<BidAskEvent>();
+
+        var source = new ShardedMarketDataSource(delegate, ownership);
+        source.start(received::add);
+        var handler = ArgumentCaptor.forClass(Consumer.class);
+        verify(delegate).start(handler.capture());
+        var btc = BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000000L);
+        handler.getValue().accept(btc);
+        handler.getValue().accept(BidAskEvent.ofEpochSecond("ETH-USD", 10.0, 11.0, 1620000000L));
+
+        assertEquals(List.of(btc), received);
+        source.stop();
+        verify(delegate).stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCachesOwnershipUntilTheAssignmentChanges() {
+        var delegate = mock(MarketDataSource.class);
+        var ownership = mock(SymbolOwnership.class);
+        when(ownership.isLocal("BTC-USD")).thenReturn(true);
+        var received = new ArrayList<BidAskEvent>();
+        new ShardedMarketDataSource(delegate, ownership).start(received::add);
+        var handler = ArgumentCaptor.forClass(Consumer.class);
+        verify(delegate).start(handler.capture());
+        var btc = BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000000L);
+
+        handler.getValue().accept(btc);
+        handler.getValue().accept(btc);
+        verify(ownership, times(1)).isLocal("BTC-USD");
+
+        // The symbol moves to another node
+        when(ownership.version()).thenReturn(1L);
+        when(ownership.isLocal("BTC-USD")).thenReturn(false);
+        handler.getValue().accept(btc);
+
+        assertEquals(List.of(btc, btc), received);
+        verify(ownership, times(2)).isLocal("BTC-USD");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testBatchesKeepOnlyOwnedSymbols() {
+        var delegate = mock(MarketDataSource.class);
+        var ownership = mock(SymbolOwnership.class);
+        when(ownership.isLocal("BTC-USD")).thenReturn(true);
+        var received = new ArrayList<List<BidAskEvent>>();
+        new ShardedMarketDataSource(delegate, ownership).startBatches(received::add);
+        var handler = ArgumentCaptor.forClass(Consumer.class);
+        verify(delegate).startBatches(handler.capture());
+        var btc = BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000000L);
+        var eth = BidAskEvent.ofEpochSecond("ETH-USD", 10.0, 11.0, 1620000000L);
+
+        handler.getValue().accept(List.of(btc, eth));
+        handler.getValue().accept(List.of(eth));
+
+        assertEquals(List.of(List.of(btc)), received);
+    }
+}
@@ -0,0 +1,145 @@
+package com.marketdata.infrastructure.wal;
+
+import com.marketdata.domain.model.BidAskEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedWriteAheadLogTest {
+
+    private static final int SEGMENT_SIZE = 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testReplaysEventsAfterReopen() {
+        var events = events(3);
+        try (var wal = open()) {
+            events.forEach(wal::append);
+        }
+
+        try (var wal = open()) {
+            assertEquals(events, replay(wal));
+        }
+    }
+
+    @Test
+    void testEventsAppendedBySymbolIdReplayWithTheirSymbols() {
+        var btc = BidAskEvent.ofEpochSecond("BTC-USD", 100.0, 101.0, 1620000000L);
+        var eth = BidAskEvent.ofEpochSecond("ETH-USD", 10.0, 11.0, 1620000000L);
+        var laterBtc = BidAskEvent.ofEpochSecond("BTC-USD", 102.0, 103.0, 1620000001L);
+        try (var wal = open()) {
+            wal.append(1, btc);
+            wal.append(40, eth);
+            wal.append(1, laterBtc);
+        }
+
+        try (var wal = open()) {
+            assertEquals(List.of(btc, eth, laterBtc), replay(wal));
+        }
+    }
+
+    @Test
+    void testReplayStartsAtCheckpointAcrossSegments() throws IOException {
+        var events = events(100);
+        var positions = new ArrayList<Long>();
+        long segmentsBefore;
+        try (var wal = open()) {
+            events.forEach(event -> positions.add(wal.append(event)));
+            segmentsBefore = segmentCount();
+            wal.checkpoint(positions.get(60));
+        }
+
+        try (var wal = open()) {
+            assertEquals(events.subList(60, 100), replay(wal));
+            assertTrue(segmentCount() < segmentsBefore, "segments before the checkpoint are deleted");
+            assertTrue(segmentsBefore > 2);
+        }
+    }
+
+    @Test
+    void testTornTailIsDiscardedAndOverwritten() throws IOException {
+        var events = events(3);
+        long end;
+        try (var wal = open()) {
+            events.forEach(wal::append);
+            end = wal.position();
+        }
+        try (var channel = FileChannel.open(segments().getLast(), StandardOpenOption.WRITE)) {
+            // Length of a plausible record whose payload never made it to disk
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, 40), end);
+        }
+
+        try (var wal = open()) {
+            assertEquals(end, wal.position());
+            var next = BidAskEvent.ofEpochSecond("ETH-USD", 1.0, 2.0, 1620000100L);
+            wal.append(next);
+            var expected = new ArrayList<>(events);
+            expected.add(next);
+            assertEquals(expected, replay(wal));
+        }
+    }
+
+    @Test
+    void testAwaitDurableReturnsOnceSynced() {
+        try (var wal = new MappedWriteAheadLog(directory, SEGMENT_SIZE, 0, true, new SimpleMeterRegistry()).open()) {
+            long position = wal.append(events(1).getFirst());
+            wal.awaitDurable(position);
+            wal.awaitDurable(position);
+        }
+    }
+
+    @Test
+    void testNothingIsTouchedUntilOpened() {
+        var logDir = directory.resolve("wal");
+        var wal = new MappedWriteAheadLog(logDir, SEGMENT_SIZE, 10, false, new SimpleMeterRegistry());
+
+        assertFalse(Files.exists(logDir));
+        assertThrows(IllegalStateException.class, () -> wal.append(events(1).getFirst()));
+        try (var opened = wal.open()) {
+            assertTrue(Files.exists(logDir));
+            assertThrows(IllegalStateException.class, opened::open);
+        }
+    }
+
+    private MappedWriteAheadLog open() {
+        return new MappedWriteAheadLog(directory, SEGMENT_SIZE, 0, false, new SimpleMeterRegistry()).open();
+    }
+
+    private static List<BidAskEvent> events(int count) {
+        var events = new ArrayList<BidAskEvent>();
+        for (int i = 0; i < count; i++) {
+            events.add(BidAskEvent.ofEpochSecond("BTC-USD", 100.0 + i, 101.0 + i, 1620000000L + i));
+        }
+        return events;
+    }
+
+    private static List<BidAskEvent> replay(MappedWriteAheadLog wal) {
+        var replayed = new ArrayList<BidAskEvent>();
+        wal.replay((event, position) -> replayed.add(event));
+        return replayed;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".wal")).sorted().toList();
+        }
+    }
+
+    private long segmentCount() throws IOException {
+        return segments().size();
+    }
+}
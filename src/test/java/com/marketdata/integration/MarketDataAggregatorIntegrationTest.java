@@ -33,9 +33,9 @@ class MarketDataAggregatorIntegrationTest {
         long baseTime = 1620000000L; // Base timestamp in seconds
         
         // Store multiple events in the same 1-minute bucket
-        BidAskEvent e1 = new BidAskEvent(symbol, 50000.0, 50001.0, baseTime);
-        BidAskEvent e2 = new BidAskEvent(symbol, 50100.0, 50101.0, baseTime);
-        BidAskEvent e3 = new BidAskEvent(symbol, 49900.0, 49901.0, baseTime);
+        BidAskEvent e1 = BidAskEvent.ofEpochSecond(symbol, 50000.0, 50001.0, baseTime);
+        BidAskEvent e2 = BidAskEvent.ofEpochSecond(symbol, 50100.0, 50101.0, baseTime);
+        BidAskEvent e3 = BidAskEvent.ofEpochSecond(symbol, 49900.0, 49901.0, baseTime);
         
         eventRepository.save(e1);
         eventRepository.save(e2);
@@ -59,8 +59,8 @@ class MarketDataAggregatorIntegrationTest {
     void testMultipleSymbolsAndTimeframes() {
         long baseTime = 1620000000L;
         
-        eventRepository.save(new BidAskEvent("BTC-USD", 50000.0, 50001.0, baseTime));
-        eventRepository.save(new BidAskEvent("ETH-USD", 3000.0, 3001.0, baseTime));
+        eventRepository.save(BidAskEvent.ofEpochSecond("BTC-USD", 50000.0, 50001.0, baseTime));
+        eventRepository.save(BidAskEvent.ofEpochSecond("ETH-USD", 3000.0, 3001.0, baseTime));
         
         long bucket = Timeframe.M1.bucketStart(baseTime);
         List<Candle> btcCandles = historyQueryService.getHistory("BTC-USD", Timeframe.M1, bucket, bucket);
@@ -81,9 +81,9 @@ class MarketDataAggregatorIntegrationTest {
         long time2 = 1620000060L; // 1 minute later
         long time3 = 1620000120L; // 2 minutes later
         
-        eventRepository.save(new BidAskEvent(symbol, 50000.0, 50001.0, time1));
-        eventRepository.save(new BidAskEvent(symbol, 51000.0, 51001.0, time2));
-        eventRepository.save(new BidAskEvent(symbol, 52000.0, 52001.0, time3));
+        eventRepository.save(BidAskEvent.ofEpochSecond(symbol, 50000.0, 50001.0, time1));
+        eventRepository.save(BidAskEvent.ofEpochSecond(symbol, 51000.0, 51001.0, time2));
+        eventRepository.save(BidAskEvent.ofEpochSecond(symbol, 52000.0, 52001.0, time3));
         
         // Query range
         long startBucket = Timeframe.M1.bucketStart(time1);
@@ -0,0 +1,151 @@
+package com.marketdata.jfr;
+
+import com.marketdata.application.service.HistoryQueryService;
+import com.marketdata.application.service.MarketDataIngestionService;
+import com.marketdata.domain.model.BidAskEvent;
+import com.marketdata.domain.model.Candle;
+import com.marketdata.domain.model.EpochNanos;
+import com.marketdata.domain.model.Timeframe;
+import com.marketdata.domain.port.out.CandleInvalidator;
+import com.marketdata.domain.port.out.DataVersions;
+import com.marketdata.domain.port.out.EventRepository;
+import com.marketdata.domain.port.out.MarketDataSource;
+import com.marketdata.domain.port.out.WriteAheadLog;
+import com.marketdata.domain.service.CandleAggregator;
+import com.marketdata.infrastructure.repository.TestEventRepository;
+import com.marketdata.infrastructure.repository.TestSymbolDictionary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Records the custom JFR events in-process and reads them back from the dump, the way
+ * {@code jfr print} or JDK Mission Control would see them.
+ */
+class MarketDataEventsTest {
+
+    private static final String SYMBOL = "JFR-USD";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testIngestionBatchesAreRecorded() throws IOException {
+        var repository = new TestEventRepository();
+        var source = mock(MarketDataSource.class);
+        var service = new MarketDataIngestionService(source, repository, new TestSymbolDictionary(),
+            mock(CandleInvalidator.class), mock(DataVersions.class), WriteAheadLog.disabled(),
+            Duration.ofSeconds(2).toNanos(), 16, new SimpleMeterRegistry());
+
+        var events = record(() -> {
+            service.start();
+            @SuppressWarnings("unchecked")
+            var handler = (Consumer<List<BidAskEvent>>) mockingDetails(source).getInvocations().iterator().next()
+                .getArgument(0);
+            handler.accept(List.of(BidAskEvent.ofEpochSecond(SYMBOL, 100.0, 101.0, 1620000000L)));
+            handler.accept(List.of(BidAskEvent.ofEpochSecond(SYMBOL, 100.0, 101.0, 1620000001L)));
+            handler.accept(List.of(BidAskEvent.ofEpochSecond(SYMBOL, 100.0, 101.0, 1620000010L)));
+            handler.accept(List.of(BidAskEvent.ofEpochSecond(SYMBOL, 100.0, 101.0, 1620000003L)));
+            service.stop();
+        }, "marketdata.IngestionBatch");
+
+        assertEquals(List.of("live", "live", "shutdown"), events.stream().map(e -> e.getString("trigger")).toList());
+        assertEquals(2, events.get(0).getInt("size"));
+        assertEquals(0, events.get(0).getInt("late"));
+        assertEquals(1, events.get(1).getInt("size"));
+        assertEquals(1, events.get(1).getInt("late"));
+        assertEquals(1, events.get(2).getInt("size"));
+        assertTrue(events.get(0).getDuration("maxLag").compareTo(Duration.ofDays(365)) > 0);
+    }
+
+    @Test
+    void testHistoryQueriesAreRecorded() throws IOException {
+        var repository = new TestEventRepository();
+        for (long t = 1620000000L; t < 1620000180L; t += 10) {
+            repository.save(BidAskEvent.ofEpochSecond(SYMBOL, 100.0, 101.0, t));
+        }
+        var service = new HistoryQueryService(repository, new CandleAggregator());
+
+        var events = record(() -> {
+            service.getHistory(SYMBOL, Timeframe.M1, 1620000000L, 1620000179L);
+            service.getLastCandles(SYMBOL, Timeframe.M1, 1620000179L, 2);
+        }, "marketdata.HistoryQuery");
+
+        assertEquals(2, events.size());
+        var history = events.get(0);
+        assertEquals(SYMBOL, history.getString("symbol"));
+        assertEquals("java", history.getString("path"));
+        assertEquals("1m", history.getString("timeframe"));
+        assertEquals(1620000000L, history.getLong("from"));
+        assertEquals(1620000179L, history.getLong("to"));
+        assertEquals(18, history.getLong("events"));
+        assertEquals(3, history.getInt("candles"));
+        assertEquals("none", history.getString("cacheOutcome"));
+        assertEquals("countback", events.get(1).getString("path"));
+        assertEquals(2, events.get(1).getInt("candles"));
+    }
+
+    @Test
+    void testSqlQueriesRecordCacheOutcome() throws IOException {
+        var repository = mock(EventRepository.class);
+        var candles = List.of(new Candle(1620000000L, 100.0, 100.0, 100.0, 100.0, 4));
+        when(repository.aggregateCandles(anyString(), any(Timeframe.class), anyLong(), anyLong()))
+            .thenAnswer(invocation -> {
+                HistoryQueryEvent.cacheMiss();
+                return candles;
+            })
+            .thenReturn(candles);
+        var service = new HistoryQueryService(repository, new CandleAggregator());
+
+        var events = record(() -> {
+            service.getHistoryWithSql(SYMBOL, Timeframe.M1, 1620000000L, 1620000059L);
+            service.getHistoryWithSql(SYMBOL, Timeframe.M1, 1620000000L, 1620000059L);
+        }, "marketdata.HistoryQuery");
+
+        assertEquals(List.of("miss", "hit"), events.stream().map(e -> e.getString("cacheOutcome")).toList());
+        assertEquals(4, events.get(1).getLong("events"));
+    }
+
+    @Test
+    void testCacheMissOutsideQueryIsIgnored() {
+        assertDoesNotThrow(HistoryQueryEvent::cacheMiss);
+    }
+
+    /**
+     * Runs {@code action} under a recording of the market data events and returns the
+     * events named {@code name} for the test symbol, or without a symbol but from this
+     * thread, in commit order.
+     */
+    private List<RecordedEvent> record(Runnable action, String name) throws IOException {
+        Path file = tempDir.resolve("recording.jfr");
+        try (var recording = new Recording()) {
+            recording.enable(IngestionBatchEvent.class);
+            recording.enable(HistoryQueryEvent.class);
+            recording.enable(RepositoryCallEvent.class);
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file).stream()
+            .filter(event -> event.getEventType().getName().equals(name))
+            .filter(event -> event.hasField("symbol")
+                ? SYMBOL.equals(event.getString("symbol"))
+                : Thread.currentThread().getName().equals(event.getThread().getJavaName()))
+            .sorted((a, b) -> a.getEndTime().compareTo(b.getEndTime()))
+            .toList();
+    }
+}